@@ -0,0 +1,336 @@
+package com.prophecy.testing.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.prophecy.testing.models.PipelineStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Tracks pipeline runs over the API and completes a future per run when it reaches a terminal status.
+ * A run is followed through its server-sent event stream when the server offers one, and polled
+ * otherwise; polls ask the server to hold the request until the status changes and back off
+ * exponentially while it does not. All runs share one thread, which schedules requests and handles
+ * their responses without blocking, so a single monitor can follow hundreds of concurrent runs.
+ */
+public class PipelineRunMonitor implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(PipelineRunMonitor.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final int MAX_CONSECUTIVE_FAILURES = 5;
+    
+    private final String baseUrl;
+    private final Map<String, String> headers;
+    private final boolean useEvents;
+    private final Duration initialInterval;
+    private final Duration maxInterval;
+    private final Duration longPollWait;
+    private final ScheduledExecutorService scheduler;
+    private final HttpClient httpClient;
+    private final Map<String, TrackedRun> runs = new ConcurrentHashMap<>();
+    
+    public PipelineRunMonitor(String baseUrl, Map<String, String> headers, boolean useEvents,
+                              Duration initialInterval, Duration maxInterval, Duration longPollWait) {
+        this.baseUrl = baseUrl;
+        this.headers = headers;
+        this.useEvents = useEvents;
+        this.initialInterval = initialInterval;
+        this.maxInterval = maxInterval;
+        this.longPollWait = longPollWait;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pipeline-run-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Responses are handled on the monitor thread as well; handlers only parse and reschedule
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(30))
+                .executor(scheduler)
+                .build();
+    }
+    
+    /**
+     * Track a run until it reaches a terminal status. Runs already being tracked share their future.
+     * Cancelling the future stops following the run for every caller that shares it.
+     */
+    public CompletableFuture<RunStatus> track(String pipelineId, String runId) {
+        String key = pipelineId + "/" + runId;
+        TrackedRun run = runs.computeIfAbsent(key, k -> {
+            TrackedRun tracked = new TrackedRun(pipelineId, runId);
+            tracked.future.whenComplete((status, error) -> runs.remove(k, tracked));
+            scheduler.execute(() -> follow(tracked));
+            return tracked;
+        });
+        return run.future;
+    }
+    
+    public int getTrackedRunCount() {
+        return runs.size();
+    }
+    
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        runs.values().forEach(run -> run.future.completeExceptionally(
+                new CancellationException("Run monitor closed before run " + run.runId + " finished")));
+    }
+    
+    private void follow(TrackedRun run) {
+        if (run.future.isDone()) {
+            return;
+        }
+        if (useEvents && !run.eventsUnsupported) {
+            subscribe(run);
+        } else {
+            poll(run);
+        }
+    }
+    
+    private void subscribe(TrackedRun run) {
+        HttpRequest request = request(run, "/events")
+                .header("Accept", "text/event-stream")
+                .build();
+        
+        HttpResponse.BodyHandler<Void> handler = info -> isEventStream(info)
+                ? HttpResponse.BodySubscribers.fromLineSubscriber(new EventStreamSubscriber(run))
+                : HttpResponse.BodySubscribers.discarding();
+        
+        httpClient.sendAsync(request, handler).whenComplete((response, error) -> {
+            if (run.future.isDone()) {
+                return;
+            }
+            if (error == null && !isEventStream(response)) {
+                logger.debug("No event stream for run {} ({}), polling instead", run.runId, response.statusCode());
+                run.eventsUnsupported = true;
+            } else if (error != null && !recordFailure(run, error.getMessage())) {
+                return;
+            }
+            // The stream ended before a terminal status; reconnect or fall back to polling after a pause
+            schedule(run, run.interval);
+        });
+    }
+    
+    private void poll(TrackedRun run) {
+        HttpRequest request = request(run, "?waitSeconds=" + longPollWait.getSeconds()
+                + (run.lastStatus != null ? "&since=" + run.lastStatus.name() : ""))
+                .timeout(longPollWait.plusSeconds(30))
+                .build();
+        
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, error) -> {
+            if (run.future.isDone()) {
+                return;
+            }
+            if (error != null) {
+                if (recordFailure(run, error.getMessage())) {
+                    schedule(run, run.interval);
+                }
+                return;
+            }
+            if (response.statusCode() == 401 || response.statusCode() == 403) {
+                run.future.completeExceptionally(new IllegalStateException(
+                        "Not authorized to read run " + run.runId + ": " + response.statusCode()));
+                return;
+            }
+            if (response.statusCode() != 200) {
+                if (recordFailure(run, "status " + response.statusCode())) {
+                    schedule(run, run.interval);
+                }
+                return;
+            }
+            
+            run.failures = 0;
+            boolean changed = update(run, response.body());
+            if (!run.future.isDone()) {
+                // A change suggests the run is progressing, so the next check comes soon
+                run.interval = changed ? initialInterval : min(run.interval.multipliedBy(2), maxInterval);
+                schedule(run, run.interval);
+            }
+        });
+    }
+    
+    /**
+     * Apply a status document to a run, completing it on a terminal status; returns whether the status changed
+     */
+    private boolean update(TrackedRun run, String body) {
+        try {
+            JsonNode json = objectMapper.readTree(body);
+            PipelineStatus status = parseStatus(json.path("status").asText());
+            boolean changed = status != run.lastStatus;
+            run.lastStatus = status;
+            if (changed) {
+                logger.debug("Run {} of pipeline {} is {}", run.runId, run.pipelineId, status);
+            }
+            if (status != null && status.isTerminal()) {
+                run.future.complete(new RunStatus(run.pipelineId, run.runId, status, json));
+            }
+            return changed;
+        } catch (Exception e) {
+            logger.warn("Ignoring unreadable status of run {}: {}", run.runId, e.getMessage());
+            return false;
+        }
+    }
+    
+    private boolean recordFailure(TrackedRun run, String reason) {
+        run.failures++;
+        run.interval = min(run.interval.multipliedBy(2), maxInterval);
+        if (run.failures >= MAX_CONSECUTIVE_FAILURES) {
+            run.future.completeExceptionally(new IllegalStateException(
+                    "Failed to read status of run " + run.runId + " " + run.failures + " times: " + reason));
+            return false;
+        }
+        logger.debug("Status request for run {} failed ({}), retrying in {}", run.runId, reason, run.interval);
+        return true;
+    }
+    
+    private void schedule(TrackedRun run, Duration delay) {
+        try {
+            scheduler.schedule(() -> follow(run), delay.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            run.future.completeExceptionally(new CancellationException("Run monitor closed"));
+        }
+    }
+    
+    private HttpRequest.Builder request(TrackedRun run, String suffix) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + "/api/pipelines/" + run.pipelineId + "/runs/" + run.runId + suffix))
+                .GET();
+        headers.forEach((name, value) -> {
+            if (!name.equalsIgnoreCase("Accept")) {
+                builder.header(name, value);
+            }
+        });
+        return builder;
+    }
+    
+    private static boolean isEventStream(HttpResponse.ResponseInfo info) {
+        return info.statusCode() == 200 && info.headers().firstValue("Content-Type")
+                .map(type -> type.startsWith("text/event-stream")).orElse(false);
+    }
+    
+    private static boolean isEventStream(HttpResponse<?> response) {
+        return response.statusCode() == 200 && response.headers().firstValue("Content-Type")
+                .map(type -> type.startsWith("text/event-stream")).orElse(false);
+    }
+    
+    /**
+     * Map the status names used by the API, including common synonyms, to pipeline statuses
+     */
+    public static PipelineStatus parseStatus(String value) {
+        switch (value.trim().toUpperCase()) {
+            case "SUCCESS":
+            case "SUCCEEDED":
+            case "COMPLETED":
+                return PipelineStatus.COMPLETED;
+            case "ERROR":
+            case "FAILED":
+                return PipelineStatus.FAILED;
+            case "CANCELED":
+            case "CANCELLED":
+            case "ABORTED":
+                return PipelineStatus.CANCELLED;
+            case "QUEUED":
+            case "PENDING":
+            case "STARTING":
+            case "RUNNING":
+                return PipelineStatus.RUNNING;
+            default:
+                for (PipelineStatus status : PipelineStatus.values()) {
+                    if (status.name().equalsIgnoreCase(value.trim())) {
+                        return status;
+                    }
+                }
+                return null;
+        }
+    }
+    
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+    
+    /**
+     * State of one tracked run; only touched on the monitor thread
+     */
+    private class TrackedRun {
+        final String pipelineId;
+        final String runId;
+        final CompletableFuture<RunStatus> future = new CompletableFuture<>();
+        Duration interval = initialInterval;
+        PipelineStatus lastStatus;
+        boolean eventsUnsupported;
+        int failures;
+        
+        TrackedRun(String pipelineId, String runId) {
+            this.pipelineId = pipelineId;
+            this.runId = runId;
+        }
+    }
+    
+    /**
+     * Reads server-sent events line by line, applying the data of each event as a status document
+     */
+    private class EventStreamSubscriber implements Flow.Subscriber<String> {
+        private final TrackedRun run;
+        private final StringBuilder data = new StringBuilder();
+        
+        EventStreamSubscriber(TrackedRun run) {
+            this.run = run;
+        }
+        
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            // Closes the stream once the run finishes or the caller cancels it
+            run.future.whenComplete((status, error) -> subscription.cancel());
+            subscription.request(Long.MAX_VALUE);
+        }
+        
+        @Override
+        public void onNext(String line) {
+            if (line.startsWith("data:")) {
+                data.append(line.substring(5).trim());
+            } else if (line.isEmpty() && data.length() > 0) {
+                run.failures = 0;
+                update(run, data.toString());
+                data.setLength(0);
+            }
+        }
+        
+        @Override
+        public void onError(Throwable throwable) {
+            logger.debug("Event stream of run {} failed: {}", run.runId, throwable.getMessage());
+        }
+        
+        @Override
+        public void onComplete() {
+            logger.debug("Event stream of run {} ended", run.runId);
+        }
+    }
+    
+    /**
+     * Terminal status of a pipeline run and the status document it was read from
+     */
+    public static class RunStatus {
+        private final String pipelineId;
+        private final String runId;
+        private final PipelineStatus status;
+        private final JsonNode details;
+        
+        public RunStatus(String pipelineId, String runId, PipelineStatus status, JsonNode details) {
+            this.pipelineId = pipelineId;
+            this.runId = runId;
+            this.status = status;
+            this.details = details;
+        }
+        
+        public String getPipelineId() { return pipelineId; }
+        public String getRunId() { return runId; }
+        public PipelineStatus getStatus() { return status; }
+        public JsonNode getDetails() { return details; }
+    }
+}
\ No newline at end of file
@@ -10,7 +10,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Prophecy API Client for pipeline management and stage-by-stage testing
@@ -22,6 +24,7 @@ public class ProphecyApiClient {
     private final String baseUrl;
     private final String authToken;
     private final Map<String, String> defaultHeaders;
+    private static volatile PipelineRunMonitor runMonitor;
     
     public ProphecyApiClient() {
         this.baseUrl = ConfigManager.getInstance().getProphecyBaseUrl();
@@ -85,6 +88,61 @@ public class ProphecyApiClient {
         }
     }
     
+    /**
+     * Get the current status document of a pipeline run
+     */
+    public JsonNode getRunStatus(String pipelineId, String runId) {
+        try {
+            String url = baseUrl + "/api/pipelines/" + pipelineId + "/runs/" + runId;
+            HttpResponse<String> response = ApiTestUtils.sendGetRequest(url, defaultHeaders);
+            
+            if (response.statusCode() == 200) {
+                return ApiTestUtils.parseJsonResponse(response.body());
+            } else {
+                throw new RuntimeException("Failed to get run status: " + response.statusCode());
+            }
+        } catch (Exception e) {
+            logger.error("Error getting status of run {} of pipeline {}: {}", runId, pipelineId, e.getMessage());
+            throw new RuntimeException("Failed to get run status", e);
+        }
+    }
+    
+    /**
+     * Track a pipeline run until it finishes; the future completes with its terminal status
+     */
+    public CompletableFuture<PipelineRunMonitor.RunStatus> monitorRun(String pipelineId, String runId) {
+        return getRunMonitor().track(pipelineId, runId);
+    }
+    
+    /**
+     * Monitor shared by all clients, so every tracked run is followed on the same thread
+     */
+    private PipelineRunMonitor getRunMonitor() {
+        if (runMonitor == null) {
+            synchronized (ProphecyApiClient.class) {
+                if (runMonitor == null) {
+                    ConfigManager config = ConfigManager.getInstance();
+                    runMonitor = new PipelineRunMonitor(baseUrl, Map.copyOf(defaultHeaders),
+                            config.isRunMonitorEventsEnabled(),
+                            Duration.ofMillis(config.getRunMonitorInitialPollMillis()),
+                            Duration.ofMillis(config.getRunMonitorMaxPollMillis()),
+                            Duration.ofSeconds(config.getRunMonitorLongPollSeconds()));
+                }
+            }
+        }
+        return runMonitor;
+    }
+    
+    /**
+     * Stop tracking runs, failing the futures of runs that have not finished
+     */
+    public static synchronized void shutdownRunMonitor() {
+        if (runMonitor != null) {
+            runMonitor.close();
+            runMonitor = null;
+        }
+    }
+    
     /**
      * Get all stages of a pipeline
      */
@@ -12,8 +12,9 @@ import java.util.Properties;
  */
 public class ConfigManager {
     private static final Logger logger = LogManager.getLogger(ConfigManager.class);
-    private static ConfigManager instance;
+    private static volatile ConfigManager instance;
     private Properties properties;
+    private final ThreadLocal<Properties> threadProperties = ThreadLocal.withInitial(Properties::new);
     
     private ConfigManager() {
         loadProperties();
@@ -46,7 +47,10 @@ public class ConfigManager {
     }
     
     public String getProperty(String key) {
-        String value = System.getProperty(key);
+        String value = threadProperties.get().getProperty(key);
+        if (value == null) {
+            value = System.getProperty(key);
+        }
         if (value == null) {
             value = properties.getProperty(key);
         }
@@ -58,6 +62,20 @@ public class ConfigManager {
         return value != null ? value : defaultValue;
     }
     
+    /**
+     * Override a property for the current thread only, e.g. to give a parallel scenario its own output paths
+     */
+    public void setThreadProperty(String key, String value) {
+        threadProperties.get().setProperty(key, value);
+    }
+    
+    /**
+     * Remove the overrides of the current thread so a pooled thread starts its next scenario clean
+     */
+    public void clearThreadProperties() {
+        threadProperties.remove();
+    }
+    
     public int getIntProperty(String key, int defaultValue) {
         String value = getProperty(key);
         try {
@@ -68,6 +86,26 @@ public class ConfigManager {
         }
     }
     
+    public long getLongProperty(String key, long defaultValue) {
+        String value = getProperty(key);
+        try {
+            return value != null ? Long.parseLong(value) : defaultValue;
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid long value for property {}: {}", key, value);
+            return defaultValue;
+        }
+    }
+    
+    public double getDoubleProperty(String key, double defaultValue) {
+        String value = getProperty(key);
+        try {
+            return value != null ? Double.parseDouble(value) : defaultValue;
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid double value for property {}: {}", key, value);
+            return defaultValue;
+        }
+    }
+    
     public boolean getBooleanProperty(String key, boolean defaultValue) {
         String value = getProperty(key);
         return value != null ? Boolean.parseBoolean(value) : defaultValue;
@@ -106,6 +144,66 @@ public class ConfigManager {
         return getIntProperty("prophecy.timeout.page.load", 60);
     }
     
+    public boolean isImplicitWaitEnabled() {
+        return getBooleanProperty("wait.implicit.enabled", false);
+    }
+    
+    public long getWaitMaxPollMillis() {
+        return getLongProperty("wait.poll.max.millis", 250);
+    }
+    
+    public long getDomQuietMillis() {
+        return getLongProperty("wait.dom.quiet.millis", 300);
+    }
+    
+    public long getDisplayCheckMillis() {
+        return getLongProperty("wait.display.check.millis", 2000);
+    }
+    
+    public boolean isWaitLintEnabled() {
+        return getBooleanProperty("wait.lint.enabled", false);
+    }
+    
+    public boolean isRunMonitorEnabled() {
+        return getBooleanProperty("api.run.monitor.enabled", false);
+    }
+    
+    public boolean isRunMonitorEventsEnabled() {
+        return getBooleanProperty("api.run.monitor.events.enabled", true);
+    }
+    
+    public long getRunMonitorInitialPollMillis() {
+        return getLongProperty("api.run.monitor.poll.initial.millis", 500);
+    }
+    
+    public long getRunMonitorMaxPollMillis() {
+        return getLongProperty("api.run.monitor.poll.max.millis", 15000);
+    }
+    
+    public long getRunMonitorLongPollSeconds() {
+        return getLongProperty("api.run.monitor.long.poll.seconds", 30);
+    }
+    
+    public long getRunTimeoutSeconds() {
+        return getLongProperty("pipeline.run.timeout.seconds", 300);
+    }
+    
+    public int getLocalBatchSize() {
+        return getIntProperty("pipeline.local.batch.size", 4096);
+    }
+    
+    public int getLocalOutputRecords() {
+        return getIntProperty("pipeline.local.output.records", 1000);
+    }
+    
+    public long getLocalMemoryMb() {
+        return getLongProperty("pipeline.local.memory.mb", 256);
+    }
+    
+    public String getLocalSpillPath() {
+        return getProperty("pipeline.local.spill.path", "target/spill");
+    }
+    
     public String getBrowserName() {
         return getProperty("browser.name", "chrome");
     }
@@ -118,6 +216,30 @@ public class ConfigManager {
         return getBooleanProperty("browser.maximize", true);
     }
     
+    public boolean isWebDriverPoolEnabled() {
+        return getBooleanProperty("webdriver.pool.enabled", true);
+    }
+    
+    public int getWebDriverPoolSize() {
+        return getIntProperty("webdriver.pool.size", isParallelExecution() ? Math.max(1, getThreadCount()) : 1);
+    }
+    
+    public int getWebDriverPoolMaxUses() {
+        return getIntProperty("webdriver.pool.max.uses", 25);
+    }
+    
+    public long getWebDriverPoolAcquireTimeout() {
+        return getLongProperty("webdriver.pool.acquire.timeout.seconds", 300);
+    }
+    
+    public boolean isLoginSessionCacheEnabled() {
+        return getBooleanProperty("login.session.cache.enabled", true);
+    }
+    
+    public long getLoginSessionTtlMinutes() {
+        return getLongProperty("login.session.cache.ttl.minutes", 30);
+    }
+    
     public String getTestDataPath() {
         return getProperty("test.data.path");
     }
@@ -130,6 +252,74 @@ public class ConfigManager {
         return getProperty("pipeline.config.path");
     }
     
+    public int getDataParallelism() {
+        return getIntProperty("data.parallelism", Runtime.getRuntime().availableProcessors());
+    }
+    
+    public long getMappedReadThresholdBytes() {
+        return getLongProperty("data.mmap.threshold.mb", 64) * 1024 * 1024;
+    }
+    
+    public long getParquetRowGroupSizeBytes() {
+        return getLongProperty("data.parquet.row.group.mb", 32) * 1024 * 1024;
+    }
+    
+    public boolean isSnapshotCacheEnabled() {
+        return getBooleanProperty("data.snapshot.cache.enabled", true);
+    }
+    
+    public String getSnapshotCachePath() {
+        return getProperty("data.snapshot.cache.path", "target/snapshot-cache");
+    }
+    
+    public boolean isFixtureCacheEnabled() {
+        return getBooleanProperty("data.fixture.cache.enabled", true);
+    }
+    
+    public long getFixtureCacheMaxBytes() {
+        return getLongProperty("data.fixture.cache.max.mb", 256) * 1024 * 1024;
+    }
+    
+    public boolean isValidationCacheEnabled() {
+        return getBooleanProperty("data.validation.cache.enabled", true);
+    }
+    
+    public String getValidationCachePath() {
+        return getProperty("data.validation.cache.path", "target/validation-cache");
+    }
+    
+    public long getValidationChunkBytes() {
+        return getLongProperty("data.validation.chunk.mb", 16) * 1024 * 1024;
+    }
+    
+    public int getProfileTopValueCapacity() {
+        return getIntProperty("data.profile.top.values", 1000);
+    }
+    
+    public int getFrequencySketchWidth() {
+        return getIntProperty("data.profile.sketch.width", 2048);
+    }
+    
+    public int getFrequencySketchDepth() {
+        return getIntProperty("data.profile.sketch.depth", 5);
+    }
+    
+    public int getQuantileSketchSize() {
+        return getIntProperty("data.profile.quantile.k", 200);
+    }
+    
+    public double getDriftKsThreshold() {
+        return getDoubleProperty("data.drift.ks.threshold", 0.1);
+    }
+    
+    public double getDriftPsiThreshold() {
+        return getDoubleProperty("data.drift.psi.threshold", 0.2);
+    }
+    
+    public double getDriftNullRateThreshold() {
+        return getDoubleProperty("data.drift.null.rate.threshold", 0.05);
+    }
+    
     public String getReportsPath() {
         return getProperty("reports.path");
     }
@@ -138,6 +328,26 @@ public class ConfigManager {
         return getProperty("screenshots.path");
     }
     
+    public String getScreenshotFormat() {
+        return getProperty("screenshots.format", "png");
+    }
+    
+    public int getScreenshotJpegQuality() {
+        return getIntProperty("screenshots.jpeg.quality", 80);
+    }
+    
+    public long getExtentFlushIntervalMillis() {
+        return getLongProperty("extent.flush.interval.millis", 5000);
+    }
+    
+    public int getScreenshotsRetentionDays() {
+        return getIntProperty("screenshots.retention.days", 7);
+    }
+    
+    public long getScreenshotsMaxMegabytes() {
+        return getLongProperty("screenshots.retention.max.mb", 2048);
+    }
+    
     public String getEnvironment() {
         return getProperty("environment", "dev");
     }
@@ -150,6 +360,18 @@ public class ConfigManager {
         return getIntProperty("thread.count", 1);
     }
     
+    public int getShardIndex() {
+        return getIntProperty("shard.index", 0);
+    }
+    
+    public int getShardTotal() {
+        return getIntProperty("shard.total", 1);
+    }
+    
+    public String getShardDurationsFile() {
+        return getProperty("shard.durations.file");
+    }
+    
     public boolean shouldRetryFailedTests() {
         return getBooleanProperty("retry.failed.tests", true);
     }
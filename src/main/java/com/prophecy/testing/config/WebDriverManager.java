@@ -3,6 +3,7 @@ package com.prophecy.testing.config;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.chrome.ChromeOptions;
@@ -12,6 +13,8 @@ import org.openqa.selenium.firefox.FirefoxDriver;
 import org.openqa.selenium.firefox.FirefoxOptions;
 
 import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * WebDriver Manager for handling browser initialization and configuration
@@ -20,25 +23,65 @@ public class WebDriverManager {
     private static final Logger logger = LogManager.getLogger(WebDriverManager.class);
     private static final ThreadLocal<WebDriver> driverThreadLocal = new ThreadLocal<>();
     private static final ConfigManager config = ConfigManager.getInstance();
+    private static final Set<String> resolvedBrowsers = new HashSet<>();
+    private static volatile WebDriverPool pool;
     
     public static void initializeDriver() {
+        WebDriver driver = config.isWebDriverPoolEnabled() ? getPool().acquire() : startDriver();
+        driverThreadLocal.set(driver);
+    }
+    
+    private static WebDriver startDriver() {
         String browserName = config.getBrowserName().toLowerCase();
         boolean headless = config.isHeadless();
         
         logger.info("Initializing {} driver with headless: {}", browserName, headless);
         
         WebDriver driver = createDriver(browserName, headless);
-        driverThreadLocal.set(driver);
-        
         configureDriver(driver);
+        return driver;
+    }
+    
+    private static WebDriverPool getPool() {
+        if (pool == null) {
+            synchronized (WebDriverManager.class) {
+                if (pool == null) {
+                    pool = new WebDriverPool(config.getWebDriverPoolSize(), config.getWebDriverPoolMaxUses(),
+                            config.getWebDriverPoolAcquireTimeout(), WebDriverManager::startDriver, WebDriverManager::resetDriver);
+                }
+            }
+        }
+        return pool;
+    }
+    
+    /**
+     * Resolve the driver binary of a browser once per JVM instead of once per session
+     */
+    private static synchronized void resolveDriverBinary(String browserName) {
+        if (!resolvedBrowsers.add(browserName)) {
+            return;
+        }
+        switch (browserName) {
+            case "chrome":
+                io.github.bonigarcia.wdm.WebDriverManager.chromedriver().setup();
+                break;
+            case "firefox":
+                io.github.bonigarcia.wdm.WebDriverManager.firefoxdriver().setup();
+                break;
+            case "edge":
+                io.github.bonigarcia.wdm.WebDriverManager.edgedriver().setup();
+                break;
+            default:
+                throw new IllegalArgumentException("Browser not supported: " + browserName);
+        }
     }
     
     private static WebDriver createDriver(String browserName, boolean headless) {
         WebDriver driver;
+        resolveDriverBinary(browserName);
         
         switch (browserName) {
             case "chrome":
-                io.github.bonigarcia.wdm.WebDriverManager.chromedriver().setup();
                 ChromeOptions chromeOptions = new ChromeOptions();
                 if (headless) {
                     chromeOptions.addArguments("--headless");
@@ -54,7 +97,6 @@ public class WebDriverManager {
                 break;
                 
             case "firefox":
-                io.github.bonigarcia.wdm.WebDriverManager.firefoxdriver().setup();
                 FirefoxOptions firefoxOptions = new FirefoxOptions();
                 if (headless) {
                     firefoxOptions.addArguments("--headless");
@@ -65,7 +107,6 @@ public class WebDriverManager {
                 break;
                 
             case "edge":
-                io.github.bonigarcia.wdm.WebDriverManager.edgedriver().setup();
                 EdgeOptions edgeOptions = new EdgeOptions();
                 if (headless) {
                     edgeOptions.addArguments("--headless");
@@ -84,9 +125,7 @@ public class WebDriverManager {
     }
     
     private static void configureDriver(WebDriver driver) {
-        // Set timeouts
-        driver.manage().timeouts().implicitlyWait(Duration.ofSeconds(config.getImplicitTimeout()));
-        driver.manage().timeouts().pageLoadTimeout(Duration.ofSeconds(config.getPageLoadTimeout()));
+        applyTimeouts(driver);
         
         // Maximize window if configured
         if (config.shouldMaximizeBrowser()) {
@@ -96,6 +135,39 @@ public class WebDriverManager {
         logger.info("WebDriver configured successfully");
     }
     
+    private static void applyTimeouts(WebDriver driver) {
+        // Implicit waits stack with the explicit waits of the page objects, so they are off unless enabled
+        Duration implicitWait = config.isImplicitWaitEnabled() ? Duration.ofSeconds(config.getImplicitTimeout()) : Duration.ZERO;
+        driver.manage().timeouts().implicitlyWait(implicitWait);
+        driver.manage().timeouts().pageLoadTimeout(Duration.ofSeconds(config.getPageLoadTimeout()));
+    }
+    
+    /**
+     * Return a pooled session to a clean state for the next scenario
+     */
+    private static void resetDriver(WebDriver driver) {
+        // Windows opened by the scenario are closed, leaving its first window
+        String mainWindow = driver.getWindowHandles().iterator().next();
+        for (String handle : driver.getWindowHandles()) {
+            if (!handle.equals(mainWindow)) {
+                driver.switchTo().window(handle).close();
+            }
+        }
+        driver.switchTo().window(mainWindow);
+        
+        // Storage is per origin, so it is cleared before leaving the scenario's last page
+        try {
+            ((JavascriptExecutor) driver).executeScript("window.localStorage.clear(); window.sessionStorage.clear();");
+        } catch (Exception e) {
+            logger.debug("No web storage to clear on {}", driver.getCurrentUrl());
+        }
+        driver.manage().deleteAllCookies();
+        driver.get("about:blank");
+        
+        // Scenarios may have changed the timeouts
+        applyTimeouts(driver);
+    }
+    
     public static WebDriver getDriver() {
         WebDriver driver = driverThreadLocal.get();
         if (driver == null) {
@@ -104,9 +176,29 @@ public class WebDriverManager {
         return driver;
     }
     
+    /**
+     * Return the driver of the current thread to the pool, or quit it when pooling is off.
+     * Sessions of failed scenarios are discarded rather than reused.
+     */
+    public static void releaseDriver(boolean discard) {
+        if (pool != null && config.isWebDriverPoolEnabled()) {
+            WebDriver driver = driverThreadLocal.get();
+            if (driver != null) {
+                driverThreadLocal.remove();
+                pool.release(driver, discard);
+            }
+        } else {
+            quitDriver();
+        }
+    }
+    
     public static void quitDriver() {
         WebDriver driver = driverThreadLocal.get();
-        if (driver != null) {
+        if (driver != null && pool != null && config.isWebDriverPoolEnabled()) {
+            // Pooled sessions are quit through the pool so it can start a replacement
+            driverThreadLocal.remove();
+            pool.release(driver, true);
+        } else if (driver != null) {
             try {
                 driver.quit();
                 logger.info("WebDriver quit successfully");
@@ -125,6 +217,9 @@ public class WebDriverManager {
     public static void quitAllDrivers() {
         try {
             quitDriver();
+            if (pool != null) {
+                pool.shutdown();
+            }
             logger.info("All WebDrivers quit successfully");
         } catch (Exception e) {
             logger.error("Error while quitting all WebDrivers: {}", e.getMessage());
@@ -0,0 +1,165 @@
+package com.prophecy.testing.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.WebDriver;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool of warm browser sessions. Sessions are reset when returned and reused by later
+ * scenarios; a session is quit instead when it has served its maximum number of scenarios, when
+ * its scenario failed or when it cannot be reset.
+ */
+class WebDriverPool {
+    private static final Logger logger = LogManager.getLogger(WebDriverPool.class);
+    
+    private final int maxSize;
+    private final int maxUses;
+    private final long acquireTimeoutSeconds;
+    private final Supplier<WebDriver> factory;
+    private final Consumer<WebDriver> reset;
+    private final BlockingDeque<WebDriver> idle = new LinkedBlockingDeque<>();
+    private final Map<WebDriver, Integer> uses = new IdentityHashMap<>();
+    private int pendingStarts;
+    
+    WebDriverPool(int maxSize, int maxUses, long acquireTimeoutSeconds,
+                  Supplier<WebDriver> factory, Consumer<WebDriver> reset) {
+        this.maxSize = maxSize;
+        this.maxUses = maxUses;
+        this.acquireTimeoutSeconds = acquireTimeoutSeconds;
+        this.factory = factory;
+        this.reset = reset;
+    }
+    
+    /**
+     * Take an idle session, starting a new one while the pool is below its size and waiting for a
+     * session to be released otherwise
+     */
+    WebDriver acquire() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(acquireTimeoutSeconds);
+        while (true) {
+            WebDriver driver = idle.pollFirst();
+            if (driver != null) {
+                return driver;
+            }
+            if (reserveSlot()) {
+                return start();
+            }
+            
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new IllegalStateException("No WebDriver session became available within " + acquireTimeoutSeconds + "s");
+            }
+            try {
+                // Recycled sessions free a slot without being offered, so waiting is bounded to retry starting one
+                driver = idle.pollFirst(Math.min(remaining, TimeUnit.SECONDS.toNanos(1)), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a WebDriver session", e);
+            }
+            if (driver != null) {
+                return driver;
+            }
+        }
+    }
+    
+    private WebDriver start() {
+        WebDriver driver;
+        try {
+            driver = factory.get();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pendingStarts--;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            pendingStarts--;
+            uses.put(driver, 0);
+        }
+        logger.info("Started pooled WebDriver session ({} of {})", size(), maxSize);
+        return driver;
+    }
+    
+    /**
+     * Return a session after a scenario, discarding it when requested or when it is worn out
+     */
+    void release(WebDriver driver, boolean discard) {
+        int used;
+        synchronized (this) {
+            Integer previous = uses.get(driver);
+            if (previous == null) {
+                logger.warn("Ignoring WebDriver session that does not belong to the pool");
+                return;
+            }
+            used = previous + 1;
+            uses.put(driver, used);
+        }
+        
+        if (discard || used >= maxUses) {
+            logger.info("Recycling WebDriver session after {} scenario(s){}", used, discard ? " because its scenario failed" : "");
+            quit(driver);
+            return;
+        }
+        
+        try {
+            reset.accept(driver);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to reset WebDriver session, recycling it: {}", e.getMessage());
+            quit(driver);
+            return;
+        }
+        // Most recently used sessions are handed out first so surplus sessions stay idle
+        idle.offerFirst(driver);
+    }
+    
+    /**
+     * Quit every session, including sessions still held by running scenarios
+     */
+    void shutdown() {
+        List<WebDriver> drivers;
+        synchronized (this) {
+            drivers = new ArrayList<>(uses.keySet());
+        }
+        idle.clear();
+        for (WebDriver driver : drivers) {
+            quit(driver);
+        }
+        logger.info("Shut down WebDriver pool with {} session(s)", drivers.size());
+    }
+    
+    synchronized int size() {
+        return uses.size();
+    }
+    
+    private void quit(WebDriver driver) {
+        try {
+            driver.quit();
+        } catch (Exception e) {
+            logger.error("Error while quitting WebDriver: {}", e.getMessage());
+        } finally {
+            forget(driver);
+        }
+    }
+    
+    private synchronized boolean reserveSlot() {
+        if (uses.size() + pendingStarts >= maxSize) {
+            return false;
+        }
+        pendingStarts++;
+        return true;
+    }
+    
+    private synchronized void forget(WebDriver driver) {
+        uses.remove(driver);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,415 @@
+package com.prophecy.testing.data;
+
+import com.prophecy.testing.models.DataSchema;
+import com.prophecy.testing.models.DataType;
+import com.prophecy.testing.models.SchemaField;
+import org.apache.avro.LogicalType;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Streaming reader and writer for Avro container files, with schema mapping to and from {@link DataSchema}.
+ * Records are decoded from binary into one reused {@link GenericRecord} per reader.
+ */
+public class AvroDataHandler {
+    private static final Logger logger = LogManager.getLogger(AvroDataHandler.class);
+    private static final String DEFAULT_RECORD_NAME = "record";
+    private static final String DEFAULT_NAMESPACE = "com.prophecy.testing";
+    
+    private AvroDataHandler() {}
+    
+    /**
+     * Check whether a file name uses the Avro extension
+     */
+    public static boolean isAvro(String fileName) {
+        return fileName.endsWith(".avro");
+    }
+    
+    /**
+     * Read the given fields of all records (all fields when null), decoding sync-marker splits in parallel
+     */
+    public static List<Map<String, Object>> read(String filePath, Collection<String> columns, int parallelism)
+            throws IOException {
+        return RecordCollector.concat(forEachPartition(filePath, columns, parallelism, RecordCollector::new));
+    }
+    
+    /**
+     * Stream the given fields of all records to a consumer in file order
+     */
+    public static long forEach(String filePath, Collection<String> columns, Consumer<Map<String, Object>> consumer)
+            throws IOException {
+        try (DataFileReader<GenericRecord> reader = open(filePath, columns)) {
+            return scan(reader, new File(filePath).length(), consumer);
+        }
+    }
+    
+    /**
+     * Split the file into byte ranges and stream the blocks that start in each range into its own sink
+     */
+    public static <T extends Consumer<Map<String, Object>>> List<T> forEachPartition(
+            String filePath, Collection<String> columns, int parallelism, Supplier<T> sinkFactory) throws IOException {
+        long size = new File(filePath).length();
+        int partitions = Math.max(1, parallelism);
+        logger.debug("Reading {} in {} sync-marker splits", filePath, partitions);
+        
+        try {
+            return IntStream.range(0, partitions).parallel()
+                    .mapToObj(partition -> {
+                        T sink = sinkFactory.get();
+                        // Each split reads through its own file handle from the first sync marker in its range
+                        try (DataFileReader<GenericRecord> reader = open(filePath, columns)) {
+                            long start = size * partition / partitions;
+                            long end = size * (partition + 1) / partitions;
+                            if (start > 0) {
+                                reader.sync(start);
+                            }
+                            scan(reader, end, sink);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        return sink;
+                    })
+                    .collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+    
+    /**
+     * Read the schema stored in an Avro file
+     */
+    public static DataSchema readSchema(String filePath) throws IOException {
+        try (DataFileReader<GenericRecord> reader = new DataFileReader<>(new File(filePath), new GenericDatumReader<>())) {
+            DataSchema schema = toDataSchema(reader.getSchema());
+            if (schema.getDescription() == null) {
+                schema.setDescription("Schema read from Avro file");
+            }
+            return schema;
+        }
+    }
+    
+    /**
+     * Write records to an Avro container file using the field types of the given schema
+     */
+    public static long write(Iterator<Map<String, Object>> records, DataSchema schema, String filePath)
+            throws IOException {
+        Schema avroSchema = toAvroSchema(schema);
+        GenericData.Record avroRecord = new GenericData.Record(avroSchema);
+        long count = 0;
+        
+        try (DataFileWriter<GenericRecord> writer = new DataFileWriter<GenericRecord>(new GenericDatumWriter<>(avroSchema))
+                .setCodec(CodecFactory.snappyCodec())
+                .create(avroSchema, new File(filePath))) {
+            while (records.hasNext()) {
+                Map<String, Object> record = records.next();
+                for (SchemaField field : schema.getFields()) {
+                    avroRecord.put(field.getName(), toAvroValue(field, record.get(field.getName())));
+                }
+                writer.append(avroRecord);
+                count++;
+            }
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Map a data schema to an Avro record schema; nullable fields become unions with null
+     */
+    public static Schema toAvroSchema(DataSchema schema) {
+        String name = schema.getName() != null ? schema.getName().replaceAll("[^A-Za-z0-9_]", "_") : DEFAULT_RECORD_NAME;
+        if (name.isEmpty() || Character.isDigit(name.charAt(0))) {
+            name = "_" + name;
+        }
+        
+        SchemaBuilder.FieldAssembler<Schema> fields = SchemaBuilder.record(name)
+                .namespace(DEFAULT_NAMESPACE)
+                .doc(schema.getDescription())
+                .fields();
+        
+        for (SchemaField field : schema.getFields()) {
+            Schema fieldSchema = toAvroType(field.getDataType());
+            if (field.isNullable()) {
+                fields = fields.name(field.getName()).doc(field.getDescription())
+                        .type(Schema.createUnion(Schema.create(Schema.Type.NULL), fieldSchema)).withDefault(null);
+            } else {
+                fields = fields.name(field.getName()).doc(field.getDescription()).type(fieldSchema).noDefault();
+            }
+        }
+        
+        return fields.endRecord();
+    }
+    
+    /**
+     * Map an Avro record schema to a data schema
+     */
+    public static DataSchema toDataSchema(Schema avroSchema) {
+        DataSchema schema = new DataSchema();
+        schema.setName(avroSchema.getName());
+        schema.setDescription(avroSchema.getDoc());
+        
+        List<SchemaField> fields = new ArrayList<>();
+        for (Schema.Field avroField : avroSchema.getFields()) {
+            Schema fieldSchema = avroField.schema();
+            boolean nullable = false;
+            
+            if (fieldSchema.getType() == Schema.Type.UNION) {
+                List<Schema> branches = new ArrayList<>();
+                for (Schema branch : fieldSchema.getTypes()) {
+                    if (branch.getType() == Schema.Type.NULL) {
+                        nullable = true;
+                    } else {
+                        branches.add(branch);
+                    }
+                }
+                // Unions of several non-null types have no single data type and are kept as strings
+                fieldSchema = branches.size() == 1 ? branches.get(0) : Schema.create(Schema.Type.STRING);
+            }
+            
+            fields.add(new SchemaField(avroField.name(), toDataType(fieldSchema), nullable, avroField.doc()));
+        }
+        schema.setFields(fields);
+        
+        return schema;
+    }
+    
+    private static DataFileReader<GenericRecord> open(String filePath, Collection<String> columns) throws IOException {
+        DataFileReader<GenericRecord> reader = new DataFileReader<>(new File(filePath), new GenericDatumReader<>());
+        if (columns != null) {
+            // Fields left out of the reader schema are skipped by the resolving decoder instead of being materialized
+            Schema writerSchema = reader.getSchema();
+            reader.close();
+            
+            GenericDatumReader<GenericRecord> datumReader = new GenericDatumReader<>(writerSchema, project(writerSchema, columns));
+            reader = new DataFileReader<>(new File(filePath), datumReader);
+        }
+        return reader;
+    }
+    
+    private static Schema project(Schema writerSchema, Collection<String> columns) {
+        List<Schema.Field> fields = new ArrayList<>();
+        for (Schema.Field field : writerSchema.getFields()) {
+            if (columns.contains(field.name())) {
+                fields.add(new Schema.Field(field, field.schema()));
+            }
+        }
+        return Schema.createRecord(writerSchema.getName(), writerSchema.getDoc(), writerSchema.getNamespace(),
+                writerSchema.isError(), fields);
+    }
+    
+    /**
+     * Decode records into one reused record until the reader passes the sync marker after the given position
+     */
+    private static long scan(DataFileReader<GenericRecord> reader, long end, Consumer<Map<String, Object>> consumer)
+            throws IOException {
+        GenericRecord avroRecord = null;
+        long count = 0;
+        
+        while (reader.hasNext() && !reader.pastSync(end)) {
+            avroRecord = reader.next(avroRecord);
+            consumer.accept(toRecord(avroRecord));
+            count++;
+        }
+        
+        return count;
+    }
+    
+    private static Map<String, Object> toRecord(GenericRecord avroRecord) {
+        List<Schema.Field> fields = avroRecord.getSchema().getFields();
+        Map<String, Object> record = new HashMap<>();
+        for (Schema.Field field : fields) {
+            record.put(field.name(), fromAvroValue(field.schema(), avroRecord.get(field.pos())));
+        }
+        return record;
+    }
+    
+    /**
+     * Convert a decoded value to the Java type the other loaders produce for the same column
+     */
+    private static Object fromAvroValue(Schema schema, Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (schema.getType() == Schema.Type.UNION) {
+            schema = schema.getTypes().get(GenericData.get().resolveUnion(schema, value));
+        }
+        
+        LogicalType logicalType = schema.getLogicalType();
+        switch (schema.getType()) {
+            case STRING:
+            case ENUM:
+                return value.toString();
+            case INT:
+                if (logicalType instanceof LogicalTypes.Date) {
+                    return FieldValueConverter.formatDate((Integer) value);
+                }
+                return value;
+            case LONG:
+                long longValue = (Long) value;
+                if (logicalType instanceof LogicalTypes.TimestampMillis
+                        || logicalType instanceof LogicalTypes.LocalTimestampMillis) {
+                    return FieldValueConverter.formatEpochMillis(longValue);
+                } else if (logicalType instanceof LogicalTypes.TimestampMicros
+                        || logicalType instanceof LogicalTypes.LocalTimestampMicros) {
+                    return FieldValueConverter.formatEpochMicros(longValue);
+                }
+                return longValue;
+            case BYTES:
+                ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                return toBytesValue(logicalType, bytes);
+            case FIXED:
+                return toBytesValue(logicalType, ((GenericFixed) value).bytes().clone());
+            case RECORD:
+                return toRecord((GenericRecord) value);
+            case ARRAY:
+                Schema elementSchema = schema.getElementType();
+                List<Object> values = new ArrayList<>();
+                for (Object element : (Collection<?>) value) {
+                    values.add(fromAvroValue(elementSchema, element));
+                }
+                return values;
+            case MAP:
+                Map<String, Object> entries = new HashMap<>();
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    entries.put(entry.getKey().toString(), fromAvroValue(schema.getValueType(), entry.getValue()));
+                }
+                return entries;
+            default:
+                return value;
+        }
+    }
+    
+    private static Object toBytesValue(LogicalType logicalType, byte[] bytes) {
+        if (logicalType instanceof LogicalTypes.Decimal) {
+            return new BigDecimal(new BigInteger(bytes), ((LogicalTypes.Decimal) logicalType).getScale());
+        }
+        return bytes;
+    }
+    
+    /**
+     * Convert a record value to the Avro representation of its field; string values from CSV files are parsed
+     */
+    private static Object toAvroValue(SchemaField field, Object value) {
+        if (value == null) {
+            if (!field.isNullable()) {
+                throw new IllegalArgumentException("Missing value for required field: " + field.getName());
+            }
+            return null;
+        }
+        
+        switch (field.getDataType()) {
+            case STRING:
+                return value.toString();
+            case INTEGER:
+                return FieldValueConverter.toNumber(value).intValue();
+            case LONG:
+                return FieldValueConverter.toNumber(value).longValue();
+            case DOUBLE:
+            case DECIMAL:
+                return FieldValueConverter.toNumber(value).doubleValue();
+            case FLOAT:
+                return FieldValueConverter.toNumber(value).floatValue();
+            case BOOLEAN:
+                return FieldValueConverter.toBoolean(value);
+            case DATE:
+                return FieldValueConverter.toEpochDay(value);
+            case TIMESTAMP:
+                return FieldValueConverter.toEpochMicros(value);
+            case BINARY:
+                return ByteBuffer.wrap(FieldValueConverter.toBytes(value));
+            default:
+                return FieldValueConverter.toJson(value);
+        }
+    }
+    
+    private static Schema toAvroType(DataType dataType) {
+        switch (dataType) {
+            case STRING:
+                return Schema.create(Schema.Type.STRING);
+            case INTEGER:
+                return Schema.create(Schema.Type.INT);
+            case LONG:
+                return Schema.create(Schema.Type.LONG);
+            case DOUBLE:
+            case DECIMAL:
+                // The schema carries no precision or scale, so decimals are kept as doubles
+                return Schema.create(Schema.Type.DOUBLE);
+            case FLOAT:
+                return Schema.create(Schema.Type.FLOAT);
+            case BOOLEAN:
+                return Schema.create(Schema.Type.BOOLEAN);
+            case DATE:
+                return LogicalTypes.date().addToSchema(Schema.create(Schema.Type.INT));
+            case TIMESTAMP:
+                return LogicalTypes.localTimestampMicros().addToSchema(Schema.create(Schema.Type.LONG));
+            case BINARY:
+                return Schema.create(Schema.Type.BYTES);
+            default:
+                // Nested values are stored as JSON strings
+                return Schema.create(Schema.Type.STRING);
+        }
+    }
+    
+    private static DataType toDataType(Schema schema) {
+        LogicalType logicalType = schema.getLogicalType();
+        if (logicalType instanceof LogicalTypes.Decimal) {
+            return DataType.DECIMAL;
+        } else if (logicalType instanceof LogicalTypes.Date) {
+            return DataType.DATE;
+        } else if (logicalType instanceof LogicalTypes.TimestampMillis
+                || logicalType instanceof LogicalTypes.TimestampMicros
+                || logicalType instanceof LogicalTypes.LocalTimestampMillis
+                || logicalType instanceof LogicalTypes.LocalTimestampMicros) {
+            return DataType.TIMESTAMP;
+        }
+        
+        switch (schema.getType()) {
+            case INT:
+                return DataType.INTEGER;
+            case LONG:
+                return DataType.LONG;
+            case FLOAT:
+                return DataType.FLOAT;
+            case DOUBLE:
+                return DataType.DOUBLE;
+            case BOOLEAN:
+                return DataType.BOOLEAN;
+            case BYTES:
+            case FIXED:
+                return DataType.BINARY;
+            case ARRAY:
+                return DataType.ARRAY;
+            case MAP:
+                return DataType.MAP;
+            case RECORD:
+                return DataType.STRUCT;
+            default:
+                return DataType.STRING;
+        }
+    }
+}
\ No newline at end of file
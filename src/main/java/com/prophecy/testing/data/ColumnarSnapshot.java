@@ -0,0 +1,497 @@
+package com.prophecy.testing.data;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary columnar snapshot of parsed test records.
+ * <p>
+ * Layout: a header with the source file identity, row count and column descriptors (name, type,
+ * block offset, length and CRC32), closed by a CRC32 of the header, followed by one block per column.
+ * Each block starts with one state byte per row (absent, null or value) followed by fixed-width
+ * values, or by UTF-8 bytes and row offsets for string and JSON columns. Blocks are streamed to the
+ * file as they are encoded. Snapshots are memory-mapped on load; a block is checked against its CRC
+ * the first time it is read, and values are decoded only when a record field is read.
+ */
+public class ColumnarSnapshot {
+    /**
+     * Largest snapshot that can be mapped as a whole
+     */
+    public static final long MAX_SIZE = Integer.MAX_VALUE;
+    
+    private static final byte[] MAGIC = "TDSNAP".getBytes(StandardCharsets.US_ASCII);
+    private static final int FORMAT_VERSION = 2;
+    
+    private static final byte ABSENT = 0;
+    private static final byte NULL = 1;
+    private static final byte PRESENT = 2;
+    
+    private static final byte TYPE_STRING = 0;
+    private static final byte TYPE_INT = 1;
+    private static final byte TYPE_LONG = 2;
+    private static final byte TYPE_DOUBLE = 3;
+    private static final byte TYPE_BOOLEAN = 4;
+    // Values of mixed or nested types are stored as JSON, which decodes to the types the JSON loader produces
+    private static final byte TYPE_JSON = 5;
+    
+    private static final ObjectMapper jsonMapper = new ObjectMapper();
+    
+    private ColumnarSnapshot() {}
+    
+    /**
+     * Write records to a snapshot file for the given source file identity; fails with a
+     * {@link TooLargeException} once the snapshot would grow beyond {@link #MAX_SIZE}
+     */
+    public static void write(List<Map<String, Object>> data, String sourcePath, long sourceSize, long sourceModified,
+                             Path snapshotPath) throws IOException {
+        Map<String, Integer> columnIndex = new LinkedHashMap<>();
+        for (Map<String, Object> record : data) {
+            for (String name : record.keySet()) {
+                columnIndex.putIfAbsent(name, columnIndex.size());
+            }
+        }
+        
+        List<String> names = new ArrayList<>(columnIndex.keySet());
+        byte[] types = new byte[names.size()];
+        long[] offsets = new long[names.size()];
+        long[] lengths = new long[names.size()];
+        int[] checksums = new int[names.size()];
+        
+        // Descriptors have a fixed size, so blocks can be written after the space left for the header
+        int headerSize = MAGIC.length + 4 + 2 + sourcePath.getBytes(StandardCharsets.UTF_8).length + 8 + 8 + 4 + 4 + 4;
+        for (String name : names) {
+            headerSize += 2 + name.getBytes(StandardCharsets.UTF_8).length + 1 + 8 + 8 + 4;
+        }
+        
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(headerSize);
+            // Not closed, as closing it would close the channel before the header is written
+            LimitedOutputStream file = new LimitedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), headerSize);
+            for (int column = 0; column < names.size(); column++) {
+                types[column] = inferType(data, names.get(column));
+                offsets[column] = file.count;
+                CRC32 checksum = new CRC32();
+                DataOutputStream block = new DataOutputStream(new CheckedOutputStream(file, checksum));
+                encodeColumn(data, names.get(column), types[column], block);
+                block.flush();
+                lengths[column] = file.count - offsets[column];
+                checksums[column] = (int) checksum.getValue();
+            }
+            file.flush();
+            
+            ByteArrayOutputStream headerBytes = new ByteArrayOutputStream(headerSize);
+            DataOutputStream header = new DataOutputStream(headerBytes);
+            header.write(MAGIC);
+            header.writeInt(FORMAT_VERSION);
+            writeUtf(header, sourcePath);
+            header.writeLong(sourceSize);
+            header.writeLong(sourceModified);
+            header.writeInt(data.size());
+            header.writeInt(names.size());
+            for (int column = 0; column < names.size(); column++) {
+                writeUtf(header, names.get(column));
+                header.writeByte(types[column]);
+                header.writeLong(offsets[column]);
+                header.writeLong(lengths[column]);
+                header.writeInt(checksums[column]);
+            }
+            CRC32 checksum = new CRC32();
+            checksum.update(headerBytes.toByteArray());
+            header.writeInt((int) checksum.getValue());
+            if (headerBytes.size() != headerSize) {
+                throw new IOException("Snapshot header of " + headerBytes.size() + " bytes does not fill its " + headerSize + " bytes");
+            }
+            
+            ByteBuffer buffer = ByteBuffer.wrap(headerBytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, buffer.position());
+            }
+        }
+    }
+    
+    /**
+     * Map a snapshot file and return its records, or null when it does not match the source file
+     * identity or its header fails its checksum. Blocks are checked when first read; a corrupt block
+     * deletes the snapshot and fails the read with an UncheckedIOException.
+     */
+    public static List<Map<String, Object>> read(Path snapshotPath, String sourcePath, long sourceSize,
+                                                 long sourceModified) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            if (channel.size() > MAX_SIZE || channel.size() < MAGIC.length + 4) {
+                return null;
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        
+        ByteBuffer header = buffer.duplicate();
+        byte[] magic = new byte[MAGIC.length];
+        header.get(magic);
+        if (!Arrays.equals(magic, MAGIC) || header.getInt() != FORMAT_VERSION) {
+            return null;
+        }
+        String path = readUtf(header);
+        long size = header.getLong();
+        long modified = header.getLong();
+        int rowCount = header.getInt();
+        int columnCount = header.getInt();
+        SnapshotColumns columns = new SnapshotColumns(snapshotPath, rowCount, columnCount);
+        for (int column = 0; column < columnCount; column++) {
+            String name = readUtf(header);
+            byte type = header.get();
+            long offset = header.getLong();
+            long length = header.getLong();
+            int blockChecksum = header.getInt();
+            if (offset < 0 || length < 0 || offset + length > buffer.limit()) {
+                return null;
+            }
+            ByteBuffer block = ((ByteBuffer) buffer.duplicate().position((int) offset).limit((int) (offset + length))).slice();
+            columns.add(name, type, block, blockChecksum);
+        }
+        
+        CRC32 checksum = new CRC32();
+        checksum.update(((ByteBuffer) buffer.duplicate().limit(header.position())));
+        if ((int) checksum.getValue() != header.getInt()) {
+            return null;
+        }
+        if (!sourcePath.equals(path) || size != sourceSize || modified != sourceModified) {
+            return null;
+        }
+        
+        List<Map<String, Object>> data = new ArrayList<>(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            data.add(new SnapshotRecord(columns, row));
+        }
+        return data;
+    }
+    
+    private static void writeUtf(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IOException("Name too long for snapshot header: " + value.substring(0, 64));
+        }
+        output.writeShort(bytes.length);
+        output.write(bytes);
+    }
+    
+    private static String readUtf(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static byte inferType(List<Map<String, Object>> data, String name) {
+        Class<?> valueClass = null;
+        for (Map<String, Object> record : data) {
+            Object value = record.get(name);
+            if (value == null) {
+                continue;
+            }
+            if (valueClass == null) {
+                valueClass = value.getClass();
+            } else if (valueClass != value.getClass()) {
+                return TYPE_JSON;
+            }
+        }
+        
+        if (valueClass == null || valueClass == String.class) {
+            return TYPE_STRING;
+        } else if (valueClass == Integer.class) {
+            return TYPE_INT;
+        } else if (valueClass == Long.class) {
+            return TYPE_LONG;
+        } else if (valueClass == Double.class) {
+            return TYPE_DOUBLE;
+        } else if (valueClass == Boolean.class) {
+            return TYPE_BOOLEAN;
+        }
+        return TYPE_JSON;
+    }
+    
+    private static void encodeColumn(List<Map<String, Object>> data, String name, byte type,
+                                     DataOutputStream output) throws IOException {
+        for (Map<String, Object> record : data) {
+            Object value = record.get(name);
+            output.writeByte(value != null ? PRESENT : record.containsKey(name) ? NULL : ABSENT);
+        }
+        
+        if (type == TYPE_STRING || type == TYPE_JSON) {
+            // Bytes are written as they are encoded and followed by the row offsets into them
+            int[] ends = new int[data.size()];
+            int position = 0;
+            for (int row = 0; row < ends.length; row++) {
+                Object value = data.get(row).get(name);
+                if (value != null) {
+                    byte[] bytes = type == TYPE_STRING
+                            ? value.toString().getBytes(StandardCharsets.UTF_8)
+                            : jsonMapper.writeValueAsBytes(value);
+                    output.write(bytes);
+                    position += bytes.length;
+                }
+                ends[row] = position;
+            }
+            output.writeInt(0);
+            for (int end : ends) {
+                output.writeInt(end);
+            }
+        } else {
+            for (Map<String, Object> record : data) {
+                Object value = record.get(name);
+                switch (type) {
+                    case TYPE_INT:
+                        output.writeInt(value != null ? (Integer) value : 0);
+                        break;
+                    case TYPE_LONG:
+                        output.writeLong(value != null ? (Long) value : 0L);
+                        break;
+                    case TYPE_DOUBLE:
+                        output.writeDouble(value != null ? (Double) value : 0.0);
+                        break;
+                    default:
+                        output.writeBoolean(value != null && (Boolean) value);
+                        break;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Failure to write a snapshot that would be too large to map
+     */
+    public static class TooLargeException extends IOException {
+        private static final long serialVersionUID = 1L;
+        
+        TooLargeException(String message) {
+            super(message);
+        }
+    }
+    
+    /**
+     * Stream counting the bytes written to the snapshot file, failing once the file would exceed
+     * the largest size that can be mapped
+     */
+    private static class LimitedOutputStream extends FilterOutputStream {
+        private final long start;
+        private long count;
+        
+        LimitedOutputStream(OutputStream output, long start) {
+            super(output);
+            this.start = start;
+            this.count = start;
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            reserve(1);
+            out.write(b);
+        }
+        
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            reserve(length);
+            out.write(bytes, offset, length);
+        }
+        
+        private void reserve(int length) throws IOException {
+            count += length;
+            if (count > MAX_SIZE) {
+                throw new TooLargeException("Snapshot exceeds " + MAX_SIZE + " bytes after " + (count - start) + " bytes of blocks");
+            }
+        }
+    }
+    
+    /**
+     * Column names, types and mapped blocks shared by all records of a snapshot
+     */
+    private static class SnapshotColumns {
+        private final int rowCount;
+        private final String[] names;
+        private final byte[] types;
+        private final ByteBuffer[] blocks;
+        private final int[] checksums;
+        // Set once a block matched its checksum; a race only checks a block twice
+        private final boolean[] verified;
+        private final Path path;
+        private final Map<String, Integer> index = new HashMap<>();
+        
+        SnapshotColumns(Path path, int rowCount, int columnCount) {
+            this.path = path;
+            this.rowCount = rowCount;
+            this.names = new String[columnCount];
+            this.types = new byte[columnCount];
+            this.blocks = new ByteBuffer[columnCount];
+            this.checksums = new int[columnCount];
+            this.verified = new boolean[columnCount];
+        }
+        
+        void add(String name, byte type, ByteBuffer block, int checksum) {
+            int column = index.size();
+            names[column] = name;
+            types[column] = type;
+            blocks[column] = block;
+            checksums[column] = checksum;
+            index.put(name, column);
+        }
+        
+        int size() {
+            return names.length;
+        }
+        
+        byte state(int column, int row) {
+            if (!verified[column]) {
+                verify(column);
+            }
+            return blocks[column].get(row);
+        }
+        
+        private void verify(int column) {
+            CRC32 checksum = new CRC32();
+            checksum.update(blocks[column].duplicate());
+            if ((int) checksum.getValue() != checksums[column]) {
+                try {
+                    // Removed so that the next load parses the source again
+                    Files.deleteIfExists(path);
+                } catch (IOException ignored) {
+                    // Replaced by the next load instead
+                }
+                throw new UncheckedIOException(new IOException("Corrupt block of column " + names[column] + " in snapshot " + path));
+            }
+            verified[column] = true;
+        }
+        
+        Object decode(int column, int row) {
+            ByteBuffer block = blocks[column];
+            int values = rowCount;
+            switch (types[column]) {
+                case TYPE_INT:
+                    return block.getInt(values + row * 4);
+                case TYPE_LONG:
+                    return block.getLong(values + row * 8);
+                case TYPE_DOUBLE:
+                    return block.getDouble(values + row * 8);
+                case TYPE_BOOLEAN:
+                    return block.get(values + row) != 0;
+                default:
+                    int offsets = block.limit() - (rowCount + 1) * 4;
+                    int from = block.getInt(offsets + row * 4);
+                    int to = block.getInt(offsets + (row + 1) * 4);
+                    byte[] bytes = new byte[to - from];
+                    ByteBuffer slice = block.duplicate();
+                    slice.position(values + from);
+                    slice.get(bytes);
+                    if (types[column] == TYPE_STRING) {
+                        return new String(bytes, StandardCharsets.UTF_8);
+                    }
+                    try {
+                        return jsonMapper.readValue(bytes, Object.class);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Failed to decode snapshot value of column " + names[column], e);
+                    }
+            }
+        }
+    }
+    
+    /**
+     * Read-only record over one row of a mapped snapshot, decoding values on first access
+     */
+    private static class SnapshotRecord extends AbstractMap<String, Object> {
+        private final SnapshotColumns columns;
+        private final int row;
+        private Object[] decoded;
+        
+        SnapshotRecord(SnapshotColumns columns, int row) {
+            this.columns = columns;
+            this.row = row;
+        }
+        
+        @Override
+        public Object get(Object key) {
+            Integer column = columns.index.get(key);
+            return column != null && columns.state(column, row) == PRESENT ? valueAt(column) : null;
+        }
+        
+        @Override
+        public boolean containsKey(Object key) {
+            Integer column = columns.index.get(key);
+            return column != null && columns.state(column, row) != ABSENT;
+        }
+        
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<Entry<String, Object>>() {
+                        private int next = advance(0);
+                        
+                        @Override
+                        public boolean hasNext() {
+                            return next < columns.size();
+                        }
+                        
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int column = next;
+                            next = advance(column + 1);
+                            Object value = columns.state(column, row) == PRESENT ? valueAt(column) : null;
+                            return new SimpleImmutableEntry<>(columns.names[column], value);
+                        }
+                    };
+                }
+                
+                @Override
+                public int size() {
+                    int size = 0;
+                    for (int column = 0; column < columns.size(); column++) {
+                        if (columns.state(column, row) != ABSENT) {
+                            size++;
+                        }
+                    }
+                    return size;
+                }
+            };
+        }
+        
+        private int advance(int column) {
+            while (column < columns.size() && columns.state(column, row) == ABSENT) {
+                column++;
+            }
+            return column;
+        }
+        
+        private Object valueAt(int column) {
+            if (decoded == null) {
+                decoded = new Object[columns.size()];
+            }
+            Object value = decoded[column];
+            if (value == null) {
+                value = columns.decode(column, row);
+                decoded[column] = value;
+            }
+            return value;
+        }
+    }
+}
\ No newline at end of file
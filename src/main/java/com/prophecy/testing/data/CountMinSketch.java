@@ -0,0 +1,104 @@
+package com.prophecy.testing.data;
+
+import java.io.Serializable;
+
+/**
+ * Count-Min sketch of value frequencies in a fixed table of depth rows by width counters. Each value
+ * is counted in one counter per row and its estimate is the smallest of those counters, so estimates
+ * never undercount and exceed the true count by more than e / width of the total only with
+ * probability e^-depth. Hashing is fixed, so sketches of the same size built over separate chunks can
+ * be merged by adding their tables.
+ */
+public class CountMinSketch implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    private final int width;
+    private final int depth;
+    private final long[] table;
+    private long total;
+    
+    public CountMinSketch(int width, int depth) {
+        if (width < 1 || depth < 1) {
+            throw new IllegalArgumentException("Sketch width and depth must be positive: " + width + "x" + depth);
+        }
+        this.width = width;
+        this.depth = depth;
+        this.table = new long[width * depth];
+    }
+    
+    public void add(String value, long count) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int row = 0; row < depth; row++) {
+            table[row * width + Math.floorMod(h1 + row * h2, width)] += count;
+        }
+        total += count;
+    }
+    
+    /**
+     * Upper bound on the number of times a value occurred
+     */
+    public long estimate(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, table[row * width + Math.floorMod(h1 + row * h2, width)]);
+        }
+        return estimate;
+    }
+    
+    public CountMinSketch merge(CountMinSketch other) {
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("Cannot merge a " + other.width + "x" + other.depth
+                    + " sketch into a " + width + "x" + depth + " sketch");
+        }
+        for (int i = 0; i < table.length; i++) {
+            table[i] += other.table[i];
+        }
+        total += other.total;
+        return this;
+    }
+    
+    public int getWidth() {
+        return width;
+    }
+    
+    public int getDepth() {
+        return depth;
+    }
+    
+    public long getTotal() {
+        return total;
+    }
+    
+    /**
+     * Amount by which an estimate exceeds the true count, except with probability e^-depth
+     */
+    public long getErrorBound() {
+        return (long) Math.ceil(Math.E / width * total);
+    }
+    
+    @Override
+    public String toString() {
+        return "CountMinSketch[" + width + "x" + depth + ", total=" + total + "]";
+    }
+    
+    /**
+     * 64-bit FNV-1a of the characters followed by the MurmurHash3 finalizer; the two halves index the rows
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
\ No newline at end of file
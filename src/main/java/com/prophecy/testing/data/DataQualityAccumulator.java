@@ -0,0 +1,273 @@
+package com.prophecy.testing.data;
+
+import com.prophecy.testing.models.DataSchema;
+import com.prophecy.testing.models.SchemaField;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Single-pass accumulator for completeness and format checks over a stream of records. The same
+ * pass profiles every field, including its most frequent values, and keeps a bounded random sample
+ * of rows that fail the format checks, for the data quality report. Partial accumulators built over
+ * separate chunks of a file can be merged, and are serializable so that the results of unchanged
+ * chunks can be cached; the schema is not serialized.
+ */
+public class DataQualityAccumulator implements Consumer<Map<String, Object>>, Serializable {
+    private static final long serialVersionUID = 2L;
+    
+    private final transient DataSchema schema;
+    private final Map<String, Long> nonEmptyCounts = new LinkedHashMap<>();
+    private final Map<String, Boolean> formatValidation = new LinkedHashMap<>();
+    private final Map<String, FieldProfile> profiles = new LinkedHashMap<>();
+    private final List<InvalidRow> invalidSample = new ArrayList<>();
+    private final Random random = new Random(INVALID_SAMPLE_SIZE);
+    private long invalidRowCount;
+    private long recordCount;
+    
+    static final int INVALID_SAMPLE_SIZE = 20;
+    static final int HEAVY_HITTERS = 10;
+    static final double[] REPORTED_QUANTILES = {0.01, 0.25, 0.5, 0.75, 0.9, 0.99};
+    
+    public DataQualityAccumulator(DataSchema schema) {
+        this.schema = schema;
+        if (schema != null && schema.getFields() != null) {
+            for (SchemaField field : schema.getFields()) {
+                formatValidation.put(field.getName(), true);
+                profiles.put(field.getName(), new FieldProfile(field.getName(),
+                        field.getDataType() != null && field.getDataType().isNumeric()));
+            }
+        }
+    }
+    
+    @Override
+    public void accept(Map<String, Object> record) {
+        // Completeness is tracked for every field of any record, as in checkDataCompleteness; records
+        // without a field count as empty in it, so the results do not depend on how a file is split
+        record.forEach((fieldName, value) -> {
+            if (!nonEmptyCounts.containsKey(fieldName)) {
+                nonEmptyCounts.put(fieldName, 0L);
+                if (!profiles.containsKey(fieldName)) {
+                    FieldProfile profile = new FieldProfile(fieldName, value instanceof Number);
+                    profile.addEmpty(recordCount);
+                    profiles.put(fieldName, profile);
+                }
+            }
+        });
+        recordCount++;
+        
+        for (Map.Entry<String, Long> entry : nonEmptyCounts.entrySet()) {
+            Object value = record.get(entry.getKey());
+            if (value != null && !value.toString().trim().isEmpty()) {
+                entry.setValue(entry.getValue() + 1);
+            }
+        }
+        
+        // Every row is checked, not only until a field first fails, so that failing rows can be sampled
+        List<String> invalidFields = null;
+        if (schema != null && schema.getFields() != null) {
+            for (SchemaField field : schema.getFields()) {
+                Object value = record.get(field.getName());
+                boolean valid = value == null
+                        ? field.isNullable()
+                        : TestDataManager.isValidDataType(value, field.getDataType());
+                profiles.get(field.getName()).accept(value, valid);
+                if (!valid) {
+                    formatValidation.put(field.getName(), false);
+                    if (invalidFields == null) {
+                        invalidFields = new ArrayList<>();
+                    }
+                    invalidFields.add(field.getName());
+                }
+            }
+        }
+        for (FieldProfile profile : profiles.values()) {
+            if (!formatValidation.containsKey(profile.getName())) {
+                profile.accept(record.get(profile.getName()), true);
+            }
+        }
+        
+        if (invalidFields != null) {
+            sampleInvalidRow(new InvalidRow(new LinkedHashMap<>(record), invalidFields));
+        }
+    }
+    
+    /**
+     * Keep each invalid row with equal probability (reservoir sampling)
+     */
+    private void sampleInvalidRow(InvalidRow row) {
+        invalidRowCount++;
+        if (invalidSample.size() < INVALID_SAMPLE_SIZE) {
+            invalidSample.add(row);
+        } else {
+            long slot = (long) (random.nextDouble() * invalidRowCount);
+            if (slot < INVALID_SAMPLE_SIZE) {
+                invalidSample.set((int) slot, row);
+            }
+        }
+    }
+    
+    /**
+     * Merge the counts of another partial accumulator into this one
+     */
+    public DataQualityAccumulator merge(DataQualityAccumulator other) {
+        other.nonEmptyCounts.forEach((fieldName, count) -> nonEmptyCounts.merge(fieldName, count, Long::sum));
+        other.formatValidation.forEach((fieldName, valid) -> formatValidation.merge(fieldName, valid, Boolean::logicalAnd));
+        // A field that only one side has seen was empty in all records of the other side
+        profiles.forEach((fieldName, profile) -> {
+            if (!other.profiles.containsKey(fieldName)) {
+                profile.addEmpty(other.recordCount);
+            }
+        });
+        other.profiles.forEach((fieldName, profile) -> {
+            if (profiles.containsKey(fieldName)) {
+                profiles.get(fieldName).merge(profile);
+            } else {
+                profile.addEmpty(recordCount);
+                profiles.put(fieldName, profile);
+            }
+        });
+        mergeInvalidSample(other);
+        recordCount += other.recordCount;
+        return this;
+    }
+    
+    /**
+     * Combine two samples so that each row stays represented in proportion to the rows its sample stands for
+     */
+    private void mergeInvalidSample(DataQualityAccumulator other) {
+        List<InvalidRow> mine = new ArrayList<>(invalidSample);
+        List<InvalidRow> theirs = new ArrayList<>(other.invalidSample);
+        double myWeight = invalidRowCount;
+        double theirWeight = other.invalidRowCount;
+        invalidSample.clear();
+        while (invalidSample.size() < INVALID_SAMPLE_SIZE && (!mine.isEmpty() || !theirs.isEmpty())) {
+            boolean takeMine = theirs.isEmpty()
+                    || (!mine.isEmpty() && random.nextDouble() * (myWeight + theirWeight) < myWeight);
+            List<InvalidRow> source = takeMine ? mine : theirs;
+            double perRow = (takeMine ? myWeight : theirWeight) / source.size();
+            invalidSample.add(source.remove(random.nextInt(source.size())));
+            if (takeMine) {
+                myWeight -= perRow;
+            } else {
+                theirWeight -= perRow;
+            }
+        }
+        invalidRowCount += other.invalidRowCount;
+    }
+    
+    public long getRecordCount() {
+        return recordCount;
+    }
+    
+    /**
+     * Completeness percentage per field
+     */
+    public Map<String, Double> getCompleteness() {
+        Map<String, Double> completeness = new HashMap<>();
+        if (recordCount == 0) {
+            return completeness;
+        }
+        nonEmptyCounts.forEach((fieldName, count) ->
+                completeness.put(fieldName, (double) count / recordCount * 100.0));
+        return completeness;
+    }
+    
+    public Map<String, Boolean> getFormatValidation() {
+        return new HashMap<>(formatValidation);
+    }
+    
+    public Map<String, FieldProfile> getFieldProfiles() {
+        return new LinkedHashMap<>(profiles);
+    }
+    
+    /**
+     * Most frequent values of each field with their counts and error bounds
+     */
+    public Map<String, List<SpaceSavingTopK.Entry>> getHeavyHitters() {
+        Map<String, List<SpaceSavingTopK.Entry>> heavyHitters = new LinkedHashMap<>();
+        profiles.forEach((fieldName, profile) -> heavyHitters.put(fieldName, profile.getHeavyHitters(HEAVY_HITTERS)));
+        return heavyHitters;
+    }
+    
+    /**
+     * Count, range, mean, standard deviation and quantiles of each numeric field that has numeric values
+     */
+    public Map<String, Map<String, Object>> getNumericStatistics() {
+        Map<String, Map<String, Object>> statistics = new LinkedHashMap<>();
+        profiles.forEach((fieldName, profile) -> {
+            if (profile.isNumeric() && profile.getNumericCount() > 0) {
+                Map<String, Object> fieldStatistics = new LinkedHashMap<>();
+                fieldStatistics.put("count", profile.getNumericCount());
+                fieldStatistics.put("min", profile.getMin());
+                fieldStatistics.put("max", profile.getMax());
+                fieldStatistics.put("mean", profile.getMean());
+                fieldStatistics.put("stddev", profile.getStandardDeviation());
+                for (double q : REPORTED_QUANTILES) {
+                    fieldStatistics.put("p" + Math.round(q * 100), profile.getQuantile(q));
+                }
+                statistics.put(fieldName, fieldStatistics);
+            }
+        });
+        return statistics;
+    }
+    
+    public long getInvalidRowCount() {
+        return invalidRowCount;
+    }
+    
+    public List<InvalidRow> getInvalidRowSample() {
+        return new ArrayList<>(invalidSample);
+    }
+    
+    /**
+     * Build the validation results map with the same keys as the in-memory checks
+     */
+    public Map<String, Object> toResults() {
+        Map<String, Object> results = new HashMap<>();
+        Map<String, Double> completeness = getCompleteness();
+        
+        double qualityScore = completeness.values().stream()
+            .mapToDouble(Double::doubleValue)
+            .average()
+            .orElse(0.0) / 100.0;
+        
+        results.put("completeness", completeness);
+        results.put("quality_score", qualityScore);
+        results.put("record_count", recordCount);
+        results.put("validation_timestamp", System.currentTimeMillis());
+        results.put("field_profiles", getFieldProfiles());
+        results.put("heavy_hitters", getHeavyHitters());
+        results.put("numeric_statistics", getNumericStatistics());
+        if (schema != null) {
+            results.put("format_validation", getFormatValidation());
+            results.put("invalid_row_count", invalidRowCount);
+            results.put("invalid_row_sample", getInvalidRowSample());
+        }
+        return results;
+    }
+    
+    /**
+     * A record that failed format checks and the fields that failed
+     */
+    public static class InvalidRow implements Serializable {
+        private static final long serialVersionUID = 1L;
+        
+        private final Map<String, Object> record;
+        private final List<String> invalidFields;
+        
+        public InvalidRow(Map<String, Object> record, List<String> invalidFields) {
+            this.record = record;
+            this.invalidFields = invalidFields;
+        }
+        
+        public Map<String, Object> getRecord() {
+            return record;
+        }
+        
+        public List<String> getInvalidFields() {
+            return invalidFields;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,219 @@
+package com.prophecy.testing.data;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.prophecy.testing.models.DataSchema;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Writes the data quality report as HTML and JSON straight to buffered files, one field at a time.
+ * The report is built from the field profiles and invalid row sample collected by
+ * {@link DataQualityAccumulator} during validation, so its size depends on the number of fields
+ * and writing it does not read the data again.
+ */
+public class DataQualityReportWriter {
+    private static final int TOP_VALUES = 10;
+    private static final ObjectMapper jsonMapper = new ObjectMapper();
+    
+    private final DataSchema schema;
+    private final long recordCount;
+    private final Map<String, Object> results;
+    
+    public DataQualityReportWriter(DataSchema schema, long recordCount, Map<String, Object> results) {
+        this.schema = schema;
+        this.recordCount = recordCount;
+        this.results = results;
+    }
+    
+    public void writeHtml(Path path) throws IOException {
+        try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            out.write("<html><head><meta charset=\"utf-8\"><title>Data Quality Report</title><style>"
+                    + "table{border-collapse:collapse;margin-bottom:1em}td,th{border:1px solid #ccc;padding:2px 6px;text-align:left}"
+                    + ".bar{background:#4a90d9;height:10px}</style></head><body>");
+            out.write("<h1>Data Quality Report</h1>");
+            out.write("<h2>Schema: " + escape(schema.getName()) + "</h2>");
+            out.write("<p>Generated: " + escape(new Date().toString()) + "</p>");
+            out.write("<p>Record Count: " + recordCount + "</p>");
+            
+            out.write("<h3>Validation Results</h3><table>");
+            for (Map.Entry<String, Object> entry : summary().entrySet()) {
+                out.write("<tr><th>" + escape(entry.getKey()) + "</th><td>" + escape(String.valueOf(entry.getValue())) + "</td></tr>");
+            }
+            out.write("</table>");
+            
+            Map<String, Double> completeness = completeness();
+            Map<String, Boolean> formats = formatValidation();
+            out.write("<h3>Fields</h3>");
+            for (FieldProfile profile : fieldProfiles().values()) {
+                out.write("<h4>" + escape(profile.getName()) + "</h4><table>");
+                writeHtmlRow(out, "Values", profile.getCount());
+                writeHtmlRow(out, "Empty", profile.getEmptyCount());
+                writeHtmlRow(out, "Completeness %", completeness.get(profile.getName()));
+                writeHtmlRow(out, "Valid format", formats.get(profile.getName()));
+                writeHtmlRow(out, "Invalid values", profile.getInvalidCount());
+                writeHtmlRow(out, "Min", profile.getMin());
+                writeHtmlRow(out, "Max", profile.getMax());
+                out.write("</table>");
+                
+                List<FieldProfile.Bin> bins = profile.getHistogram();
+                if (!bins.isEmpty()) {
+                    long largest = bins.stream().mapToLong(FieldProfile.Bin::getCount).max().orElse(1);
+                    out.write("<table><tr><th>Range</th><th>Count</th><th></th></tr>");
+                    for (FieldProfile.Bin bin : bins) {
+                        out.write("<tr><td>[" + bin.getLower() + ", " + bin.getUpper() + ")</td><td>" + bin.getCount()
+                                + "</td><td><div class=\"bar\" style=\"width:" + (200 * bin.getCount() / largest) + "px\"></div></td></tr>");
+                    }
+                    out.write("</table>");
+                }
+                
+                boolean exact = profile.isTopValuesExact();
+                out.write("<table><tr><th>Top values" + (exact ? "" : " (approximate)")
+                        + "</th><th>Count</th>" + (exact ? "" : "<th>Overcount at most</th>") + "</tr>");
+                for (SpaceSavingTopK.Entry value : profile.getHeavyHitters(TOP_VALUES)) {
+                    out.write("<tr><td>" + escape(value.getValue()) + "</td><td>" + value.getCount() + "</td>"
+                            + (exact ? "" : "<td>" + value.getError() + "</td>") + "</tr>");
+                }
+                out.write("</table>");
+            }
+            
+            List<DataQualityAccumulator.InvalidRow> invalidRows = invalidRowSample();
+            if (!invalidRows.isEmpty()) {
+                out.write("<h3>Invalid Rows (sample of " + invalidRows.size() + " of " + results.get("invalid_row_count") + ")</h3>");
+                out.write("<table><tr><th>Invalid fields</th><th>Record</th></tr>");
+                for (DataQualityAccumulator.InvalidRow row : invalidRows) {
+                    out.write("<tr><td>" + escape(String.join(", ", row.getInvalidFields())) + "</td><td>"
+                            + escape(String.valueOf(row.getRecord())) + "</td></tr>");
+                }
+                out.write("</table>");
+            }
+            out.write("</body></html>");
+        }
+    }
+    
+    public void writeJson(Path path) throws IOException {
+        try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+             JsonGenerator json = new JsonFactory(jsonMapper).createGenerator(out)) {
+            json.useDefaultPrettyPrinter();
+            json.writeStartObject();
+            json.writeStringField("schema", schema.getName());
+            json.writeNumberField("generated", System.currentTimeMillis());
+            json.writeNumberField("record_count", recordCount);
+            json.writeObjectField("summary", summary());
+            
+            Map<String, Double> completeness = completeness();
+            Map<String, Boolean> formats = formatValidation();
+            json.writeArrayFieldStart("fields");
+            for (FieldProfile profile : fieldProfiles().values()) {
+                json.writeStartObject();
+                json.writeStringField("name", profile.getName());
+                json.writeNumberField("count", profile.getCount());
+                json.writeNumberField("empty", profile.getEmptyCount());
+                json.writeObjectField("completeness", completeness.get(profile.getName()));
+                json.writeObjectField("valid_format", formats.get(profile.getName()));
+                json.writeNumberField("invalid", profile.getInvalidCount());
+                json.writeObjectField("min", profile.getMin());
+                json.writeObjectField("max", profile.getMax());
+                json.writeArrayFieldStart("histogram");
+                for (FieldProfile.Bin bin : profile.getHistogram()) {
+                    json.writeStartObject();
+                    json.writeNumberField("lower", bin.getLower());
+                    json.writeNumberField("upper", bin.getUpper());
+                    json.writeNumberField("count", bin.getCount());
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+                json.writeBooleanField("top_values_exact", profile.isTopValuesExact());
+                json.writeArrayFieldStart("top_values");
+                for (SpaceSavingTopK.Entry value : profile.getHeavyHitters(TOP_VALUES)) {
+                    json.writeStartObject();
+                    json.writeStringField("value", value.getValue());
+                    json.writeNumberField("count", value.getCount());
+                    json.writeNumberField("error", value.getError());
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            
+            json.writeObjectField("invalid_row_count", results.get("invalid_row_count"));
+            json.writeArrayFieldStart("invalid_row_sample");
+            for (DataQualityAccumulator.InvalidRow row : invalidRowSample()) {
+                json.writeStartObject();
+                json.writeObjectField("invalid_fields", row.getInvalidFields());
+                json.writeObjectField("record", row.getRecord());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+    }
+    
+    /**
+     * Scalar validation results; per-field results are written with their fields
+     */
+    private Map<String, Object> summary() {
+        Map<String, Object> summary = new TreeMap<>();
+        results.forEach((key, value) -> {
+            if (!(value instanceof Map) && !(value instanceof Collection)) {
+                summary.put(key, value);
+            }
+        });
+        return summary;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Map<String, FieldProfile> fieldProfiles() {
+        Object profiles = results.get("field_profiles");
+        return profiles instanceof Map ? (Map<String, FieldProfile>) profiles : Collections.emptyMap();
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Map<String, Double> completeness() {
+        Object completeness = results.get("completeness");
+        return completeness instanceof Map ? (Map<String, Double>) completeness : Collections.emptyMap();
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Map<String, Boolean> formatValidation() {
+        Object formats = results.get("format_validation");
+        return formats instanceof Map ? (Map<String, Boolean>) formats : Collections.emptyMap();
+    }
+    
+    @SuppressWarnings("unchecked")
+    private List<DataQualityAccumulator.InvalidRow> invalidRowSample() {
+        Object sample = results.get("invalid_row_sample");
+        return sample instanceof List ? (List<DataQualityAccumulator.InvalidRow>) sample : Collections.emptyList();
+    }
+    
+    private static void writeHtmlRow(Writer out, String label, Object value) throws IOException {
+        if (value != null) {
+            out.write("<tr><th>" + label + "</th><td>" + escape(value.toString()) + "</td></tr>");
+        }
+    }
+    
+    private static String escape(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<': escaped.append("&lt;"); break;
+                case '>': escaped.append("&gt;"); break;
+                case '&': escaped.append("&amp;"); break;
+                case '"': escaped.append("&quot;"); break;
+                default: escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,133 @@
+package com.prophecy.testing.data;
+
+import java.util.*;
+
+/**
+ * Compact, JSON-serializable summary of the distribution of each column of a dataset: null rate,
+ * evenly spaced quantiles of numeric columns and the most frequent values. Stored as a baseline, it
+ * replaces a golden output file for comparisons that only need the data to be distributed alike;
+ * its size depends on the number of columns, not rows.
+ */
+public class DatasetProfile {
+    static final int QUANTILE_INTERVALS = 100;
+    static final int TOP_VALUES = 20;
+    
+    private long recordCount;
+    private Map<String, ColumnProfile> columns = new LinkedHashMap<>();
+    
+    public DatasetProfile() {}
+    
+    public DatasetProfile(long recordCount, Map<String, ColumnProfile> columns) {
+        this.recordCount = recordCount;
+        this.columns = columns;
+    }
+    
+    /**
+     * Profile of the data summarized by a validation results map
+     */
+    @SuppressWarnings("unchecked")
+    public static DatasetProfile fromResults(Map<String, Object> results) {
+        Object profiles = results.get("field_profiles");
+        if (!(profiles instanceof Map)) {
+            throw new IllegalArgumentException("Validation results have no field profiles");
+        }
+        Object recordCount = results.get("record_count");
+        return fromFieldProfiles(recordCount instanceof Number ? ((Number) recordCount).longValue() : 0,
+                (Map<String, FieldProfile>) profiles);
+    }
+    
+    public static DatasetProfile fromFieldProfiles(long recordCount, Map<String, FieldProfile> fieldProfiles) {
+        Map<String, ColumnProfile> columns = new LinkedHashMap<>();
+        fieldProfiles.forEach((name, fieldProfile) -> columns.put(name, ColumnProfile.of(fieldProfile)));
+        return new DatasetProfile(recordCount, columns);
+    }
+    
+    public long getRecordCount() { return recordCount; }
+    public void setRecordCount(long recordCount) { this.recordCount = recordCount; }
+    
+    public Map<String, ColumnProfile> getColumns() { return columns; }
+    public void setColumns(Map<String, ColumnProfile> columns) { this.columns = columns; }
+    
+    /**
+     * Distribution summary of one column
+     */
+    public static class ColumnProfile {
+        private long count;
+        private long nullCount;
+        private boolean numeric;
+        private double[] quantiles;
+        private Map<String, Long> topValues = new LinkedHashMap<>();
+        private boolean topValuesExact;
+        
+        public ColumnProfile() {}
+        
+        static ColumnProfile of(FieldProfile fieldProfile) {
+            ColumnProfile column = new ColumnProfile();
+            column.count = fieldProfile.getCount();
+            column.nullCount = fieldProfile.getEmptyCount();
+            column.numeric = fieldProfile.isNumeric() && fieldProfile.getNumericCount() > 0;
+            if (column.numeric) {
+                column.quantiles = new double[QUANTILE_INTERVALS + 1];
+                for (int i = 0; i <= QUANTILE_INTERVALS; i++) {
+                    column.quantiles[i] = fieldProfile.getQuantile((double) i / QUANTILE_INTERVALS);
+                }
+            }
+            for (Map.Entry<String, Long> value : fieldProfile.getTopValues(TOP_VALUES)) {
+                column.topValues.put(value.getKey(), value.getValue());
+            }
+            column.topValuesExact = fieldProfile.isTopValuesExact();
+            return column;
+        }
+        
+        /**
+         * Share of values that are null or empty
+         */
+        public double nullRate() {
+            return count > 0 ? (double) nullCount / count : 0.0;
+        }
+        
+        /**
+         * Approximate fraction of numeric values less than or equal to a value, interpolated between quantiles
+         */
+        public double cumulativeShare(double value) {
+            int last = quantiles.length - 1;
+            if (value < quantiles[0]) {
+                return 0.0;
+            }
+            if (value >= quantiles[last]) {
+                return 1.0;
+            }
+            // Last quantile at or below the value; repeated quantiles are a value held by that share of rows
+            int lo = 0;
+            int hi = last;
+            while (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                if (quantiles[mid] <= value) {
+                    lo = mid;
+                } else {
+                    hi = mid;
+                }
+            }
+            double within = (value - quantiles[lo]) / (quantiles[hi] - quantiles[lo]);
+            return (lo + within) / last;
+        }
+        
+        public long getCount() { return count; }
+        public void setCount(long count) { this.count = count; }
+        
+        public long getNullCount() { return nullCount; }
+        public void setNullCount(long nullCount) { this.nullCount = nullCount; }
+        
+        public boolean isNumeric() { return numeric; }
+        public void setNumeric(boolean numeric) { this.numeric = numeric; }
+        
+        public double[] getQuantiles() { return quantiles; }
+        public void setQuantiles(double[] quantiles) { this.quantiles = quantiles; }
+        
+        public Map<String, Long> getTopValues() { return topValues; }
+        public void setTopValues(Map<String, Long> topValues) { this.topValues = topValues; }
+        
+        public boolean isTopValuesExact() { return topValuesExact; }
+        public void setTopValuesExact(boolean topValuesExact) { this.topValuesExact = topValuesExact; }
+    }
+}
\ No newline at end of file
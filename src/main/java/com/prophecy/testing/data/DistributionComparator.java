@@ -0,0 +1,200 @@
+package com.prophecy.testing.data;
+
+import com.prophecy.testing.config.ConfigManager;
+
+import java.util.*;
+
+/**
+ * Statistical comparison of a dataset profile against a baseline, for outputs that are not
+ * reproducible row for row. Each baseline column is checked for a change in null rate, and for
+ * distribution drift: numeric columns by Kolmogorov-Smirnov distance and by population stability
+ * index (PSI) over the baseline deciles, other columns by PSI over the baseline's most frequent values.
+ */
+public class DistributionComparator {
+    // Floor for bin shares in the PSI, which is undefined for empty bins
+    private static final double MIN_SHARE = 1e-4;
+    private static final int PSI_BINS = 10;
+    
+    private final double maxKsDistance;
+    private final double maxPsi;
+    private final double maxNullRateChange;
+    
+    public DistributionComparator() {
+        this(ConfigManager.getInstance().getDriftKsThreshold(),
+                ConfigManager.getInstance().getDriftPsiThreshold(),
+                ConfigManager.getInstance().getDriftNullRateThreshold());
+    }
+    
+    public DistributionComparator(double maxKsDistance, double maxPsi, double maxNullRateChange) {
+        this.maxKsDistance = maxKsDistance;
+        this.maxPsi = maxPsi;
+        this.maxNullRateChange = maxNullRateChange;
+    }
+    
+    public DriftReport compare(DatasetProfile actual, DatasetProfile baseline) {
+        List<ColumnDrift> columns = new ArrayList<>();
+        baseline.getColumns().forEach((name, expected) ->
+                columns.add(compareColumn(name, actual.getColumns().get(name), expected)));
+        return new DriftReport(actual.getRecordCount(), baseline.getRecordCount(), columns);
+    }
+    
+    private ColumnDrift compareColumn(String name, DatasetProfile.ColumnProfile actual, DatasetProfile.ColumnProfile expected) {
+        ColumnDrift drift = new ColumnDrift(name);
+        if (actual == null) {
+            drift.failures.add("column is missing");
+            return drift;
+        }
+        
+        drift.nullRateChange = actual.nullRate() - expected.nullRate();
+        if (Math.abs(drift.nullRateChange) > maxNullRateChange) {
+            drift.failures.add(String.format("null rate changed from %.4f to %.4f", expected.nullRate(), actual.nullRate()));
+        }
+        
+        if (expected.isNumeric()) {
+            if (!actual.isNumeric()) {
+                drift.failures.add("column is no longer numeric");
+                return drift;
+            }
+            drift.ksDistance = ksDistance(actual, expected);
+            drift.psi = numericPsi(actual, expected);
+            if (drift.ksDistance > maxKsDistance) {
+                drift.failures.add(String.format("KS distance %.4f exceeds %.4f", drift.ksDistance, maxKsDistance));
+            }
+        } else {
+            drift.psi = categoricalPsi(actual, expected);
+        }
+        if (drift.psi > maxPsi) {
+            drift.failures.add(String.format("PSI %.4f exceeds %.4f", drift.psi, maxPsi));
+        }
+        return drift;
+    }
+    
+    /**
+     * Largest difference between the two cumulative distributions, evaluated at the quantiles of both
+     */
+    static double ksDistance(DatasetProfile.ColumnProfile actual, DatasetProfile.ColumnProfile expected) {
+        double distance = 0;
+        for (double[] points : new double[][] {actual.getQuantiles(), expected.getQuantiles()}) {
+            for (double point : points) {
+                distance = Math.max(distance, Math.abs(actual.cumulativeShare(point) - expected.cumulativeShare(point)));
+            }
+        }
+        return distance;
+    }
+    
+    /**
+     * PSI over bins bounded by the baseline deciles, which hold about a tenth of the baseline each
+     */
+    static double numericPsi(DatasetProfile.ColumnProfile actual, DatasetProfile.ColumnProfile expected) {
+        double[] quantiles = expected.getQuantiles();
+        TreeSet<Double> edges = new TreeSet<>();
+        for (int bin = 1; bin < PSI_BINS; bin++) {
+            edges.add(quantiles[bin * (quantiles.length - 1) / PSI_BINS]);
+        }
+        
+        double psi = 0;
+        double previousActual = 0;
+        double previousExpected = 0;
+        for (double edge : edges) {
+            double actualShare = actual.cumulativeShare(edge);
+            double expectedShare = expected.cumulativeShare(edge);
+            psi += psiTerm(actualShare - previousActual, expectedShare - previousExpected);
+            previousActual = actualShare;
+            previousExpected = expectedShare;
+        }
+        return psi + psiTerm(1 - previousActual, 1 - previousExpected);
+    }
+    
+    /**
+     * PSI over the baseline's most frequent values, with all other values in one bin
+     */
+    static double categoricalPsi(DatasetProfile.ColumnProfile actual, DatasetProfile.ColumnProfile expected) {
+        long expectedTotal = expected.getCount() - expected.getNullCount();
+        long actualTotal = actual.getCount() - actual.getNullCount();
+        if (expectedTotal == 0 || actualTotal == 0) {
+            return expectedTotal == actualTotal ? 0.0 : Double.POSITIVE_INFINITY;
+        }
+        
+        double psi = 0;
+        double otherActual = 1;
+        double otherExpected = 1;
+        for (Map.Entry<String, Long> value : expected.getTopValues().entrySet()) {
+            double expectedShare = (double) value.getValue() / expectedTotal;
+            double actualShare = (double) actual.getTopValues().getOrDefault(value.getKey(), 0L) / actualTotal;
+            psi += psiTerm(actualShare, expectedShare);
+            otherActual -= actualShare;
+            otherExpected -= expectedShare;
+        }
+        return psi + psiTerm(Math.max(otherActual, 0), Math.max(otherExpected, 0));
+    }
+    
+    private static double psiTerm(double actualShare, double expectedShare) {
+        double a = Math.max(actualShare, MIN_SHARE);
+        double e = Math.max(expectedShare, MIN_SHARE);
+        return (a - e) * Math.log(a / e);
+    }
+    
+    /**
+     * Drift measures of one column and the thresholds it exceeded
+     */
+    public static class ColumnDrift {
+        private final String column;
+        private Double ksDistance;
+        private Double psi;
+        private Double nullRateChange;
+        private final List<String> failures = new ArrayList<>();
+        
+        ColumnDrift(String column) {
+            this.column = column;
+        }
+        
+        public String getColumn() { return column; }
+        public Double getKsDistance() { return ksDistance; }
+        public Double getPsi() { return psi; }
+        public Double getNullRateChange() { return nullRateChange; }
+        public List<String> getFailures() { return failures; }
+        
+        public boolean isWithinThresholds() {
+            return failures.isEmpty();
+        }
+        
+        @Override
+        public String toString() {
+            return column + (failures.isEmpty() ? ": ok" : ": " + String.join("; ", failures));
+        }
+    }
+    
+    public static class DriftReport {
+        private final long recordCount;
+        private final long baselineRecordCount;
+        private final List<ColumnDrift> columns;
+        
+        DriftReport(long recordCount, long baselineRecordCount, List<ColumnDrift> columns) {
+            this.recordCount = recordCount;
+            this.baselineRecordCount = baselineRecordCount;
+            this.columns = columns;
+        }
+        
+        public long getRecordCount() { return recordCount; }
+        public long getBaselineRecordCount() { return baselineRecordCount; }
+        public List<ColumnDrift> getColumns() { return columns; }
+        
+        public Optional<ColumnDrift> getColumn(String column) {
+            return columns.stream().filter(drift -> drift.getColumn().equals(column)).findFirst();
+        }
+        
+        public List<ColumnDrift> getDriftedColumns() {
+            List<ColumnDrift> drifted = new ArrayList<>();
+            for (ColumnDrift drift : columns) {
+                if (!drift.isWithinThresholds()) {
+                    drifted.add(drift);
+                }
+            }
+            return drifted;
+        }
+        
+        public boolean isWithinThresholds() {
+            return getDriftedColumns().isEmpty();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,203 @@
+package com.prophecy.testing.data;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Streaming XLSX reader built on POI's event model. Sheet XML is parsed with SAX and rows are pushed
+ * to a consumer as they are read, so memory stays bounded by the shared strings of the workbook
+ * rather than its row count. The first row is the header, as with CSV files.
+ */
+public class ExcelStreamingReader {
+    private static final Logger logger = LogManager.getLogger(ExcelStreamingReader.class);
+    
+    private ExcelStreamingReader() {}
+    
+    /**
+     * Check whether a file name uses the XLSX extension
+     */
+    public static boolean isExcel(String fileName) {
+        return fileName.endsWith(".xlsx");
+    }
+    
+    /**
+     * Stream the given columns (all columns when null) of the rows of the first sheet to a consumer
+     */
+    public static long forEach(String filePath, Collection<String> columns, Consumer<Map<String, Object>> consumer)
+            throws IOException {
+        return forEach(filePath, null, columns, consumer);
+    }
+    
+    /**
+     * Stream the given columns (all columns when null) of the rows of a named sheet to a consumer;
+     * the first sheet is read when no sheet name is given
+     */
+    public static long forEach(String filePath, String sheetName, Collection<String> columns,
+                               Consumer<Map<String, Object>> consumer) throws IOException {
+        try (OPCPackage workbook = OPCPackage.open(new File(filePath), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(workbook);
+            ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(workbook, false);
+            StylesTable styles = reader.getStylesTable();
+            
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (sheets.hasNext()) {
+                try (InputStream sheet = sheets.next()) {
+                    if (sheetName == null || sheetName.equals(sheets.getSheetName())) {
+                        logger.debug("Streaming sheet '{}' of {}", sheets.getSheetName(), filePath);
+                        RowCollector rows = new RowCollector(columns, consumer);
+                        parseSheet(sheet, styles, sharedStrings, rows);
+                        return rows.count;
+                    }
+                }
+            }
+        } catch (OpenXML4JException | SAXException e) {
+            throw new IOException("Failed to read Excel file: " + filePath, e);
+        }
+        
+        throw new IllegalArgumentException("Sheet not found in " + filePath + ": " + sheetName);
+    }
+    
+    private static void parseSheet(InputStream sheet, StylesTable styles, ReadOnlySharedStringsTable sharedStrings,
+                                   XSSFSheetXMLHandler.SheetContentsHandler rows) throws IOException, SAXException {
+        try {
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(new XSSFSheetXMLHandler(styles, null, sharedStrings, rows, new IsoDateFormatter(), false));
+            parser.parse(new InputSource(sheet));
+        } catch (ParserConfigurationException e) {
+            throw new IOException("Failed to create XML parser for sheet", e);
+        }
+    }
+    
+    /**
+     * Collects the cells of one row at a time and emits it as a record keyed by the header row
+     */
+    private static class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final Collection<String> columns;
+        private final Consumer<Map<String, Object>> consumer;
+        private final List<String> header = new ArrayList<>();
+        private boolean[] included;
+        private String[] values = new String[0];
+        private int lastColumn = -1;
+        private int currentRow = -1;
+        private boolean rowHasValues;
+        private long count;
+        
+        RowCollector(Collection<String> columns, Consumer<Map<String, Object>> consumer) {
+            this.columns = columns;
+            this.consumer = consumer;
+        }
+        
+        @Override
+        public void startRow(int rowNum) {
+            currentRow = rowNum;
+            lastColumn = -1;
+            rowHasValues = false;
+        }
+        
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            // Cells are reported in column order, so a cell without a reference is the next column
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : lastColumn + 1;
+            String value = formattedValue == null ? "" : formattedValue.trim();
+            
+            if (included == null) {
+                while (header.size() < column) {
+                    header.add("");
+                }
+                header.add(value);
+            } else if (column < values.length && included[column]) {
+                values[column] = value;
+            }
+            
+            if (!value.isEmpty()) {
+                rowHasValues = true;
+            }
+            
+            lastColumn = Math.max(lastColumn, column);
+        }
+        
+        @Override
+        public void endRow(int rowNum) {
+            if (included == null) {
+                initializeColumns();
+                return;
+            }
+            // Rows that only carry formatting have no values to report
+            if (!rowHasValues) {
+                return;
+            }
+            
+            // Columns after the last non-empty cell are left out, as trailing empty fields are in CSV
+            int fields = 0;
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null && !values[i].isEmpty()) {
+                    fields = i + 1;
+                }
+            }
+            
+            Map<String, Object> record = new HashMap<>();
+            for (int i = 0; i < fields; i++) {
+                if (included[i]) {
+                    record.put(header.get(i), values[i] != null ? values[i] : "");
+                }
+            }
+            Arrays.fill(values, null);
+            
+            consumer.accept(record);
+            count++;
+        }
+        
+        private void initializeColumns() {
+            included = new boolean[header.size()];
+            for (int i = 0; i < header.size(); i++) {
+                included[i] = columns == null || columns.contains(header.get(i));
+            }
+            values = new String[header.size()];
+            logger.debug("Header row {} has {} columns", currentRow, header.size());
+        }
+    }
+    
+    /**
+     * Formats date cells as ISO dates and timestamps instead of the locale pattern of the cell style
+     */
+    private static class IsoDateFormatter extends DataFormatter {
+        IsoDateFormatter() {
+            super(Locale.ROOT);
+        }
+        
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString, boolean use1904Windowing) {
+            if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+                LocalDateTime timestamp = DateUtil.getLocalDateTime(value, use1904Windowing);
+                return timestamp.toLocalTime().toNanoOfDay() == 0
+                        ? timestamp.toLocalDate().format(DateTimeFormatter.ISO_LOCAL_DATE)
+                        : timestamp.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+            }
+            return super.formatRawCellContents(value, formatIndex, formatString, use1904Windowing);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,388 @@
+package com.prophecy.testing.data;
+
+import com.prophecy.testing.config.ConfigManager;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Fixed-size summary of the values of one field, built in the validation pass: counts, the range,
+ * mean, variance, quantiles and a histogram of numeric values, and the most frequent values. Value frequencies are counted
+ * exactly until the field has more distinct values than the top values summary tracks; from then on
+ * a Count-Min sketch, seeded with the exact counts, bounds the frequency of any value. Memory per
+ * field is fixed whatever the cardinality, and profiles of separate chunks of a file can be merged.
+ */
+public class FieldProfile implements Serializable {
+    private static final long serialVersionUID = 1L;
+    static final int HISTOGRAM_BINS = 32;
+    private static final ConfigManager config = ConfigManager.getInstance();
+    
+    private final String name;
+    private final boolean numeric;
+    private long count;
+    private long emptyCount;
+    private long invalidCount;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private long numericCount;
+    private double mean;
+    private double squaredDeviations;
+    private final KllSketch quantiles;
+    private final Histogram histogram = new Histogram();
+    private final SpaceSavingTopK topValues = new SpaceSavingTopK(config.getProfileTopValueCapacity());
+    private CountMinSketch frequencies;
+    
+    public FieldProfile(String name, boolean numeric) {
+        this.name = name;
+        this.numeric = numeric;
+        this.quantiles = numeric ? new KllSketch(config.getQuantileSketchSize()) : null;
+    }
+    
+    /**
+     * Add a value of the field; numeric fields also accept numbers stored as text
+     */
+    public void accept(Object value, boolean valid) {
+        count++;
+        if (!valid) {
+            invalidCount++;
+        }
+        if (value == null || value.toString().trim().isEmpty()) {
+            emptyCount++;
+            return;
+        }
+        
+        String text = value.toString();
+        if (frequencies == null && topValues.isFull() && !topValues.contains(text)) {
+            // The first value that does not fit; the counts are exact up to here
+            frequencies = sketchOf(topValues);
+        }
+        topValues.add(text, 1);
+        if (frequencies != null) {
+            frequencies.add(text, 1);
+        }
+        
+        if (numeric) {
+            double number = toDouble(value);
+            if (Double.isFinite(number)) {
+                min = Math.min(min, number);
+                max = Math.max(max, number);
+                // Welford's update keeps the variance accurate where summing squares would cancel
+                numericCount++;
+                double delta = number - mean;
+                mean += delta / numericCount;
+                squaredDeviations += delta * (number - mean);
+                quantiles.update(number);
+                histogram.add(number, 1);
+            }
+        }
+    }
+    
+    /**
+     * Count records that do not have the field as empty values
+     */
+    void addEmpty(long records) {
+        count += records;
+        emptyCount += records;
+    }
+    
+    public FieldProfile merge(FieldProfile other) {
+        count += other.count;
+        emptyCount += other.emptyCount;
+        invalidCount += other.invalidCount;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        if (other.numericCount > 0) {
+            // Chan's parallel combination of means and squared deviations
+            long combined = numericCount + other.numericCount;
+            double delta = other.mean - mean;
+            mean += delta * other.numericCount / combined;
+            squaredDeviations += other.squaredDeviations + delta * delta * numericCount * other.numericCount / combined;
+            numericCount = combined;
+        }
+        if (quantiles != null && other.quantiles != null) {
+            quantiles.merge(other.quantiles);
+        }
+        histogram.merge(other.histogram);
+        if (frequencies != null || other.frequencies != null
+                || topValues.size() + other.topValues.size() > topValues.getCapacity()) {
+            CountMinSketch merged = frequencies != null ? frequencies : sketchOf(topValues);
+            frequencies = merged.merge(other.frequencies != null ? other.frequencies : sketchOf(other.topValues));
+        }
+        topValues.merge(other.topValues);
+        return this;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public boolean isNumeric() {
+        return numeric;
+    }
+    
+    public long getCount() {
+        return count;
+    }
+    
+    public long getEmptyCount() {
+        return emptyCount;
+    }
+    
+    public long getInvalidCount() {
+        return invalidCount;
+    }
+    
+    /**
+     * Smallest numeric value, or null when the field has none
+     */
+    public Double getMin() {
+        return min <= max ? min : null;
+    }
+    
+    public Double getMax() {
+        return min <= max ? max : null;
+    }
+    
+    /**
+     * Number of numeric values, which excludes empty values and values that are not numbers
+     */
+    public long getNumericCount() {
+        return numericCount;
+    }
+    
+    /**
+     * Mean of the numeric values, or null when the field has none
+     */
+    public Double getMean() {
+        return numericCount > 0 ? mean : null;
+    }
+    
+    /**
+     * Sample standard deviation of the numeric values, or null when the field has none
+     */
+    public Double getStandardDeviation() {
+        if (numericCount == 0) {
+            return null;
+        }
+        return numericCount > 1 ? Math.sqrt(squaredDeviations / (numericCount - 1)) : 0.0;
+    }
+    
+    /**
+     * Approximate value at a quantile between 0 and 1, or null when the field has no numeric values
+     */
+    public Double getQuantile(double q) {
+        return numericCount > 0 ? quantiles.getQuantile(q) : null;
+    }
+    
+    /**
+     * Quantile sketch of the numeric values, or null for fields that are not numeric
+     */
+    public KllSketch getQuantileSketch() {
+        return quantiles;
+    }
+    
+    public List<Bin> getHistogram() {
+        return histogram.bins();
+    }
+    
+    /**
+     * Most frequent values, most frequent first. Counts are exact unless the field had more
+     * distinct values than are tracked, in which case they may overcount by the entry's error.
+     */
+    public List<SpaceSavingTopK.Entry> getHeavyHitters(int k) {
+        return topValues.top(k);
+    }
+    
+    public List<Map.Entry<String, Long>> getTopValues(int k) {
+        return topValues.top(k).stream()
+                .map(entry -> new AbstractMap.SimpleImmutableEntry<>(entry.getValue(), entry.getCount()))
+                .collect(Collectors.toList());
+    }
+    
+    public boolean isTopValuesExact() {
+        return topValues.isExact();
+    }
+    
+    /**
+     * Upper bound on the number of times a value occurred; exact while the top values are exact
+     */
+    public long estimateCount(String value) {
+        long estimate = topValues.estimate(value);
+        if (!topValues.isExact() && frequencies != null) {
+            estimate = Math.min(estimate, frequencies.estimate(value));
+        }
+        return estimate;
+    }
+    
+    /**
+     * Lower bound on the number of times a value occurred
+     */
+    public long minimumCount(String value) {
+        return topValues.guaranteedCount(value);
+    }
+    
+    /**
+     * Frequency sketch of the values, or null while every value is counted exactly
+     */
+    public CountMinSketch getFrequencySketch() {
+        return frequencies;
+    }
+    
+    private static CountMinSketch sketchOf(SpaceSavingTopK exactCounts) {
+        CountMinSketch sketch = new CountMinSketch(config.getFrequencySketchWidth(), config.getFrequencySketchDepth());
+        for (SpaceSavingTopK.Entry entry : exactCounts.top(exactCounts.size())) {
+            sketch.add(entry.getValue(), entry.getCount());
+        }
+        return sketch;
+    }
+    
+    private static double toDouble(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        try {
+            return Double.parseDouble(value.toString().trim());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+    
+    /**
+     * Histogram bin covering [lower, upper)
+     */
+    public static class Bin {
+        private final double lower;
+        private final double upper;
+        private final long count;
+        
+        Bin(double lower, double upper, long count) {
+            this.lower = lower;
+            this.upper = upper;
+            this.count = count;
+        }
+        
+        public double getLower() { return lower; }
+        public double getUpper() { return upper; }
+        public long getCount() { return count; }
+    }
+    
+    /**
+     * Equal-width histogram with a fixed number of bins whose width is a power of two. When a value
+     * falls outside the bins, the width doubles and neighbouring bins are combined, so the bins of
+     * any two histograms can be aligned and added.
+     */
+    static class Histogram implements Serializable {
+        private static final long serialVersionUID = 1L;
+        // Bin indices are clamped to this magnitude, so that differences of indices cannot overflow;
+        // a value whose index is clamped does not fit and makes the bins coarser
+        private static final long MAX_INDEX = 1L << 61;
+        
+        private long[] counts;
+        private double width;
+        private long start;
+        
+        void add(double value, long n) {
+            if (counts == null) {
+                counts = new long[HISTOGRAM_BINS];
+                // Start fine relative to the first value; the width grows as the spread of values shows
+                width = Math.scalb(1.0, Math.getExponent(Math.max(Math.abs(value), 1e-6)) - 10);
+                start = index(value) - HISTOGRAM_BINS / 2;
+            }
+            long i = index(value);
+            while (i < start || i >= start + HISTOGRAM_BINS) {
+                int first = firstUsed();
+                long lo = Math.min(i, first < 0 ? i : start + first);
+                long hi = Math.max(i, first < 0 ? i : start + lastUsed());
+                if (hi - lo < HISTOGRAM_BINS && lo > -MAX_INDEX && hi < MAX_INDEX) {
+                    // The values fit at this width; move the bins so they are centred on the used range
+                    moveTo(lo - (HISTOGRAM_BINS - 1 - (hi - lo)) / 2);
+                    break;
+                }
+                coarsen();
+                i = index(value);
+            }
+            counts[(int) (i - start)] += n;
+        }
+        
+        void merge(Histogram other) {
+            if (other.counts == null) {
+                return;
+            }
+            if (counts == null) {
+                counts = other.counts.clone();
+                width = other.width;
+                start = other.start;
+                return;
+            }
+            while (width < other.width) {
+                coarsen();
+            }
+            for (int j = 0; j < HISTOGRAM_BINS; j++) {
+                if (other.counts[j] > 0) {
+                    // Bin midpoints land in the matching bin at this width or any coarser one
+                    add((other.start + j + 0.5) * other.width, other.counts[j]);
+                }
+            }
+        }
+        
+        List<Bin> bins() {
+            List<Bin> bins = new ArrayList<>();
+            int first = counts == null ? -1 : firstUsed();
+            if (first < 0) {
+                return bins;
+            }
+            for (int j = first; j <= lastUsed(); j++) {
+                bins.add(new Bin((start + j) * width, (start + j + 1) * width, counts[j]));
+            }
+            return bins;
+        }
+        
+        private long index(double value) {
+            double index = Math.floor(value / width);
+            return index >= MAX_INDEX ? MAX_INDEX : index <= -MAX_INDEX ? -MAX_INDEX : (long) index;
+        }
+        
+        private void coarsen() {
+            long[] coarse = new long[HISTOGRAM_BINS];
+            long coarseStart = Math.floorDiv(start, 2);
+            for (int j = 0; j < HISTOGRAM_BINS; j++) {
+                if (counts[j] > 0) {
+                    coarse[(int) (Math.floorDiv(start + j, 2) - coarseStart)] += counts[j];
+                }
+            }
+            counts = coarse;
+            start = coarseStart;
+            width *= 2;
+        }
+        
+        private void moveTo(long newStart) {
+            long[] moved = new long[HISTOGRAM_BINS];
+            for (int j = 0; j < HISTOGRAM_BINS; j++) {
+                if (counts[j] > 0) {
+                    moved[(int) (start + j - newStart)] = counts[j];
+                }
+            }
+            counts = moved;
+            start = newStart;
+        }
+        
+        private int firstUsed() {
+            for (int j = 0; j < HISTOGRAM_BINS; j++) {
+                if (counts[j] > 0) {
+                    return j;
+                }
+            }
+            return -1;
+        }
+        
+        private int lastUsed() {
+            for (int j = HISTOGRAM_BINS - 1; j >= 0; j--) {
+                if (counts[j] > 0) {
+                    return j;
+                }
+            }
+            return -1;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,89 @@
+package com.prophecy.testing.data;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Conversions between the loosely typed values of test records and the typed values of binary file formats.
+ * Typed values are read back as the same Java types the CSV and JSON loaders produce.
+ */
+final class FieldValueConverter {
+    private static final ObjectMapper jsonMapper = new ObjectMapper();
+    
+    private FieldValueConverter() {}
+    
+    /**
+     * Get a numeric value, parsing strings read from text files
+     */
+    static Number toNumber(Object value) {
+        return value instanceof Number ? (Number) value : new BigDecimal(value.toString().trim());
+    }
+    
+    static boolean toBoolean(Object value) {
+        return value instanceof Boolean ? (Boolean) value : Boolean.parseBoolean(value.toString().trim());
+    }
+    
+    static int toEpochDay(Object value) {
+        LocalDate date = value instanceof LocalDate ? (LocalDate) value : LocalDate.parse(value.toString().trim());
+        return (int) date.toEpochDay();
+    }
+    
+    /**
+     * Get microseconds since the epoch of a local timestamp, accepting a space or 'T' separator
+     */
+    static long toEpochMicros(Object value) {
+        LocalDateTime timestamp = value instanceof LocalDateTime
+                ? (LocalDateTime) value
+                : LocalDateTime.parse(value.toString().trim().replace(' ', 'T'));
+        Instant instant = timestamp.toInstant(ZoneOffset.UTC);
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000L);
+    }
+    
+    static byte[] toBytes(Object value) {
+        return value instanceof byte[] ? (byte[]) value : value.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Encode a nested value as JSON text; strings are assumed to hold JSON already
+     */
+    static String toJson(Object value) {
+        if (value instanceof String) {
+            return (String) value;
+        }
+        try {
+            return jsonMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot encode value as JSON: " + value, e);
+        }
+    }
+    
+    static String formatDate(long epochDay) {
+        return LocalDate.ofEpochDay(epochDay).format(DateTimeFormatter.ISO_LOCAL_DATE);
+    }
+    
+    static String formatTimestamp(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneOffset.UTC).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+    
+    static String formatEpochMillis(long millis) {
+        return formatTimestamp(Instant.ofEpochMilli(millis));
+    }
+    
+    static String formatEpochMicros(long micros) {
+        return formatTimestamp(Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                Math.floorMod(micros, 1_000_000L) * 1_000L));
+    }
+    
+    static String formatEpochNanos(long nanos) {
+        return formatTimestamp(Instant.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+                Math.floorMod(nanos, 1_000_000_000L)));
+    }
+}
\ No newline at end of file
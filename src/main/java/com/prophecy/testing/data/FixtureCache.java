@@ -0,0 +1,239 @@
+package com.prophecy.testing.data;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.prophecy.testing.config.ConfigManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Process-wide cache of parsed fixture files shared by all TestDataManager instances. Entries are
+ * weighted by an estimate of the heap their parsed value takes, from the values of a sample of its
+ * records or nodes, and evicted least recently used first once the total weight exceeds the configured
+ * bound. An entry is reloaded when its file's modification time or size changes.
+ */
+public class FixtureCache {
+    private static final Logger logger = LogManager.getLogger(FixtureCache.class);
+    private static volatile FixtureCache instance;
+    
+    // Elements of a list or array node whose weight is measured; the weight of the others is extrapolated
+    private static final int WEIGHT_SAMPLE_SIZE = 64;
+    // Rough heap sizes of objects, map entries and boxed values on a 64-bit JVM with compressed pointers
+    private static final long OBJECT_BYTES = 16;
+    private static final long REFERENCE_BYTES = 8;
+    private static final long MAP_BYTES = 48;
+    private static final long MAP_ENTRY_BYTES = 40;
+    private static final long STRING_BYTES = 40;
+    private static final long BOXED_BYTES = 24;
+    
+    private final long maxWeightBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weightBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+    
+    public FixtureCache(long maxWeightBytes) {
+        this.maxWeightBytes = maxWeightBytes;
+    }
+    
+    public static FixtureCache getInstance() {
+        if (instance == null) {
+            synchronized (FixtureCache.class) {
+                if (instance == null) {
+                    instance = new FixtureCache(ConfigManager.getInstance().getFixtureCacheMaxBytes());
+                }
+            }
+        }
+        return instance;
+    }
+    
+    /**
+     * Parser that turns a fixture file into its cached value
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load(File file) throws IOException;
+    }
+    
+    /**
+     * Get the parsed value of a file, parsing it when it is not cached or has changed on disk.
+     * The kind separates values parsed from the same file in different ways.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String kind, File file, Loader<T> loader) throws IOException {
+        String key = kind + ":" + file.getAbsolutePath();
+        long modified = file.lastModified();
+        long size = file.length();
+        
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.modified == modified && entry.size == size) {
+                    hits++;
+                    return (T) entry.value;
+                }
+                remove(key);
+                invalidations++;
+                logger.debug("Fixture {} changed on disk, reloading", file);
+            }
+            misses++;
+        }
+        
+        // Parsed outside the lock so slow files do not block other lookups; concurrent misses
+        // on the same file may both parse it and the last one wins
+        T value = loader.load(file);
+        long weight = weigh(value);
+        
+        synchronized (this) {
+            if (weight <= maxWeightBytes) {
+                Entry previous = entries.put(key, new Entry(value, modified, size, weight));
+                if (previous != null) {
+                    weightBytes -= previous.weight;
+                }
+                weightBytes += weight;
+                evict();
+            } else {
+                logger.debug("Not caching fixture {} of about {} bytes parsed", file, weight);
+            }
+        }
+        return value;
+    }
+    
+    /**
+     * Drop all cached values parsed from a file, e.g. after it was rewritten
+     */
+    public synchronized void invalidate(File file) {
+        String suffix = ":" + file.getAbsolutePath();
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> entry = iterator.next();
+            if (entry.getKey().endsWith(suffix)) {
+                weightBytes -= entry.getValue().weight;
+                iterator.remove();
+                invalidations++;
+            }
+        }
+    }
+    
+    public synchronized void clear() {
+        entries.clear();
+        weightBytes = 0;
+    }
+    
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+    
+    /**
+     * Get hit, miss, eviction and size counters of the cache
+     */
+    public synchronized Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("entries", entries.size());
+        statistics.put("weightBytes", weightBytes);
+        statistics.put("maxWeightBytes", maxWeightBytes);
+        statistics.put("hits", hits);
+        statistics.put("misses", misses);
+        statistics.put("evictions", evictions);
+        statistics.put("invalidations", invalidations);
+        statistics.put("hitRate", getHitRate());
+        return statistics;
+    }
+    
+    private void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            weightBytes -= entry.weight;
+        }
+    }
+    
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (weightBytes > maxWeightBytes && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            weightBytes -= eldest.getValue().weight;
+            iterator.remove();
+            evictions++;
+            logger.debug("Evicted fixture {} from cache", eldest.getKey());
+        }
+    }
+    
+    /**
+     * Estimated heap bytes of a parsed value: records and JSON trees are weighed by their values;
+     * field names are not counted, as parsers share them across records
+     */
+    static long weigh(Object value) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof String) {
+            return STRING_BYTES + ((String) value).length();
+        } else if (value instanceof Integer || value instanceof Boolean || value instanceof Short || value instanceof Byte) {
+            return OBJECT_BYTES;
+        } else if (value instanceof Number || value instanceof Character) {
+            return BOXED_BYTES;
+        } else if (value instanceof Map) {
+            long weight = MAP_BYTES;
+            for (Object element : ((Map<?, ?>) value).values()) {
+                weight += MAP_ENTRY_BYTES + weigh(element);
+            }
+            return weight;
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            return OBJECT_BYTES + REFERENCE_BYTES * list.size() + sampledWeight(list.size(), list::get);
+        } else if (value instanceof JsonNode) {
+            JsonNode node = (JsonNode) value;
+            if (node.isObject()) {
+                long weight = MAP_BYTES;
+                for (Iterator<JsonNode> fields = node.elements(); fields.hasNext(); ) {
+                    weight += MAP_ENTRY_BYTES + weigh(fields.next());
+                }
+                return weight;
+            } else if (node.isArray()) {
+                return OBJECT_BYTES + REFERENCE_BYTES * node.size() + sampledWeight(node.size(), node::get);
+            }
+            return node.isTextual() ? OBJECT_BYTES + weigh(node.textValue()) : BOXED_BYTES;
+        }
+        return MAP_BYTES;
+    }
+    
+    private static long sampledWeight(int size, IntFunction<Object> element) {
+        if (size <= WEIGHT_SAMPLE_SIZE) {
+            long weight = 0;
+            for (int i = 0; i < size; i++) {
+                weight += weigh(element.apply(i));
+            }
+            return weight;
+        }
+        // Evenly spread samples, so that records sorted by size do not skew the estimate
+        long sampled = 0;
+        for (int i = 0; i < WEIGHT_SAMPLE_SIZE; i++) {
+            sampled += weigh(element.apply((int) ((long) i * size / WEIGHT_SAMPLE_SIZE)));
+        }
+        return sampled * size / WEIGHT_SAMPLE_SIZE;
+    }
+    
+    private static class Entry {
+        final Object value;
+        final long modified;
+        final long size;
+        final long weight;
+        
+        Entry(Object value, long modified, long size, long weight) {
+            this.value = value;
+            this.modified = modified;
+            this.size = size;
+            this.weight = weight;
+        }
+    }
+}
\ No newline at end of file
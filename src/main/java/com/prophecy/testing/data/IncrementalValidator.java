@@ -0,0 +1,210 @@
+package com.prophecy.testing.data;
+
+import com.prophecy.testing.config.ConfigManager;
+import com.prophecy.testing.models.DataSchema;
+import com.prophecy.testing.models.SchemaField;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Validates CSV and JSON Lines files chunk by chunk, caching the accumulator of each chunk on disk
+ * under its checksum. On later runs only chunks whose bytes changed are parsed and checked again;
+ * the others are read back from the cache, and all are merged. Chunk boundaries stay put when data
+ * is appended, so for append-mostly fixtures the work tracks the appended bytes rather than the file
+ * size; checksumming the unchanged chunks is the only full read.
+ *
+ * Cache entries are keyed by the schema, the CSV header and the profile settings as well, and entries
+ * of a file that were not used by its latest validation are removed. Cache failures never fail a
+ * validation; the chunk is checked instead.
+ */
+public class IncrementalValidator {
+    private static final Logger logger = LogManager.getLogger(IncrementalValidator.class);
+    private static final String ENTRY_EXTENSION = ".chunk";
+    // Bumped when the serialized form of the accumulators or the type checks change
+    private static final int CACHE_VERSION = 3;
+    private static final ObjectInputFilter CACHE_FILTER = ObjectInputFilter.Config.createFilter(
+            "com.prophecy.testing.data.*;java.lang.*;java.util.*;java.math.*;!*");
+    
+    private final Path cacheDirectory;
+    private final long chunkBytes;
+    
+    public IncrementalValidator(String cacheDirectory, long chunkBytes) {
+        this.cacheDirectory = Paths.get(cacheDirectory);
+        this.chunkBytes = chunkBytes;
+    }
+    
+    /**
+     * Whether the file is in a line-oriented format that can be validated by chunk
+     */
+    public static boolean supports(String filePath) {
+        return filePath.endsWith(".csv") || JsonLinesReader.isJsonLines(filePath);
+    }
+    
+    public DataQualityAccumulator validate(String filePath, DataSchema schema) throws IOException {
+        Path source = Paths.get(filePath).toAbsolutePath().normalize();
+        Path fileCache = cacheDirectory.resolve(key(source.toString()));
+        boolean csv = filePath.endsWith(".csv");
+        
+        try (MappedDataFile file = MappedDataFile.open(filePath)) {
+            MappedCsvReader.CsvHeader header = null;
+            byte[] headerLine = new byte[0];
+            if (csv) {
+                headerLine = file.readFirstLine();
+                header = MappedCsvReader.CsvHeader.parse(headerLine);
+                if (header == null) {
+                    return new DataQualityAccumulator(schema);
+                }
+            }
+            
+            String context = context(csv, headerLine, schema);
+            List<ByteBuffer> chunks = file.splitIntoChunks(csv ? file.nextLineStart(0) : 0, chunkBytes);
+            Set<String> used = ConcurrentHashMap.newKeySet();
+            AtomicInteger reused = new AtomicInteger();
+            MappedCsvReader.CsvHeader csvHeader = header;
+            
+            List<DataQualityAccumulator> partials;
+            try {
+                partials = chunks.parallelStream()
+                        .map(chunk -> {
+                            String entry = context + "-" + checksum(chunk) + ENTRY_EXTENSION;
+                            used.add(entry);
+                            Path cached = fileCache.resolve(entry);
+                            DataQualityAccumulator accumulator = read(cached);
+                            if (accumulator != null) {
+                                reused.incrementAndGet();
+                                return accumulator;
+                            }
+                            
+                            accumulator = new DataQualityAccumulator(schema);
+                            if (csvHeader != null) {
+                                MappedCsvReader.scanRange(chunk, csvHeader, accumulator);
+                            } else {
+                                JsonLinesReader.scanRange(chunk, accumulator);
+                            }
+                            write(accumulator, fileCache, cached);
+                            return accumulator;
+                        })
+                        .collect(Collectors.toList());
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            
+            DataQualityAccumulator merged = new DataQualityAccumulator(schema);
+            partials.forEach(merged::merge);
+            removeUnused(fileCache, used);
+            
+            logger.info("Validated {} of {} chunks of {}, reused {} from cache",
+                       chunks.size() - reused.get(), chunks.size(), filePath, reused.get());
+            return merged;
+        }
+    }
+    
+    /**
+     * Remove all cached chunk results
+     */
+    public void clear() throws IOException {
+        if (!Files.isDirectory(cacheDirectory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(cacheDirectory)) {
+            List<Path> paths = files.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+            for (Path path : paths) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+    
+    /**
+     * Key of everything besides the chunk bytes that the cached results depend on
+     */
+    private static String context(boolean csv, byte[] headerLine, DataSchema schema) {
+        ConfigManager config = ConfigManager.getInstance();
+        StringBuilder context = new StringBuilder()
+                .append(CACHE_VERSION).append('|')
+                .append(csv ? "csv" : "jsonl").append('|')
+                .append(new String(headerLine, StandardCharsets.UTF_8)).append('|')
+                .append(config.getProfileTopValueCapacity()).append(',')
+                .append(config.getFrequencySketchWidth()).append(',')
+                .append(config.getFrequencySketchDepth()).append(',')
+                .append(config.getQuantileSketchSize());
+        if (schema != null && schema.getFields() != null) {
+            for (SchemaField field : schema.getFields()) {
+                context.append('|').append(field.getName())
+                        .append(':').append(field.getDataType())
+                        .append(':').append(field.isNullable());
+            }
+        }
+        return key(context.toString());
+    }
+    
+    private static String key(String text) {
+        return UUID.nameUUIDFromBytes(text.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+    
+    private static String checksum(ByteBuffer chunk) {
+        CRC32C crc = new CRC32C();
+        crc.update(chunk.duplicate());
+        return Long.toHexString(crc.getValue()) + "-" + chunk.limit();
+    }
+    
+    private static DataQualityAccumulator read(Path cached) {
+        if (!Files.exists(cached)) {
+            return null;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(cached)))) {
+            in.setObjectInputFilter(CACHE_FILTER);
+            return (DataQualityAccumulator) in.readObject();
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            logger.warn("Ignoring unreadable cached chunk {}: {}", cached, e.getMessage());
+            return null;
+        }
+    }
+    
+    private static void write(DataQualityAccumulator accumulator, Path fileCache, Path cached) {
+        Path temporary = null;
+        try {
+            Files.createDirectories(fileCache);
+            // Written under a temporary name and moved into place so concurrent runs never read a partial entry
+            temporary = Files.createTempFile(fileCache, "chunk", ".tmp");
+            try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeObject(accumulator);
+            }
+            Files.move(temporary, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to cache chunk {}: {}", cached, e.getMessage());
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException ignored) {
+                    // Removed with the other unused entries on the next validation
+                }
+            }
+        }
+    }
+    
+    private static void removeUnused(Path fileCache, Set<String> used) {
+        if (!Files.isDirectory(fileCache)) {
+            return;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(fileCache)) {
+            for (Path entry : entries) {
+                if (!used.contains(entry.getFileName().toString())) {
+                    Files.deleteIfExists(entry);
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Could not remove unused cached chunks in {}: {}", fileCache, e.getMessage());
+        }
+    }
+}
\ No newline at end of file
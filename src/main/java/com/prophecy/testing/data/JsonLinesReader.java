@@ -0,0 +1,95 @@
+package com.prophecy.testing.data;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Streaming reader for JSON Lines (NDJSON) test data, one JSON object per line.
+ * Also streams the elements of a single top-level JSON array without loading the whole file.
+ */
+public class JsonLinesReader {
+    private static final Logger logger = LogManager.getLogger(JsonLinesReader.class);
+    private static final ObjectReader recordReader = new ObjectMapper().readerFor(Map.class);
+    
+    private JsonLinesReader() {}
+    
+    /**
+     * Check whether a file name uses a JSON Lines extension
+     */
+    public static boolean isJsonLines(String fileName) {
+        return fileName.endsWith(".jsonl") || fileName.endsWith(".ndjson");
+    }
+    
+    /**
+     * Read all records of a JSON Lines file, parsing line-aligned ranges in parallel
+     */
+    public static List<Map<String, Object>> read(String filePath, int parallelism) throws IOException {
+        return RecordCollector.concat(forEachPartition(filePath, parallelism, RecordCollector::new));
+    }
+    
+    /**
+     * Stream records to a consumer one at a time in file order
+     */
+    public static long forEach(String filePath, Consumer<Map<String, Object>> consumer) throws IOException {
+        try (MappingIterator<Map<String, Object>> iterator = recordReader.readValues(new File(filePath))) {
+            return drain(iterator, consumer);
+        }
+    }
+    
+    /**
+     * Stream line-aligned ranges of a JSON Lines file in parallel, each range into its own sink
+     */
+    public static <T extends Consumer<Map<String, Object>>> List<T> forEachPartition(
+            String filePath, int parallelism, Supplier<T> sinkFactory) throws IOException {
+        try (MappedDataFile file = MappedDataFile.open(filePath)) {
+            List<ByteBuffer> ranges = file.splitAtLineBoundaries(0, parallelism);
+            logger.debug("Streaming {} in {} mapped ranges", filePath, ranges.size());
+            
+            try {
+                return ranges.parallelStream()
+                        .map(range -> {
+                            T sink = sinkFactory.get();
+                            scanRange(range, sink);
+                            return sink;
+                        })
+                        .collect(Collectors.toList());
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+    
+    static long scanRange(ByteBuffer range, Consumer<Map<String, Object>> consumer) {
+        try (InputStream input = new ByteBufferBackedInputStream(range.duplicate());
+             MappingIterator<Map<String, Object>> iterator = recordReader.readValues(input)) {
+            return drain(iterator, consumer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private static long drain(MappingIterator<Map<String, Object>> iterator, Consumer<Map<String, Object>> consumer)
+            throws IOException {
+        long count = 0;
+        while (iterator.hasNextValue()) {
+            consumer.accept(iterator.nextValue());
+            count++;
+        }
+        return count;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,213 @@
+package com.prophecy.testing.data;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * KLL quantile sketch of a stream of numbers. Values are kept in a stack of compactors: level h
+ * holds values standing for 2^h values each, and a full level is sorted and every other value is
+ * promoted to the level above. Lower levels get geometrically smaller capacities, so the sketch keeps
+ * about 3k values whatever the stream length, and ranks are off by roughly 1.7 / k of the count.
+ * Sketches of separate chunks can be merged. Compaction coin flips use a fixed seed, so results are
+ * reproducible for the same input order.
+ */
+public class KllSketch implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final double CAPACITY_DECAY = 2.0 / 3.0;
+    private static final int MIN_CAPACITY = 8;
+    
+    private final int k;
+    private final Random random;
+    private double[][] levels = new double[1][];
+    private int[] sizes = new int[1];
+    private int retained;
+    private int maxRetained;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    
+    public KllSketch(int k) {
+        if (k < MIN_CAPACITY) {
+            throw new IllegalArgumentException("Sketch size must be at least " + MIN_CAPACITY + ": " + k);
+        }
+        this.k = k;
+        this.random = new Random(k);
+        levels[0] = new double[capacity(0)];
+        maxRetained = capacity(0);
+    }
+    
+    public void update(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        append(0, value);
+        if (retained >= maxRetained) {
+            compress();
+        }
+    }
+    
+    public KllSketch merge(KllSketch other) {
+        while (levels.length < other.levels.length) {
+            grow();
+        }
+        for (int h = 0; h < other.levels.length; h++) {
+            for (int i = 0; i < other.sizes[h]; i++) {
+                append(h, other.levels[h][i]);
+            }
+        }
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        while (retained >= maxRetained) {
+            compress();
+        }
+        return this;
+    }
+    
+    /**
+     * Approximate value at the given quantile, between 0 and 1; NaN when the sketch is empty
+     */
+    public double getQuantile(double q) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (q <= 0) {
+            return min;
+        }
+        if (q >= 1) {
+            return max;
+        }
+        double[] values = new double[retained];
+        long[] weights = new long[retained];
+        long totalWeight = sortedItems(values, weights);
+        long target = (long) Math.ceil(q * totalWeight);
+        long cumulative = 0;
+        for (int i = 0; i < values.length; i++) {
+            cumulative += weights[i];
+            if (cumulative >= target) {
+                return values[i];
+            }
+        }
+        return max;
+    }
+    
+    /**
+     * Approximate fraction of values less than or equal to the given value
+     */
+    public double getRank(double value) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long below = 0;
+        long totalWeight = 0;
+        for (int h = 0; h < levels.length; h++) {
+            long weight = 1L << h;
+            for (int i = 0; i < sizes[h]; i++) {
+                if (levels[h][i] <= value) {
+                    below += weight;
+                }
+                totalWeight += weight;
+            }
+        }
+        return (double) below / totalWeight;
+    }
+    
+    public int getK() {
+        return k;
+    }
+    
+    public long getCount() {
+        return count;
+    }
+    
+    /**
+     * Number of values held by the sketch
+     */
+    public int getRetained() {
+        return retained;
+    }
+    
+    /**
+     * Values held by the sketch in ascending order with the number of values each stands for;
+     * returns the total weight
+     */
+    long sortedItems(double[] values, long[] weights) {
+        Integer[] order = new Integer[retained];
+        double[] flatValues = new double[retained];
+        long[] flatWeights = new long[retained];
+        int n = 0;
+        for (int h = 0; h < levels.length; h++) {
+            for (int i = 0; i < sizes[h]; i++) {
+                flatValues[n] = levels[h][i];
+                flatWeights[n] = 1L << h;
+                order[n] = n;
+                n++;
+            }
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(flatValues[a], flatValues[b]));
+        long total = 0;
+        for (int i = 0; i < n; i++) {
+            values[i] = flatValues[order[i]];
+            weights[i] = flatWeights[order[i]];
+            total += weights[i];
+        }
+        return total;
+    }
+    
+    private int capacity(int level) {
+        int depth = levels.length - level - 1;
+        return Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+    }
+    
+    private void append(int level, double value) {
+        if (sizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], Math.max(MIN_CAPACITY, levels[level].length * 2));
+        }
+        levels[level][sizes[level]++] = value;
+        retained++;
+    }
+    
+    private void grow() {
+        levels = Arrays.copyOf(levels, levels.length + 1);
+        sizes = Arrays.copyOf(sizes, sizes.length + 1);
+        levels[levels.length - 1] = new double[MIN_CAPACITY];
+        maxRetained = 0;
+        for (int h = 0; h < levels.length; h++) {
+            maxRetained += capacity(h);
+        }
+    }
+    
+    /**
+     * Compact the lowest level that is at capacity, promoting half of its values to the level above
+     */
+    private void compress() {
+        for (int h = 0; h < levels.length; h++) {
+            if (sizes[h] >= capacity(h)) {
+                if (h + 1 == levels.length) {
+                    grow();
+                }
+                double[] level = levels[h];
+                int size = sizes[h];
+                // An odd value out stays at this level
+                int pairs = size / 2;
+                Arrays.sort(level, 0, size);
+                int offset = random.nextBoolean() ? 1 : 0;
+                for (int i = 0; i < pairs; i++) {
+                    append(h + 1, level[2 * i + offset]);
+                }
+                if (size % 2 == 1) {
+                    level[0] = level[size - 1];
+                    sizes[h] = 1;
+                } else {
+                    sizes[h] = 0;
+                }
+                retained -= 2 * pairs;
+                return;
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,293 @@
+package com.prophecy.testing.data;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * CSV reader for large local files that scans memory-mapped bytes for delimiters and decodes
+ * field values lazily, only when a check reads them.
+ * Field splitting follows the same rules as {@code String.split(",")} in the line-based loader.
+ */
+public class MappedCsvReader {
+    private static final Logger logger = LogManager.getLogger(MappedCsvReader.class);
+    private static final byte DELIMITER = ',';
+    
+    private MappedCsvReader() {}
+    
+    /**
+     * Read all records of a CSV file, parsing line-aligned ranges in parallel
+     */
+    public static List<Map<String, Object>> read(String filePath, int parallelism) throws IOException {
+        try (MappedDataFile file = MappedDataFile.open(filePath)) {
+            CsvHeader header = CsvHeader.parse(file.readFirstLine());
+            if (header == null) {
+                return new ArrayList<>();
+            }
+            
+            List<ByteBuffer> ranges = file.splitAtLineBoundaries(file.nextLineStart(0), parallelism);
+            logger.debug("Parsing {} in {} mapped ranges", filePath, ranges.size());
+            
+            List<List<Map<String, Object>>> parsed = ranges.parallelStream()
+                    .map(range -> parseRange(range, header))
+                    .collect(Collectors.toList());
+            
+            int total = parsed.stream().mapToInt(List::size).sum();
+            List<Map<String, Object>> data = new ArrayList<>(total);
+            parsed.forEach(data::addAll);
+            return data;
+        }
+    }
+    
+    /**
+     * Stream the records of a CSV file to a consumer in file order without materializing the file
+     */
+    public static long forEach(String filePath, Consumer<Map<String, Object>> consumer) throws IOException {
+        try (MappedDataFile file = MappedDataFile.open(filePath)) {
+            CsvHeader header = CsvHeader.parse(file.readFirstLine());
+            if (header == null) {
+                return 0;
+            }
+            
+            long count = 0;
+            for (ByteBuffer range : file.splitAtLineBoundaries(file.nextLineStart(0), 1)) {
+                count += scanRange(range, header, consumer);
+            }
+            return count;
+        }
+    }
+    
+    /**
+     * Stream line-aligned ranges of a CSV file in parallel, each range into its own sink
+     */
+    public static <T extends Consumer<Map<String, Object>>> List<T> forEachPartition(
+            String filePath, int parallelism, Supplier<T> sinkFactory) throws IOException {
+        try (MappedDataFile file = MappedDataFile.open(filePath)) {
+            CsvHeader header = CsvHeader.parse(file.readFirstLine());
+            if (header == null) {
+                return new ArrayList<>();
+            }
+            
+            return file.splitAtLineBoundaries(file.nextLineStart(0), parallelism).parallelStream()
+                    .map(range -> {
+                        T sink = sinkFactory.get();
+                        scanRange(range, header, sink);
+                        return sink;
+                    })
+                    .collect(Collectors.toList());
+        }
+    }
+    
+    /**
+     * Parse all lines of one mapped range into lazy records
+     */
+    static List<Map<String, Object>> parseRange(ByteBuffer range, CsvHeader header) {
+        List<Map<String, Object>> records = new ArrayList<>();
+        scanRange(range, header, records::add);
+        return records;
+    }
+    
+    static long scanRange(ByteBuffer range, CsvHeader header, Consumer<Map<String, Object>> consumer) {
+        int columns = header.size();
+        int[] bounds = new int[columns * 2];
+        int limit = range.limit();
+        int lineStart = 0;
+        long count = 0;
+        
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && range.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int nextLine = lineEnd + 1;
+            if (lineEnd > lineStart && range.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            
+            int fields = splitLine(range, lineStart, lineEnd, bounds);
+            consumer.accept(new CsvRecord(range, header, Arrays.copyOf(bounds, fields * 2), fields));
+            count++;
+            
+            lineStart = nextLine;
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Record trimmed field bounds of one line, returning the number of fields kept
+     */
+    private static int splitLine(ByteBuffer range, int start, int end, int[] bounds) {
+        int columns = bounds.length / 2;
+        int fields = 0;
+        int lastNonEmpty = 0;
+        int fieldStart = start;
+        
+        // String.split keeps a single empty field for an empty line
+        if (start == end) {
+            bounds[0] = start;
+            bounds[1] = start;
+            return 1;
+        }
+        
+        for (int position = start; position <= end && fields < columns; position++) {
+            if (position == end || range.get(position) == DELIMITER) {
+                int from = fieldStart;
+                int to = position;
+                boolean empty = from == to;
+                while (from < to && (range.get(from) & 0xFF) <= ' ') {
+                    from++;
+                }
+                while (to > from && (range.get(to - 1) & 0xFF) <= ' ') {
+                    to--;
+                }
+                bounds[fields * 2] = from;
+                bounds[fields * 2 + 1] = to;
+                fields++;
+                if (!empty) {
+                    lastNonEmpty = fields;
+                }
+                fieldStart = position + 1;
+            }
+        }
+        
+        // String.split drops trailing empty fields, including those beyond the header columns
+        for (int position = fieldStart; position < end; position++) {
+            if (range.get(position) != DELIMITER) {
+                return fields;
+            }
+        }
+        return lastNonEmpty;
+    }
+    
+    /**
+     * Column names of a CSV file with a name-to-position index
+     */
+    static class CsvHeader {
+        private final String[] names;
+        private final Map<String, Integer> index;
+        
+        private CsvHeader(String[] names) {
+            this.names = names;
+            this.index = new HashMap<>();
+            for (int i = 0; i < names.length; i++) {
+                index.put(names[i], i);
+            }
+        }
+        
+        static CsvHeader parse(byte[] headerLine) {
+            if (headerLine.length == 0) {
+                return null;
+            }
+            String[] names = new String(headerLine, StandardCharsets.UTF_8).split(",");
+            for (int i = 0; i < names.length; i++) {
+                names[i] = names[i].trim();
+            }
+            return new CsvHeader(names);
+        }
+        
+        int size() {
+            return names.length;
+        }
+        
+        int indexOf(Object name) {
+            Integer position = index.get(name);
+            return position != null ? position : -1;
+        }
+        
+        String nameAt(int position) {
+            return names[position];
+        }
+    }
+    
+    /**
+     * Read-only record backed by field offsets into a mapped range, decoding values on first access
+     */
+    static class CsvRecord extends AbstractMap<String, Object> {
+        private final ByteBuffer range;
+        private final CsvHeader header;
+        private final int[] bounds;
+        private final int fieldCount;
+        private Object[] decoded;
+        
+        CsvRecord(ByteBuffer range, CsvHeader header, int[] bounds, int fieldCount) {
+            this.range = range;
+            this.header = header;
+            this.bounds = bounds;
+            this.fieldCount = fieldCount;
+        }
+        
+        @Override
+        public Object get(Object key) {
+            int position = header.indexOf(key);
+            return position >= 0 && position < fieldCount ? valueAt(position) : null;
+        }
+        
+        @Override
+        public boolean containsKey(Object key) {
+            int position = header.indexOf(key);
+            return position >= 0 && position < fieldCount;
+        }
+        
+        @Override
+        public int size() {
+            return fieldCount;
+        }
+        
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<Entry<String, Object>>() {
+                        private int position = 0;
+                        
+                        @Override
+                        public boolean hasNext() {
+                            return position < fieldCount;
+                        }
+                        
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int current = position++;
+                            return new SimpleImmutableEntry<>(header.nameAt(current), valueAt(current));
+                        }
+                    };
+                }
+                
+                @Override
+                public int size() {
+                    return fieldCount;
+                }
+            };
+        }
+        
+        private Object valueAt(int position) {
+            if (decoded == null) {
+                decoded = new Object[fieldCount];
+            }
+            Object value = decoded[position];
+            if (value == null) {
+                int from = bounds[position * 2];
+                int to = bounds[position * 2 + 1];
+                byte[] bytes = new byte[to - from];
+                ByteBuffer slice = range.duplicate();
+                slice.position(from);
+                slice.get(bytes);
+                value = new String(bytes, StandardCharsets.UTF_8);
+                decoded[position] = value;
+            }
+            return value;
+        }
+    }
+}
\ No newline at end of file
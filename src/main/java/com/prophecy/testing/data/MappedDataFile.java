@@ -0,0 +1,153 @@
+package com.prophecy.testing.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only view of a local data file that is split into line-aligned, memory-mapped byte ranges
+ */
+public class MappedDataFile implements Closeable {
+    // A single mapping is limited to an int-addressable range
+    private static final long MAX_RANGE_BYTES = Integer.MAX_VALUE - 8L;
+    private static final int SCAN_BUFFER_SIZE = 8192;
+    
+    private final Path path;
+    private final FileChannel channel;
+    private final long size;
+    
+    private MappedDataFile(Path path, FileChannel channel) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.size = channel.size();
+    }
+    
+    /**
+     * Open a file for mapped reading
+     */
+    public static MappedDataFile open(String filePath) throws IOException {
+        Path path = Paths.get(filePath);
+        return new MappedDataFile(path, FileChannel.open(path, StandardOpenOption.READ));
+    }
+    
+    public Path getPath() {
+        return path;
+    }
+    
+    public long size() {
+        return size;
+    }
+    
+    /**
+     * Read the bytes of the first line (without its terminator)
+     */
+    public byte[] readFirstLine() throws IOException {
+        long end = nextLineStart(0);
+        int length = (int) Math.min(end, MAX_RANGE_BYTES);
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        channel.read(buffer, 0);
+        
+        int lineLength = length;
+        while (lineLength > 0 && (buffer.get(lineLength - 1) == '\n' || buffer.get(lineLength - 1) == '\r')) {
+            lineLength--;
+        }
+        
+        byte[] line = new byte[lineLength];
+        buffer.flip();
+        buffer.get(line);
+        return line;
+    }
+    
+    /**
+     * Get the offset just past the first line terminator at or after the given position
+     */
+    public long nextLineStart(long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long offset = position;
+        
+        while (offset < size) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        
+        return size;
+    }
+    
+    /**
+     * Split the file from the given offset into roughly equal ranges that start and end on line boundaries
+     */
+    public List<ByteBuffer> splitAtLineBoundaries(long startOffset, int parts) throws IOException {
+        List<ByteBuffer> ranges = new ArrayList<>();
+        long length = size - startOffset;
+        if (length <= 0) {
+            return ranges;
+        }
+        
+        // Every range has to fit into one mapping, with head room for the line that crosses its end
+        long minimumParts = (length + MAX_RANGE_BYTES / 2 - 1) / (MAX_RANGE_BYTES / 2);
+        int rangeCount = (int) Math.max(Math.max(parts, 1), minimumParts);
+        
+        long rangeStart = startOffset;
+        for (int i = 1; i <= rangeCount && rangeStart < size; i++) {
+            long rangeEnd = i == rangeCount
+                    ? size
+                    : nextLineStart(startOffset + length * i / rangeCount - 1);
+            
+            if (rangeEnd > rangeStart) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, rangeStart, rangeEnd - rangeStart);
+                ranges.add(mapped);
+                rangeStart = rangeEnd;
+            }
+        }
+        
+        return ranges;
+    }
+    
+    /**
+     * Split the file from the given offset into line-aligned ranges of about the given size. Each
+     * boundary is the first line start after a multiple of the size, so it depends only on the bytes
+     * before it and appending to the file leaves all ranges but the last unchanged.
+     */
+    public List<ByteBuffer> splitIntoChunks(long startOffset, long chunkBytes) throws IOException {
+        List<ByteBuffer> chunks = new ArrayList<>();
+        long stride = Math.max(1, Math.min(chunkBytes, MAX_RANGE_BYTES / 2));
+        long chunkStart = startOffset;
+        long target = startOffset;
+        
+        while (chunkStart < size) {
+            target += stride;
+            long chunkEnd = target >= size ? size : nextLineStart(target - 1);
+            // A line longer than the stride ends its chunk at a later multiple
+            if (chunkEnd > chunkStart) {
+                chunks.add(channel.map(FileChannel.MapMode.READ_ONLY, chunkStart, chunkEnd - chunkStart));
+                chunkStart = chunkEnd;
+            }
+        }
+        
+        return chunks;
+    }
+    
+    /**
+     * Close the underlying channel; mapped ranges stay readable until they are garbage collected
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
\ No newline at end of file
@@ -1,14 +1,19 @@
 package com.prophecy.testing.data;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import com.github.javafaker.Faker;
 import com.prophecy.testing.models.*;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -155,6 +160,129 @@ public class MockDataGenerator {
         }
     }
     
+    /**
+     * Save mock data to JSON Lines file, one record per line
+     */
+    public void saveMockDataToJsonLines(List<Map<String, Object>> data, String filePath) {
+        try {
+            writeJsonLines(data.iterator(), filePath);
+            logger.info("Mock data saved to JSON Lines file: {}", filePath);
+        } catch (IOException e) {
+            logger.error("Error saving mock data to JSON Lines: {}", e.getMessage());
+            throw new RuntimeException("Failed to save mock data to JSON Lines", e);
+        }
+    }
+    
+    /**
+     * Generate mock data straight into a JSON Lines file without holding the records in memory
+     */
+    public void generateMockDataToJsonLines(DataSchema schema, long recordCount, String filePath) {
+        try {
+            writeJsonLines(mockRecords(schema, recordCount), filePath);
+            logger.info("Generated {} mock records for schema {} into JSON Lines file: {}",
+                       recordCount, schema.getName(), filePath);
+        } catch (IOException e) {
+            logger.error("Error generating mock data to JSON Lines: {}", e.getMessage());
+            throw new RuntimeException("Failed to generate mock data to JSON Lines", e);
+        }
+    }
+    
+    /**
+     * Save mock data to Parquet file
+     */
+    public void saveMockDataToParquet(List<Map<String, Object>> data, DataSchema schema, String filePath,
+                                      long rowGroupSize) {
+        try {
+            ParquetDataHandler.write(data.iterator(), schema, filePath, rowGroupSize);
+            logger.info("Mock data saved to Parquet file: {}", filePath);
+        } catch (IOException e) {
+            logger.error("Error saving mock data to Parquet: {}", e.getMessage());
+            throw new RuntimeException("Failed to save mock data to Parquet", e);
+        }
+    }
+    
+    /**
+     * Generate mock data straight into a Parquet file without holding the records in memory
+     */
+    public void generateMockDataToParquet(DataSchema schema, long recordCount, String filePath, long rowGroupSize) {
+        try {
+            ParquetDataHandler.write(mockRecords(schema, recordCount), schema, filePath, rowGroupSize);
+            logger.info("Generated {} mock records for schema {} into Parquet file: {}",
+                       recordCount, schema.getName(), filePath);
+        } catch (IOException e) {
+            logger.error("Error generating mock data to Parquet: {}", e.getMessage());
+            throw new RuntimeException("Failed to generate mock data to Parquet", e);
+        }
+    }
+    
+    /**
+     * Save mock data to Avro file
+     */
+    public void saveMockDataToAvro(List<Map<String, Object>> data, DataSchema schema, String filePath) {
+        try {
+            AvroDataHandler.write(data.iterator(), schema, filePath);
+            logger.info("Mock data saved to Avro file: {}", filePath);
+        } catch (IOException e) {
+            logger.error("Error saving mock data to Avro: {}", e.getMessage());
+            throw new RuntimeException("Failed to save mock data to Avro", e);
+        }
+    }
+    
+    /**
+     * Generate mock data straight into an Avro file without holding the records in memory
+     */
+    public void generateMockDataToAvro(DataSchema schema, long recordCount, String filePath) {
+        try {
+            AvroDataHandler.write(mockRecords(schema, recordCount), schema, filePath);
+            logger.info("Generated {} mock records for schema {} into Avro file: {}",
+                       recordCount, schema.getName(), filePath);
+        } catch (IOException e) {
+            logger.error("Error generating mock data to Avro: {}", e.getMessage());
+            throw new RuntimeException("Failed to generate mock data to Avro", e);
+        }
+    }
+    
+    /**
+     * Lazily generate records, reusing one map that is only valid until the next call
+     */
+    private Iterator<Map<String, Object>> mockRecords(DataSchema schema, long recordCount) {
+        Map<String, Object> record = new HashMap<>();
+        
+        return new Iterator<Map<String, Object>>() {
+            private long generated = 0;
+            
+            @Override
+            public boolean hasNext() {
+                return generated < recordCount;
+            }
+            
+            @Override
+            public Map<String, Object> next() {
+                for (SchemaField field : schema.getFields()) {
+                    record.put(field.getName(), generateValueForField(field));
+                }
+                generated++;
+                return record;
+            }
+        };
+    }
+    
+    /**
+     * Write records through one reused sequence writer, each record on its own line
+     */
+    private void writeJsonLines(Iterator<Map<String, Object>> records, String filePath) throws IOException {
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(Paths.get(filePath)), 1 << 16);
+             SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(output)) {
+            while (records.hasNext()) {
+                writer.write(records.next());
+            }
+            
+            // Terminate the last line so the file can be appended to
+            writer.flush();
+            output.write('\n');
+        }
+    }
+    
     /**
      * Generate a sample pipeline configuration
      */
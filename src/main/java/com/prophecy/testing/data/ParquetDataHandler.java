@@ -0,0 +1,458 @@
+package com.prophecy.testing.data;
+
+import com.prophecy.testing.models.DataSchema;
+import com.prophecy.testing.models.DataType;
+import com.prophecy.testing.models.SchemaField;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.parquet.ParquetReadOptions;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.conf.PlainParquetConfiguration;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.example.data.simple.convert.GroupRecordConverter;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.ColumnIOFactory;
+import org.apache.parquet.io.LocalInputFile;
+import org.apache.parquet.io.LocalOutputFile;
+import org.apache.parquet.io.MessageColumnIO;
+import org.apache.parquet.io.RecordReader;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.GroupType;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Type;
+import org.apache.parquet.schema.Types;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Reader and writer for local Parquet test fixtures and golden outputs.
+ * Reads only the requested columns and decodes separate row groups in parallel.
+ */
+public class ParquetDataHandler {
+    private static final Logger logger = LogManager.getLogger(ParquetDataHandler.class);
+    private static final String MESSAGE_NAME = "record";
+    
+    // Legacy INT96 timestamps count Julian days
+    private static final long JULIAN_DAY_OF_EPOCH = 2440588L;
+    
+    private ParquetDataHandler() {}
+    
+    /**
+     * Check whether a file name uses the Parquet extension
+     */
+    public static boolean isParquet(String fileName) {
+        return fileName.endsWith(".parquet");
+    }
+    
+    /**
+     * Read the given columns of all records (all columns when null), decoding row groups in parallel
+     */
+    public static List<Map<String, Object>> read(String filePath, Collection<String> columns, int parallelism)
+            throws IOException {
+        return RecordCollector.concat(forEachPartition(filePath, columns, parallelism, RecordCollector::new));
+    }
+    
+    /**
+     * Stream the given columns of all records to a consumer in file order
+     */
+    public static long forEach(String filePath, Collection<String> columns, Consumer<Map<String, Object>> consumer)
+            throws IOException {
+        try (ParquetFileReader reader = open(filePath)) {
+            return scanRowGroups(reader, columns, 0, reader.getRowGroups().size(), consumer);
+        }
+    }
+    
+    /**
+     * Stream contiguous runs of row groups in parallel, each run into its own sink
+     */
+    public static <T extends Consumer<Map<String, Object>>> List<T> forEachPartition(
+            String filePath, Collection<String> columns, int parallelism, Supplier<T> sinkFactory) throws IOException {
+        int rowGroups;
+        try (ParquetFileReader reader = open(filePath)) {
+            rowGroups = reader.getRowGroups().size();
+        }
+        
+        int partitions = Math.max(1, Math.min(parallelism, rowGroups));
+        logger.debug("Reading {} row groups of {} in {} partitions", rowGroups, filePath, partitions);
+        
+        try {
+            return IntStream.range(0, partitions).parallel()
+                    .mapToObj(partition -> {
+                        T sink = sinkFactory.get();
+                        // Each partition reads through its own file handle
+                        try (ParquetFileReader reader = open(filePath)) {
+                            scanRowGroups(reader, columns,
+                                    rowGroups * partition / partitions,
+                                    rowGroups * (partition + 1) / partitions,
+                                    sink);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        return sink;
+                    })
+                    .collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+    
+    /**
+     * Read the schema stored in a Parquet file
+     */
+    public static DataSchema readSchema(String filePath) throws IOException {
+        try (ParquetFileReader reader = open(filePath)) {
+            MessageType fileSchema = reader.getFileMetaData().getSchema();
+            
+            DataSchema schema = new DataSchema();
+            schema.setName(Paths.get(filePath).getFileName().toString());
+            schema.setDescription("Schema read from Parquet file");
+            
+            List<SchemaField> fields = new ArrayList<>();
+            for (Type type : fileSchema.getFields()) {
+                fields.add(new SchemaField(type.getName(), toDataType(type), !type.isRepetition(Type.Repetition.REQUIRED)));
+            }
+            schema.setFields(fields);
+            return schema;
+        }
+    }
+    
+    /**
+     * Write records to a Parquet file using the column types of the given schema
+     */
+    public static long write(Iterator<Map<String, Object>> records, DataSchema schema, String filePath,
+                             long rowGroupSize) throws IOException {
+        MessageType messageType = toMessageType(schema);
+        SimpleGroupFactory groupFactory = new SimpleGroupFactory(messageType);
+        long count = 0;
+        
+        try (ParquetWriter<Group> writer = ExampleParquetWriter.builder(new LocalOutputFile(Paths.get(filePath)))
+                .withConf(new PlainParquetConfiguration())
+                .withType(messageType)
+                .withCompressionCodec(CompressionCodecName.SNAPPY)
+                .withRowGroupSize(rowGroupSize)
+                .withWriteMode(ParquetFileWriter.Mode.OVERWRITE)
+                .build()) {
+            while (records.hasNext()) {
+                Map<String, Object> record = records.next();
+                Group group = groupFactory.newGroup();
+                for (SchemaField field : schema.getFields()) {
+                    appendValue(group, field, record.get(field.getName()));
+                }
+                writer.write(group);
+                count++;
+            }
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Map a data schema to a flat Parquet message type; nested types are stored as JSON strings
+     */
+    public static MessageType toMessageType(DataSchema schema) {
+        Types.MessageTypeBuilder builder = Types.buildMessage();
+        
+        for (SchemaField field : schema.getFields()) {
+            Type.Repetition repetition = field.isNullable() ? Type.Repetition.OPTIONAL : Type.Repetition.REQUIRED;
+            
+            switch (field.getDataType()) {
+                case STRING:
+                    builder.primitive(PrimitiveTypeName.BINARY, repetition)
+                            .as(LogicalTypeAnnotation.stringType()).named(field.getName());
+                    break;
+                case INTEGER:
+                    builder.primitive(PrimitiveTypeName.INT32, repetition).named(field.getName());
+                    break;
+                case LONG:
+                    builder.primitive(PrimitiveTypeName.INT64, repetition).named(field.getName());
+                    break;
+                case DOUBLE:
+                case DECIMAL:
+                    // The schema carries no precision or scale, so decimals are kept as doubles
+                    builder.primitive(PrimitiveTypeName.DOUBLE, repetition).named(field.getName());
+                    break;
+                case FLOAT:
+                    builder.primitive(PrimitiveTypeName.FLOAT, repetition).named(field.getName());
+                    break;
+                case BOOLEAN:
+                    builder.primitive(PrimitiveTypeName.BOOLEAN, repetition).named(field.getName());
+                    break;
+                case DATE:
+                    builder.primitive(PrimitiveTypeName.INT32, repetition)
+                            .as(LogicalTypeAnnotation.dateType()).named(field.getName());
+                    break;
+                case TIMESTAMP:
+                    builder.primitive(PrimitiveTypeName.INT64, repetition)
+                            .as(LogicalTypeAnnotation.timestampType(false, LogicalTypeAnnotation.TimeUnit.MICROS))
+                            .named(field.getName());
+                    break;
+                case BINARY:
+                    builder.primitive(PrimitiveTypeName.BINARY, repetition).named(field.getName());
+                    break;
+                default:
+                    builder.primitive(PrimitiveTypeName.BINARY, repetition)
+                            .as(LogicalTypeAnnotation.jsonType()).named(field.getName());
+                    break;
+            }
+        }
+        
+        return builder.named(MESSAGE_NAME);
+    }
+    
+    private static ParquetFileReader open(String filePath) throws IOException {
+        ParquetReadOptions options = ParquetReadOptions.builder(new PlainParquetConfiguration()).build();
+        return ParquetFileReader.open(new LocalInputFile(Paths.get(filePath)), options);
+    }
+    
+    /**
+     * Decode the records of row groups [from, to) with only the requested columns
+     */
+    private static long scanRowGroups(ParquetFileReader reader, Collection<String> columns, int from, int to,
+                                      Consumer<Map<String, Object>> consumer) throws IOException {
+        MessageType fileSchema = reader.getFileMetaData().getSchema();
+        MessageType requestedSchema = project(fileSchema, columns);
+        List<BlockMetaData> rowGroups = reader.getRowGroups();
+        long count = 0;
+        
+        // Counting records without columns needs only the footer
+        if (requestedSchema.getFieldCount() == 0) {
+            for (int i = from; i < to; i++) {
+                for (long row = 0; row < rowGroups.get(i).getRowCount(); row++) {
+                    consumer.accept(new HashMap<>());
+                    count++;
+                }
+            }
+            return count;
+        }
+        
+        reader.setRequestedSchema(requestedSchema);
+        MessageColumnIO columnIO = new ColumnIOFactory().getColumnIO(requestedSchema, fileSchema);
+        
+        for (int i = from; i < to; i++) {
+            PageReadStore pages = reader.readRowGroup(i);
+            RecordReader<Group> recordReader = columnIO.getRecordReader(pages, new GroupRecordConverter(requestedSchema));
+            for (long row = 0; row < pages.getRowCount(); row++) {
+                consumer.accept(toRecord(recordReader.read(), requestedSchema));
+                count++;
+            }
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Keep the top-level fields of the file schema that are in the requested columns
+     */
+    private static MessageType project(MessageType fileSchema, Collection<String> columns) {
+        if (columns == null) {
+            return fileSchema;
+        }
+        
+        List<Type> fields = fileSchema.getFields().stream()
+                .filter(type -> columns.contains(type.getName()))
+                .collect(Collectors.toList());
+        return new MessageType(fileSchema.getName(), fields);
+    }
+    
+    private static Map<String, Object> toRecord(Group group, GroupType type) {
+        Map<String, Object> record = new HashMap<>();
+        
+        for (int i = 0; i < type.getFieldCount(); i++) {
+            Type field = type.getType(i);
+            int repetitions = group.getFieldRepetitionCount(i);
+            
+            if (field.isRepetition(Type.Repetition.REPEATED)) {
+                List<Object> values = new ArrayList<>(repetitions);
+                for (int j = 0; j < repetitions; j++) {
+                    values.add(readValue(group, i, j, field));
+                }
+                record.put(field.getName(), values);
+            } else {
+                record.put(field.getName(), repetitions == 0 ? null : readValue(group, i, 0, field));
+            }
+        }
+        
+        return record;
+    }
+    
+    /**
+     * Convert a stored value to the Java type the other loaders produce for the same column
+     */
+    private static Object readValue(Group group, int fieldIndex, int index, Type field) {
+        if (!field.isPrimitive()) {
+            return toRecord(group.getGroup(fieldIndex, index), field.asGroupType());
+        }
+        
+        PrimitiveType primitive = field.asPrimitiveType();
+        LogicalTypeAnnotation annotation = primitive.getLogicalTypeAnnotation();
+        
+        switch (primitive.getPrimitiveTypeName()) {
+            case BOOLEAN:
+                return group.getBoolean(fieldIndex, index);
+            case INT32:
+                int intValue = group.getInteger(fieldIndex, index);
+                if (annotation instanceof LogicalTypeAnnotation.DateLogicalTypeAnnotation) {
+                    return FieldValueConverter.formatDate(intValue);
+                } else if (annotation instanceof LogicalTypeAnnotation.DecimalLogicalTypeAnnotation) {
+                    return BigDecimal.valueOf(intValue, decimalScale(annotation));
+                }
+                return intValue;
+            case INT64:
+                long longValue = group.getLong(fieldIndex, index);
+                if (annotation instanceof LogicalTypeAnnotation.TimestampLogicalTypeAnnotation) {
+                    return toTimestamp(longValue, ((LogicalTypeAnnotation.TimestampLogicalTypeAnnotation) annotation).getUnit());
+                } else if (annotation instanceof LogicalTypeAnnotation.DecimalLogicalTypeAnnotation) {
+                    return BigDecimal.valueOf(longValue, decimalScale(annotation));
+                }
+                return longValue;
+            case INT96:
+                return toTimestamp(group.getInt96(fieldIndex, index));
+            case FLOAT:
+                return group.getFloat(fieldIndex, index);
+            case DOUBLE:
+                return group.getDouble(fieldIndex, index);
+            default:
+                Binary binary = group.getBinary(fieldIndex, index);
+                if (annotation instanceof LogicalTypeAnnotation.DecimalLogicalTypeAnnotation) {
+                    return new BigDecimal(new BigInteger(binary.getBytes()), decimalScale(annotation));
+                } else if (annotation instanceof LogicalTypeAnnotation.StringLogicalTypeAnnotation
+                        || annotation instanceof LogicalTypeAnnotation.EnumLogicalTypeAnnotation
+                        || annotation instanceof LogicalTypeAnnotation.JsonLogicalTypeAnnotation) {
+                    return binary.toStringUsingUTF8();
+                }
+                return binary.getBytes();
+        }
+    }
+    
+    private static int decimalScale(LogicalTypeAnnotation annotation) {
+        return ((LogicalTypeAnnotation.DecimalLogicalTypeAnnotation) annotation).getScale();
+    }
+    
+    private static String toTimestamp(long value, LogicalTypeAnnotation.TimeUnit unit) {
+        switch (unit) {
+            case MILLIS:
+                return FieldValueConverter.formatEpochMillis(value);
+            case MICROS:
+                return FieldValueConverter.formatEpochMicros(value);
+            default:
+                return FieldValueConverter.formatEpochNanos(value);
+        }
+    }
+    
+    private static String toTimestamp(Binary int96) {
+        ByteBuffer buffer = int96.toByteBuffer().order(ByteOrder.LITTLE_ENDIAN);
+        long nanosOfDay = buffer.getLong();
+        long epochDay = buffer.getInt() - JULIAN_DAY_OF_EPOCH;
+        return FieldValueConverter.formatTimestamp(LocalDate.ofEpochDay(epochDay).atStartOfDay()
+                .plusNanos(nanosOfDay).toInstant(ZoneOffset.UTC));
+    }
+    
+    /**
+     * Append a value converted to the Parquet type of its field; string values from CSV files are parsed
+     */
+    private static void appendValue(Group group, SchemaField field, Object value) {
+        if (value == null) {
+            if (!field.isNullable()) {
+                throw new IllegalArgumentException("Missing value for required field: " + field.getName());
+            }
+            return;
+        }
+        
+        String name = field.getName();
+        switch (field.getDataType()) {
+            case STRING:
+                group.append(name, value.toString());
+                break;
+            case INTEGER:
+                group.append(name, FieldValueConverter.toNumber(value).intValue());
+                break;
+            case LONG:
+                group.append(name, FieldValueConverter.toNumber(value).longValue());
+                break;
+            case DOUBLE:
+            case DECIMAL:
+                group.append(name, FieldValueConverter.toNumber(value).doubleValue());
+                break;
+            case FLOAT:
+                group.append(name, FieldValueConverter.toNumber(value).floatValue());
+                break;
+            case BOOLEAN:
+                group.append(name, FieldValueConverter.toBoolean(value));
+                break;
+            case DATE:
+                group.append(name, FieldValueConverter.toEpochDay(value));
+                break;
+            case TIMESTAMP:
+                group.append(name, FieldValueConverter.toEpochMicros(value));
+                break;
+            case BINARY:
+                group.append(name, Binary.fromConstantByteArray(FieldValueConverter.toBytes(value)));
+                break;
+            default:
+                group.append(name, FieldValueConverter.toJson(value));
+                break;
+        }
+    }
+    
+    private static DataType toDataType(Type type) {
+        LogicalTypeAnnotation annotation = type.getLogicalTypeAnnotation();
+        if (type.isRepetition(Type.Repetition.REPEATED)
+                || annotation instanceof LogicalTypeAnnotation.ListLogicalTypeAnnotation) {
+            return DataType.ARRAY;
+        } else if (annotation instanceof LogicalTypeAnnotation.MapLogicalTypeAnnotation) {
+            return DataType.MAP;
+        } else if (!type.isPrimitive()) {
+            return DataType.STRUCT;
+        } else if (annotation instanceof LogicalTypeAnnotation.DecimalLogicalTypeAnnotation) {
+            return DataType.DECIMAL;
+        } else if (annotation instanceof LogicalTypeAnnotation.DateLogicalTypeAnnotation) {
+            return DataType.DATE;
+        } else if (annotation instanceof LogicalTypeAnnotation.TimestampLogicalTypeAnnotation) {
+            return DataType.TIMESTAMP;
+        } else if (annotation instanceof LogicalTypeAnnotation.StringLogicalTypeAnnotation
+                || annotation instanceof LogicalTypeAnnotation.EnumLogicalTypeAnnotation) {
+            return DataType.STRING;
+        } else if (annotation instanceof LogicalTypeAnnotation.JsonLogicalTypeAnnotation) {
+            return DataType.STRUCT;
+        }
+        
+        switch (type.asPrimitiveType().getPrimitiveTypeName()) {
+            case BOOLEAN:
+                return DataType.BOOLEAN;
+            case INT32:
+                return DataType.INTEGER;
+            case INT64:
+                return DataType.LONG;
+            case INT96:
+                return DataType.TIMESTAMP;
+            case FLOAT:
+                return DataType.FLOAT;
+            case DOUBLE:
+                return DataType.DOUBLE;
+            default:
+                return DataType.BINARY;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.prophecy.testing.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Sink that keeps the records of one partition of a data file
+ */
+class RecordCollector implements Consumer<Map<String, Object>> {
+    private final List<Map<String, Object>> records = new ArrayList<>();
+    
+    @Override
+    public void accept(Map<String, Object> record) {
+        records.add(record);
+    }
+    
+    /**
+     * Join the records of all partitions in partition order
+     */
+    static List<Map<String, Object>> concat(List<RecordCollector> partitions) {
+        int total = partitions.stream().mapToInt(partition -> partition.records.size()).sum();
+        List<Map<String, Object>> data = new ArrayList<>(total);
+        partitions.forEach(partition -> data.addAll(partition.records));
+        return data;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,144 @@
+package com.prophecy.testing.data;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of parsed text fixtures as columnar snapshots. A snapshot is written the first time a
+ * file is parsed and mapped on later loads while the file keeps the same path, modification time and size.
+ * Cache failures never fail a load; the file is parsed instead. Files whose snapshot would be too large
+ * to map are parsed on every load. Records are read-only whether they come from a snapshot or a parse.
+ */
+public class SnapshotCache {
+    private static final Logger logger = LogManager.getLogger(SnapshotCache.class);
+    private static final String SNAPSHOT_EXTENSION = ".snap";
+    
+    // Source files, by path, size and modification time, whose snapshot outgrew the largest mappable size
+    private static final Set<String> oversized = ConcurrentHashMap.newKeySet();
+    
+    private final Path cacheDirectory;
+    
+    public SnapshotCache(String cacheDirectory) {
+        this.cacheDirectory = Paths.get(cacheDirectory);
+    }
+    
+    /**
+     * Loader that parses a data file from scratch
+     */
+    @FunctionalInterface
+    public interface Loader {
+        List<Map<String, Object>> load() throws IOException;
+    }
+    
+    /**
+     * Load a data file from its snapshot, parsing it and writing the snapshot when there is no valid one
+     */
+    public List<Map<String, Object>> load(String filePath, Loader loader) throws IOException {
+        Path source = Paths.get(filePath).toAbsolutePath().normalize();
+        long size = Files.size(source);
+        long modified = Files.getLastModifiedTime(source).toMillis();
+        Path snapshot = snapshotPath(source);
+        String identity = source + "|" + size + "|" + modified;
+        if (size > ColumnarSnapshot.MAX_SIZE || oversized.contains(identity)) {
+            logger.debug("Parsing {} without a snapshot, as it is too large to map", filePath);
+            return readOnly(loader.load());
+        }
+        
+        if (Files.exists(snapshot)) {
+            try {
+                List<Map<String, Object>> data = ColumnarSnapshot.read(snapshot, source.toString(), size, modified);
+                if (data != null) {
+                    logger.debug("Loaded {} records of {} from snapshot {}", data.size(), filePath, snapshot);
+                    return data;
+                }
+                logger.debug("Snapshot {} is stale for {}", snapshot, filePath);
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Ignoring unreadable snapshot {}: {}", snapshot, e.getMessage());
+            }
+        }
+        
+        List<Map<String, Object>> data = loader.load();
+        if (write(data, source, size, modified, snapshot, identity)) {
+            try {
+                // Records of the new snapshot, so that a first load returns the same values as later ones
+                List<Map<String, Object>> written = ColumnarSnapshot.read(snapshot, source.toString(), size, modified);
+                if (written != null) {
+                    return written;
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Ignoring unreadable snapshot {}: {}", snapshot, e.getMessage());
+            }
+        }
+        return readOnly(data);
+    }
+    
+    private static List<Map<String, Object>> readOnly(List<Map<String, Object>> data) {
+        List<Map<String, Object>> records = new ArrayList<>(data.size());
+        for (Map<String, Object> record : data) {
+            records.add(Collections.unmodifiableMap(record));
+        }
+        return records;
+    }
+    
+    /**
+     * Remove all snapshots and leftover temporary files
+     */
+    public void clear() throws IOException {
+        if (!Files.isDirectory(cacheDirectory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(cacheDirectory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+    
+    private boolean write(List<Map<String, Object>> data, Path source, long size, long modified, Path snapshot, String identity) {
+        Path temporary = null;
+        try {
+            Files.createDirectories(cacheDirectory);
+            // Written under a temporary name and moved into place so concurrent loads never map a partial file
+            temporary = Files.createTempFile(cacheDirectory, "snapshot", ".tmp");
+            ColumnarSnapshot.write(data, source.toString(), size, modified, temporary);
+            Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Wrote snapshot {} for {}", snapshot, source);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            if (e instanceof ColumnarSnapshot.TooLargeException) {
+                logger.info("Not caching a snapshot of {}: {}", source, e.getMessage());
+                oversized.add(identity);
+            } else {
+                logger.warn("Failed to write snapshot for {}: {}", source, e.getMessage());
+            }
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException ignored) {
+                    // Left for the next clear
+                }
+            }
+            return false;
+        }
+    }
+    
+    private Path snapshotPath(Path source) {
+        String key = UUID.nameUUIDFromBytes(source.toString().getBytes(StandardCharsets.UTF_8)).toString();
+        return cacheDirectory.resolve(key + SNAPSHOT_EXTENSION);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,320 @@
+package com.prophecy.testing.data;
+
+import com.prophecy.testing.config.ConfigManager;
+import com.prophecy.testing.engine.*;
+import com.prophecy.testing.models.DataSchema;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Row-for-row comparison of two datasets regardless of row order. Both sides are sorted by the key
+ * columns and then by all other columns with an external sort, and compared in a single merge pass,
+ * so neither side has to fit in memory. Text equals only identical text, so "007" and "7" differ.
+ * Numbers equal numbers of the same value whatever their type, and numeric text of that value without
+ * blanks, so 82000 matches 82000.0 and "82000.00"; a boolean matches "true" or "false".
+ * <p>
+ * Looser matches remain for files: values typed by a schema, or CSV columns typed by their values, are
+ * compared after conversion, so "02134" and "2134" match in a numeric column, and CSV fields are
+ * trimmed when read. In both files and records, a field missing from a record matches a null field;
+ * records are only checked to lack each field as often on both sides.
+ */
+public class SortedDatasetComparator {
+    private final TestDataManager dataManager;
+    private final long memoryBudget;
+    private final String spillDirectory;
+    private final int batchSize;
+    
+    public SortedDatasetComparator(TestDataManager dataManager) {
+        this(dataManager, ConfigManager.getInstance().getLocalMemoryMb() * 1024 * 1024,
+                ConfigManager.getInstance().getLocalSpillPath(), ConfigManager.getInstance().getLocalBatchSize());
+    }
+    
+    public SortedDatasetComparator(TestDataManager dataManager, long memoryBudget, String spillDirectory, int batchSize) {
+        this.dataManager = dataManager;
+        this.memoryBudget = memoryBudget;
+        this.spillDirectory = spillDirectory;
+        this.batchSize = batchSize;
+    }
+    
+    /**
+     * Compare records held in memory, typed by their values
+     */
+    public Comparison compare(List<Map<String, Object>> actual, List<Map<String, Object>> expected, List<String> keyColumns) throws IOException {
+        BatchSchema actualSchema = schemaOf(actual);
+        BatchSchema expectedSchema = schemaOf(expected);
+        for (String column : expectedSchema.getNames()) {
+            long actualMissing = actual.stream().filter(record -> !record.containsKey(column)).count();
+            long expectedMissing = expected.stream().filter(record -> !record.containsKey(column)).count();
+            if (actualMissing != expectedMissing) {
+                Comparison comparison = new Comparison(actual.size(), expected.size());
+                comparison.mismatch = "field '" + column + "' is missing from " + actualMissing + " vs " + expectedMissing + " records";
+                return comparison;
+            }
+        }
+        
+        // A column typed on one side and text on the other is read with one type on both sides
+        List<ColumnVector.Type> actualTypes = new ArrayList<>();
+        List<ColumnVector.Type> expectedTypes = new ArrayList<>();
+        for (int column = 0; column < expectedSchema.size(); column++) {
+            expectedTypes.add(expectedSchema.getType(column));
+        }
+        for (int column = 0; column < actualSchema.size(); column++) {
+            ColumnVector.Type type = actualSchema.getType(column);
+            int other = expectedSchema.indexOf(actualSchema.getName(column));
+            if (other >= 0 && type != expectedSchema.getType(other)) {
+                type = commonType(actualSchema.getName(column), type, actual, expectedSchema.getType(other), expected);
+                expectedTypes.set(other, type);
+            }
+            actualTypes.add(type);
+        }
+        actualSchema = new BatchSchema(actualSchema.getNames(), actualTypes);
+        expectedSchema = new BatchSchema(expectedSchema.getNames(), expectedTypes);
+        
+        try (ExternalSorter actualRows = sorter(actualSchema, keyColumns);
+             ExternalSorter expectedRows = sorter(expectedSchema, keyColumns)) {
+            add(new RecordBatchSource(actual, actualSchema, batchSize), actualRows);
+            add(new RecordBatchSource(expected, expectedSchema, batchSize), expectedRows);
+            return compare(actualRows, expectedRows, keyColumns);
+        }
+    }
+    
+    /**
+     * Schema typed by the Java types of the values, unlike RecordBatchSource.inferSchema, so that text
+     * stays text; columns with only nulls, and columns mixing numbers with other types, are text
+     */
+    private static BatchSchema schemaOf(List<Map<String, Object>> records) {
+        Map<String, ColumnVector.Type> columns = new LinkedHashMap<>();
+        for (Map<String, Object> record : records) {
+            for (Map.Entry<String, Object> field : record.entrySet()) {
+                columns.put(field.getKey(), BatchSchema.widen(columns.get(field.getKey()), typeOf(field.getValue())));
+            }
+        }
+        List<ColumnVector.Type> types = new ArrayList<>();
+        columns.values().forEach(type -> types.add(type != null ? type : ColumnVector.Type.STRING));
+        return new BatchSchema(new ArrayList<>(columns.keySet()), types);
+    }
+    
+    private static ColumnVector.Type typeOf(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Boolean) {
+            return ColumnVector.Type.BOOLEAN;
+        }
+        if (value instanceof Number) {
+            return BatchSchema.inferType(value);
+        }
+        return ColumnVector.Type.STRING;
+    }
+    
+    /**
+     * Type of a column that has different types on the two sides. Text read as a number or boolean must
+     * spell it exactly, without blanks and with booleans in lower case; otherwise the column stays text.
+     */
+    private static ColumnVector.Type commonType(String column, ColumnVector.Type actualType, List<Map<String, Object>> actual,
+                                                ColumnVector.Type expectedType, List<Map<String, Object>> expected) {
+        ColumnVector.Type type = actualType == ColumnVector.Type.STRING ? expectedType : actualType;
+        if (type == ColumnVector.Type.STRING) {
+            return type;
+        }
+        List<Map<String, Object>> text = actualType == ColumnVector.Type.STRING ? actual
+                : expectedType == ColumnVector.Type.STRING ? expected : Collections.emptyList();
+        if (text.isEmpty()) {
+            return BatchSchema.widen(actualType, expectedType);
+        }
+        for (Map<String, Object> record : text) {
+            Object value = record.get(column);
+            if (value == null) {
+                continue;
+            }
+            String spelled = value.toString();
+            ColumnVector.Type spelledType = spelled.equals(spelled.trim()) ? BatchSchema.inferType(spelled) : null;
+            if (spelledType == ColumnVector.Type.BOOLEAN && !spelled.equals("true") && !spelled.equals("false")) {
+                spelledType = null;
+            }
+            type = spelledType != null ? BatchSchema.widen(type, spelledType) : ColumnVector.Type.STRING;
+            if (type == ColumnVector.Type.STRING) {
+                break;
+            }
+        }
+        return type;
+    }
+    
+    /**
+     * Compare data files, typed by the schema when given; without a schema, CSV columns are typed by
+     * their values and the columns of other formats are read as text
+     */
+    public Comparison compareFiles(String actualPath, String expectedPath, DataSchema schema, List<String> keyColumns) throws IOException {
+        BatchSchema batchSchema = schema != null && schema.getFields() != null ? BatchSchema.of(schema) : null;
+        try (ExternalSorter actualRows = sortFile(actualPath, batchSchema, keyColumns);
+             ExternalSorter expectedRows = sortFile(expectedPath, batchSchema, keyColumns)) {
+            return compare(actualRows, expectedRows, keyColumns);
+        }
+    }
+    
+    private ExternalSorter sorter(BatchSchema schema, List<String> keyColumns) {
+        // Both sides are sorted before either is read, so each gets half of the budget
+        RowComparator comparator = new RowComparator(schema, schema, order(schema, keyColumns), true);
+        return new ExternalSorter(schema, comparator, memoryBudget / 2, spillDirectory, batchSize);
+    }
+    
+    /**
+     * Key columns first, then all other columns by name, so that equal datasets sort into the same row
+     * order even when their columns come in another order
+     */
+    private static List<String> order(BatchSchema schema, List<String> keyColumns) {
+        List<String> others = new ArrayList<>(schema.getNames());
+        others.removeAll(keyColumns);
+        Collections.sort(others);
+        List<String> order = new ArrayList<>(keyColumns);
+        order.addAll(others);
+        return order;
+    }
+    
+    private static void add(BatchOperator source, ExternalSorter sorter) throws IOException {
+        try (BatchOperator input = source) {
+            Batch batch;
+            while ((batch = input.next()) != null) {
+                sorter.add(batch);
+            }
+        }
+    }
+    
+    private ExternalSorter sortFile(String filePath, BatchSchema schema, List<String> keyColumns) throws IOException {
+        if (filePath.endsWith(".csv")) {
+            CsvBatchSource source = new CsvBatchSource(filePath, schema, batchSize);
+            ExternalSorter sorter = sorter(source.getSchema(), keyColumns);
+            add(source, sorter);
+            return sorter;
+        }
+        
+        // Other formats are streamed as records and sorted a chunk of records at a time
+        RecordChunks chunks = new RecordChunks(schema, keyColumns);
+        try {
+            dataManager.streamTestDataFromFile(filePath, chunks);
+            chunks.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (chunks.sorter == null) {
+            throw new IOException("No records in data file: " + filePath);
+        }
+        return chunks.sorter;
+    }
+    
+    private Comparison compare(ExternalSorter actualRows, ExternalSorter expectedRows, List<String> keyColumns) throws IOException {
+        BatchSchema actualSchema = actualRows.getSchema();
+        BatchSchema expectedSchema = expectedRows.getSchema();
+        Comparison comparison = new Comparison(actualRows.getRowCount(), expectedRows.getRowCount());
+        if (!new HashSet<>(actualSchema.getNames()).equals(new HashSet<>(expectedSchema.getNames()))) {
+            comparison.mismatch = "columns differ: " + actualSchema.getNames() + " vs " + expectedSchema.getNames();
+            return comparison;
+        }
+        if (comparison.actualCount != comparison.expectedCount) {
+            comparison.mismatch = "record counts differ: " + comparison.actualCount + " vs " + comparison.expectedCount;
+            return comparison;
+        }
+        
+        RowComparator comparator = new RowComparator(actualSchema, expectedSchema, order(expectedSchema, keyColumns), true);
+        try (BatchOperator actual = actualRows.sorted(); BatchOperator expected = expectedRows.sorted()) {
+            Batch actualBatch = actual.next();
+            Batch expectedBatch = expected.next();
+            int actualPosition = 0;
+            int expectedPosition = 0;
+            for (long index = 0; actualBatch != null && expectedBatch != null; index++) {
+                int actualRow = actualBatch.selectedRow(actualPosition);
+                int expectedRow = expectedBatch.selectedRow(expectedPosition);
+                if (comparator.compare(actualBatch, actualRow, expectedBatch, expectedRow) != 0) {
+                    comparison.mismatch = "record mismatch at sorted index " + index + ": "
+                            + actualBatch.toRecord(actualRow) + " vs " + expectedBatch.toRecord(expectedRow);
+                    return comparison;
+                }
+                if (++actualPosition == actualBatch.getSelectedCount()) {
+                    actualBatch = actual.next();
+                    actualPosition = 0;
+                }
+                if (++expectedPosition == expectedBatch.getSelectedCount()) {
+                    expectedBatch = expected.next();
+                    expectedPosition = 0;
+                }
+            }
+        }
+        return comparison;
+    }
+    
+    /**
+     * Record consumer adding records to a sorter in batches; without a schema, the columns of the
+     * first records are read as text
+     */
+    private class RecordChunks implements Consumer<Map<String, Object>> {
+        private final List<String> keyColumns;
+        private final List<Map<String, Object>> records = new ArrayList<>();
+        private BatchSchema schema;
+        private ExternalSorter sorter;
+        
+        RecordChunks(BatchSchema schema, List<String> keyColumns) {
+            this.schema = schema;
+            this.keyColumns = keyColumns;
+        }
+        
+        @Override
+        public void accept(Map<String, Object> record) {
+            records.add(record);
+            if (records.size() == batchSize) {
+                try {
+                    flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+        
+        void flush() throws IOException {
+            if (records.isEmpty()) {
+                return;
+            }
+            if (sorter == null) {
+                if (schema == null) {
+                    List<String> names = new ArrayList<>(RecordBatchSource.inferSchema(records).getNames());
+                    schema = new BatchSchema(names, Collections.nCopies(names.size(), ColumnVector.Type.STRING));
+                }
+                sorter = sorter(schema, keyColumns);
+            }
+            add(new RecordBatchSource(records, schema, batchSize), sorter);
+            records.clear();
+        }
+    }
+    
+    /**
+     * Outcome of a comparison, with a description of the first difference when the datasets differ
+     */
+    public static class Comparison {
+        private final long actualCount;
+        private final long expectedCount;
+        private String mismatch;
+        
+        Comparison(long actualCount, long expectedCount) {
+            this.actualCount = actualCount;
+            this.expectedCount = expectedCount;
+        }
+        
+        public boolean isMatch() {
+            return mismatch == null;
+        }
+        
+        public long getActualCount() {
+            return actualCount;
+        }
+        
+        public long getExpectedCount() {
+            return expectedCount;
+        }
+        
+        public String getMismatch() {
+            return mismatch;
+        }
+    }
+}
\ No newline at end of file
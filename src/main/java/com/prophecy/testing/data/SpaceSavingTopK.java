@@ -0,0 +1,218 @@
+package com.prophecy.testing.data;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Space-Saving summary of the most frequent values of a stream, using a fixed number of counters.
+ * While fewer distinct values than counters have been seen the counts are exact. After that, a new
+ * value takes over the counter with the smallest count and inherits that count as its error, so a
+ * tracked count overestimates the true count by at most its error, and every value occurring more
+ * than total / capacity times is tracked. Summaries of separate chunks can be merged.
+ */
+public class SpaceSavingTopK implements Serializable {
+    private static final long serialVersionUID = 1L;
+    // Highest count first, ties by value so that results do not depend on insertion order
+    private static final Comparator<Counter> ORDER = Comparator.<Counter>comparingLong(counter -> counter.count).reversed()
+            .thenComparing(counter -> counter.value);
+    private static final Comparator<Counter> BY_QUEUED_COUNT = Comparator.comparingLong(counter -> counter.queuedCount);
+    
+    private final int capacity;
+    private final Map<String, Counter> counters = new HashMap<>();
+    // Holds each counter once, ordered by the count it had when queued; counts that have grown since are requeued on eviction
+    private transient PriorityQueue<Counter> smallest = new PriorityQueue<>(BY_QUEUED_COUNT);
+    private long total;
+    private boolean exact = true;
+    
+    public SpaceSavingTopK(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+    
+    public void add(String value, long count) {
+        total += count;
+        Counter counter = counters.get(value);
+        if (counter != null) {
+            counter.count += count;
+            return;
+        }
+        if (counters.size() < capacity) {
+            track(new Counter(value, count, 0));
+            return;
+        }
+        
+        Counter evicted = pollSmallest();
+        counters.remove(evicted.value);
+        track(new Counter(value, evicted.count + count, evicted.count));
+        exact = false;
+    }
+    
+    /**
+     * Merge another summary into this one. A value missing from a full summary may have occurred up
+     * to that summary's smallest count, which is added to its count and error.
+     */
+    public SpaceSavingTopK merge(SpaceSavingTopK other) {
+        long missingHere = minimumCount();
+        long missingThere = other.minimumCount();
+        Map<String, Counter> merged = new HashMap<>();
+        for (Counter counter : counters.values()) {
+            Counter theirs = other.counters.get(counter.value);
+            merged.put(counter.value, theirs != null
+                    ? new Counter(counter.value, counter.count + theirs.count, counter.error + theirs.error)
+                    : new Counter(counter.value, counter.count + missingThere, counter.error + missingThere));
+        }
+        for (Counter theirs : other.counters.values()) {
+            if (!merged.containsKey(theirs.value)) {
+                merged.put(theirs.value, new Counter(theirs.value, theirs.count + missingHere, theirs.error + missingHere));
+            }
+        }
+        
+        exact = exact && other.exact && merged.size() <= capacity;
+        total += other.total;
+        counters.clear();
+        smallest.clear();
+        merged.values().stream()
+                .sorted(ORDER)
+                .limit(capacity)
+                .forEach(this::track);
+        return this;
+    }
+    
+    /**
+     * Upper bound on the number of times a value occurred
+     */
+    public long estimate(String value) {
+        Counter counter = counters.get(value);
+        return counter != null ? counter.count : minimumCount();
+    }
+    
+    /**
+     * Lower bound on the number of times a value occurred
+     */
+    public long guaranteedCount(String value) {
+        Counter counter = counters.get(value);
+        return counter != null ? counter.count - counter.error : 0;
+    }
+    
+    /**
+     * Tracked values with the highest counts, highest first
+     */
+    public List<Entry> top(int k) {
+        List<Entry> top = new ArrayList<>();
+        counters.values().stream()
+                .sorted(ORDER)
+                .limit(k)
+                .forEach(counter -> top.add(new Entry(counter.value, counter.count, counter.error)));
+        return top;
+    }
+    
+    public boolean contains(String value) {
+        return counters.containsKey(value);
+    }
+    
+    /**
+     * Whether adding a value not yet tracked would replace another value
+     */
+    public boolean isFull() {
+        return counters.size() >= capacity;
+    }
+    
+    /**
+     * Whether every count is exact and no value has been dropped
+     */
+    public boolean isExact() {
+        return exact;
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    public int size() {
+        return counters.size();
+    }
+    
+    public long getTotal() {
+        return total;
+    }
+    
+    /**
+     * Most a value that is not tracked can have occurred
+     */
+    private long minimumCount() {
+        if (exact) {
+            return 0;
+        }
+        Counter counter = pollSmallest();
+        smallest.add(counter);
+        return counter.count;
+    }
+    
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        smallest = new PriorityQueue<>(BY_QUEUED_COUNT);
+        for (Counter counter : counters.values()) {
+            counter.queuedCount = counter.count;
+            smallest.add(counter);
+        }
+    }
+    
+    private void track(Counter counter) {
+        counters.put(counter.value, counter);
+        counter.queuedCount = counter.count;
+        smallest.add(counter);
+    }
+    
+    private Counter pollSmallest() {
+        Counter counter = smallest.poll();
+        while (counter.queuedCount != counter.count) {
+            counter.queuedCount = counter.count;
+            smallest.add(counter);
+            counter = smallest.poll();
+        }
+        return counter;
+    }
+    
+    private static class Counter implements Serializable {
+        private static final long serialVersionUID = 1L;
+        
+        final String value;
+        long count;
+        final long error;
+        long queuedCount;
+        
+        Counter(String value, long count, long error) {
+            this.value = value;
+            this.count = count;
+            this.error = error;
+        }
+    }
+    
+    /**
+     * A tracked value; its true count lies between count - error and count
+     */
+    public static class Entry {
+        private final String value;
+        private final long count;
+        private final long error;
+        
+        Entry(String value, long count, long error) {
+            this.value = value;
+            this.count = count;
+            this.error = error;
+        }
+        
+        public String getValue() { return value; }
+        public long getCount() { return count; }
+        public long getError() { return error; }
+        
+        @Override
+        public String toString() {
+            return error == 0 ? value + "=" + count : value + "=" + count + "(-" + error + ")";
+        }
+    }
+}
\ No newline at end of file
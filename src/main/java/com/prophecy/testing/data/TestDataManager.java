@@ -1,5 +1,6 @@
 package com.prophecy.testing.data;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.prophecy.testing.config.ConfigManager;
@@ -13,11 +14,16 @@ import org.apache.logging.log4j.Logger;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Manager class for handling test data operations
@@ -28,12 +34,16 @@ public class TestDataManager {
     private final ObjectMapper jsonMapper;
     private final ObjectMapper yamlMapper;
     private final MockDataGenerator mockDataGenerator;
+    private final SnapshotCache snapshotCache;
+    private final FixtureCache fixtureCache;
     
     public TestDataManager() {
         this.config = ConfigManager.getInstance();
         this.jsonMapper = new ObjectMapper();
         this.yamlMapper = new ObjectMapper(new YAMLFactory());
         this.mockDataGenerator = new MockDataGenerator();
+        this.snapshotCache = new SnapshotCache(config.getSnapshotCachePath());
+        this.fixtureCache = FixtureCache.getInstance();
     }
     
     /**
@@ -49,14 +59,8 @@ public class TestDataManager {
                 return null;
             }
             
-            Pipeline pipeline;
-            if (fileName.endsWith(".json")) {
-                pipeline = jsonMapper.readValue(file, Pipeline.class);
-            } else if (fileName.endsWith(".yaml") || fileName.endsWith(".yml")) {
-                pipeline = yamlMapper.readValue(file, Pipeline.class);
-            } else {
-                throw new IllegalArgumentException("Unsupported file format: " + fileName);
-            }
+            JsonNode tree = loadCached("pipeline", file, this::readTree);
+            Pipeline pipeline = jsonMapper.treeToValue(tree, Pipeline.class);
             
             logger.info("Loaded pipeline configuration: {}", pipeline.getName());
             return pipeline;
@@ -83,6 +87,8 @@ public class TestDataManager {
             } else {
                 throw new IllegalArgumentException("Unsupported file format: " + fileName);
             }
+            // A rewrite within the file system's timestamp resolution would not change the modification time
+            fixtureCache.invalidate(file);
             
             logger.info("Saved pipeline configuration: {}", fileName);
         } catch (IOException e) {
@@ -104,14 +110,8 @@ public class TestDataManager {
                 return null;
             }
             
-            DataSchema schema;
-            if (fileName.endsWith(".json")) {
-                schema = jsonMapper.readValue(file, DataSchema.class);
-            } else if (fileName.endsWith(".yaml") || fileName.endsWith(".yml")) {
-                schema = yamlMapper.readValue(file, DataSchema.class);
-            } else {
-                throw new IllegalArgumentException("Unsupported file format: " + fileName);
-            }
+            JsonNode tree = loadCached("schema", file, this::readTree);
+            DataSchema schema = jsonMapper.treeToValue(tree, DataSchema.class);
             
             logger.info("Loaded data schema: {}", schema.getName());
             return schema;
@@ -138,6 +138,7 @@ public class TestDataManager {
             } else {
                 throw new IllegalArgumentException("Unsupported file format: " + fileName);
             }
+            fixtureCache.invalidate(file);
             
             logger.info("Saved data schema: {}", fileName);
         } catch (IOException e) {
@@ -155,11 +156,27 @@ public class TestDataManager {
             throw new RuntimeException("Schema not found: " + schemaFileName);
         }
         
-        List<Map<String, Object>> mockData = mockDataGenerator.generateMockData(schema, recordCount);
-        
         String outputPath = config.getMockDataPath() + "/" + outputFileName;
         ensureDirectoryExists(outputPath);
         
+        // JSON Lines, Parquet and Avro are generated record by record so large fixtures never sit in memory
+        if (JsonLinesReader.isJsonLines(outputFileName)) {
+            mockDataGenerator.generateMockDataToJsonLines(schema, recordCount, outputPath);
+            logger.info("Generated {} mock records and saved to: {}", recordCount, outputPath);
+            return;
+        } else if (ParquetDataHandler.isParquet(outputFileName)) {
+            mockDataGenerator.generateMockDataToParquet(schema, recordCount, outputPath,
+                    config.getParquetRowGroupSizeBytes());
+            logger.info("Generated {} mock records and saved to: {}", recordCount, outputPath);
+            return;
+        } else if (AvroDataHandler.isAvro(outputFileName)) {
+            mockDataGenerator.generateMockDataToAvro(schema, recordCount, outputPath);
+            logger.info("Generated {} mock records and saved to: {}", recordCount, outputPath);
+            return;
+        }
+        
+        List<Map<String, Object>> mockData = mockDataGenerator.generateMockData(schema, recordCount);
+        
         if (outputFileName.endsWith(".csv")) {
             mockDataGenerator.saveMockDataToCsv(mockData, schema, outputPath);
         } else if (outputFileName.endsWith(".json")) {
@@ -172,9 +189,8 @@ public class TestDataManager {
     }
     
     /**
-     * Load test data from file
+     * Load test data from file; the records are cached and shared between callers, so they are read-only
      */
-    @SuppressWarnings("unchecked")
     public List<Map<String, Object>> loadTestData(String fileName) {
         try {
             String filePath = config.getTestDataPath() + "/" + fileName;
@@ -185,11 +201,21 @@ public class TestDataManager {
                 return null;
             }
             
-            if (fileName.endsWith(".json")) {
-                return jsonMapper.readValue(file, List.class);
-            } else {
-                throw new IllegalArgumentException("Unsupported file format for test data: " + fileName);
-            }
+            return loadCached("test-data", file, f -> {
+                if (fileName.endsWith(".json")) {
+                    return Collections.unmodifiableList(loadWithSnapshot(filePath, () -> loadDataFromJson(filePath)));
+                } else if (JsonLinesReader.isJsonLines(fileName)) {
+                    return Collections.unmodifiableList(loadWithSnapshot(filePath, () -> loadDataFromJsonLines(filePath)));
+                } else if (ParquetDataHandler.isParquet(fileName)) {
+                    return Collections.unmodifiableList(ParquetDataHandler.read(filePath, null, config.getDataParallelism()));
+                } else if (AvroDataHandler.isAvro(fileName)) {
+                    return Collections.unmodifiableList(loadDataFromAvro(filePath));
+                } else if (ExcelStreamingReader.isExcel(fileName)) {
+                    return Collections.unmodifiableList(loadWithSnapshot(filePath, () -> loadDataFromExcel(filePath)));
+                } else {
+                    throw new IllegalArgumentException("Unsupported file format for test data: " + fileName);
+                }
+            });
         } catch (IOException e) {
             logger.error("Error loading test data: {}", e.getMessage());
             throw new RuntimeException("Failed to load test data", e);
@@ -209,18 +235,18 @@ public class TestDataManager {
                 return new HashMap<>();
             }
             
-            @SuppressWarnings("unchecked")
-            Map<String, Object> scenarios = jsonMapper.readValue(file, Map.class);
+            JsonNode scenarios = loadCached("scenarios", file, this::readTree);
+            JsonNode scenarioData = scenarios.get(scenarioName);
             
-            @SuppressWarnings("unchecked")
-            Map<String, Object> scenarioData = (Map<String, Object>) scenarios.get(scenarioName);
-            
-            if (scenarioData == null) {
+            if (scenarioData == null || scenarioData.isNull()) {
                 logger.warn("Test scenario not found: {}", scenarioName);
                 return new HashMap<>();
             }
             
-            return scenarioData;
+            // Converted on every call so callers can modify their copy of the scenario
+            @SuppressWarnings("unchecked")
+            Map<String, Object> scenario = jsonMapper.convertValue(scenarioData, Map.class);
+            return scenario;
         } catch (IOException e) {
             logger.error("Error loading test scenario data: {}", e.getMessage());
             return new HashMap<>();
@@ -269,6 +295,25 @@ public class TestDataManager {
         }
     }
     
+    /**
+     * Remove a scratch directory and everything in it, e.g. the mock data directory of a parallel worker
+     */
+    public void cleanupDirectory(String directory) {
+        Path path = Paths.get(directory);
+        if (!Files.isDirectory(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            List<Path> paths = files.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+            for (Path file : paths) {
+                Files.deleteIfExists(file);
+            }
+            logger.debug("Deleted directory: {}", directory);
+        } catch (IOException e) {
+            logger.warn("Failed to delete directory {}: {}", directory, e.getMessage());
+        }
+    }
+    
     /**
      * Create a default schema for testing
      */
@@ -339,21 +384,12 @@ public class TestDataManager {
     public Map<String, Object> validateDataQuality(List<Map<String, Object>> data, DataSchema schema) {
         logger.info("Validating data quality for {} records", data.size());
         
-        Map<String, Object> results = new HashMap<>();
-        
-        // Calculate completeness
-        Map<String, Double> completeness = checkDataCompleteness(data);
-        results.put("completeness", completeness);
-        
-        // Calculate overall quality score
-        double qualityScore = completeness.values().stream()
-            .mapToDouble(Double::doubleValue)
-            .average()
-            .orElse(0.0) / 100.0;
-        
-        results.put("quality_score", qualityScore);
+        // One pass computes completeness and the field profiles used by the quality report
+        DataQualityAccumulator accumulator = new DataQualityAccumulator(schema);
+        data.forEach(accumulator);
+        Map<String, Object> results = accumulator.toResults();
         results.put("record_count", data.size());
-        results.put("validation_timestamp", System.currentTimeMillis());
+        double qualityScore = (Double) results.get("quality_score");
         
         logger.info("Data quality validation completed with score: {}", qualityScore);
         return results;
@@ -371,8 +407,9 @@ public class TestDataManager {
             return completeness;
         }
         
-        // Get all field names from the first record
-        Set<String> fieldNames = data.get(0).keySet();
+        // Fields of any record; records without a field count as empty in it
+        Set<String> fieldNames = new LinkedHashSet<>();
+        data.forEach(record -> fieldNames.addAll(record.keySet()));
         
         for (String fieldName : fieldNames) {
             long nonNullCount = data.stream()
@@ -451,7 +488,7 @@ public class TestDataManager {
     /**
      * Check if value matches expected data type
      */
-    private boolean isValidDataType(Object value, DataType expectedType) {
+    static boolean isValidDataType(Object value, DataType expectedType) {
         if (value == null) {
             return true;
         }
@@ -468,21 +505,44 @@ public class TestDataManager {
                 } catch (NumberFormatException e) {
                     return false;
                 }
+            case LONG:
+                try {
+                    Long.parseLong(stringValue);
+                    return true;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
             case DOUBLE:
+            case FLOAT:
                 try {
                     Double.parseDouble(stringValue);
                     return true;
                 } catch (NumberFormatException e) {
                     return false;
                 }
+            case DECIMAL:
+                try {
+                    new BigDecimal(stringValue);
+                    return true;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
             case BOOLEAN:
                 return "true".equalsIgnoreCase(stringValue) || "false".equalsIgnoreCase(stringValue);
             case DATE:
                 // Simple date format validation
                 return stringValue.matches("\\d{4}-\\d{2}-\\d{2}");
             case TIMESTAMP:
-                // Simple timestamp format validation
-                return stringValue.matches("\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}");
+                // Either separator; the Parquet and Avro loaders produce ISO-8601 local date-times,
+                // which drop zero seconds and keep up to nanosecond fractions
+                return stringValue.matches("\\d{4}-\\d{2}-\\d{2}[ T]\\d{2}:\\d{2}(:\\d{2}(\\.\\d{1,9})?)?");
+            case BINARY:
+                return value instanceof byte[];
+            case ARRAY:
+                return value instanceof List;
+            case MAP:
+            case STRUCT:
+                return value instanceof Map;
             default:
                 return false;
         }
@@ -501,27 +561,139 @@ public class TestDataManager {
     }
     
     /**
-     * Load test data from file
+     * Load test data from file; the records are cached and shared between callers, so they are read-only
      */
     public List<Map<String, Object>> loadTestDataFromFile(String filePath) throws IOException {
         logger.info("Loading test data from: {}", filePath);
         
-        List<Map<String, Object>> data = new ArrayList<>();
+        List<Map<String, Object>> data = loadCached("dataset", new File(filePath), file -> readDataFile(filePath));
+        
+        logger.info("Loaded {} records from: {}", data.size(), filePath);
+        return data;
+    }
+    
+    private List<Map<String, Object>> readDataFile(String filePath) throws IOException {
+        List<Map<String, Object>> data;
         
         if (filePath.endsWith(".csv")) {
-            data = loadDataFromCsv(filePath);
+            data = loadWithSnapshot(filePath, () -> loadDataFromCsv(filePath));
         } else if (filePath.endsWith(".json")) {
-            data = loadDataFromJson(filePath);
+            data = loadWithSnapshot(filePath, () -> loadDataFromJson(filePath));
+        } else if (JsonLinesReader.isJsonLines(filePath)) {
+            data = loadWithSnapshot(filePath, () -> loadDataFromJsonLines(filePath));
+        } else if (ParquetDataHandler.isParquet(filePath)) {
+            data = ParquetDataHandler.read(filePath, null, config.getDataParallelism());
+        } else if (AvroDataHandler.isAvro(filePath)) {
+            data = loadDataFromAvro(filePath);
+        } else if (ExcelStreamingReader.isExcel(filePath)) {
+            data = loadWithSnapshot(filePath, () -> loadDataFromExcel(filePath));
         } else {
             throw new IllegalArgumentException("Unsupported file format: " + filePath);
         }
         
-        logger.info("Loaded {} records from: {}", data.size(), filePath);
-        return data;
+        return Collections.unmodifiableList(data);
+    }
+    
+    /**
+     * Stream test data from file to a consumer one record at a time, returning the record count
+     */
+    public long streamTestDataFromFile(String filePath, Consumer<Map<String, Object>> consumer) throws IOException {
+        return streamTestDataFromFile(filePath, null, consumer);
+    }
+    
+    /**
+     * Stream test data from file to a consumer, keeping only the given columns of Parquet, Avro and
+     * Excel files (all columns when null); records of text files keep all their fields
+     */
+    public long streamTestDataFromFile(String filePath, Collection<String> columns,
+                                       Consumer<Map<String, Object>> consumer) throws IOException {
+        logger.info("Streaming test data from: {}", filePath);
+        
+        long count;
+        if (filePath.endsWith(".csv")) {
+            count = MappedCsvReader.forEach(filePath, consumer);
+        } else if (filePath.endsWith(".json") || JsonLinesReader.isJsonLines(filePath)) {
+            count = JsonLinesReader.forEach(filePath, consumer);
+        } else if (ParquetDataHandler.isParquet(filePath)) {
+            count = ParquetDataHandler.forEach(filePath, columns, consumer);
+        } else if (AvroDataHandler.isAvro(filePath)) {
+            count = AvroDataHandler.forEach(filePath, columns, consumer);
+        } else if (ExcelStreamingReader.isExcel(filePath)) {
+            count = ExcelStreamingReader.forEach(filePath, columns, consumer);
+        } else {
+            throw new IllegalArgumentException("Unsupported file format: " + filePath);
+        }
+        
+        logger.info("Streamed {} records from: {}", count, filePath);
+        return count;
+    }
+    
+    /**
+     * Stream test data from file into one sink per partition; large line-based files are split
+     * into line-aligned ranges that are processed in parallel
+     */
+    public <T extends Consumer<Map<String, Object>>> List<T> streamTestDataPartitions(
+            String filePath, Supplier<T> sinkFactory) throws IOException {
+        return streamTestDataPartitions(filePath, null, sinkFactory);
+    }
+    
+    /**
+     * Stream test data from file into one sink per partition, decoding only the given columns of
+     * Parquet and Avro files; Parquet files are split by row group, large Avro files by sync marker
+     */
+    public <T extends Consumer<Map<String, Object>>> List<T> streamTestDataPartitions(
+            String filePath, Collection<String> columns, Supplier<T> sinkFactory) throws IOException {
+        if (ParquetDataHandler.isParquet(filePath)) {
+            return ParquetDataHandler.forEachPartition(filePath, columns, config.getDataParallelism(), sinkFactory);
+        }
+        
+        boolean large = Files.size(Paths.get(filePath)) >= config.getMappedReadThresholdBytes();
+        
+        if (large && filePath.endsWith(".csv")) {
+            return MappedCsvReader.forEachPartition(filePath, config.getDataParallelism(), sinkFactory);
+        } else if (large && JsonLinesReader.isJsonLines(filePath)) {
+            return JsonLinesReader.forEachPartition(filePath, config.getDataParallelism(), sinkFactory);
+        } else if (large && AvroDataHandler.isAvro(filePath)) {
+            return AvroDataHandler.forEachPartition(filePath, columns, config.getDataParallelism(), sinkFactory);
+        }
+        
+        T sink = sinkFactory.get();
+        streamTestDataFromFile(filePath, columns, sink);
+        return new ArrayList<>(List.of(sink));
+    }
+    
+    /**
+     * Validate completeness and formats of a data file in a single streaming pass. Text files larger
+     * than one validation chunk are validated incrementally, reusing cached results of unchanged chunks.
+     */
+    public Map<String, Object> validateDataFile(String filePath, DataSchema schema) throws IOException {
+        logger.info("Validating data file: {}", filePath);
+        
+        // Only the schema columns are checked, so binary formats skip decoding all other columns
+        List<String> columns = schema != null && schema.getFields() != null
+                ? schema.getFields().stream().map(SchemaField::getName).collect(Collectors.toList())
+                : null;
+        
+        DataQualityAccumulator accumulator;
+        if (config.isValidationCacheEnabled() && IncrementalValidator.supports(filePath)
+                && Files.size(Paths.get(filePath)) > config.getValidationChunkBytes()) {
+            accumulator = new IncrementalValidator(config.getValidationCachePath(), config.getValidationChunkBytes())
+                    .validate(filePath, schema);
+        } else {
+            accumulator = streamTestDataPartitions(filePath, columns, () -> new DataQualityAccumulator(schema))
+                    .stream()
+                    .reduce(DataQualityAccumulator::merge)
+                    .orElseGet(() -> new DataQualityAccumulator(schema));
+        }
+        
+        Map<String, Object> results = accumulator.toResults();
+        logger.info("Data file validation completed for {} records with score: {}",
+                   accumulator.getRecordCount(), results.get("quality_score"));
+        return results;
     }
     
     /**
-     * Compare two datasets
+     * Compare two datasets regardless of row order, sorted by id when the records have one
      */
     public boolean compareDatasets(List<Map<String, Object>> actual, List<Map<String, Object>> expected) {
         logger.info("Comparing datasets - Actual: {} records, Expected: {} records", 
@@ -532,26 +704,110 @@ public class TestDataManager {
             return false;
         }
         
-        // Sort both datasets by a common key (assuming 'id' field exists)
-        actual.sort((a, b) -> String.valueOf(a.get("id")).compareTo(String.valueOf(b.get("id"))));
-        expected.sort((a, b) -> String.valueOf(a.get("id")).compareTo(String.valueOf(b.get("id"))));
-        
-        for (int i = 0; i < actual.size(); i++) {
-            Map<String, Object> actualRecord = actual.get(i);
-            Map<String, Object> expectedRecord = expected.get(i);
-            
-            if (!actualRecord.equals(expectedRecord)) {
-                logger.error("Record mismatch at index {}: {} vs {}", i, actualRecord, expectedRecord);
-                return false;
-            }
+        boolean hasId = expected.stream().anyMatch(record -> record.containsKey("id"));
+        try {
+            return logComparison(new SortedDatasetComparator(this).compare(actual, expected,
+                    hasId ? List.of("id") : Collections.emptyList()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to sort datasets for comparison", e);
         }
-        
-        logger.info("Datasets match successfully");
+    }
+    
+    /**
+     * Compare two data files regardless of row order with an external sort by the key columns, for
+     * files larger than memory. The schema, when given, types the columns of both files.
+     */
+    public boolean compareDataFiles(String actualPath, String expectedPath, DataSchema schema, List<String> keyColumns) throws IOException {
+        logger.info("Comparing data files - Actual: {}, Expected: {}, sorted by {}", actualPath, expectedPath, keyColumns);
+        return logComparison(new SortedDatasetComparator(this).compareFiles(actualPath, expectedPath, schema, keyColumns));
+    }
+    
+    private static boolean logComparison(SortedDatasetComparator.Comparison comparison) {
+        if (!comparison.isMatch()) {
+            logger.error("Datasets of {} and {} records don't match: {}", comparison.getActualCount(),
+                        comparison.getExpectedCount(), comparison.getMismatch());
+            return false;
+        }
+        logger.info("Datasets match successfully ({} records)", comparison.getActualCount());
         return true;
     }
     
     /**
-     * Generate data quality report
+     * Compare the numeric fields of two validation results without diffing rows. The deviation of a
+     * field is the largest difference in mean or deciles, as a percentage of the expected range, or
+     * of the expected magnitude when all expected values are equal. Only fields that are numeric in
+     * both results are compared.
+     */
+    public Map<String, Double> compareNumericStatistics(Map<String, Object> actualResults, Map<String, Object> expectedResults) {
+        Map<String, FieldProfile> actualProfiles = fieldProfiles(actualResults);
+        Map<String, FieldProfile> expectedProfiles = fieldProfiles(expectedResults);
+        Map<String, Double> deviations = new LinkedHashMap<>();
+        
+        expectedProfiles.forEach((fieldName, expected) -> {
+            FieldProfile actual = actualProfiles.get(fieldName);
+            if (actual == null || expected.getNumericCount() == 0 || actual.getNumericCount() == 0) {
+                return;
+            }
+            double scale = expected.getMax() - expected.getMin();
+            if (scale == 0) {
+                scale = Math.max(Math.abs(expected.getMax()), 1.0);
+            }
+            double deviation = Math.abs(actual.getMean() - expected.getMean());
+            for (int decile = 1; decile < 10; decile++) {
+                deviation = Math.max(deviation, Math.abs(actual.getQuantile(decile / 10.0) - expected.getQuantile(decile / 10.0)));
+            }
+            deviations.put(fieldName, deviation / scale * 100.0);
+            logger.debug("Field '{}' deviates from expected by {}%", fieldName, deviations.get(fieldName));
+        });
+        
+        logger.info("Compared numeric statistics of {} fields", deviations.size());
+        return deviations;
+    }
+    
+    /**
+     * Save the distribution profile of validated data as a JSON baseline
+     */
+    public void saveDataProfile(Map<String, Object> validationResults, String filePath) throws IOException {
+        logger.info("Saving data profile to: {}", filePath);
+        
+        ensureDirectoryExists(filePath);
+        jsonMapper.writeValue(new File(filePath), DatasetProfile.fromResults(validationResults));
+        
+        logger.info("Data profile saved successfully");
+    }
+    
+    public DatasetProfile loadDataProfile(String filePath) throws IOException {
+        logger.info("Loading data profile from: {}", filePath);
+        return jsonMapper.readValue(new File(filePath), DatasetProfile.class);
+    }
+    
+    /**
+     * Compare the distributions of validated data with a baseline profile, using the configured thresholds
+     */
+    public DistributionComparator.DriftReport compareWithBaseline(Map<String, Object> validationResults, String baselinePath) throws IOException {
+        DatasetProfile baseline = loadDataProfile(baselinePath);
+        DistributionComparator.DriftReport report = new DistributionComparator()
+                .compare(DatasetProfile.fromResults(validationResults), baseline);
+        
+        for (DistributionComparator.ColumnDrift drift : report.getColumns()) {
+            logger.info("Column '{}': KS {}, PSI {}, null rate change {}{}", drift.getColumn(), drift.getKsDistance(),
+                       drift.getPsi(), drift.getNullRateChange(), drift.isWithinThresholds() ? "" : " - " + drift.getFailures());
+        }
+        logger.info("Compared {} records with baseline of {} records: {} of {} columns drifted",
+                   report.getRecordCount(), report.getBaselineRecordCount(),
+                   report.getDriftedColumns().size(), report.getColumns().size());
+        return report;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static Map<String, FieldProfile> fieldProfiles(Map<String, Object> results) {
+        Object profiles = results.get("field_profiles");
+        return profiles instanceof Map ? (Map<String, FieldProfile>) profiles : Collections.emptyMap();
+    }
+    
+    /**
+     * Generate data quality report as HTML, with a JSON copy next to it, from the field profiles
+     * collected during validation; records are only profiled here if validation did not
      */
     public String generateDataQualityReport(List<Map<String, Object>> data, DataSchema schema, 
                                           Map<String, Object> validationResults) throws IOException {
@@ -559,32 +815,69 @@ public class TestDataManager {
         
         String reportPath = "target/reports/data_quality_report_" + System.currentTimeMillis() + ".html";
         
-        StringBuilder html = new StringBuilder();
-        html.append("<html><head><title>Data Quality Report</title></head><body>");
-        html.append("<h1>Data Quality Report</h1>");
-        html.append("<h2>Schema: ").append(schema.getName()).append("</h2>");
-        html.append("<p>Generated: ").append(new Date()).append("</p>");
-        html.append("<p>Record Count: ").append(data.size()).append("</p>");
-        
-        if (validationResults != null) {
-            html.append("<h3>Validation Results</h3>");
-            html.append("<pre>").append(validationResults.toString()).append("</pre>");
+        Map<String, Object> results = validationResults;
+        if (results == null || !results.containsKey("field_profiles")) {
+            DataQualityAccumulator accumulator = new DataQualityAccumulator(schema);
+            data.forEach(accumulator);
+            results = accumulator.toResults();
+            if (validationResults != null) {
+                results.putAll(validationResults);
+            }
         }
         
-        html.append("</body></html>");
-        
         // Ensure directory exists
         ensureDirectoryExists(reportPath);
-        Files.write(Paths.get(reportPath), html.toString().getBytes());
+        DataQualityReportWriter writer = new DataQualityReportWriter(schema, data.size(), results);
+        writer.writeHtml(Paths.get(reportPath));
+        writer.writeJson(Paths.get(reportPath.replaceAll("\\.html$", ".json")));
         
         logger.info("Data quality report generated: {}", reportPath);
         return reportPath;
     }
     
+    /**
+     * Load a fixture through the shared fixture cache when it is enabled
+     */
+    private <T> T loadCached(String kind, File file, FixtureCache.Loader<T> loader) throws IOException {
+        if (!config.isFixtureCacheEnabled()) {
+            return loader.load(file);
+        }
+        return fixtureCache.get(kind, file, loader);
+    }
+    
+    /**
+     * Parse a JSON or YAML configuration file into a tree that is bound to a fresh object on every load
+     */
+    private JsonNode readTree(File file) throws IOException {
+        String fileName = file.getName();
+        if (fileName.endsWith(".json")) {
+            return jsonMapper.readTree(file);
+        } else if (fileName.endsWith(".yaml") || fileName.endsWith(".yml")) {
+            return yamlMapper.readTree(file);
+        }
+        throw new IllegalArgumentException("Unsupported file format: " + fileName);
+    }
+    
+    /**
+     * Load a text data file through its columnar snapshot when the snapshot cache is enabled,
+     * so re-runs skip parsing unchanged files
+     */
+    private List<Map<String, Object>> loadWithSnapshot(String filePath, SnapshotCache.Loader loader) throws IOException {
+        if (!config.isSnapshotCacheEnabled()) {
+            return loader.load();
+        }
+        return snapshotCache.load(filePath, loader);
+    }
+    
     /**
      * Load data from CSV file
      */
     private List<Map<String, Object>> loadDataFromCsv(String filePath) throws IOException {
+        if (Files.size(Paths.get(filePath)) >= config.getMappedReadThresholdBytes()) {
+            logger.debug("Using memory-mapped CSV reader for: {}", filePath);
+            return MappedCsvReader.read(filePath, config.getDataParallelism());
+        }
+        
         List<Map<String, Object>> data = new ArrayList<>();
         
         try (BufferedReader reader = Files.newBufferedReader(Paths.get(filePath))) {
@@ -618,4 +911,39 @@ public class TestDataManager {
     private List<Map<String, Object>> loadDataFromJson(String filePath) throws IOException {
         return jsonMapper.readValue(new File(filePath), List.class);
     }
+    
+    /**
+     * Load data from JSON Lines file
+     */
+    private List<Map<String, Object>> loadDataFromJsonLines(String filePath) throws IOException {
+        if (Files.size(Paths.get(filePath)) >= config.getMappedReadThresholdBytes()) {
+            return JsonLinesReader.read(filePath, config.getDataParallelism());
+        }
+        
+        List<Map<String, Object>> data = new ArrayList<>();
+        JsonLinesReader.forEach(filePath, data::add);
+        return data;
+    }
+    
+    /**
+     * Load data from Avro file
+     */
+    private List<Map<String, Object>> loadDataFromAvro(String filePath) throws IOException {
+        if (Files.size(Paths.get(filePath)) >= config.getMappedReadThresholdBytes()) {
+            return AvroDataHandler.read(filePath, null, config.getDataParallelism());
+        }
+        
+        List<Map<String, Object>> data = new ArrayList<>();
+        AvroDataHandler.forEach(filePath, null, data::add);
+        return data;
+    }
+    
+    /**
+     * Load data from the first sheet of an Excel file
+     */
+    private List<Map<String, Object>> loadDataFromExcel(String filePath) throws IOException {
+        List<Map<String, Object>> data = new ArrayList<>();
+        ExcelStreamingReader.forEach(filePath, null, data::add);
+        return data;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,119 @@
+package com.prophecy.testing.engine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Up to a fixed number of rows in column vectors. Rows removed by filters stay in the vectors and
+ * are left out of the selection vector, which lists the remaining row positions in ascending order;
+ * without a selection vector all rows are selected.
+ */
+public class Batch {
+    private final BatchSchema schema;
+    private final ColumnVector[] columns;
+    private int size;
+    private int[] selection;
+    private int selectedCount;
+    
+    public Batch(BatchSchema schema, int capacity) {
+        this.schema = schema;
+        this.columns = new ColumnVector[schema.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = ColumnVector.allocate(schema.getType(i), capacity);
+        }
+    }
+    
+    /**
+     * Batch over the vectors of another batch, such as a projection of its columns
+     */
+    Batch(BatchSchema schema, ColumnVector[] columns, Batch rows) {
+        this.schema = schema;
+        this.columns = columns;
+        this.size = rows.size;
+        this.selection = rows.selection;
+        this.selectedCount = rows.selectedCount;
+    }
+    
+    public BatchSchema getSchema() {
+        return schema;
+    }
+    
+    public int capacity() {
+        return columns.length > 0 ? columns[0].capacity() : Integer.MAX_VALUE;
+    }
+    
+    /**
+     * Clear the rows and null flags before the batch is refilled
+     */
+    public void reset() {
+        size = 0;
+        selection = null;
+        selectedCount = 0;
+        for (ColumnVector column : columns) {
+            column.reset();
+        }
+    }
+    
+    public int getSize() {
+        return size;
+    }
+    
+    /**
+     * Set the number of rows filled in, selecting all of them
+     */
+    public void setSize(int size) {
+        this.size = size;
+        this.selection = null;
+        this.selectedCount = size;
+    }
+    
+    public int getSelectedCount() {
+        return selectedCount;
+    }
+    
+    /**
+     * Positions of the selected rows in the first getSelectedCount() elements, or null when all rows are selected
+     */
+    public int[] getSelection() {
+        return selection;
+    }
+    
+    public void setSelection(int[] selection, int count) {
+        this.selection = selection;
+        this.selectedCount = count;
+    }
+    
+    /**
+     * Position of the i-th selected row
+     */
+    public int selectedRow(int i) {
+        return selection == null ? i : selection[i];
+    }
+    
+    public ColumnVector getColumn(int index) {
+        return columns[index];
+    }
+    
+    /**
+     * Vector of a column, or null when there is no such column
+     */
+    public ColumnVector getColumn(String name) {
+        int index = schema.indexOf(name);
+        return index >= 0 ? columns[index] : null;
+    }
+    
+    ColumnVector[] columns() {
+        return columns;
+    }
+    
+    /**
+     * Copy of a row as a record
+     */
+    public Map<String, Object> toRecord(int row) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        for (int i = 0; i < columns.length; i++) {
+            record.put(schema.getName(i), columns[i].getObject(row));
+        }
+        return record;
+    }
+}
\ No newline at end of file
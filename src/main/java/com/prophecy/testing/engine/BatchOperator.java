@@ -0,0 +1,22 @@
+package com.prophecy.testing.engine;
+
+import java.io.IOException;
+
+/**
+ * Operator of a vectorized pipeline, pulling batches from its input and producing batches. A batch
+ * returned by next() and its vectors are only valid until the following call, as operators refill
+ * the same vectors for every batch.
+ */
+public interface BatchOperator extends AutoCloseable {
+    
+    BatchSchema getSchema();
+    
+    /**
+     * Next batch with at least one selected row, or null when the input is exhausted
+     */
+    Batch next() throws IOException;
+    
+    @Override
+    default void close() throws IOException {
+    }
+}
\ No newline at end of file
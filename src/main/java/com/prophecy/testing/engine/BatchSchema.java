@@ -0,0 +1,123 @@
+package com.prophecy.testing.engine;
+
+import com.prophecy.testing.models.DataSchema;
+import com.prophecy.testing.models.SchemaField;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Names and vector types of the columns of the batches an operator produces
+ */
+public class BatchSchema {
+    private static final BigDecimal MIN_LONG = BigDecimal.valueOf(Long.MIN_VALUE);
+    private static final BigDecimal MAX_LONG = BigDecimal.valueOf(Long.MAX_VALUE);
+    
+    private final List<String> names;
+    private final List<ColumnVector.Type> types;
+    private final Map<String, Integer> indexes = new HashMap<>();
+    
+    public BatchSchema(List<String> names, List<ColumnVector.Type> types) {
+        if (names.size() != types.size()) {
+            throw new IllegalArgumentException("Every column needs a type: " + names + " and " + types);
+        }
+        this.names = Collections.unmodifiableList(new ArrayList<>(names));
+        this.types = Collections.unmodifiableList(new ArrayList<>(types));
+        for (int i = 0; i < names.size(); i++) {
+            if (indexes.put(names.get(i), i) != null) {
+                throw new IllegalArgumentException("Duplicate column: " + names.get(i));
+            }
+        }
+    }
+    
+    public static BatchSchema of(DataSchema schema) {
+        List<String> names = new ArrayList<>();
+        List<ColumnVector.Type> types = new ArrayList<>();
+        for (SchemaField field : schema.getFields()) {
+            names.add(field.getName());
+            types.add(ColumnVector.typeOf(field.getDataType()));
+        }
+        return new BatchSchema(names, types);
+    }
+    
+    /**
+     * Narrowest vector type that holds a record value, or null for null and empty values
+     */
+    public static ColumnVector.Type inferType(Object value) {
+        if (value == null || value instanceof String && ((String) value).trim().isEmpty()) {
+            return null;
+        }
+        if (value instanceof Boolean) {
+            return ColumnVector.Type.BOOLEAN;
+        }
+        if (value instanceof String) {
+            String text = ((String) value).trim();
+            if (text.equalsIgnoreCase("true") || text.equalsIgnoreCase("false")) {
+                return ColumnVector.Type.BOOLEAN;
+            }
+        }
+        BigDecimal number = Values.toDecimal(value);
+        if (number == null) {
+            return ColumnVector.Type.STRING;
+        }
+        boolean integral = value instanceof Number
+                ? !(value instanceof Double || value instanceof Float || value instanceof BigDecimal)
+                : number.scale() <= 0;
+        return integral && number.compareTo(MIN_LONG) >= 0 && number.compareTo(MAX_LONG) <= 0
+                ? ColumnVector.Type.LONG : ColumnVector.Type.DOUBLE;
+    }
+    
+    /**
+     * Narrowest vector type holding values of both types; null stands for no values yet
+     */
+    public static ColumnVector.Type widen(ColumnVector.Type a, ColumnVector.Type b) {
+        if (a == null || a == b) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if ((a == ColumnVector.Type.LONG || a == ColumnVector.Type.DOUBLE)
+                && (b == ColumnVector.Type.LONG || b == ColumnVector.Type.DOUBLE)) {
+            return ColumnVector.Type.DOUBLE;
+        }
+        return ColumnVector.Type.STRING;
+    }
+    
+    public int size() {
+        return names.size();
+    }
+    
+    public List<String> getNames() {
+        return names;
+    }
+    
+    public String getName(int column) {
+        return names.get(column);
+    }
+    
+    public ColumnVector.Type getType(int column) {
+        return types.get(column);
+    }
+    
+    /**
+     * Position of a column, or -1 when there is no such column
+     */
+    public int indexOf(String name) {
+        Integer index = indexes.get(name);
+        return index != null ? index : -1;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("(");
+        for (int i = 0; i < names.size(); i++) {
+            text.append(i > 0 ? ", " : "").append(names.get(i)).append(' ').append(types.get(i));
+        }
+        return text.append(')').toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,236 @@
+package com.prophecy.testing.engine;
+
+import com.prophecy.testing.models.DataType;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Values of one column for the rows of a batch, in a primitive array of the column type with a
+ * separate null flag per row. Vectors are allocated once per operator and refilled for every batch.
+ */
+public abstract class ColumnVector {
+    public enum Type { LONG, DOUBLE, BOOLEAN, STRING }
+    
+    private final boolean[] nulls;
+    private boolean mayHaveNulls;
+    
+    ColumnVector(int capacity) {
+        this.nulls = new boolean[capacity];
+    }
+    
+    public static ColumnVector allocate(Type type, int capacity) {
+        switch (type) {
+            case LONG: return new LongVector(capacity);
+            case DOUBLE: return new DoubleVector(capacity);
+            case BOOLEAN: return new BooleanVector(capacity);
+            default: return new StringVector(capacity);
+        }
+    }
+    
+    /**
+     * Vector type holding values of a schema data type; dates, timestamps and nested values are kept as text
+     */
+    public static Type typeOf(DataType dataType) {
+        switch (dataType) {
+            case INTEGER: case LONG: return Type.LONG;
+            case DOUBLE: case FLOAT: case DECIMAL: return Type.DOUBLE;
+            case BOOLEAN: return Type.BOOLEAN;
+            default: return Type.STRING;
+        }
+    }
+    
+    public abstract Type getType();
+    
+    public int capacity() {
+        return nulls.length;
+    }
+    
+    public boolean isNull(int row) {
+        return mayHaveNulls && nulls[row];
+    }
+    
+    /**
+     * Whether any row may be null since the last reset; when false, null checks can be skipped
+     */
+    public boolean mayHaveNulls() {
+        return mayHaveNulls;
+    }
+    
+    public void setNull(int row) {
+        nulls[row] = true;
+        mayHaveNulls = true;
+    }
+    
+    /**
+     * Mark all rows as not null before the vector is refilled
+     */
+    public void reset() {
+        if (mayHaveNulls) {
+            Arrays.fill(nulls, false);
+            mayHaveNulls = false;
+        }
+    }
+    
+    /**
+     * Copy a value between vectors, converting it when the vector types differ
+     */
+    public static void copy(ColumnVector from, int fromRow, ColumnVector to, int toRow) {
+        if (from.isNull(fromRow)) {
+            to.setNull(toRow);
+            return;
+        }
+        if (from.getType() != to.getType()) {
+            to.setObject(toRow, from.getObject(fromRow));
+            return;
+        }
+        switch (from.getType()) {
+            case LONG:
+                ((LongVector) to).values[toRow] = ((LongVector) from).values[fromRow];
+                break;
+            case DOUBLE:
+                ((DoubleVector) to).values[toRow] = ((DoubleVector) from).values[fromRow];
+                break;
+            case BOOLEAN:
+                ((BooleanVector) to).values[toRow] = ((BooleanVector) from).values[fromRow];
+                break;
+            default:
+                ((StringVector) to).values[toRow] = ((StringVector) from).values[fromRow];
+                break;
+        }
+    }
+    
+    /**
+     * Value of a row as the Java type the record loaders produce, or null
+     */
+    public abstract Object getObject(int row);
+    
+    /**
+     * Set a row from a loosely typed record value, converting text
+     */
+    public abstract void setObject(int row, Object value);
+    
+    public static final class LongVector extends ColumnVector {
+        private final long[] values;
+        
+        LongVector(int capacity) {
+            super(capacity);
+            values = new long[capacity];
+        }
+        
+        @Override
+        public Type getType() { return Type.LONG; }
+        
+        public long[] getValues() { return values; }
+        
+        @Override
+        public Object getObject(int row) {
+            return isNull(row) ? null : values[row];
+        }
+        
+        @Override
+        public void setObject(int row, Object value) {
+            BigDecimal number = value != null ? Values.toDecimal(value) : null;
+            if (number == null) {
+                if (value != null && !value.toString().trim().isEmpty()) {
+                    throw new IllegalArgumentException("Not an integer: " + value);
+                }
+                setNull(row);
+            } else {
+                values[row] = number.longValueExact();
+            }
+        }
+    }
+    
+    public static final class DoubleVector extends ColumnVector {
+        private final double[] values;
+        
+        DoubleVector(int capacity) {
+            super(capacity);
+            values = new double[capacity];
+        }
+        
+        @Override
+        public Type getType() { return Type.DOUBLE; }
+        
+        public double[] getValues() { return values; }
+        
+        @Override
+        public Object getObject(int row) {
+            return isNull(row) ? null : values[row];
+        }
+        
+        @Override
+        public void setObject(int row, Object value) {
+            if (value instanceof Number) {
+                values[row] = ((Number) value).doubleValue();
+                return;
+            }
+            BigDecimal number = value != null ? Values.toDecimal(value) : null;
+            if (number == null) {
+                if (value != null && !value.toString().trim().isEmpty()) {
+                    throw new IllegalArgumentException("Not a number: " + value);
+                }
+                setNull(row);
+            } else {
+                values[row] = number.doubleValue();
+            }
+        }
+    }
+    
+    public static final class BooleanVector extends ColumnVector {
+        private final boolean[] values;
+        
+        BooleanVector(int capacity) {
+            super(capacity);
+            values = new boolean[capacity];
+        }
+        
+        @Override
+        public Type getType() { return Type.BOOLEAN; }
+        
+        public boolean[] getValues() { return values; }
+        
+        @Override
+        public Object getObject(int row) {
+            return isNull(row) ? null : values[row];
+        }
+        
+        @Override
+        public void setObject(int row, Object value) {
+            if (value == null || value.toString().trim().isEmpty()) {
+                setNull(row);
+            } else {
+                values[row] = Values.isTrue(value);
+            }
+        }
+    }
+    
+    public static final class StringVector extends ColumnVector {
+        private final String[] values;
+        
+        StringVector(int capacity) {
+            super(capacity);
+            values = new String[capacity];
+        }
+        
+        @Override
+        public Type getType() { return Type.STRING; }
+        
+        public String[] getValues() { return values; }
+        
+        @Override
+        public Object getObject(int row) {
+            return isNull(row) ? null : values[row];
+        }
+        
+        @Override
+        public void setObject(int row, Object value) {
+            if (value == null) {
+                setNull(row);
+            } else {
+                values[row] = value.toString();
+            }
+        }
+    }
+}
\ No newline at end of file
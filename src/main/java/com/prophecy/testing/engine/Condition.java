@@ -0,0 +1,552 @@
+package com.prophecy.testing.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Row condition in the SQL subset used by filter stages: comparisons (=, !=, <>, <, <=, >, >=),
+ * IS [NOT] NULL, [NOT] IN, [NOT] LIKE and BETWEEN, combined with AND, OR, NOT and parentheses.
+ * Identifiers are column names, optionally in backticks; strings are single-quoted. As in SQL, a
+ * comparison with null is unknown, and a row is kept only when the condition is true.
+ */
+public class Condition implements Predicate<Map<String, Object>> {
+    private final String text;
+    private final Expr root;
+    
+    private Condition(String text, Expr root) {
+        this.text = text;
+        this.root = root;
+    }
+    
+    public static Condition parse(String text) {
+        Parser parser = new Parser(text);
+        Expr root = parser.parseOr();
+        if (parser.peek() != null) {
+            throw parser.error("Unexpected '" + parser.peek().text + "'");
+        }
+        return new Condition(text, root);
+    }
+    
+    @Override
+    public boolean test(Map<String, Object> record) {
+        return Boolean.TRUE.equals(truth(root.eval(record)));
+    }
+    
+    /**
+     * Parsed expression, for evaluators that work on other representations than records
+     */
+    Expr getExpression() {
+        return root;
+    }
+    
+    @Override
+    public String toString() {
+        return text;
+    }
+    
+    static Boolean truth(Object value) {
+        return value == null ? null : Values.isTrue(value);
+    }
+    
+    private static Boolean not(Boolean value) {
+        return value == null ? null : !value;
+    }
+    
+    static boolean compare(String operator, int order) {
+        switch (operator) {
+            case "=": case "==": return order == 0;
+            case "!=": case "<>": return order != 0;
+            case "<": return order < 0;
+            case "<=": return order <= 0;
+            case ">": return order > 0;
+            default: return order >= 0;
+        }
+    }
+    
+    /**
+     * Node of a parsed condition; evaluates to a value, or to a Boolean or null (unknown) for predicates
+     */
+    abstract static class Expr {
+        abstract Object eval(Map<String, Object> record);
+    }
+    
+    static final class Column extends Expr {
+        final String name;
+        
+        Column(String name) {
+            this.name = name;
+        }
+        
+        @Override
+        Object eval(Map<String, Object> record) {
+            return record.get(name);
+        }
+    }
+    
+    static final class Literal extends Expr {
+        final Object value;
+        
+        Literal(Object value) {
+            this.value = value;
+        }
+        
+        @Override
+        Object eval(Map<String, Object> record) {
+            return value;
+        }
+    }
+    
+    static final class Comparison extends Expr {
+        final String operator;
+        final Expr left;
+        final Expr right;
+        
+        Comparison(String operator, Expr left, Expr right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        Object eval(Map<String, Object> record) {
+            Object a = left.eval(record);
+            Object b = right.eval(record);
+            return a == null || b == null ? null : compare(operator, Values.compare(a, b));
+        }
+    }
+    
+    static final class And extends Expr {
+        final Expr left;
+        final Expr right;
+        
+        And(Expr left, Expr right) {
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        Object eval(Map<String, Object> record) {
+            Boolean a = truth(left.eval(record));
+            if (Boolean.FALSE.equals(a)) {
+                return false;
+            }
+            Boolean b = truth(right.eval(record));
+            return Boolean.FALSE.equals(b) ? Boolean.FALSE : (a == null || b == null ? null : Boolean.TRUE);
+        }
+    }
+    
+    static final class Or extends Expr {
+        final Expr left;
+        final Expr right;
+        
+        Or(Expr left, Expr right) {
+            this.left = left;
+            this.right = right;
+        }
+        
+        @Override
+        Object eval(Map<String, Object> record) {
+            Boolean a = truth(left.eval(record));
+            if (Boolean.TRUE.equals(a)) {
+                return true;
+            }
+            Boolean b = truth(right.eval(record));
+            return Boolean.TRUE.equals(b) ? Boolean.TRUE : (a == null || b == null ? null : Boolean.FALSE);
+        }
+    }
+    
+    static final class Not extends Expr {
+        final Expr operand;
+        
+        Not(Expr operand) {
+            this.operand = operand;
+        }
+        
+        @Override
+        Object eval(Map<String, Object> record) {
+            return not(truth(operand.eval(record)));
+        }
+    }
+    
+    static final class IsNull extends Expr {
+        final Expr operand;
+        final boolean negated;
+        
+        IsNull(Expr operand, boolean negated) {
+            this.operand = operand;
+            this.negated = negated;
+        }
+        
+        @Override
+        Object eval(Map<String, Object> record) {
+            return (operand.eval(record) == null) != negated;
+        }
+    }
+    
+    static final class In extends Expr {
+        final Expr operand;
+        final List<Expr> items;
+        final boolean negated;
+        
+        In(Expr operand, List<Expr> items, boolean negated) {
+            this.operand = operand;
+            this.items = items;
+            this.negated = negated;
+        }
+        
+        @Override
+        Object eval(Map<String, Object> record) {
+            Object value = operand.eval(record);
+            if (value == null) {
+                return null;
+            }
+            // As in SQL, a null candidate makes the result unknown unless another candidate matches
+            boolean unknown = false;
+            for (Expr item : items) {
+                Object candidate = item.eval(record);
+                if (candidate == null) {
+                    unknown = true;
+                } else if (Values.equal(value, candidate)) {
+                    return !negated;
+                }
+            }
+            return unknown ? null : negated;
+        }
+    }
+    
+    static final class Like extends Expr {
+        final Expr operand;
+        final Expr pattern;
+        final boolean negated;
+        // Compiled once when the pattern is a literal
+        private final Pattern compiled;
+        
+        Like(Expr operand, Expr pattern, boolean negated) {
+            this.operand = operand;
+            this.pattern = pattern;
+            this.negated = negated;
+            this.compiled = pattern instanceof Literal && ((Literal) pattern).value != null
+                    ? compile(((Literal) pattern).value.toString()) : null;
+        }
+        
+        @Override
+        Object eval(Map<String, Object> record) {
+            Object value = operand.eval(record);
+            if (value == null) {
+                return null;
+            }
+            Pattern regex = compiled;
+            if (regex == null) {
+                Object p = pattern.eval(record);
+                if (p == null) {
+                    return null;
+                }
+                regex = compile(p.toString());
+            }
+            return regex.matcher(value.toString()).matches() != negated;
+        }
+        
+        private static Pattern compile(String pattern) {
+            StringBuilder regex = new StringBuilder();
+            for (char c : pattern.toCharArray()) {
+                if (c == '%') {
+                    regex.append(".*");
+                } else if (c == '_') {
+                    regex.append('.');
+                } else {
+                    regex.append(Pattern.quote(String.valueOf(c)));
+                }
+            }
+            return Pattern.compile(regex.toString(), Pattern.DOTALL);
+        }
+    }
+    
+    static final class Between extends Expr {
+        final Expr operand;
+        final Expr low;
+        final Expr high;
+        final boolean negated;
+        
+        Between(Expr operand, Expr low, Expr high, boolean negated) {
+            this.operand = operand;
+            this.low = low;
+            this.high = high;
+            this.negated = negated;
+        }
+        
+        @Override
+        Object eval(Map<String, Object> record) {
+            Object value = operand.eval(record);
+            Object lo = low.eval(record);
+            Object hi = high.eval(record);
+            if (value == null || lo == null || hi == null) {
+                return null;
+            }
+            return (Values.compare(value, lo) >= 0 && Values.compare(value, hi) <= 0) != negated;
+        }
+    }
+    
+    private enum TokenType { IDENTIFIER, STRING, NUMBER, SYMBOL }
+    
+    private static class Token {
+        final TokenType type;
+        final String text;
+        
+        Token(TokenType type, String text) {
+            this.type = type;
+            this.text = text;
+        }
+        
+        boolean isKeyword(String keyword) {
+            return type == TokenType.IDENTIFIER && text.equalsIgnoreCase(keyword);
+        }
+        
+        boolean isSymbol(String symbol) {
+            return type == TokenType.SYMBOL && text.equals(symbol);
+        }
+    }
+    
+    private static class Parser {
+        private final String text;
+        private final List<Token> tokens = new ArrayList<>();
+        private int position;
+        
+        Parser(String text) {
+            this.text = text;
+            tokenize();
+        }
+        
+        Expr parseOr() {
+            Expr left = parseAnd();
+            while (accept("OR")) {
+                left = new Or(left, parseAnd());
+            }
+            return left;
+        }
+        
+        private Expr parseAnd() {
+            Expr left = parseNot();
+            while (accept("AND")) {
+                left = new And(left, parseNot());
+            }
+            return left;
+        }
+        
+        private Expr parseNot() {
+            if (accept("NOT")) {
+                return new Not(parseNot());
+            }
+            return parsePredicate();
+        }
+        
+        private Expr parsePredicate() {
+            Expr left = parseOperand();
+            Token next = peek();
+            if (next == null) {
+                return left;
+            }
+            
+            if (next.type == TokenType.SYMBOL && isComparison(next.text)) {
+                position++;
+                return new Comparison(next.text, left, parseOperand());
+            }
+            if (accept("IS")) {
+                boolean negated = accept("NOT");
+                expect("NULL");
+                return new IsNull(left, negated);
+            }
+            
+            boolean negated = accept("NOT");
+            if (accept("IN")) {
+                return new In(left, parseList(), negated);
+            }
+            if (accept("LIKE")) {
+                return new Like(left, parseOperand(), negated);
+            }
+            if (accept("BETWEEN")) {
+                Expr low = parseOperand();
+                expect("AND");
+                return new Between(left, low, parseOperand(), negated);
+            }
+            if (negated) {
+                throw error("Expected IN, LIKE or BETWEEN after NOT");
+            }
+            return left;
+        }
+        
+        private List<Expr> parseList() {
+            expectSymbol("(");
+            List<Expr> items = new ArrayList<>();
+            do {
+                items.add(parseOperand());
+            } while (acceptSymbol(","));
+            expectSymbol(")");
+            return items;
+        }
+        
+        private Expr parseOperand() {
+            Token token = next();
+            if (token.isSymbol("(")) {
+                Expr inner = parseOr();
+                expectSymbol(")");
+                return inner;
+            }
+            switch (token.type) {
+                case STRING:
+                    return new Literal(token.text);
+                case NUMBER:
+                    return new Literal(Values.toNumber(Values.toDecimal(token.text)));
+                case IDENTIFIER:
+                    if (token.isKeyword("TRUE") || token.isKeyword("FALSE")) {
+                        return new Literal(token.isKeyword("TRUE"));
+                    }
+                    if (token.isKeyword("NULL")) {
+                        return new Literal(null);
+                    }
+                    return new Column(token.text);
+                default:
+                    throw error("Unexpected '" + token.text + "'");
+            }
+        }
+        
+        private static boolean isComparison(String symbol) {
+            switch (symbol) {
+                case "=": case "==": case "!=": case "<>": case "<": case "<=": case ">": case ">=":
+                    return true;
+                default:
+                    return false;
+            }
+        }
+        
+        Token peek() {
+            return position < tokens.size() ? tokens.get(position) : null;
+        }
+        
+        private Token next() {
+            if (position >= tokens.size()) {
+                throw error("Unexpected end of condition");
+            }
+            return tokens.get(position++);
+        }
+        
+        private boolean accept(String keyword) {
+            Token token = peek();
+            if (token != null && token.isKeyword(keyword)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+        
+        private boolean acceptSymbol(String symbol) {
+            Token token = peek();
+            if (token != null && token.isSymbol(symbol)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+        
+        private void expect(String keyword) {
+            if (!accept(keyword)) {
+                throw error("Expected " + keyword);
+            }
+        }
+        
+        private void expectSymbol(String symbol) {
+            if (!acceptSymbol(symbol)) {
+                throw error("Expected '" + symbol + "'");
+            }
+        }
+        
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " in condition: " + text);
+        }
+        
+        private void tokenize() {
+            int i = 0;
+            while (i < text.length()) {
+                char c = text.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '\'') {
+                    StringBuilder value = new StringBuilder();
+                    i++;
+                    while (true) {
+                        if (i >= text.length()) {
+                            throw error("Unterminated string");
+                        }
+                        if (text.charAt(i) == '\'') {
+                            // A doubled quote stands for one quote
+                            if (i + 1 < text.length() && text.charAt(i + 1) == '\'') {
+                                value.append('\'');
+                                i += 2;
+                                continue;
+                            }
+                            i++;
+                            break;
+                        }
+                        value.append(text.charAt(i++));
+                    }
+                    tokens.add(new Token(TokenType.STRING, value.toString()));
+                } else if (c == '`') {
+                    int end = text.indexOf('`', i + 1);
+                    if (end < 0) {
+                        throw error("Unterminated identifier");
+                    }
+                    tokens.add(new Token(TokenType.IDENTIFIER, text.substring(i + 1, end)));
+                    i = end + 1;
+                } else if (Character.isDigit(c) || (c == '.' && i + 1 < text.length() && Character.isDigit(text.charAt(i + 1)))
+                        || (c == '-' && startsNumber(i))) {
+                    int start = i++;
+                    while (i < text.length() && (Character.isDigit(text.charAt(i)) || text.charAt(i) == '.')) {
+                        i++;
+                    }
+                    tokens.add(new Token(TokenType.NUMBER, text.substring(start, i)));
+                } else if (Character.isLetter(c) || c == '_') {
+                    int start = i;
+                    while (i < text.length() && (Character.isLetterOrDigit(text.charAt(i)) || text.charAt(i) == '_' || text.charAt(i) == '.')) {
+                        i++;
+                    }
+                    tokens.add(new Token(TokenType.IDENTIFIER, text.substring(start, i)));
+                } else {
+                    String two = i + 1 < text.length() ? text.substring(i, i + 2) : "";
+                    if (two.equals("<=") || two.equals(">=") || two.equals("!=") || two.equals("<>") || two.equals("==")) {
+                        tokens.add(new Token(TokenType.SYMBOL, two));
+                        i += 2;
+                    } else if ("=<>(),".indexOf(c) >= 0) {
+                        tokens.add(new Token(TokenType.SYMBOL, String.valueOf(c)));
+                        i++;
+                    } else {
+                        throw error("Unexpected character '" + c + "'");
+                    }
+                }
+            }
+        }
+        
+        /**
+         * Whether a minus sign at the position is the sign of a number rather than an operator
+         */
+        private boolean startsNumber(int i) {
+            if (i + 1 >= text.length() || !(Character.isDigit(text.charAt(i + 1)) || text.charAt(i + 1) == '.')) {
+                return false;
+            }
+            Token previous = tokens.isEmpty() ? null : tokens.get(tokens.size() - 1);
+            return previous == null || previous.type == TokenType.SYMBOL && !previous.isSymbol(")")
+                    || previous.type == TokenType.IDENTIFIER && isKeyword(previous.text);
+        }
+        
+        private static boolean isKeyword(String word) {
+            switch (word.toUpperCase(Locale.ROOT)) {
+                case "AND": case "OR": case "NOT": case "IN": case "LIKE": case "BETWEEN": case "IS":
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,363 @@
+package com.prophecy.testing.engine;
+
+import com.prophecy.testing.data.MappedDataFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Source of batches parsed from a memory-mapped CSV file straight into column vectors, without
+ * creating records or strings for numeric and boolean fields. Fields are split on commas and trimmed
+ * like the CSV loaders do; blank lines are skipped. Columns of the file that are not in the schema are
+ * not decoded. Without a schema, column types are inferred from every line of the file before the first
+ * batch, because the operators downstream are compiled against the schema of their source.
+ */
+public class CsvBatchSource implements BatchOperator {
+    private static final long CHUNK_BYTES = 256L * 1024 * 1024;
+    // Largest power of ten that is an exact double, bounding the fast decimal parsing path
+    private static final int MAX_EXACT_POWER = 22;
+    private static final double[] POWERS_OF_TEN = new double[MAX_EXACT_POWER + 1];
+    
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_EXACT_POWER; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+    
+    private final String filePath;
+    private final MappedDataFile file;
+    private final List<ByteBuffer> chunks;
+    private final Batch batch;
+    // Schema column of each file column, or -1 when the file column is not read
+    private final int[] targetColumns;
+    // Schema columns that are not in the file
+    private final List<Integer> missingColumns = new ArrayList<>();
+    private final int[] fieldBounds;
+    private byte[] scratch = new byte[64];
+    private int chunkIndex;
+    private int position;
+    
+    public CsvBatchSource(String filePath, BatchSchema schema, int batchSize) throws IOException {
+        this.filePath = filePath;
+        this.file = MappedDataFile.open(filePath);
+        try {
+            String[] header = new String(file.readFirstLine(), StandardCharsets.UTF_8).split(",");
+            for (int i = 0; i < header.length; i++) {
+                header[i] = header[i].trim();
+            }
+            long dataStart = file.nextLineStart(0);
+            this.chunks = dataStart < file.size() ? file.splitIntoChunks(dataStart, CHUNK_BYTES) : new ArrayList<>();
+            BatchSchema batchSchema = schema != null ? schema : inferSchema(header, chunks);
+            
+            this.batch = new Batch(batchSchema, batchSize);
+            this.targetColumns = new int[header.length];
+            for (int i = 0; i < header.length; i++) {
+                targetColumns[i] = batchSchema.indexOf(header[i]);
+            }
+            this.fieldBounds = new int[header.length * 2];
+            for (int column = 0; column < batchSchema.size(); column++) {
+                if (!Arrays.asList(header).contains(batchSchema.getName(column))) {
+                    missingColumns.add(column);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+    
+    @Override
+    public BatchSchema getSchema() {
+        return batch.getSchema();
+    }
+    
+    @Override
+    public Batch next() {
+        batch.reset();
+        int rows = 0;
+        int capacity = batch.capacity();
+        
+        while (rows < capacity && chunkIndex < chunks.size()) {
+            ByteBuffer chunk = chunks.get(chunkIndex);
+            int limit = chunk.limit();
+            if (position >= limit) {
+                chunkIndex++;
+                position = 0;
+                continue;
+            }
+            
+            int lineEnd = position;
+            while (lineEnd < limit && chunk.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int nextLine = lineEnd + 1;
+            int fields = splitLine(chunk, position, lineEnd, fieldBounds);
+            if (fields > 0) {
+                for (int field = 0; field < targetColumns.length; field++) {
+                    int column = targetColumns[field];
+                    if (column < 0) {
+                        continue;
+                    }
+                    if (field < fields) {
+                        setField(batch.getColumn(column), rows, chunk, fieldBounds[field * 2], fieldBounds[field * 2 + 1]);
+                    } else {
+                        batch.getColumn(column).setNull(rows);
+                    }
+                }
+                rows++;
+            }
+            position = nextLine;
+        }
+        
+        for (int column : missingColumns) {
+            for (int row = 0; row < rows; row++) {
+                batch.getColumn(column).setNull(row);
+            }
+        }
+        batch.setSize(rows);
+        return rows > 0 ? batch : null;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+    
+    /**
+     * Record trimmed bounds of the fields of a line, returning the number of fields, or 0 for a blank line
+     */
+    private static int splitLine(ByteBuffer chunk, int start, int end, int[] bounds) {
+        if (end > start && chunk.get(end - 1) == '\r') {
+            end--;
+        }
+        int columns = bounds.length / 2;
+        int fields = 0;
+        int fieldStart = start;
+        boolean blank = true;
+        for (int position = start; position <= end && fields < columns; position++) {
+            if (position == end || chunk.get(position) == ',') {
+                int from = fieldStart;
+                int to = position;
+                while (from < to && (chunk.get(from) & 0xFF) <= ' ') {
+                    from++;
+                }
+                while (to > from && (chunk.get(to - 1) & 0xFF) <= ' ') {
+                    to--;
+                }
+                blank &= from == to;
+                bounds[fields * 2] = from;
+                bounds[fields * 2 + 1] = to;
+                fields++;
+                fieldStart = position + 1;
+            }
+        }
+        return blank && fields <= 1 ? 0 : fields;
+    }
+    
+    private void setField(ColumnVector vector, int row, ByteBuffer chunk, int from, int to) {
+        if (from == to && vector.getType() != ColumnVector.Type.STRING) {
+            vector.setNull(row);
+            return;
+        }
+        switch (vector.getType()) {
+            case LONG:
+                ((ColumnVector.LongVector) vector).getValues()[row] = parseLong(chunk, from, to);
+                break;
+            case DOUBLE:
+                ((ColumnVector.DoubleVector) vector).getValues()[row] = parseDouble(chunk, from, to);
+                break;
+            case BOOLEAN:
+                ((ColumnVector.BooleanVector) vector).getValues()[row] = isTrue(chunk, from, to);
+                break;
+            default:
+                ((ColumnVector.StringVector) vector).getValues()[row] = decode(chunk, from, to);
+                break;
+        }
+    }
+    
+    private long parseLong(ByteBuffer chunk, int from, int to) {
+        int i = from;
+        boolean negative = chunk.get(i) == '-';
+        if (negative || chunk.get(i) == '+') {
+            i++;
+        }
+        // 18 digits cannot overflow a long
+        if (i < to && to - i <= 18) {
+            long value = 0;
+            for (; i < to; i++) {
+                int digit = chunk.get(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                value = value * 10 + digit;
+            }
+            if (i == to) {
+                return negative ? -value : value;
+            }
+        }
+        String text = decode(chunk, from, to);
+        try {
+            return Long.parseLong(text.startsWith("+") ? text.substring(1) : text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Value '" + text + "' in " + filePath + " is not an integer");
+        }
+    }
+    
+    private double parseDouble(ByteBuffer chunk, int from, int to) {
+        int i = from;
+        boolean negative = chunk.get(i) == '-';
+        if (negative || chunk.get(i) == '+') {
+            i++;
+        }
+        // Up to 15 significant digits and an exact power of ten divide to the correctly rounded double
+        long mantissa = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < to && digits <= 15; i++) {
+            byte b = chunk.get(i);
+            if (b == '.' && scale < 0) {
+                scale = 0;
+                continue;
+            }
+            int digit = b - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            mantissa = mantissa * 10 + digit;
+            digits++;
+            if (scale >= 0) {
+                scale++;
+            }
+        }
+        if (i == to && digits > 0 && digits <= 15) {
+            double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+            return negative ? -value : value;
+        }
+        String text = decode(chunk, from, to);
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Value '" + text + "' in " + filePath + " is not a number");
+        }
+    }
+    
+    private static boolean isTrue(ByteBuffer chunk, int from, int to) {
+        if (to - from != 4) {
+            return false;
+        }
+        return (chunk.get(from) | 0x20) == 't' && (chunk.get(from + 1) | 0x20) == 'r'
+                && (chunk.get(from + 2) | 0x20) == 'u' && (chunk.get(from + 3) | 0x20) == 'e';
+    }
+    
+    private static boolean isFalse(ByteBuffer chunk, int from, int to) {
+        if (to - from != 5) {
+            return false;
+        }
+        return (chunk.get(from) | 0x20) == 'f' && (chunk.get(from + 1) | 0x20) == 'a' && (chunk.get(from + 2) | 0x20) == 'l'
+                && (chunk.get(from + 3) | 0x20) == 's' && (chunk.get(from + 4) | 0x20) == 'e';
+    }
+    
+    private String decode(ByteBuffer chunk, int from, int to) {
+        int length = to - from;
+        if (length > scratch.length) {
+            scratch = Arrays.copyOf(scratch, Math.max(length, scratch.length * 2));
+        }
+        for (int i = 0; i < length; i++) {
+            scratch[i] = chunk.get(from + i);
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Column types that hold every value of the file; columns with only empty values are strings.
+     * The pass ends early once every column has widened to a string.
+     */
+    private BatchSchema inferSchema(String[] header, List<ByteBuffer> chunks) {
+        ColumnVector.Type[] types = new ColumnVector.Type[header.length];
+        int[] bounds = new int[header.length * 2];
+        int open = header.length;
+        for (ByteBuffer chunk : chunks) {
+            int start = 0;
+            while (start < chunk.limit() && open > 0) {
+                int end = start;
+                while (end < chunk.limit() && chunk.get(end) != '\n') {
+                    end++;
+                }
+                int fields = splitLine(chunk, start, end, bounds);
+                for (int field = 0; field < fields; field++) {
+                    if (types[field] != ColumnVector.Type.STRING && bounds[field * 2] < bounds[field * 2 + 1]) {
+                        types[field] = BatchSchema.widen(types[field], classify(chunk, bounds[field * 2], bounds[field * 2 + 1]));
+                        open -= types[field] == ColumnVector.Type.STRING ? 1 : 0;
+                    }
+                }
+                start = end + 1;
+            }
+            if (open == 0) {
+                break;
+            }
+        }
+        
+        List<ColumnVector.Type> columnTypes = new ArrayList<>();
+        for (ColumnVector.Type type : types) {
+            columnTypes.add(type != null ? type : ColumnVector.Type.STRING);
+        }
+        return new BatchSchema(Arrays.asList(header), columnTypes);
+    }
+    
+    /**
+     * Type of a non-empty field as the parsers of this source read it: integers without a decimal point or
+     * exponent are longs, other numbers doubles
+     */
+    private ColumnVector.Type classify(ByteBuffer chunk, int from, int to) {
+        if (isTrue(chunk, from, to) || isFalse(chunk, from, to)) {
+            return ColumnVector.Type.BOOLEAN;
+        }
+        int i = from;
+        if (chunk.get(i) == '-' || chunk.get(i) == '+') {
+            i++;
+        }
+        int integerDigits = digits(chunk, i, to);
+        i += integerDigits;
+        int fractionDigits = 0;
+        boolean point = i < to && chunk.get(i) == '.';
+        if (point) {
+            fractionDigits = digits(chunk, ++i, to);
+            i += fractionDigits;
+        }
+        if (integerDigits + fractionDigits == 0) {
+            return ColumnVector.Type.STRING;
+        }
+        boolean exponent = i < to && (chunk.get(i) | 0x20) == 'e';
+        if (exponent) {
+            if (++i < to && (chunk.get(i) == '-' || chunk.get(i) == '+')) {
+                i++;
+            }
+            int exponentDigits = digits(chunk, i, to);
+            if (exponentDigits == 0) {
+                return ColumnVector.Type.STRING;
+            }
+            i += exponentDigits;
+        }
+        if (i < to) {
+            return ColumnVector.Type.STRING;
+        }
+        if (point || exponent) {
+            return ColumnVector.Type.DOUBLE;
+        }
+        // 18 digits always fit a long; longer integers are checked against its range
+        return integerDigits <= 18 ? ColumnVector.Type.LONG : BatchSchema.inferType(decode(chunk, from, to));
+    }
+    
+    private static int digits(ByteBuffer chunk, int from, int to) {
+        int i = from;
+        while (i < to && chunk.get(i) >= '0' && chunk.get(i) <= '9') {
+            i++;
+        }
+        return i - from;
+    }
+}
\ No newline at end of file
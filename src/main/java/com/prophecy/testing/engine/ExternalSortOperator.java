@@ -0,0 +1,48 @@
+package com.prophecy.testing.engine;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Sort of all input rows by an ExternalSorter, like the record SORT stage, for inputs larger than
+ * the memory budget. The input is consumed on the first call for a batch.
+ */
+final class ExternalSortOperator implements BatchOperator {
+    private final BatchOperator input;
+    private final ExternalSorter sorter;
+    private BatchOperator sorted;
+    
+    ExternalSortOperator(BatchOperator input, List<String> orderBy, long memoryBudget, String spillDirectory, int batchSize) {
+        this.input = input;
+        this.sorter = new ExternalSorter(input.getSchema(), orderBy, memoryBudget, spillDirectory, batchSize);
+    }
+    
+    @Override
+    public BatchSchema getSchema() {
+        return input.getSchema();
+    }
+    
+    @Override
+    public Batch next() throws IOException {
+        if (sorted == null) {
+            Batch batch;
+            while ((batch = input.next()) != null) {
+                sorter.add(batch);
+            }
+            sorted = sorter.sorted();
+        }
+        return sorted.next();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        try {
+            if (sorted != null) {
+                sorted.close();
+            }
+            input.close();
+        } finally {
+            sorter.close();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,440 @@
+package com.prophecy.testing.engine;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * External merge sort of batch rows by a RowComparator. Rows are copied into chunks until they
+ * outgrow the memory budget; the chunks are then sorted and written to a run file. Sorted rows come
+ * from memory when no run was written, and otherwise from a k-way merge of the runs through a loser
+ * tree, with intermediate merge passes when there are more runs than can be merged at once. The sort
+ * is stable: rows with equal keys keep their order of arrival.
+ */
+public final class ExternalSorter implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(ExternalSorter.class);
+    // Runs merged at once, each holding one batch in memory while merging
+    private static final int MAX_FAN_IN = 64;
+    private static final int INSERTION_SORT_ROWS = 16;
+    
+    private final BatchSchema schema;
+    private final RowComparator comparator;
+    private final long memoryBudget;
+    private final String spillDirectory;
+    private final int batchSize;
+    
+    private final List<Batch> chunks = new ArrayList<>();
+    private final Deque<SpillFile> runs = new ArrayDeque<>();
+    private Batch chunk;
+    private long bytes;
+    private long rows;
+    private boolean sorted;
+    
+    public ExternalSorter(BatchSchema schema, List<String> orderBy, long memoryBudget, String spillDirectory, int batchSize) {
+        this(schema, new RowComparator(schema, orderBy), memoryBudget, spillDirectory, batchSize);
+    }
+    
+    public ExternalSorter(BatchSchema schema, RowComparator comparator, long memoryBudget, String spillDirectory, int batchSize) {
+        this.schema = schema;
+        this.comparator = comparator;
+        this.memoryBudget = memoryBudget;
+        this.spillDirectory = spillDirectory;
+        this.batchSize = batchSize;
+    }
+    
+    public BatchSchema getSchema() {
+        return schema;
+    }
+    
+    public long getRowCount() {
+        return rows;
+    }
+    
+    /**
+     * Add the selected rows of a batch of this sorter's schema; the batch may be reused afterwards
+     */
+    public void add(Batch batch) throws IOException {
+        if (sorted) {
+            throw new IllegalStateException("Rows cannot be added after sorting");
+        }
+        int n = batch.getSelectedCount();
+        for (int i = 0; i < n; i++) {
+            if (chunk == null || chunk.getSize() == chunk.capacity()) {
+                if (bytes > memoryBudget) {
+                    writeRun();
+                }
+                chunk = new Batch(schema, batchSize);
+                chunks.add(chunk);
+                bytes += chunkBytes();
+            }
+            int row = batch.selectedRow(i);
+            int target = chunk.getSize();
+            for (int column = 0; column < schema.size(); column++) {
+                ColumnVector.copy(batch.getColumn(column), row, chunk.getColumn(column), target);
+                if (schema.getType(column) == ColumnVector.Type.STRING && !batch.getColumn(column).isNull(row)) {
+                    bytes += 56 + 2L * ((ColumnVector.StringVector) chunk.getColumn(column)).getValues()[target].length();
+                }
+            }
+            chunk.setSize(target + 1);
+            rows++;
+        }
+    }
+    
+    /**
+     * All rows added, in order; can be called once
+     */
+    public BatchOperator sorted() throws IOException {
+        if (sorted) {
+            throw new IllegalStateException("Rows are already sorted");
+        }
+        sorted = true;
+        if (runs.isEmpty()) {
+            return new ChunkReader(sortChunks());
+        }
+        if (!chunks.isEmpty()) {
+            writeRun();
+        }
+        while (runs.size() > MAX_FAN_IN) {
+            // Each pass merges groups of consecutive runs, keeping runs in order of arrival for a stable sort
+            int remaining = runs.size();
+            while (remaining > 0) {
+                int fanIn = Math.min(MAX_FAN_IN, remaining);
+                remaining -= fanIn;
+                if (fanIn == 1) {
+                    runs.add(runs.remove());
+                    continue;
+                }
+                List<BatchOperator> inputs = new ArrayList<>();
+                for (int i = 0; i < fanIn; i++) {
+                    inputs.add(runs.remove().read(batchSize));
+                }
+                SpillFile run = new SpillFile(schema, spillDirectory, "sort");
+                runs.add(run);
+                try (Merger merger = new Merger(inputs)) {
+                    Batch batch;
+                    while ((batch = merger.next()) != null) {
+                        for (int row = 0; row < batch.getSize(); row++) {
+                            run.write(batch, row);
+                        }
+                    }
+                }
+            }
+        }
+        List<BatchOperator> inputs = new ArrayList<>();
+        while (!runs.isEmpty()) {
+            inputs.add(runs.remove().read(batchSize));
+        }
+        return new Merger(inputs);
+    }
+    
+    /**
+     * Delete run files that were not read
+     */
+    @Override
+    public void close() throws IOException {
+        while (!runs.isEmpty()) {
+            runs.remove().discard();
+        }
+        chunks.clear();
+    }
+    
+    private long chunkBytes() {
+        long bytes = 0;
+        for (int column = 0; column < schema.size(); column++) {
+            bytes += batchSize * (schema.getType(column) == ColumnVector.Type.BOOLEAN ? 2L : 9L);
+        }
+        // The row reference used while sorting
+        return bytes + 8L * batchSize;
+    }
+    
+    private void writeRun() throws IOException {
+        long[] order = sortChunks();
+        SpillFile run = new SpillFile(schema, spillDirectory, "sort");
+        try {
+            for (long reference : order) {
+                run.write(chunks.get(chunkOf(reference)), rowOf(reference));
+            }
+        } catch (IOException | RuntimeException e) {
+            run.discard();
+            throw e;
+        }
+        runs.add(run);
+        logger.info("Sort of {} rows exceeds the memory budget of {} bytes; wrote run {} of {} rows",
+                   rows, memoryBudget, runs.size(), order.length);
+        chunks.clear();
+        chunk = null;
+        bytes = 0;
+    }
+    
+    /**
+     * References to the rows of the chunks in sorted order, as chunk index and row in one long
+     */
+    private long[] sortChunks() {
+        int count = 0;
+        for (Batch batch : chunks) {
+            count += batch.getSize();
+        }
+        long[] order = new long[count];
+        long[] prefixes = comparator.hasPrefix() ? new long[count] : null;
+        int i = 0;
+        for (int c = 0; c < chunks.size(); c++) {
+            Batch batch = chunks.get(c);
+            for (int row = 0; row < batch.getSize(); row++) {
+                if (prefixes != null) {
+                    prefixes[i] = comparator.prefix(batch, row);
+                }
+                order[i++] = (long) c << 32 | row;
+            }
+        }
+        new MergeSort(order, prefixes).sort(0, count);
+        return order;
+    }
+    
+    private static int chunkOf(long reference) {
+        return (int) (reference >>> 32);
+    }
+    
+    private static int rowOf(long reference) {
+        return (int) reference;
+    }
+    
+    /**
+     * Stable merge sort of row references, comparing the prefixes of the first sort column before the rows
+     */
+    private final class MergeSort {
+        private final long[] order;
+        private final long[] prefixes;
+        private final long[] orderScratch;
+        private final long[] prefixScratch;
+        
+        MergeSort(long[] order, long[] prefixes) {
+            this.order = order;
+            this.prefixes = prefixes;
+            this.orderScratch = new long[order.length];
+            this.prefixScratch = prefixes != null ? new long[prefixes.length] : null;
+        }
+        
+        private int compare(long[] order, long[] prefixes, int a, long referenceB, long prefixB) {
+            if (prefixes != null) {
+                int result = comparator.comparePrefixes(prefixes[a], prefixB);
+                if (result != 0) {
+                    return result;
+                }
+            }
+            long referenceA = order[a];
+            return comparator.compare(chunks.get(chunkOf(referenceA)), rowOf(referenceA),
+                    chunks.get(chunkOf(referenceB)), rowOf(referenceB));
+        }
+        
+        /**
+         * Sort the references from index from to index to (exclusive)
+         */
+        void sort(int from, int to) {
+            if (to - from <= INSERTION_SORT_ROWS) {
+                for (int i = from + 1; i < to; i++) {
+                    long reference = order[i];
+                    long prefix = prefixes != null ? prefixes[i] : 0;
+                    int j = i - 1;
+                    while (j >= from && compare(order, prefixes, j, reference, prefix) > 0) {
+                        move(order, prefixes, j, order, prefixes, j + 1);
+                        j--;
+                    }
+                    order[j + 1] = reference;
+                    if (prefixes != null) {
+                        prefixes[j + 1] = prefix;
+                    }
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            sort(from, middle);
+            sort(middle, to);
+            if (compare(order, prefixes, middle - 1, order[middle], prefixes != null ? prefixes[middle] : 0) <= 0) {
+                return;
+            }
+            System.arraycopy(order, from, orderScratch, from, to - from);
+            if (prefixes != null) {
+                System.arraycopy(prefixes, from, prefixScratch, from, to - from);
+            }
+            int left = from;
+            int right = middle;
+            for (int i = from; i < to; i++) {
+                boolean takeLeft = right >= to || left < middle && compare(orderScratch, prefixScratch, left,
+                        orderScratch[right], prefixScratch != null ? prefixScratch[right] : 0) <= 0;
+                move(orderScratch, prefixScratch, takeLeft ? left++ : right++, order, prefixes, i);
+            }
+        }
+        
+        private void move(long[] fromOrder, long[] fromPrefixes, int from, long[] toOrder, long[] toPrefixes, int to) {
+            toOrder[to] = fromOrder[from];
+            if (fromPrefixes != null) {
+                toPrefixes[to] = fromPrefixes[from];
+            }
+        }
+    }
+    
+    /**
+     * Rows of the chunks held in memory, in sorted order
+     */
+    private final class ChunkReader implements BatchOperator {
+        private final long[] order;
+        private final Batch output = new Batch(schema, batchSize);
+        private int position;
+        
+        ChunkReader(long[] order) {
+            this.order = order;
+        }
+        
+        @Override
+        public BatchSchema getSchema() {
+            return schema;
+        }
+        
+        @Override
+        public Batch next() {
+            if (position >= order.length) {
+                return null;
+            }
+            output.reset();
+            int count = Math.min(output.capacity(), order.length - position);
+            for (int row = 0; row < count; row++) {
+                long reference = order[position + row];
+                Batch batch = chunks.get(chunkOf(reference));
+                for (int column = 0; column < schema.size(); column++) {
+                    ColumnVector.copy(batch.getColumn(column), rowOf(reference), output.getColumn(column), row);
+                }
+            }
+            position += count;
+            output.setSize(count);
+            return output;
+        }
+        
+        @Override
+        public void close() {
+            position = order.length;
+            chunks.clear();
+        }
+    }
+    
+    /**
+     * K-way merge of sorted inputs through a loser tree: each inner node holds the input that lost the
+     * comparison there, and node 0 the overall winner, so each row taken costs log k comparisons
+     * along the path of its input. Ties go to the earlier input, which keeps the merge stable.
+     */
+    private final class Merger implements BatchOperator {
+        private final List<BatchOperator> inputs;
+        private final int k;
+        private final Batch[] batches;
+        private final int[] positions;
+        private final int[] tree;
+        private final Batch output = new Batch(schema, batchSize);
+        
+        Merger(List<BatchOperator> inputs) throws IOException {
+            this.inputs = inputs;
+            this.k = inputs.size();
+            this.batches = new Batch[k];
+            this.positions = new int[k];
+            this.tree = new int[k];
+            for (int i = 0; i < k; i++) {
+                batches[i] = nextBatch(i);
+            }
+            // Index k stands for a row before all others, so that the first pass fills the tree with real losers
+            Arrays.fill(tree, k);
+            for (int i = k - 1; i >= 0; i--) {
+                replay(i);
+            }
+        }
+        
+        private Batch nextBatch(int input) throws IOException {
+            Batch batch;
+            do {
+                batch = inputs.get(input).next();
+            } while (batch != null && batch.getSelectedCount() == 0);
+            return batch;
+        }
+        
+        /**
+         * Play the current row of an input up the tree after it changed
+         */
+        private void replay(int input) {
+            int winner = input;
+            for (int node = (input + k) / 2; node > 0; node /= 2) {
+                if (beats(tree[node], winner)) {
+                    int loser = winner;
+                    winner = tree[node];
+                    tree[node] = loser;
+                }
+            }
+            tree[0] = winner;
+        }
+        
+        private boolean beats(int a, int b) {
+            if (a == k || b == k) {
+                return a == k;
+            }
+            if (batches[a] == null || batches[b] == null) {
+                return batches[b] == null && batches[a] != null;
+            }
+            int order = comparator.compare(batches[a], batches[a].selectedRow(positions[a]),
+                    batches[b], batches[b].selectedRow(positions[b]));
+            return order < 0 || order == 0 && a < b;
+        }
+        
+        @Override
+        public BatchSchema getSchema() {
+            return schema;
+        }
+        
+        @Override
+        public Batch next() throws IOException {
+            if (k == 0) {
+                return null;
+            }
+            output.reset();
+            int count = 0;
+            while (count < output.capacity()) {
+                int winner = tree[0];
+                Batch batch = batches[winner];
+                if (batch == null) {
+                    break;
+                }
+                int row = batch.selectedRow(positions[winner]);
+                for (int column = 0; column < schema.size(); column++) {
+                    ColumnVector.copy(batch.getColumn(column), row, output.getColumn(column), count);
+                }
+                count++;
+                if (++positions[winner] == batch.getSelectedCount()) {
+                    batches[winner] = nextBatch(winner);
+                    positions[winner] = 0;
+                }
+                replay(winner);
+            }
+            if (count == 0) {
+                return null;
+            }
+            output.setSize(count);
+            return output;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            IOException error = null;
+            for (BatchOperator input : inputs) {
+                try {
+                    input.close();
+                } catch (IOException e) {
+                    error = error == null ? e : error;
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,484 @@
+package com.prophecy.testing.engine;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Filter that narrows the selection vector of each batch to the rows meeting a condition. The
+ * condition is compiled to selectors over the column vectors: AND narrows the rows the next term
+ * looks at, OR only tests the rows the first term rejected, and NOT is pushed down to the
+ * comparisons, so that rows with nulls stay unknown and are dropped either way. Comparisons of a
+ * column with a literal run as loops over the primitive values; other terms are evaluated row by row
+ * on a view of the batch.
+ */
+public class FilterOperator implements BatchOperator {
+    private final BatchOperator input;
+    private final Selector selector;
+    private final int[] all;
+    private final int[] selection;
+    
+    public FilterOperator(BatchOperator input, Condition condition, int batchSize) {
+        this.input = input;
+        this.selector = compile(condition.getExpression(), false, input.getSchema(), batchSize);
+        this.all = new int[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            all[i] = i;
+        }
+        this.selection = new int[batchSize];
+    }
+    
+    @Override
+    public BatchSchema getSchema() {
+        return input.getSchema();
+    }
+    
+    @Override
+    public Batch next() throws IOException {
+        Batch batch;
+        while ((batch = input.next()) != null) {
+            int[] rows = batch.getSelection() != null ? batch.getSelection() : all;
+            int selected = selector.select(batch, rows, batch.getSelectedCount(), selection);
+            if (selected > 0) {
+                batch.setSelection(selection, selected);
+                return batch;
+            }
+        }
+        return null;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+    
+    /**
+     * Selects the rows for which a term is true, or false when negated; rows where it is unknown are never selected
+     */
+    private abstract static class Selector {
+        /**
+         * Write the selected rows among the first n of in to out, which may be the same array, returning their number
+         */
+        abstract int select(Batch batch, int[] in, int n, int[] out);
+    }
+    
+    private static Selector compile(Condition.Expr expr, boolean negated, BatchSchema schema, int capacity) {
+        if (expr instanceof Condition.Not) {
+            return compile(((Condition.Not) expr).operand, !negated, schema, capacity);
+        }
+        if (expr instanceof Condition.And || expr instanceof Condition.Or) {
+            boolean and = expr instanceof Condition.And;
+            Condition.Expr left = and ? ((Condition.And) expr).left : ((Condition.Or) expr).left;
+            Condition.Expr right = and ? ((Condition.And) expr).right : ((Condition.Or) expr).right;
+            Selector l = compile(left, negated, schema, capacity);
+            Selector r = compile(right, negated, schema, capacity);
+            // NOT (a AND b) is NOT a OR NOT b, and NOT (a OR b) is NOT a AND NOT b
+            return and != negated ? new AllOf(l, r, capacity) : new AnyOf(l, r, capacity);
+        }
+        if (expr instanceof Condition.Comparison) {
+            Selector selector = compileComparison((Condition.Comparison) expr, negated, schema);
+            if (selector != null) {
+                return selector;
+            }
+        }
+        if (expr instanceof Condition.IsNull && ((Condition.IsNull) expr).operand instanceof Condition.Column) {
+            Condition.IsNull isNull = (Condition.IsNull) expr;
+            int column = schema.indexOf(((Condition.Column) isNull.operand).name);
+            if (column >= 0) {
+                return new NullSelector(column, isNull.negated == negated);
+            }
+        }
+        if (expr instanceof Condition.Column) {
+            int column = schema.indexOf(((Condition.Column) expr).name);
+            if (column >= 0 && schema.getType(column) == ColumnVector.Type.BOOLEAN) {
+                return new BooleanSelector(column, !negated);
+            }
+        }
+        return new RowSelector(expr, negated);
+    }
+    
+    /**
+     * Selector for a column compared with a literal, or null when the operands are of other kinds
+     */
+    private static Selector compileComparison(Condition.Comparison comparison, boolean negated, BatchSchema schema) {
+        String operator = comparison.operator;
+        Condition.Expr columnSide = comparison.left;
+        Condition.Expr literalSide = comparison.right;
+        if (columnSide instanceof Condition.Literal && literalSide instanceof Condition.Column) {
+            columnSide = comparison.right;
+            literalSide = comparison.left;
+            operator = mirror(operator);
+        }
+        if (!(columnSide instanceof Condition.Column) || !(literalSide instanceof Condition.Literal)) {
+            return null;
+        }
+        int column = schema.indexOf(((Condition.Column) columnSide).name);
+        if (column < 0) {
+            return null;
+        }
+        Object literal = ((Condition.Literal) literalSide).value;
+        if (literal == null) {
+            return new NoneSelector();
+        }
+        if (negated) {
+            operator = inverse(operator);
+        }
+        
+        ColumnVector.Type type = schema.getType(column);
+        boolean numericLiteral = literal instanceof Number;
+        if (type == ColumnVector.Type.LONG && numericLiteral && literal instanceof Long) {
+            return new LongSelector(column, operator, (Long) literal);
+        }
+        if ((type == ColumnVector.Type.LONG || type == ColumnVector.Type.DOUBLE) && numericLiteral) {
+            return new DoubleSelector(column, operator, ((Number) literal).doubleValue());
+        }
+        if (type == ColumnVector.Type.BOOLEAN && literal instanceof Boolean && isEquality(operator)) {
+            boolean expected = (Boolean) literal == operator.startsWith("=");
+            return new BooleanSelector(column, expected);
+        }
+        return new ValueSelector(column, operator, literal);
+    }
+    
+    private static boolean isEquality(String operator) {
+        return operator.equals("=") || operator.equals("==") || operator.equals("!=") || operator.equals("<>");
+    }
+    
+    /**
+     * Operator with the operands swapped
+     */
+    private static String mirror(String operator) {
+        switch (operator) {
+            case "<": return ">";
+            case "<=": return ">=";
+            case ">": return "<";
+            case ">=": return "<=";
+            default: return operator;
+        }
+    }
+    
+    /**
+     * Operator true exactly where the operator is false, for non-null operands
+     */
+    private static String inverse(String operator) {
+        switch (operator) {
+            case "=": case "==": return "!=";
+            case "!=": case "<>": return "=";
+            case "<": return ">=";
+            case "<=": return ">";
+            case ">": return "<=";
+            default: return "<";
+        }
+    }
+    
+    private static final class AllOf extends Selector {
+        private final Selector left;
+        private final Selector right;
+        private final int[] buffer;
+        
+        AllOf(Selector left, Selector right, int capacity) {
+            this.left = left;
+            this.right = right;
+            this.buffer = new int[capacity];
+        }
+        
+        @Override
+        int select(Batch batch, int[] in, int n, int[] out) {
+            int selected = left.select(batch, in, n, buffer);
+            return selected == 0 ? 0 : right.select(batch, buffer, selected, out);
+        }
+    }
+    
+    private static final class AnyOf extends Selector {
+        private final Selector left;
+        private final Selector right;
+        private final int[] first;
+        private final int[] rest;
+        private final int[] second;
+        
+        AnyOf(Selector left, Selector right, int capacity) {
+            this.left = left;
+            this.right = right;
+            this.first = new int[capacity];
+            this.rest = new int[capacity];
+            this.second = new int[capacity];
+        }
+        
+        @Override
+        int select(Batch batch, int[] in, int n, int[] out) {
+            int a = left.select(batch, in, n, first);
+            // Rows the first term did not select, in order
+            int remaining = 0;
+            for (int i = 0, j = 0; i < n; i++) {
+                if (j < a && first[j] == in[i]) {
+                    j++;
+                } else {
+                    rest[remaining++] = in[i];
+                }
+            }
+            int b = remaining == 0 ? 0 : right.select(batch, rest, remaining, second);
+            
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < a || j < b) {
+                out[k++] = j >= b || i < a && first[i] < second[j] ? first[i++] : second[j++];
+            }
+            return k;
+        }
+    }
+    
+    private static final class NoneSelector extends Selector {
+        @Override
+        int select(Batch batch, int[] in, int n, int[] out) {
+            return 0;
+        }
+    }
+    
+    private static final class NullSelector extends Selector {
+        private final int column;
+        private final boolean selectNulls;
+        
+        NullSelector(int column, boolean selectNulls) {
+            this.column = column;
+            this.selectNulls = selectNulls;
+        }
+        
+        @Override
+        int select(Batch batch, int[] in, int n, int[] out) {
+            ColumnVector vector = batch.getColumn(column);
+            int k = 0;
+            for (int i = 0; i < n; i++) {
+                int row = in[i];
+                if (vector.isNull(row) == selectNulls) {
+                    out[k++] = row;
+                }
+            }
+            return k;
+        }
+    }
+    
+    private static final class BooleanSelector extends Selector {
+        private final int column;
+        private final boolean expected;
+        
+        BooleanSelector(int column, boolean expected) {
+            this.column = column;
+            this.expected = expected;
+        }
+        
+        @Override
+        int select(Batch batch, int[] in, int n, int[] out) {
+            ColumnVector.BooleanVector vector = (ColumnVector.BooleanVector) batch.getColumn(column);
+            boolean[] values = vector.getValues();
+            boolean nulls = vector.mayHaveNulls();
+            int k = 0;
+            for (int i = 0; i < n; i++) {
+                int row = in[i];
+                if (values[row] == expected && !(nulls && vector.isNull(row))) {
+                    out[k++] = row;
+                }
+            }
+            return k;
+        }
+    }
+    
+    private static final class LongSelector extends Selector {
+        private final int column;
+        private final String operator;
+        private final long literal;
+        
+        LongSelector(int column, String operator, long literal) {
+            this.column = column;
+            this.operator = operator;
+            this.literal = literal;
+        }
+        
+        @Override
+        int select(Batch batch, int[] in, int n, int[] out) {
+            ColumnVector.LongVector vector = (ColumnVector.LongVector) batch.getColumn(column);
+            long[] values = vector.getValues();
+            boolean nulls = vector.mayHaveNulls();
+            int k = 0;
+            switch (operator) {
+                case "=": case "==":
+                    for (int i = 0; i < n; i++) {
+                        int row = in[i];
+                        if (values[row] == literal && !(nulls && vector.isNull(row))) {
+                            out[k++] = row;
+                        }
+                    }
+                    return k;
+                case "!=": case "<>":
+                    for (int i = 0; i < n; i++) {
+                        int row = in[i];
+                        if (values[row] != literal && !(nulls && vector.isNull(row))) {
+                            out[k++] = row;
+                        }
+                    }
+                    return k;
+                case "<":
+                    for (int i = 0; i < n; i++) {
+                        int row = in[i];
+                        if (values[row] < literal && !(nulls && vector.isNull(row))) {
+                            out[k++] = row;
+                        }
+                    }
+                    return k;
+                case "<=":
+                    for (int i = 0; i < n; i++) {
+                        int row = in[i];
+                        if (values[row] <= literal && !(nulls && vector.isNull(row))) {
+                            out[k++] = row;
+                        }
+                    }
+                    return k;
+                case ">":
+                    for (int i = 0; i < n; i++) {
+                        int row = in[i];
+                        if (values[row] > literal && !(nulls && vector.isNull(row))) {
+                            out[k++] = row;
+                        }
+                    }
+                    return k;
+                default:
+                    for (int i = 0; i < n; i++) {
+                        int row = in[i];
+                        if (values[row] >= literal && !(nulls && vector.isNull(row))) {
+                            out[k++] = row;
+                        }
+                    }
+                    return k;
+            }
+        }
+    }
+    
+    private static final class DoubleSelector extends Selector {
+        private final int column;
+        private final String operator;
+        private final double literal;
+        
+        DoubleSelector(int column, String operator, double literal) {
+            this.column = column;
+            this.operator = operator;
+            this.literal = literal;
+        }
+        
+        @Override
+        int select(Batch batch, int[] in, int n, int[] out) {
+            ColumnVector vector = batch.getColumn(column);
+            boolean nulls = vector.mayHaveNulls();
+            long[] longs = vector instanceof ColumnVector.LongVector ? ((ColumnVector.LongVector) vector).getValues() : null;
+            double[] doubles = longs == null ? ((ColumnVector.DoubleVector) vector).getValues() : null;
+            int k = 0;
+            for (int i = 0; i < n; i++) {
+                int row = in[i];
+                double value = longs != null ? longs[row] : doubles[row];
+                int order = value < literal ? -1 : value > literal ? 1 : 0;
+                if (Condition.compare(operator, order) && !(nulls && vector.isNull(row))) {
+                    out[k++] = row;
+                }
+            }
+            return k;
+        }
+    }
+    
+    /**
+     * Comparison with the same semantics as on records, for strings and mixed types
+     */
+    private static final class ValueSelector extends Selector {
+        private final int column;
+        private final String operator;
+        private final Object literal;
+        // Text that is not numeric equals only the same text, so equality needs no conversions
+        private final boolean textEquality;
+        
+        ValueSelector(int column, String operator, Object literal) {
+            this.column = column;
+            this.operator = operator;
+            this.literal = literal;
+            this.textEquality = literal instanceof String && Values.toDecimal(literal) == null && isEquality(operator);
+        }
+        
+        @Override
+        int select(Batch batch, int[] in, int n, int[] out) {
+            ColumnVector vector = batch.getColumn(column);
+            boolean equal = operator.startsWith("=");
+            int k = 0;
+            if (textEquality && vector instanceof ColumnVector.StringVector) {
+                String[] values = ((ColumnVector.StringVector) vector).getValues();
+                for (int i = 0; i < n; i++) {
+                    int row = in[i];
+                    if (!vector.isNull(row) && literal.equals(values[row]) == equal) {
+                        out[k++] = row;
+                    }
+                }
+                return k;
+            }
+            for (int i = 0; i < n; i++) {
+                int row = in[i];
+                Object value = vector.getObject(row);
+                if (value != null && Condition.compare(operator, Values.compare(value, literal))) {
+                    out[k++] = row;
+                }
+            }
+            return k;
+        }
+    }
+    
+    /**
+     * Evaluates a term on each row through a record view of the batch
+     */
+    private static final class RowSelector extends Selector {
+        private final Condition.Expr expr;
+        private final Boolean expected;
+        
+        RowSelector(Condition.Expr expr, boolean negated) {
+            this.expr = expr;
+            this.expected = !negated;
+        }
+        
+        @Override
+        int select(Batch batch, int[] in, int n, int[] out) {
+            BatchRow row = new BatchRow(batch);
+            int k = 0;
+            for (int i = 0; i < n; i++) {
+                row.row = in[i];
+                if (expected.equals(Condition.truth(expr.eval(row)))) {
+                    out[k++] = in[i];
+                }
+            }
+            return k;
+        }
+    }
+    
+    /**
+     * Read-only record view of one row of a batch
+     */
+    static final class BatchRow extends AbstractMap<String, Object> {
+        private final Batch batch;
+        int row;
+        
+        BatchRow(Batch batch) {
+            this.batch = batch;
+        }
+        
+        @Override
+        public Object get(Object key) {
+            ColumnVector column = key instanceof String ? batch.getColumn((String) key) : null;
+            return column != null ? column.getObject(row) : null;
+        }
+        
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && batch.getSchema().indexOf((String) key) >= 0;
+        }
+        
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            Map<String, Object> copy = new LinkedHashMap<>(batch.toRecord(row));
+            return copy.entrySet();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,150 @@
+package com.prophecy.testing.engine;
+
+import java.util.List;
+
+/**
+ * Source of pseudo-random rows generated straight into column vectors, for running pipelines on
+ * volumes that would not fit in memory as records. Each column has its own generator stream, so the
+ * data depends only on the seed, the schema and the row count, not on the batch size.
+ */
+public class GeneratedBatchSource implements BatchOperator {
+    // Distinct strings are generated up front, so larger cardinalities are capped
+    private static final int MAX_CARDINALITY = 1 << 20;
+    
+    private final Batch batch;
+    private final List<ColumnSpec> specs;
+    private final long[] states;
+    private final long[] nullStates;
+    private final String[][] strings;
+    private final long rowCount;
+    private long generated;
+    
+    public GeneratedBatchSource(BatchSchema schema, List<ColumnSpec> specs, long rowCount, long seed, int batchSize) {
+        if (specs.size() != schema.size()) {
+            throw new IllegalArgumentException("Every column needs a generator: " + schema);
+        }
+        this.batch = new Batch(schema, batchSize);
+        this.specs = specs;
+        this.rowCount = rowCount;
+        this.states = new long[schema.size()];
+        this.nullStates = new long[schema.size()];
+        this.strings = new String[schema.size()][];
+        for (int column = 0; column < schema.size(); column++) {
+            states[column] = mix(seed + 2L * column);
+            nullStates[column] = mix(seed + 2L * column + 1);
+            if (schema.getType(column) == ColumnVector.Type.STRING) {
+                int cardinality = (int) Math.min(MAX_CARDINALITY, Math.max(1, specs.get(column).cardinality));
+                strings[column] = new String[cardinality];
+                for (int i = 0; i < cardinality; i++) {
+                    strings[column][i] = schema.getName(column) + "_" + i;
+                }
+            }
+        }
+    }
+    
+    @Override
+    public BatchSchema getSchema() {
+        return batch.getSchema();
+    }
+    
+    @Override
+    public Batch next() {
+        if (generated >= rowCount) {
+            return null;
+        }
+        batch.reset();
+        int rows = (int) Math.min(batch.capacity(), rowCount - generated);
+        for (int column = 0; column < states.length; column++) {
+            fill(column, rows);
+        }
+        generated += rows;
+        batch.setSize(rows);
+        return batch;
+    }
+    
+    private void fill(int column, int rows) {
+        ColumnSpec spec = specs.get(column);
+        ColumnVector vector = batch.getColumn(column);
+        long state = states[column];
+        switch (vector.getType()) {
+            case LONG:
+                long[] longs = ((ColumnVector.LongVector) vector).getValues();
+                long min = (long) spec.min;
+                long range = (long) spec.max - min + 1;
+                for (int row = 0; row < rows; row++) {
+                    state += 0x9E3779B97F4A7C15L;
+                    longs[row] = min + Math.floorMod(mix(state), range);
+                }
+                break;
+            case DOUBLE:
+                double[] doubles = ((ColumnVector.DoubleVector) vector).getValues();
+                double width = spec.max - spec.min;
+                for (int row = 0; row < rows; row++) {
+                    state += 0x9E3779B97F4A7C15L;
+                    doubles[row] = spec.min + unit(mix(state)) * width;
+                }
+                break;
+            case BOOLEAN:
+                boolean[] booleans = ((ColumnVector.BooleanVector) vector).getValues();
+                for (int row = 0; row < rows; row++) {
+                    state += 0x9E3779B97F4A7C15L;
+                    booleans[row] = mix(state) < 0;
+                }
+                break;
+            default:
+                String[] values = ((ColumnVector.StringVector) vector).getValues();
+                String[] pool = strings[column];
+                for (int row = 0; row < rows; row++) {
+                    state += 0x9E3779B97F4A7C15L;
+                    values[row] = pool[(int) Math.floorMod(mix(state), (long) pool.length)];
+                }
+                break;
+        }
+        states[column] = state;
+        
+        if (spec.nullRate > 0) {
+            long nullState = nullStates[column];
+            for (int row = 0; row < rows; row++) {
+                nullState += 0x9E3779B97F4A7C15L;
+                if (unit(mix(nullState)) < spec.nullRate) {
+                    vector.setNull(row);
+                }
+            }
+            nullStates[column] = nullState;
+        }
+    }
+    
+    /**
+     * SplitMix64 output function
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+    
+    private static double unit(long bits) {
+        return (bits >>> 11) * 0x1.0p-53;
+    }
+    
+    /**
+     * Value range of a generated column: numbers between min and max, inclusive for integers,
+     * strings out of cardinality distinct values, and nulls at the given rate
+     */
+    public static class ColumnSpec {
+        final double min;
+        final double max;
+        final long cardinality;
+        final double nullRate;
+        
+        public ColumnSpec(double min, double max, long cardinality, double nullRate) {
+            if (max < min) {
+                throw new IllegalArgumentException("Generated column max " + max + " is below min " + min);
+            }
+            this.min = min;
+            this.max = max;
+            this.cardinality = cardinality;
+            this.nullRate = nullRate;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,588 @@
+package com.prophecy.testing.engine;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Hash aggregation with one row per distinct combination of the grouping columns, followed by the
+ * aggregates, like the record AGGREGATE stage. Groups are numbered by an open-addressing key table
+ * and aggregated in primitive arrays indexed by group. When the groups outgrow the memory budget,
+ * rows of groups already in memory are still aggregated there, and rows of new groups are spilled to
+ * partition files by key hash, which are aggregated one by one afterwards (hybrid grace hashing).
+ * Groups come out in order of first occurrence until the first spill.
+ */
+final class HashAggregateOperator implements BatchOperator {
+    private static final Logger logger = LogManager.getLogger(HashAggregateOperator.class);
+    
+    private final BatchOperator input;
+    private final List<String> groupBy;
+    private final List<RowOperators.Aggregation> aggregations;
+    private final long memoryBudget;
+    private final String spillDirectory;
+    private final int batchSize;
+    private final int depth;
+    
+    private final int[] groupColumns;
+    private final int[] aggregateColumns;
+    private final BatchSchema schema;
+    private final KeyTable table;
+    private final RowStore groupKeys;
+    private final Accumulator[] accumulators;
+    private final Batch output;
+    
+    private boolean consumed;
+    private int groups;
+    private int emitted;
+    private SpillFile.Partitions spill;
+    private int partition;
+    private BatchOperator child;
+    
+    HashAggregateOperator(BatchOperator input, List<String> groupBy, List<RowOperators.Aggregation> aggregations,
+                          long memoryBudget, String spillDirectory, int batchSize) {
+        this(input, groupBy, aggregations, memoryBudget, spillDirectory, batchSize, 0);
+    }
+    
+    private HashAggregateOperator(BatchOperator input, List<String> groupBy, List<RowOperators.Aggregation> aggregations,
+                                  long memoryBudget, String spillDirectory, int batchSize, int depth) {
+        this.input = input;
+        this.groupBy = groupBy;
+        this.aggregations = aggregations;
+        this.memoryBudget = memoryBudget;
+        this.spillDirectory = spillDirectory;
+        this.batchSize = batchSize;
+        this.depth = depth;
+        
+        BatchSchema inputSchema = input.getSchema();
+        List<String> names = new ArrayList<>();
+        List<ColumnVector.Type> types = new ArrayList<>();
+        this.groupColumns = new int[groupBy.size()];
+        KeyTable.Kind[] kinds = new KeyTable.Kind[groupBy.size()];
+        for (int i = 0; i < groupColumns.length; i++) {
+            groupColumns[i] = column(inputSchema, groupBy.get(i), "grouping");
+            kinds[i] = KeyTable.kindOf(inputSchema.getType(groupColumns[i]));
+            names.add(groupBy.get(i));
+            types.add(inputSchema.getType(groupColumns[i]));
+        }
+        this.aggregateColumns = new int[aggregations.size()];
+        this.accumulators = new Accumulator[aggregations.size()];
+        for (int i = 0; i < accumulators.length; i++) {
+            RowOperators.Aggregation aggregation = aggregations.get(i);
+            aggregateColumns[i] = aggregation.column != null ? column(inputSchema, aggregation.column, "aggregation") : -1;
+            accumulators[i] = accumulator(aggregation.function,
+                    aggregateColumns[i] >= 0 ? inputSchema.getType(aggregateColumns[i]) : null, aggregation.column);
+            names.add(aggregation.alias);
+            types.add(accumulators[i].type());
+        }
+        this.schema = new BatchSchema(names, types);
+        
+        List<ColumnVector.Type> keyTypes = new ArrayList<>(types.subList(0, groupColumns.length));
+        this.groupKeys = new RowStore(new BatchSchema(groupBy, keyTypes));
+        this.table = groupColumns.length > 0 ? new KeyTable(kinds) : null;
+        this.output = new Batch(schema, batchSize);
+        if (table == null) {
+            // Without grouping columns there is exactly one row, even for no input
+            groups = 1;
+            for (Accumulator accumulator : accumulators) {
+                accumulator.grow(1);
+            }
+        }
+    }
+    
+    private static int column(BatchSchema schema, String name, String use) {
+        int column = schema.indexOf(name);
+        if (column < 0) {
+            throw new IllegalArgumentException("Unknown column '" + name + "' in " + use + "; columns are " + schema.getNames());
+        }
+        return column;
+    }
+    
+    @Override
+    public BatchSchema getSchema() {
+        return schema;
+    }
+    
+    @Override
+    public Batch next() throws IOException {
+        if (!consumed) {
+            consume();
+            consumed = true;
+        }
+        if (emitted < groups) {
+            output.reset();
+            int rows = Math.min(output.capacity(), groups - emitted);
+            for (int row = 0; row < rows; row++) {
+                int group = emitted + row;
+                for (int column = 0; column < groupColumns.length; column++) {
+                    groupKeys.copyTo(group, column, output.getColumn(column), row);
+                }
+                for (int i = 0; i < accumulators.length; i++) {
+                    accumulators[i].write(group, output.getColumn(groupColumns.length + i), row);
+                }
+            }
+            emitted += rows;
+            output.setSize(rows);
+            return output;
+        }
+        
+        // Spilled partitions, each aggregated on its own
+        while (spill != null) {
+            if (child == null) {
+                while (partition < KeyTable.PARTITIONS && spill.rows(partition) == 0) {
+                    partition++;
+                }
+                if (partition == KeyTable.PARTITIONS) {
+                    return null;
+                }
+                child = new HashAggregateOperator(spill.read(partition, batchSize), groupBy, aggregations,
+                        memoryBudget, spillDirectory, batchSize, depth + 1);
+                partition++;
+            }
+            Batch batch = child.next();
+            if (batch != null) {
+                return batch;
+            }
+            child.close();
+            child = null;
+        }
+        return null;
+    }
+    
+    private void consume() throws IOException {
+        KeyTable.Keys keys = null;
+        int[] rows = new int[0];
+        int[] groupIds = new int[0];
+        Batch batch;
+        while ((batch = input.next()) != null) {
+            int n = batch.getSelectedCount();
+            if (rows.length < n) {
+                rows = new int[Math.max(n, batchSize)];
+                groupIds = new int[rows.length];
+                keys = table != null ? table.newKeys(rows.length) : null;
+            }
+            for (int i = 0; i < n; i++) {
+                rows[i] = batch.selectedRow(i);
+            }
+            
+            if (table != null) {
+                table.encode(batch, groupColumns, rows, n, keys);
+                int kept = 0;
+                for (int i = 0; i < n; i++) {
+                    int group = spill == null ? table.insert(keys, i) : table.find(keys, i);
+                    if (group < 0) {
+                        spill.write(keys.hash(i), batch, rows[i]);
+                        continue;
+                    }
+                    if (group == groups) {
+                        groupKeys.append(batch, rows[i], groupColumns);
+                        groups++;
+                    }
+                    rows[kept] = rows[i];
+                    groupIds[kept++] = group;
+                }
+                n = kept;
+                for (Accumulator accumulator : accumulators) {
+                    accumulator.grow(groups);
+                }
+            }
+            for (int i = 0; i < accumulators.length; i++) {
+                accumulators[i].add(aggregateColumns[i] >= 0 ? batch.getColumn(aggregateColumns[i]) : null, rows, groupIds, n);
+            }
+            
+            if (spill == null && table != null && depth < KeyTable.MAX_DEPTH && bytes() > memoryBudget) {
+                logger.info("Aggregate of {} groups exceeds the memory budget of {} bytes; spilling new groups", groups, memoryBudget);
+                spill = new SpillFile.Partitions(input.getSchema(), spillDirectory, "aggregate-", depth);
+            }
+        }
+    }
+    
+    private long bytes() {
+        long bytes = table.bytes() + groupKeys.bytes();
+        for (Accumulator accumulator : accumulators) {
+            bytes += accumulator.bytes();
+        }
+        return bytes;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        try {
+            if (child != null) {
+                child.close();
+            }
+            if (spill != null) {
+                spill.discard();
+            }
+        } finally {
+            input.close();
+        }
+    }
+    
+    private static Accumulator accumulator(String function, ColumnVector.Type type, String column) {
+        switch (function) {
+            case "count": return new Count();
+            case "count_distinct": return new CountDistinct(type);
+            case "sum": case "avg":
+                if (type == ColumnVector.Type.BOOLEAN) {
+                    throw new IllegalArgumentException("Cannot " + function + " boolean column " + column);
+                }
+                return function.equals("sum") && type == ColumnVector.Type.LONG ? new LongSum(column) : new DoubleSum(function, column);
+            default: return new Extreme(function, type);
+        }
+    }
+    
+    /**
+     * Aggregate values of all groups, in arrays indexed by group
+     */
+    private abstract static class Accumulator {
+        abstract ColumnVector.Type type();
+        
+        /**
+         * Make room for the given number of groups
+         */
+        abstract void grow(int groups);
+        
+        /**
+         * Add the values of the given rows to their groups; the vector is null for a count of rows
+         */
+        abstract void add(ColumnVector vector, int[] rows, int[] groups, int n);
+        
+        abstract void write(int group, ColumnVector out, int row);
+        
+        abstract long bytes();
+        
+        static int capacity(int current, int groups) {
+            return Math.max(groups, Math.max(16, current * 2));
+        }
+    }
+    
+    private static final class Count extends Accumulator {
+        private long[] counts = new long[0];
+        
+        @Override
+        ColumnVector.Type type() {
+            return ColumnVector.Type.LONG;
+        }
+        
+        @Override
+        void grow(int groups) {
+            if (counts.length < groups) {
+                counts = Arrays.copyOf(counts, capacity(counts.length, groups));
+            }
+        }
+        
+        @Override
+        void add(ColumnVector vector, int[] rows, int[] groups, int n) {
+            boolean nulls = vector != null && vector.mayHaveNulls();
+            for (int i = 0; i < n; i++) {
+                if (!(nulls && vector.isNull(rows[i]))) {
+                    counts[groups[i]]++;
+                }
+            }
+        }
+        
+        @Override
+        void write(int group, ColumnVector out, int row) {
+            ((ColumnVector.LongVector) out).getValues()[row] = counts[group];
+        }
+        
+        @Override
+        long bytes() {
+            return 8L * counts.length;
+        }
+    }
+    
+    private static final class CountDistinct extends Accumulator {
+        // Set entry, boxed value and table slot
+        private static final int ENTRY_BYTES = 64;
+        
+        private final ColumnVector.Type inputType;
+        private Set<?>[] sets = new Set<?>[0];
+        private long entries;
+        
+        CountDistinct(ColumnVector.Type inputType) {
+            this.inputType = inputType;
+        }
+        
+        @Override
+        ColumnVector.Type type() {
+            return ColumnVector.Type.LONG;
+        }
+        
+        @Override
+        void grow(int groups) {
+            if (sets.length < groups) {
+                sets = Arrays.copyOf(sets, capacity(sets.length, groups));
+            }
+        }
+        
+        @Override
+        @SuppressWarnings("unchecked")
+        void add(ColumnVector vector, int[] rows, int[] groups, int n) {
+            for (int i = 0; i < n; i++) {
+                Object value = vector.getObject(rows[i]);
+                if (value == null) {
+                    continue;
+                }
+                if (inputType == ColumnVector.Type.DOUBLE && (Double) value == 0) {
+                    value = 0.0;
+                } else if (inputType == ColumnVector.Type.STRING) {
+                    value = Values.key(value);
+                }
+                Set<Object> set = (Set<Object>) sets[groups[i]];
+                if (set == null) {
+                    set = new HashSet<>();
+                    sets[groups[i]] = set;
+                }
+                if (set.add(value)) {
+                    entries++;
+                }
+            }
+        }
+        
+        @Override
+        void write(int group, ColumnVector out, int row) {
+            ((ColumnVector.LongVector) out).getValues()[row] = sets[group] != null ? sets[group].size() : 0;
+        }
+        
+        @Override
+        long bytes() {
+            return 8L * sets.length + ENTRY_BYTES * entries;
+        }
+    }
+    
+    private static final class LongSum extends Accumulator {
+        private final String column;
+        private long[] sums = new long[0];
+        private long[] counts = new long[0];
+        
+        LongSum(String column) {
+            this.column = column;
+        }
+        
+        @Override
+        ColumnVector.Type type() {
+            return ColumnVector.Type.LONG;
+        }
+        
+        @Override
+        void grow(int groups) {
+            if (sums.length < groups) {
+                sums = Arrays.copyOf(sums, capacity(sums.length, groups));
+                counts = Arrays.copyOf(counts, sums.length);
+            }
+        }
+        
+        @Override
+        void add(ColumnVector vector, int[] rows, int[] groups, int n) {
+            long[] values = ((ColumnVector.LongVector) vector).getValues();
+            boolean nulls = vector.mayHaveNulls();
+            try {
+                for (int i = 0; i < n; i++) {
+                    int row = rows[i];
+                    if (!(nulls && vector.isNull(row))) {
+                        sums[groups[i]] = Math.addExact(sums[groups[i]], values[row]);
+                        counts[groups[i]]++;
+                    }
+                }
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("Sum of " + column + " overflows a long");
+            }
+        }
+        
+        @Override
+        void write(int group, ColumnVector out, int row) {
+            if (counts[group] == 0) {
+                out.setNull(row);
+            } else {
+                ((ColumnVector.LongVector) out).getValues()[row] = sums[group];
+            }
+        }
+        
+        @Override
+        long bytes() {
+            return 16L * sums.length;
+        }
+    }
+    
+    /**
+     * Sum or average in double precision, of numbers or numeric text
+     */
+    private static final class DoubleSum extends Accumulator {
+        private final String function;
+        private final String column;
+        private double[] sums = new double[0];
+        private long[] counts = new long[0];
+        
+        DoubleSum(String function, String column) {
+            this.function = function;
+            this.column = column;
+        }
+        
+        @Override
+        ColumnVector.Type type() {
+            return ColumnVector.Type.DOUBLE;
+        }
+        
+        @Override
+        void grow(int groups) {
+            if (sums.length < groups) {
+                sums = Arrays.copyOf(sums, capacity(sums.length, groups));
+                counts = Arrays.copyOf(counts, sums.length);
+            }
+        }
+        
+        @Override
+        void add(ColumnVector vector, int[] rows, int[] groups, int n) {
+            boolean nulls = vector.mayHaveNulls();
+            long[] longs = vector instanceof ColumnVector.LongVector ? ((ColumnVector.LongVector) vector).getValues() : null;
+            double[] doubles = vector instanceof ColumnVector.DoubleVector ? ((ColumnVector.DoubleVector) vector).getValues() : null;
+            for (int i = 0; i < n; i++) {
+                int row = rows[i];
+                if (nulls && vector.isNull(row)) {
+                    continue;
+                }
+                double value;
+                if (longs != null) {
+                    value = longs[row];
+                } else if (doubles != null) {
+                    value = doubles[row];
+                } else {
+                    Object text = vector.getObject(row);
+                    BigDecimal number = Values.toDecimal(text);
+                    if (number == null) {
+                        throw new IllegalArgumentException("Cannot " + function + " non-numeric value '" + text + "' of " + column);
+                    }
+                    value = number.doubleValue();
+                }
+                sums[groups[i]] += value;
+                counts[groups[i]]++;
+            }
+        }
+        
+        @Override
+        void write(int group, ColumnVector out, int row) {
+            if (counts[group] == 0) {
+                out.setNull(row);
+            } else {
+                ((ColumnVector.DoubleVector) out).getValues()[row] = function.equals("avg") ? sums[group] / counts[group] : sums[group];
+            }
+        }
+        
+        @Override
+        long bytes() {
+            return 16L * sums.length;
+        }
+    }
+    
+    /**
+     * Minimum, maximum or first non-null value, kept in an array of the column type
+     */
+    private static final class Extreme extends Accumulator {
+        private final String function;
+        private final ColumnVector.Type inputType;
+        private boolean[] present = new boolean[0];
+        private long[] longs;
+        private double[] doubles;
+        private boolean[] booleans;
+        private String[] strings;
+        private long stringBytes;
+        
+        Extreme(String function, ColumnVector.Type inputType) {
+            this.function = function;
+            this.inputType = inputType;
+        }
+        
+        @Override
+        ColumnVector.Type type() {
+            return inputType;
+        }
+        
+        @Override
+        void grow(int groups) {
+            if (present.length >= groups) {
+                return;
+            }
+            present = Arrays.copyOf(present, capacity(present.length, groups));
+            switch (inputType) {
+                case LONG: longs = longs == null ? new long[present.length] : Arrays.copyOf(longs, present.length); break;
+                case DOUBLE: doubles = doubles == null ? new double[present.length] : Arrays.copyOf(doubles, present.length); break;
+                case BOOLEAN: booleans = booleans == null ? new boolean[present.length] : Arrays.copyOf(booleans, present.length); break;
+                default: strings = strings == null ? new String[present.length] : Arrays.copyOf(strings, present.length); break;
+            }
+        }
+        
+        @Override
+        void add(ColumnVector vector, int[] rows, int[] groups, int n) {
+            boolean nulls = vector.mayHaveNulls();
+            boolean first = function.equals("first");
+            boolean min = function.equals("min");
+            for (int i = 0; i < n; i++) {
+                int row = rows[i];
+                int group = groups[i];
+                if (nulls && vector.isNull(row)) {
+                    continue;
+                }
+                if (present[group]) {
+                    if (first) {
+                        continue;
+                    }
+                    int order = compare(vector, row, group);
+                    if (min ? order >= 0 : order <= 0) {
+                        continue;
+                    }
+                }
+                set(vector, row, group);
+                present[group] = true;
+            }
+        }
+        
+        private int compare(ColumnVector vector, int row, int group) {
+            switch (inputType) {
+                case LONG: return Long.compare(((ColumnVector.LongVector) vector).getValues()[row], longs[group]);
+                case DOUBLE: return Double.compare(((ColumnVector.DoubleVector) vector).getValues()[row], doubles[group]);
+                case BOOLEAN: return Boolean.compare(((ColumnVector.BooleanVector) vector).getValues()[row], booleans[group]);
+                default: return Values.compare(((ColumnVector.StringVector) vector).getValues()[row], strings[group]);
+            }
+        }
+        
+        private void set(ColumnVector vector, int row, int group) {
+            switch (inputType) {
+                case LONG: longs[group] = ((ColumnVector.LongVector) vector).getValues()[row]; break;
+                case DOUBLE: doubles[group] = ((ColumnVector.DoubleVector) vector).getValues()[row]; break;
+                case BOOLEAN: booleans[group] = ((ColumnVector.BooleanVector) vector).getValues()[row]; break;
+                default:
+                    String value = ((ColumnVector.StringVector) vector).getValues()[row];
+                    stringBytes += 2L * value.length() - (strings[group] != null ? 2L * strings[group].length() : -40);
+                    strings[group] = value;
+                    break;
+            }
+        }
+        
+        @Override
+        void write(int group, ColumnVector out, int row) {
+            if (!present[group]) {
+                out.setNull(row);
+                return;
+            }
+            switch (inputType) {
+                case LONG: ((ColumnVector.LongVector) out).getValues()[row] = longs[group]; break;
+                case DOUBLE: ((ColumnVector.DoubleVector) out).getValues()[row] = doubles[group]; break;
+                case BOOLEAN: ((ColumnVector.BooleanVector) out).getValues()[row] = booleans[group]; break;
+                default: ((ColumnVector.StringVector) out).getValues()[row] = strings[group]; break;
+            }
+        }
+        
+        @Override
+        long bytes() {
+            return 9L * present.length + stringBytes;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,395 @@
+package com.prophecy.testing.engine;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Equi-join with the same output as the record JOIN stage: the left columns, then the right columns
+ * not on the left, where rows without a left match take shared columns from the right. The right
+ * input is built into an open-addressing key table with chains of rows per key, and the left input
+ * probes it a batch at a time. When the right rows outgrow the memory budget, both inputs are split
+ * into partition files by key hash and each pair of partitions is joined on its own (grace hashing),
+ * splitting further while a partition is still too large.
+ */
+final class HashJoinOperator implements BatchOperator {
+    private static final Logger logger = LogManager.getLogger(HashJoinOperator.class);
+    
+    private enum Phase { PROBE, UNMATCHED, PARTITIONS, DONE }
+    
+    private final BatchOperator left;
+    private final BatchOperator right;
+    private final List<String> leftKeys;
+    private final List<String> rightKeys;
+    private final RowOperators.JoinType type;
+    private final long memoryBudget;
+    private final String spillDirectory;
+    private final int batchSize;
+    private final int depth;
+    
+    private final int[] leftKeyColumns;
+    private final int[] rightKeyColumns;
+    // Output column of each right column
+    private final int[] rightTargets;
+    private final boolean[] shared;
+    private final int leftWidth;
+    private final BatchSchema schema;
+    private final KeyTable.Kind[] kinds;
+    private KeyTable table;
+    private final Batch output;
+    
+    private boolean built;
+    private Phase phase = Phase.PROBE;
+    private RowStore buildRows;
+    private int[] heads = new int[0];
+    private int[] tails = new int[0];
+    private int[] links = new int[0];
+    private boolean[] matched = new boolean[0];
+    private SpillFile.Partitions leftSpill;
+    private SpillFile.Partitions rightSpill;
+    
+    private Batch probe;
+    private KeyTable.Keys probeKeys;
+    private int[] probeRows = new int[0];
+    private int probeCount;
+    private int probeIndex;
+    // Next build row to join with the current probe row; -2 before the row is looked up
+    private int chain = -2;
+    private boolean probeMatched;
+    private int unmatchedRow;
+    private int partition;
+    private BatchOperator child;
+    
+    HashJoinOperator(BatchOperator left, BatchOperator right, List<String> leftKeys, List<String> rightKeys,
+                     RowOperators.JoinType type, long memoryBudget, String spillDirectory, int batchSize) {
+        this(left, right, leftKeys, rightKeys, type, memoryBudget, spillDirectory, batchSize, 0);
+    }
+    
+    private HashJoinOperator(BatchOperator left, BatchOperator right, List<String> leftKeys, List<String> rightKeys,
+                             RowOperators.JoinType type, long memoryBudget, String spillDirectory, int batchSize, int depth) {
+        if (leftKeys.size() != rightKeys.size()) {
+            throw new IllegalArgumentException("Join needs as many right keys as left keys: " + leftKeys + " and " + rightKeys);
+        }
+        this.left = left;
+        this.right = right;
+        this.leftKeys = leftKeys;
+        this.rightKeys = rightKeys;
+        this.type = type;
+        this.memoryBudget = memoryBudget;
+        this.spillDirectory = spillDirectory;
+        this.batchSize = batchSize;
+        this.depth = depth;
+        
+        BatchSchema leftSchema = left.getSchema();
+        BatchSchema rightSchema = right.getSchema();
+        this.leftKeyColumns = new int[leftKeys.size()];
+        this.rightKeyColumns = new int[rightKeys.size()];
+        KeyTable.Kind[] kinds = new KeyTable.Kind[leftKeys.size()];
+        for (int i = 0; i < kinds.length; i++) {
+            leftKeyColumns[i] = column(leftSchema, leftKeys.get(i));
+            rightKeyColumns[i] = column(rightSchema, rightKeys.get(i));
+            kinds[i] = KeyTable.kindOf(leftSchema.getType(leftKeyColumns[i]), rightSchema.getType(rightKeyColumns[i]));
+        }
+        
+        List<String> names = new ArrayList<>(leftSchema.getNames());
+        List<ColumnVector.Type> types = new ArrayList<>();
+        for (int column = 0; column < leftSchema.size(); column++) {
+            types.add(leftSchema.getType(column));
+        }
+        this.leftWidth = leftSchema.size();
+        this.rightTargets = new int[rightSchema.size()];
+        this.shared = new boolean[leftWidth];
+        for (int column = 0; column < rightSchema.size(); column++) {
+            int shared = leftSchema.indexOf(rightSchema.getName(column));
+            if (shared >= 0) {
+                types.set(shared, BatchSchema.widen(types.get(shared), rightSchema.getType(column)));
+                rightTargets[column] = shared;
+                this.shared[shared] = true;
+            } else {
+                rightTargets[column] = names.size();
+                names.add(rightSchema.getName(column));
+                types.add(rightSchema.getType(column));
+            }
+        }
+        this.schema = new BatchSchema(names, types);
+        this.kinds = kinds;
+        this.table = new KeyTable(kinds);
+        this.buildRows = new RowStore(rightSchema);
+        this.output = new Batch(schema, batchSize);
+    }
+    
+    private static int column(BatchSchema schema, String name) {
+        int column = schema.indexOf(name);
+        if (column < 0) {
+            throw new IllegalArgumentException("Unknown join key '" + name + "'; columns are " + schema.getNames());
+        }
+        return column;
+    }
+    
+    @Override
+    public BatchSchema getSchema() {
+        return schema;
+    }
+    
+    @Override
+    public Batch next() throws IOException {
+        if (!built) {
+            build();
+            built = true;
+        }
+        output.reset();
+        int rows = 0;
+        int capacity = output.capacity();
+        while (rows < capacity && phase != Phase.DONE) {
+            switch (phase) {
+                case PROBE:
+                    if (probe == null || probeIndex == probeCount) {
+                        if (!nextProbeBatch()) {
+                            phase = type == RowOperators.JoinType.RIGHT || type == RowOperators.JoinType.FULL
+                                    ? Phase.UNMATCHED : Phase.DONE;
+                        }
+                        continue;
+                    }
+                    if (chain == -2) {
+                        int key = probeKeys.hasNull(probeIndex) ? -1 : table.find(probeKeys, probeIndex);
+                        chain = key >= 0 ? heads[key] : -1;
+                        probeMatched = false;
+                    }
+                    if (chain >= 0) {
+                        writeMatch(probe, probeRows[probeIndex], chain, rows++);
+                        matched[chain] = true;
+                        probeMatched = true;
+                        chain = links[chain];
+                    } else {
+                        if (!probeMatched && (type == RowOperators.JoinType.LEFT || type == RowOperators.JoinType.FULL)) {
+                            writeMatch(probe, probeRows[probeIndex], -1, rows++);
+                        }
+                        probeIndex++;
+                        chain = -2;
+                    }
+                    break;
+                case UNMATCHED:
+                    if (unmatchedRow == buildRows.size()) {
+                        phase = Phase.DONE;
+                    } else if (!matched[unmatchedRow++]) {
+                        writeMatch(null, -1, unmatchedRow - 1, rows++);
+                    }
+                    break;
+                default:
+                    if (rows > 0) {
+                        output.setSize(rows);
+                        return output;
+                    }
+                    return nextPartitionBatch();
+            }
+        }
+        output.setSize(rows);
+        return rows > 0 ? output : null;
+    }
+    
+    private void build() throws IOException {
+        KeyTable.Keys keys = null;
+        int[] rows = new int[0];
+        Batch batch;
+        while ((batch = right.next()) != null) {
+            int n = batch.getSelectedCount();
+            if (rows.length < n) {
+                rows = new int[Math.max(n, batchSize)];
+                keys = table.newKeys(rows.length);
+            }
+            for (int i = 0; i < n; i++) {
+                rows[i] = batch.selectedRow(i);
+            }
+            table.encode(batch, rightKeyColumns, rows, n, keys);
+            
+            if (rightSpill != null) {
+                for (int i = 0; i < n; i++) {
+                    rightSpill.write(keys.hash(i), batch, rows[i]);
+                }
+                continue;
+            }
+            for (int i = 0; i < n; i++) {
+                int row = buildRows.append(batch, rows[i]);
+                if (links.length == row) {
+                    int capacity = Math.max(16, row * 2);
+                    links = Arrays.copyOf(links, capacity);
+                    matched = Arrays.copyOf(matched, capacity);
+                }
+                links[row] = -1;
+                if (keys.hasNull(i)) {
+                    continue;
+                }
+                int keyCount = table.size();
+                int key = table.insert(keys, i);
+                if (key == heads.length) {
+                    int capacity = Math.max(16, key * 2);
+                    heads = Arrays.copyOf(heads, capacity);
+                    tails = Arrays.copyOf(tails, capacity);
+                }
+                // Rows of a key are chained in input order
+                if (table.size() > keyCount) {
+                    heads[key] = row;
+                } else {
+                    links[tails[key]] = row;
+                }
+                tails[key] = row;
+            }
+            if (depth < KeyTable.MAX_DEPTH && bytes() > memoryBudget) {
+                spillBuildRows();
+            }
+        }
+        if (rightSpill != null) {
+            spillProbeRows();
+        }
+    }
+    
+    private long bytes() {
+        return buildRows.bytes() + table.bytes() + 9L * links.length + 8L * heads.length;
+    }
+    
+    /**
+     * Move the right rows in memory to partition files; the following right rows go there directly
+     */
+    private void spillBuildRows() throws IOException {
+        logger.info("Join build side of {} rows exceeds the memory budget of {} bytes; partitioning both inputs",
+                buildRows.size(), memoryBudget);
+        BatchSchema rightSchema = right.getSchema();
+        rightSpill = new SpillFile.Partitions(rightSchema, spillDirectory, "join-right-", depth);
+        Batch batch = new Batch(rightSchema, batchSize);
+        int[] rows = new int[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            rows[i] = i;
+        }
+        KeyTable.Keys keys = table.newKeys(batchSize);
+        for (int start = 0; start < buildRows.size(); start += batchSize) {
+            int n = Math.min(batchSize, buildRows.size() - start);
+            batch.reset();
+            for (int row = 0; row < n; row++) {
+                for (int column = 0; column < rightSchema.size(); column++) {
+                    buildRows.copyTo(start + row, column, batch.getColumn(column), row);
+                }
+            }
+            batch.setSize(n);
+            table.encode(batch, rightKeyColumns, rows, n, keys);
+            for (int row = 0; row < n; row++) {
+                rightSpill.write(keys.hash(row), batch, row);
+            }
+        }
+        buildRows = new RowStore(rightSchema);
+        table = new KeyTable(kinds);
+        heads = new int[0];
+        tails = new int[0];
+        links = new int[0];
+        matched = new boolean[0];
+    }
+    
+    private void spillProbeRows() throws IOException {
+        leftSpill = new SpillFile.Partitions(left.getSchema(), spillDirectory, "join-left-", depth);
+        while (nextProbeBatch()) {
+            for (int i = 0; i < probeCount; i++) {
+                leftSpill.write(probeKeys.hash(i), probe, probeRows[i]);
+            }
+        }
+        probe = null;
+        phase = Phase.PARTITIONS;
+    }
+    
+    private boolean nextProbeBatch() throws IOException {
+        probe = left.next();
+        if (probe == null) {
+            return false;
+        }
+        probeCount = probe.getSelectedCount();
+        if (probeRows.length < probeCount) {
+            probeRows = new int[Math.max(probeCount, batchSize)];
+            probeKeys = table.newKeys(probeRows.length);
+        }
+        for (int i = 0; i < probeCount; i++) {
+            probeRows[i] = probe.selectedRow(i);
+        }
+        table.encode(probe, leftKeyColumns, probeRows, probeCount, probeKeys);
+        probeIndex = 0;
+        chain = -2;
+        return true;
+    }
+    
+    /**
+     * Join each pair of partitions in turn, returning the next batch of their output or null at the end
+     */
+    private Batch nextPartitionBatch() throws IOException {
+        while (true) {
+            if (child == null) {
+                while (partition < KeyTable.PARTITIONS && leftSpill.rows(partition) == 0 && rightSpill.rows(partition) == 0) {
+                    partition++;
+                }
+                if (partition == KeyTable.PARTITIONS) {
+                    phase = Phase.DONE;
+                    return null;
+                }
+                child = new HashJoinOperator(leftSpill.read(partition, batchSize), rightSpill.read(partition, batchSize),
+                        leftKeys, rightKeys, type, memoryBudget, spillDirectory, batchSize, depth + 1);
+                partition++;
+            }
+            Batch batch = child.next();
+            if (batch != null) {
+                return batch;
+            }
+            child.close();
+            child = null;
+        }
+    }
+    
+    /**
+     * Write a joined row; a missing side, given as null or -1, leaves its columns null
+     */
+    private void writeMatch(Batch leftBatch, int leftRow, int buildRow, int row) {
+        if (leftBatch != null) {
+            for (int column = 0; column < leftWidth; column++) {
+                ColumnVector.copy(leftBatch.getColumn(column), leftRow, output.getColumn(column), row);
+            }
+        } else {
+            // Shared columns are written once, from the right row
+            for (int column = 0; column < leftWidth; column++) {
+                if (!shared[column]) {
+                    output.getColumn(column).setNull(row);
+                }
+            }
+        }
+        for (int column = 0; column < rightTargets.length; column++) {
+            int target = rightTargets[column];
+            if (target < leftWidth && leftBatch != null) {
+                continue;
+            }
+            if (buildRow >= 0) {
+                buildRows.copyTo(buildRow, column, output.getColumn(target), row);
+            } else {
+                output.getColumn(target).setNull(row);
+            }
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        try {
+            if (child != null) {
+                child.close();
+            }
+            if (leftSpill != null) {
+                leftSpill.discard();
+            }
+            if (rightSpill != null) {
+                rightSpill.discard();
+            }
+        } finally {
+            try {
+                left.close();
+            } finally {
+                right.close();
+            }
+        }
+    }
+}
\ No newline at end of file
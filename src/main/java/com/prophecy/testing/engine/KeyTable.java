@@ -0,0 +1,257 @@
+package com.prophecy.testing.engine;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash table numbering the distinct keys of one or more columns. Keys are encoded a
+ * batch at a time into primitive words: integers as is, other numbers as double bits (so that 1 and
+ * 1.0 are equal), booleans as 0 or 1; text keys and mixed text and number keys are compared by their
+ * normalized values like the record operators do. Keys get dense ids in order of insertion.
+ */
+final class KeyTable {
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+    // Bits of the hash choosing a spill partition at each level of grace hashing
+    static final int PARTITION_BITS = 4;
+    static final int PARTITIONS = 1 << PARTITION_BITS;
+    static final int MAX_DEPTH = 6;
+    
+    enum Kind { LONG, DOUBLE, BOOLEAN, OBJECT }
+    
+    private final Kind[] kinds;
+    private final int width;
+    private long[] words;
+    private Object[] objects;
+    private long[] nullMasks;
+    private long[] hashes;
+    private int[] slots;
+    private int size;
+    
+    KeyTable(Kind[] kinds) {
+        if (kinds.length > Long.SIZE) {
+            throw new IllegalArgumentException("At most " + Long.SIZE + " key columns are supported");
+        }
+        this.kinds = kinds;
+        this.width = kinds.length;
+        int capacity = 16;
+        this.words = new long[capacity * width];
+        this.objects = Arrays.asList(kinds).contains(Kind.OBJECT) ? new Object[capacity * width] : null;
+        this.nullMasks = new long[capacity];
+        this.hashes = new long[capacity];
+        this.slots = new int[capacity * 2];
+    }
+    
+    /**
+     * Encoding of columns of one type
+     */
+    static Kind kindOf(ColumnVector.Type type) {
+        return kindOf(type, type);
+    }
+    
+    /**
+     * Encoding under which values of columns of two types are equal exactly when the record operators consider them equal
+     */
+    static Kind kindOf(ColumnVector.Type a, ColumnVector.Type b) {
+        boolean numeric = (a == ColumnVector.Type.LONG || a == ColumnVector.Type.DOUBLE)
+                && (b == ColumnVector.Type.LONG || b == ColumnVector.Type.DOUBLE);
+        if (numeric) {
+            return a == ColumnVector.Type.LONG && b == ColumnVector.Type.LONG ? Kind.LONG : Kind.DOUBLE;
+        }
+        return a == ColumnVector.Type.BOOLEAN && b == ColumnVector.Type.BOOLEAN ? Kind.BOOLEAN : Kind.OBJECT;
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    /**
+     * Estimated bytes held by the table, counting normalized text and mixed keys as short objects
+     */
+    long bytes() {
+        return (long) nullMasks.length * (8L * width + 16 + (objects != null ? 56L * width : 0)) + 4L * slots.length;
+    }
+    
+    /**
+     * Spill partition of a key hash at a level of grace hashing; each level uses other bits of the hash
+     */
+    static int partition(long hash, int depth) {
+        return (int) (hash >>> (Long.SIZE - PARTITION_BITS * (depth + 1))) & (PARTITIONS - 1);
+    }
+    
+    Keys newKeys(int capacity) {
+        return new Keys(capacity, width, objects != null);
+    }
+    
+    /**
+     * Encode the keys of the given rows of a batch into positions 0 to n - 1
+     */
+    void encode(Batch batch, int[] columns, int[] rows, int n, Keys keys) {
+        Arrays.fill(keys.nullMasks, 0, n, 0L);
+        Arrays.fill(keys.hashes, 0, n, 0L);
+        for (int c = 0; c < width; c++) {
+            ColumnVector vector = batch.getColumn(columns[c]);
+            long bit = 1L << c;
+            boolean nulls = vector.mayHaveNulls();
+            switch (kinds[c]) {
+                case LONG:
+                    long[] longs = ((ColumnVector.LongVector) vector).getValues();
+                    for (int i = 0; i < n; i++) {
+                        keys.words[i * width + c] = longs[rows[i]];
+                    }
+                    break;
+                case DOUBLE:
+                    for (int i = 0; i < n; i++) {
+                        keys.words[i * width + c] = doubleBits(vector, rows[i]);
+                    }
+                    break;
+                case BOOLEAN:
+                    boolean[] booleans = ((ColumnVector.BooleanVector) vector).getValues();
+                    for (int i = 0; i < n; i++) {
+                        keys.words[i * width + c] = booleans[rows[i]] ? 1 : 0;
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < n; i++) {
+                        Object key = Values.key(vector.getObject(rows[i]));
+                        keys.objects[i * width + c] = key;
+                        keys.words[i * width + c] = key != null ? key.hashCode() : 0;
+                    }
+                    break;
+            }
+            for (int i = 0; i < n; i++) {
+                if (nulls && vector.isNull(rows[i])) {
+                    keys.nullMasks[i] |= bit;
+                    keys.words[i * width + c] = 0;
+                }
+                keys.hashes[i] = Long.rotateLeft((keys.hashes[i] ^ mix(keys.words[i * width + c] + c)) * GOLDEN, 29);
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            keys.hashes[i] = mix(keys.hashes[i] ^ keys.nullMasks[i]);
+        }
+    }
+    
+    /**
+     * Id of the key at a position, or -1 when it is not in the table
+     */
+    int find(Keys keys, int i) {
+        int mask = slots.length - 1;
+        for (int slot = (int) keys.hashes[i] & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot] - 1;
+            if (entry < 0) {
+                return -1;
+            }
+            if (matches(entry, keys, i)) {
+                return entry;
+            }
+        }
+    }
+    
+    /**
+     * Id of the key at a position, adding it when it is not in the table
+     */
+    int insert(Keys keys, int i) {
+        int mask = slots.length - 1;
+        int slot = (int) keys.hashes[i] & mask;
+        for (; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot] - 1;
+            if (entry < 0) {
+                break;
+            }
+            if (matches(entry, keys, i)) {
+                return entry;
+            }
+        }
+        
+        if (size == nullMasks.length) {
+            int capacity = size * 2;
+            words = Arrays.copyOf(words, capacity * width);
+            objects = objects != null ? Arrays.copyOf(objects, capacity * width) : null;
+            nullMasks = Arrays.copyOf(nullMasks, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+        }
+        int entry = size++;
+        System.arraycopy(keys.words, i * width, words, entry * width, width);
+        if (objects != null) {
+            System.arraycopy(keys.objects, i * width, objects, entry * width, width);
+        }
+        nullMasks[entry] = keys.nullMasks[i];
+        hashes[entry] = keys.hashes[i];
+        slots[slot] = entry + 1;
+        // Keep the load factor at most one half
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return entry;
+    }
+    
+    private boolean matches(int entry, Keys keys, int i) {
+        if (hashes[entry] != keys.hashes[i] || nullMasks[entry] != keys.nullMasks[i]) {
+            return false;
+        }
+        for (int c = 0; c < width; c++) {
+            if (words[entry * width + c] != keys.words[i * width + c]) {
+                return false;
+            }
+            if (kinds[c] == Kind.OBJECT) {
+                Object key = objects[entry * width + c];
+                if (key != null && !key.equals(keys.objects[i * width + c])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        int mask = capacity - 1;
+        for (int entry = 0; entry < size; entry++) {
+            int slot = (int) hashes[entry] & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = entry + 1;
+        }
+    }
+    
+    private static long doubleBits(ColumnVector vector, int row) {
+        double value = vector instanceof ColumnVector.LongVector
+                ? ((ColumnVector.LongVector) vector).getValues()[row] : ((ColumnVector.DoubleVector) vector).getValues()[row];
+        // 0.0 and -0.0 are equal, and all NaNs are one value
+        return value == 0 ? 0L : Double.doubleToLongBits(value);
+    }
+    
+    /**
+     * Murmur3 finalizer
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+    
+    /**
+     * Encoded keys of the rows of a batch, with their hashes and null flags
+     */
+    static final class Keys {
+        final long[] words;
+        final Object[] objects;
+        final long[] nullMasks;
+        final long[] hashes;
+        
+        Keys(int capacity, int width, boolean withObjects) {
+            this.words = new long[capacity * width];
+            this.objects = withObjects ? new Object[capacity * width] : null;
+            this.nullMasks = new long[capacity];
+            this.hashes = new long[capacity];
+        }
+        
+        long hash(int i) {
+            return hashes[i];
+        }
+        
+        boolean hasNull(int i) {
+            return nullMasks[i] != 0;
+        }
+    }
+}
\ No newline at end of file
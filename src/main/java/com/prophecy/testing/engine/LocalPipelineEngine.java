@@ -0,0 +1,328 @@
+package com.prophecy.testing.engine;
+
+import com.prophecy.testing.api.ProphecyApiClient.PipelineTestResult;
+import com.prophecy.testing.api.ProphecyApiClient.StageExecutionResult;
+import com.prophecy.testing.api.ProphecyApiClient.StageTestResult;
+import com.prophecy.testing.data.JsonLinesReader;
+import com.prophecy.testing.data.MockDataGenerator;
+import com.prophecy.testing.data.TestDataManager;
+import com.prophecy.testing.models.*;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * In-process interpreter of pipeline definitions for stage-by-stage testing without the Prophecy
+ * API. Stages run in order on lists of records and report through the same result classes as the
+ * remote execution. Each stage reads the output of the stage named by its "input" setting, or else
+ * of the stage before it; the first stage reads the test data. Stages that read further inputs
+ * (joins, lookups and unions) name them by stage id or name, or read a data file.
+ *
+ * Supported stage types and their settings:
+ * <ul>
+ *   <li>SOURCE: file_path, or the test data when absent</li>
+ *   <li>FILTER, and TRANSFORMATION with transformation_type FILTER: condition</li>
+ *   <li>TRANSFORMATION with transformation_type PROJECT or SELECT: columns, as "column [AS alias]"</li>
+ *   <li>JOIN: right or right_file_path, join_type (inner, left, right, full), keys or left_keys and right_keys</li>
+ *   <li>LOOKUP: lookup or lookup_file_path, keys, lookup_keys, columns</li>
+ *   <li>AGGREGATE: group_by, aggregations of function (count, count_distinct, sum, avg, min, max, first), column and alias</li>
+ *   <li>SORT: order_by, as "column [ASC|DESC]"</li>
+ *   <li>UNION: union_with, distinct</li>
+ *   <li>WINDOW: partition_by, order_by, functions of function (row_number, rank, dense_rank, lag, lead or an
+ *   aggregate), column, alias, offset and default</li>
+ *   <li>TARGET: file_path (.csv, .json or .jsonl), or no output file when absent</li>
+ * </ul>
+ */
+public class LocalPipelineEngine {
+    private static final Logger logger = LogManager.getLogger(LocalPipelineEngine.class);
+    
+    private final TestDataManager dataManager;
+    private final MockDataGenerator dataGenerator;
+    
+    public LocalPipelineEngine() {
+        this(new TestDataManager());
+    }
+    
+    public LocalPipelineEngine(TestDataManager dataManager) {
+        this.dataManager = dataManager;
+        this.dataGenerator = new MockDataGenerator();
+    }
+    
+    /**
+     * Execute one stage with the test data as its input; other stages it reads from are executed first
+     */
+    public StageExecutionResult executeStage(Pipeline pipeline, String stageId, Map<String, Object> inputData) {
+        Run run = new Run(pipeline, records(inputData));
+        try {
+            List<Map<String, Object>> output = run.execute(run.find(stageId), run.initialRecords);
+            return new StageExecutionResult(true, outputData(output), null);
+        } catch (Exception e) {
+            logger.error("Error executing stage {} locally: {}", stageId, e.getMessage());
+            return new StageExecutionResult(false, null, e.getMessage());
+        }
+    }
+    
+    /**
+     * Execute all stages in order, stopping at the first stage that fails
+     */
+    public PipelineTestResult testPipelineStageByStage(Pipeline pipeline, Map<String, Object> initialData) {
+        logger.info("Starting local stage-by-stage testing for pipeline: {}", pipeline.getName());
+        
+        PipelineTestResult result = new PipelineTestResult(pipeline.getId() != null ? pipeline.getId() : pipeline.getName());
+        Run run = new Run(pipeline, records(initialData));
+        
+        for (PipelineStage stage : run.stages) {
+            StageTestResult stageResult = new StageTestResult(stage.getId(), stage.getName());
+            result.addStageResult(stageResult);
+            try {
+                List<Map<String, Object>> output = run.output(stage);
+                StageExecutionResult execution = new StageExecutionResult(true, outputData(output), null);
+                stageResult.setExecutionResult(execution);
+                stageResult.setOutputData(execution.getOutputData());
+            } catch (Exception e) {
+                stageResult.setExecutionResult(new StageExecutionResult(false, null, e.getMessage()));
+                stageResult.setError("Stage execution failed: " + e.getMessage());
+                logger.error("Error testing stage {} locally: {}", stage.getName(), e.getMessage());
+                break;
+            }
+        }
+        
+        result.setOverallSuccess(result.getStageResults().stream().allMatch(StageTestResult::isSuccessful));
+        logger.info("Local stage-by-stage testing completed for pipeline: {}. Success: {}",
+                   pipeline.getName(), result.isOverallSuccess());
+        return result;
+    }
+    
+    private List<Map<String, Object>> apply(PipelineStage stage, List<Map<String, Object>> input, Run run) throws IOException {
+        StageConfig config = new StageConfig(stage);
+        StageType type = typeOf(stage, config);
+        switch (type) {
+            case SOURCE:
+                return config.has("file_path") ? dataManager.loadTestDataFromFile(config.getString("file_path")) : input;
+            case FILTER:
+                return RowOperators.filter(input, Condition.parse(config.getString("condition")));
+            case TRANSFORMATION:
+                if (isProjection(config)) {
+                    return RowOperators.project(input, config.getRequiredStrings("columns"));
+                }
+                throw new UnsupportedOperationException("Transformation stage '" + stage.getName()
+                        + "' needs a transformation_type supported by the local engine");
+            case JOIN:
+                List<String> keys = config.getStrings("keys");
+                List<String> leftKeys = keys.isEmpty() ? config.getRequiredStrings("left_keys") : keys;
+                List<String> rightKeys = keys.isEmpty() ? config.getRequiredStrings("right_keys") : keys;
+                return RowOperators.join(input, run.dataset(config, "right", "right_file_path"),
+                        leftKeys, rightKeys, joinType(config));
+            case LOOKUP:
+                List<String> lookupKeys = config.getRequiredStrings("keys");
+                return RowOperators.lookup(input, run.dataset(config, "lookup", "lookup_file_path"), lookupKeys,
+                        config.has("lookup_keys") ? config.getStrings("lookup_keys") : lookupKeys, config.getStrings("columns"));
+            case AGGREGATE:
+                return RowOperators.aggregate(input, config.getStrings("group_by"), aggregations(config));
+            case SORT:
+                return RowOperators.sort(input, sortKeys(config.getRequiredStrings("order_by")));
+            case UNION:
+                List<List<Map<String, Object>>> inputs = new ArrayList<>();
+                inputs.add(input);
+                for (String other : config.getRequiredStrings("union_with")) {
+                    inputs.add(run.output(run.find(other)));
+                }
+                return RowOperators.union(inputs, config.getBoolean("distinct", false));
+            case WINDOW:
+                List<RowOperators.WindowFunction> functions = new ArrayList<>();
+                for (Map<String, Object> definition : config.getMaps("functions")) {
+                    Object offset = definition.get("offset");
+                    functions.add(new RowOperators.WindowFunction(string(definition, "function", config, "functions"),
+                            (String) definition.get("column"), (String) definition.get("alias"),
+                            offset != null ? Values.toDecimal(offset).intValueExact() : 1, definition.get("default")));
+                }
+                return RowOperators.window(input, config.getStrings("partition_by"),
+                        sortKeys(config.getStrings("order_by")), functions);
+            case TARGET:
+                if (config.has("file_path")) {
+                    write(input, config.getString("file_path"));
+                }
+                return input;
+            default:
+                throw new UnsupportedOperationException("Stage type " + type.name() + " is not supported by the local engine");
+        }
+    }
+    
+    /**
+     * Stage type, taking generic transformations with a transformation_type as that type
+     */
+    static StageType typeOf(PipelineStage stage, StageConfig config) {
+        StageType type = stage.getType() != null ? stage.getType() : StageType.TRANSFORMATION;
+        if (type == StageType.TRANSFORMATION && config.has("transformation_type")) {
+            try {
+                return StageType.valueOf(config.getString("transformation_type").toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return type;
+            }
+        }
+        return type;
+    }
+    
+    /**
+     * Whether a transformation selects and renames columns, which has no stage type of its own
+     */
+    static boolean isProjection(StageConfig config) {
+        String type = config.getString("transformation_type", "");
+        return type.equalsIgnoreCase("PROJECT") || type.equalsIgnoreCase("SELECT");
+    }
+    
+    static RowOperators.JoinType joinType(StageConfig config) {
+        String joinType = config.getString("join_type", "inner").toUpperCase(Locale.ROOT).replace("_OUTER", "").replace(" OUTER", "");
+        try {
+            return RowOperators.JoinType.valueOf(joinType);
+        } catch (IllegalArgumentException e) {
+            throw config.invalid("join_type", "one of inner, left, right or full");
+        }
+    }
+    
+    static List<RowOperators.Aggregation> aggregations(StageConfig config) {
+        List<RowOperators.Aggregation> aggregations = new ArrayList<>();
+        for (Map<String, Object> definition : config.getMaps("aggregations")) {
+            aggregations.add(new RowOperators.Aggregation(string(definition, "function", config, "aggregations"),
+                    (String) definition.get("column"), (String) definition.get("alias")));
+        }
+        return aggregations;
+    }
+    
+    private static List<RowOperators.SortKey> sortKeys(List<String> orderBy) {
+        List<RowOperators.SortKey> keys = new ArrayList<>();
+        for (String key : orderBy) {
+            keys.add(RowOperators.SortKey.parse(key));
+        }
+        return keys;
+    }
+    
+    private static String string(Map<String, Object> definition, String key, StageConfig config, String list) {
+        Object value = definition.get(key);
+        if (value == null) {
+            throw config.invalid(list, "a list of objects with a " + key);
+        }
+        return value.toString();
+    }
+    
+    private void write(List<Map<String, Object>> records, String filePath) throws IOException {
+        Path parent = Paths.get(filePath).toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        
+        if (filePath.endsWith(".csv")) {
+            Set<String> columns = new LinkedHashSet<>();
+            records.forEach(record -> columns.addAll(record.keySet()));
+            List<SchemaField> fields = new ArrayList<>();
+            columns.forEach(column -> fields.add(new SchemaField(column, DataType.STRING)));
+            dataGenerator.saveMockDataToCsv(records, new DataSchema("stage_output", fields), filePath);
+        } else if (JsonLinesReader.isJsonLines(filePath)) {
+            dataGenerator.saveMockDataToJsonLines(records, filePath);
+        } else if (filePath.endsWith(".json")) {
+            dataGenerator.saveMockDataToJson(records, filePath);
+        } else {
+            throw new IllegalArgumentException("Unsupported target file format: " + filePath);
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> records(Map<String, Object> data) {
+        Object records = data != null ? data.get("records") : null;
+        return records instanceof List ? (List<Map<String, Object>>) records : Collections.emptyList();
+    }
+    
+    private static Map<String, Object> outputData(List<Map<String, Object>> records) {
+        Map<String, Object> outputData = new LinkedHashMap<>();
+        outputData.put("records", records);
+        outputData.put("record_count", records.size());
+        return outputData;
+    }
+    
+    /**
+     * Stage outputs of one execution, each computed once
+     */
+    private class Run {
+        private final List<PipelineStage> stages;
+        private final List<Map<String, Object>> initialRecords;
+        private final Map<PipelineStage, List<Map<String, Object>>> outputs = new IdentityHashMap<>();
+        private final Set<PipelineStage> running = Collections.newSetFromMap(new IdentityHashMap<>());
+        
+        Run(Pipeline pipeline, List<Map<String, Object>> initialRecords) {
+            this.stages = pipeline.getStages() != null ? new ArrayList<>(pipeline.getStages()) : new ArrayList<>();
+            this.stages.sort(Comparator.comparingInt(PipelineStage::getOrder));
+            this.initialRecords = initialRecords;
+        }
+        
+        PipelineStage find(String reference) {
+            for (PipelineStage stage : stages) {
+                if (reference.equals(stage.getId()) || reference.equals(stage.getName())) {
+                    return stage;
+                }
+            }
+            throw new IllegalArgumentException("No stage with id or name '" + reference + "' in pipeline");
+        }
+        
+        List<Map<String, Object>> output(PipelineStage stage) throws IOException {
+            List<Map<String, Object>> output = outputs.get(stage);
+            if (output != null) {
+                return output;
+            }
+            if (!running.add(stage)) {
+                throw new IllegalArgumentException("Stage '" + stage.getName() + "' depends on its own output");
+            }
+            try {
+                output = execute(stage, input(stage));
+            } finally {
+                running.remove(stage);
+            }
+            outputs.put(stage, output);
+            return output;
+        }
+        
+        /**
+         * Records of the stage or data file named by a stage setting
+         */
+        List<Map<String, Object>> dataset(StageConfig config, String referenceKey, String fileKey) throws IOException {
+            if (config.has(referenceKey)) {
+                return output(find(config.getString(referenceKey)));
+            }
+            if (config.has(fileKey)) {
+                return dataManager.loadTestDataFromFile(config.getString(fileKey));
+            }
+            throw config.missing(referenceKey);
+        }
+        
+        List<Map<String, Object>> execute(PipelineStage stage, List<Map<String, Object>> input) throws IOException {
+            stage.setStatus(StageStatus.RUNNING);
+            long start = System.nanoTime();
+            try {
+                List<Map<String, Object>> output = apply(stage, input, this);
+                stage.setStatus(StageStatus.COMPLETED);
+                stage.setErrorMessage(null);
+                logger.info("Stage {} ({}): {} -> {} records", stage.getName(), stage.getType(), input.size(), output.size());
+                return output;
+            } catch (IOException | RuntimeException e) {
+                stage.setStatus(StageStatus.FAILED);
+                stage.setErrorMessage(e.getMessage());
+                throw e;
+            } finally {
+                stage.setExecutionTime((System.nanoTime() - start) / 1_000_000);
+            }
+        }
+        
+        private List<Map<String, Object>> input(PipelineStage stage) throws IOException {
+            StageConfig config = new StageConfig(stage);
+            if (config.has("input")) {
+                return output(find(config.getString("input")));
+            }
+            int index = stages.indexOf(stage);
+            return index > 0 ? output(stages.get(index - 1)) : initialRecords;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,189 @@
+package com.prophecy.testing.engine;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Broadcast lookup adding columns of the first lookup row with the same key to each row, or nulls
+ * when there is none, like the record LOOKUP stage. The lookup input is held in memory as a whole,
+ * so it must fit in the memory budget; larger inputs call for a join. Input columns are passed
+ * through without copying; lookup values replace input columns of the same name.
+ */
+final class LookupOperator implements BatchOperator {
+    private final BatchOperator input;
+    private final BatchOperator lookup;
+    private final long memoryBudget;
+    private final int[] keyColumns;
+    private final int[] lookupKeyColumns;
+    private final int[] lookupColumns;
+    // Output column of each lookup column, and whether an output column comes from the lookup
+    private final int[] targets;
+    private final boolean[] fromLookup;
+    private final BatchSchema schema;
+    private final KeyTable table;
+    private final RowStore values;
+    
+    private boolean built;
+    private ColumnVector[] vectors;
+    private KeyTable.Keys keys;
+    private int[] rows = new int[0];
+    
+    LookupOperator(BatchOperator input, BatchOperator lookup, List<String> keys, List<String> lookupKeys,
+                   List<String> columns, long memoryBudget) {
+        if (keys.size() != lookupKeys.size()) {
+            throw new IllegalArgumentException("Lookup needs as many lookup keys as keys: " + keys + " and " + lookupKeys);
+        }
+        this.input = input;
+        this.lookup = lookup;
+        this.memoryBudget = memoryBudget;
+        BatchSchema inputSchema = input.getSchema();
+        BatchSchema lookupSchema = lookup.getSchema();
+        
+        this.keyColumns = new int[keys.size()];
+        this.lookupKeyColumns = new int[keys.size()];
+        KeyTable.Kind[] kinds = new KeyTable.Kind[keys.size()];
+        for (int i = 0; i < kinds.length; i++) {
+            keyColumns[i] = column(inputSchema, keys.get(i));
+            lookupKeyColumns[i] = column(lookupSchema, lookupKeys.get(i));
+            kinds[i] = KeyTable.kindOf(inputSchema.getType(keyColumns[i]), lookupSchema.getType(lookupKeyColumns[i]));
+        }
+        this.table = new KeyTable(kinds);
+        
+        List<String> added = columns;
+        if (added.isEmpty()) {
+            added = new ArrayList<>(lookupSchema.getNames());
+            added.removeAll(lookupKeys);
+        }
+        this.lookupColumns = new int[added.size()];
+        List<ColumnVector.Type> addedTypes = new ArrayList<>();
+        for (int i = 0; i < lookupColumns.length; i++) {
+            lookupColumns[i] = column(lookupSchema, added.get(i));
+            addedTypes.add(lookupSchema.getType(lookupColumns[i]));
+        }
+        this.values = new RowStore(new BatchSchema(added, addedTypes));
+        
+        List<String> names = new ArrayList<>(inputSchema.getNames());
+        List<ColumnVector.Type> types = new ArrayList<>();
+        for (int column = 0; column < inputSchema.size(); column++) {
+            types.add(inputSchema.getType(column));
+        }
+        this.targets = new int[added.size()];
+        for (int i = 0; i < targets.length; i++) {
+            int existing = names.indexOf(added.get(i));
+            if (existing >= 0) {
+                types.set(existing, addedTypes.get(i));
+                targets[i] = existing;
+            } else {
+                targets[i] = names.size();
+                names.add(added.get(i));
+                types.add(addedTypes.get(i));
+            }
+        }
+        this.schema = new BatchSchema(names, types);
+        this.fromLookup = new boolean[names.size()];
+        for (int target : targets) {
+            fromLookup[target] = true;
+        }
+    }
+    
+    private static int column(BatchSchema schema, String name) {
+        int column = schema.indexOf(name);
+        if (column < 0) {
+            throw new IllegalArgumentException("Unknown lookup column '" + name + "'; columns are " + schema.getNames());
+        }
+        return column;
+    }
+    
+    @Override
+    public BatchSchema getSchema() {
+        return schema;
+    }
+    
+    @Override
+    public Batch next() throws IOException {
+        if (!built) {
+            build();
+            built = true;
+        }
+        Batch batch = input.next();
+        if (batch == null) {
+            return null;
+        }
+        
+        int capacity = batch.getSize();
+        if (vectors == null || vectors.length > 0 && vectors[0].capacity() < capacity || rows.length < capacity) {
+            vectors = new ColumnVector[targets.length];
+            for (int i = 0; i < vectors.length; i++) {
+                vectors[i] = ColumnVector.allocate(schema.getType(targets[i]), Math.max(capacity, 1));
+            }
+            rows = new int[Math.max(capacity, 1)];
+            keys = table.newKeys(rows.length);
+        }
+        int n = batch.getSelectedCount();
+        for (int i = 0; i < n; i++) {
+            rows[i] = batch.selectedRow(i);
+        }
+        table.encode(batch, keyColumns, rows, n, keys);
+        for (ColumnVector vector : vectors) {
+            vector.reset();
+        }
+        for (int i = 0; i < n; i++) {
+            int match = keys.hasNull(i) ? -1 : table.find(keys, i);
+            for (int column = 0; column < vectors.length; column++) {
+                if (match >= 0) {
+                    values.copyTo(match, column, vectors[column], rows[i]);
+                } else {
+                    vectors[column].setNull(rows[i]);
+                }
+            }
+        }
+        
+        ColumnVector[] columns = new ColumnVector[schema.size()];
+        for (int column = 0; column < columns.length; column++) {
+            if (!fromLookup[column]) {
+                columns[column] = batch.getColumn(column);
+            }
+        }
+        for (int i = 0; i < targets.length; i++) {
+            columns[targets[i]] = vectors[i];
+        }
+        return new Batch(schema, columns, batch);
+    }
+    
+    private void build() throws IOException {
+        KeyTable.Keys buildKeys = null;
+        int[] buildRows = new int[0];
+        Batch batch;
+        while ((batch = lookup.next()) != null) {
+            int n = batch.getSelectedCount();
+            if (buildRows.length < n) {
+                buildRows = new int[n];
+                buildKeys = table.newKeys(n);
+            }
+            for (int i = 0; i < n; i++) {
+                buildRows[i] = batch.selectedRow(i);
+            }
+            table.encode(batch, lookupKeyColumns, buildRows, n, buildKeys);
+            for (int i = 0; i < n; i++) {
+                // The first row of a key wins, so later rows of the key are not stored
+                if (!buildKeys.hasNull(i) && table.insert(buildKeys, i) == values.size()) {
+                    values.append(batch, buildRows[i], lookupColumns);
+                }
+            }
+            if (table.bytes() + values.bytes() > memoryBudget) {
+                throw new IllegalStateException("Lookup data exceeds the memory budget of " + memoryBudget
+                        + " bytes after " + values.size() + " rows; use a join for large lookups");
+            }
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        try {
+            input.close();
+        } finally {
+            lookup.close();
+        }
+    }
+}
\ No newline at end of file
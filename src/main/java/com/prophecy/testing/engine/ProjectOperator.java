@@ -0,0 +1,70 @@
+package com.prophecy.testing.engine;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Projection to a list of columns, each given as "column" or "column AS alias". Batches share the
+ * vectors and selection of the input batches, so no values are copied.
+ */
+public class ProjectOperator implements BatchOperator {
+    private final BatchOperator input;
+    private final BatchSchema schema;
+    private final int[] sourceColumns;
+    
+    public ProjectOperator(BatchOperator input, List<String> columns) {
+        this.input = input;
+        BatchSchema inputSchema = input.getSchema();
+        List<String> names = new ArrayList<>();
+        List<ColumnVector.Type> types = new ArrayList<>();
+        this.sourceColumns = new int[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            String[] parts = parse(columns.get(i));
+            int source = inputSchema.indexOf(parts[0]);
+            if (source < 0) {
+                throw new IllegalArgumentException("Unknown column '" + parts[0] + "' in projection; columns are " + inputSchema.getNames());
+            }
+            sourceColumns[i] = source;
+            names.add(parts[1]);
+            types.add(inputSchema.getType(source));
+        }
+        this.schema = new BatchSchema(names, types);
+    }
+    
+    /**
+     * Source column and output name of a projection entry
+     */
+    static String[] parse(String column) {
+        String text = column.trim();
+        int as = text.toUpperCase(Locale.ROOT).lastIndexOf(" AS ");
+        if (as < 0) {
+            return new String[] {text, text};
+        }
+        return new String[] {text.substring(0, as).trim(), text.substring(as + 4).trim()};
+    }
+    
+    @Override
+    public BatchSchema getSchema() {
+        return schema;
+    }
+    
+    @Override
+    public Batch next() throws IOException {
+        Batch batch = input.next();
+        if (batch == null) {
+            return null;
+        }
+        ColumnVector[] columns = new ColumnVector[sourceColumns.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = batch.getColumn(sourceColumns[i]);
+        }
+        return new Batch(schema, columns, batch);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
\ No newline at end of file
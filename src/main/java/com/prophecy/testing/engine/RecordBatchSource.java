@@ -0,0 +1,56 @@
+package com.prophecy.testing.engine;
+
+import java.util.*;
+
+/**
+ * Source of batches converted from records held in memory, such as test data or loaded files
+ */
+public class RecordBatchSource implements BatchOperator {
+    private final List<Map<String, Object>> records;
+    private final Batch batch;
+    private int position;
+    
+    public RecordBatchSource(List<Map<String, Object>> records, BatchSchema schema, int batchSize) {
+        this.records = records;
+        this.batch = new Batch(schema, batchSize);
+    }
+    
+    /**
+     * Schema with the columns of all records in order of appearance, typed by their values
+     */
+    public static BatchSchema inferSchema(List<Map<String, Object>> records) {
+        Map<String, ColumnVector.Type> columns = new LinkedHashMap<>();
+        for (Map<String, Object> record : records) {
+            for (Map.Entry<String, Object> field : record.entrySet()) {
+                columns.put(field.getKey(), BatchSchema.widen(columns.get(field.getKey()), BatchSchema.inferType(field.getValue())));
+            }
+        }
+        List<ColumnVector.Type> types = new ArrayList<>();
+        columns.values().forEach(type -> types.add(type != null ? type : ColumnVector.Type.STRING));
+        return new BatchSchema(new ArrayList<>(columns.keySet()), types);
+    }
+    
+    @Override
+    public BatchSchema getSchema() {
+        return batch.getSchema();
+    }
+    
+    @Override
+    public Batch next() {
+        if (position >= records.size()) {
+            return null;
+        }
+        batch.reset();
+        BatchSchema schema = batch.getSchema();
+        int rows = Math.min(batch.capacity(), records.size() - position);
+        for (int row = 0; row < rows; row++) {
+            Map<String, Object> record = records.get(position + row);
+            for (int column = 0; column < schema.size(); column++) {
+                batch.getColumn(column).setObject(row, record.get(schema.getName(column)));
+            }
+        }
+        position += rows;
+        batch.setSize(rows);
+        return batch;
+    }
+}
\ No newline at end of file
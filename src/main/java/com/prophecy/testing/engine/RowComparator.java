@@ -0,0 +1,172 @@
+package com.prophecy.testing.engine;
+
+import java.util.List;
+
+/**
+ * Order of batch rows by one or more columns, each given as "column [ASC|DESC]", comparing values
+ * like the record SORT stage: nulls first, numbers by value, then text. Columns of the same type on
+ * both sides are compared on their primitive values; the rows compared may come from batches of two
+ * schemas, such as the actual and expected data of a comparison.
+ * <p>
+ * An exact comparator orders values that tie in that order further, so that it returns 0 only for
+ * values that are equal in a dataset comparison: numbers of equal value, a number and numeric text
+ * of equal value without surrounding blanks, a boolean and its text, and otherwise identical text.
+ * Text such as "007" and "7" or " 42" and "42" therefore differs.
+ */
+public final class RowComparator {
+    private final int[] leftColumns;
+    private final int[] rightColumns;
+    private final ColumnVector.Type[] types;
+    private final boolean[] descending;
+    private final boolean exact;
+    
+    public RowComparator(BatchSchema schema, List<String> orderBy) {
+        this(schema, schema, orderBy, false);
+    }
+    
+    public RowComparator(BatchSchema left, BatchSchema right, List<String> orderBy, boolean exact) {
+        this.exact = exact;
+        int keys = orderBy.size();
+        this.leftColumns = new int[keys];
+        this.rightColumns = new int[keys];
+        this.types = new ColumnVector.Type[keys];
+        this.descending = new boolean[keys];
+        for (int i = 0; i < keys; i++) {
+            RowOperators.SortKey key = RowOperators.SortKey.parse(orderBy.get(i));
+            leftColumns[i] = column(left, key.column);
+            rightColumns[i] = column(right, key.column);
+            ColumnVector.Type type = left.getType(leftColumns[i]);
+            // Null marks columns of different types, which are compared as objects
+            types[i] = type == right.getType(rightColumns[i]) ? type : null;
+            descending[i] = key.descending;
+        }
+    }
+    
+    private static int column(BatchSchema schema, String name) {
+        int column = schema.indexOf(name);
+        if (column < 0) {
+            throw new IllegalArgumentException("Unknown sort column '" + name + "'; columns are " + schema.getNames());
+        }
+        return column;
+    }
+    
+    public int compare(Batch left, int leftRow, Batch right, int rightRow) {
+        for (int i = 0; i < types.length; i++) {
+            ColumnVector a = left.getColumn(leftColumns[i]);
+            ColumnVector b = right.getColumn(rightColumns[i]);
+            int order;
+            boolean aNull = a.isNull(leftRow);
+            boolean bNull = b.isNull(rightRow);
+            if (aNull || bNull) {
+                order = aNull == bNull ? 0 : aNull ? -1 : 1;
+            } else if (types[i] == null) {
+                Object x = a.getObject(leftRow);
+                Object y = b.getObject(rightRow);
+                order = Values.compare(x, y);
+                if (order == 0 && exact) {
+                    order = compareExactly(x, y);
+                }
+            } else {
+                switch (types[i]) {
+                    case LONG:
+                        order = Long.compare(((ColumnVector.LongVector) a).getValues()[leftRow],
+                                ((ColumnVector.LongVector) b).getValues()[rightRow]);
+                        break;
+                    case DOUBLE:
+                        double x = ((ColumnVector.DoubleVector) a).getValues()[leftRow];
+                        double y = ((ColumnVector.DoubleVector) b).getValues()[rightRow];
+                        order = x == y ? 0 : Double.compare(x, y);
+                        break;
+                    case BOOLEAN:
+                        order = Boolean.compare(((ColumnVector.BooleanVector) a).getValues()[leftRow],
+                                ((ColumnVector.BooleanVector) b).getValues()[rightRow]);
+                        break;
+                    default:
+                        String s = ((ColumnVector.StringVector) a).getValues()[leftRow];
+                        String t = ((ColumnVector.StringVector) b).getValues()[rightRow];
+                        order = compareText(s, t);
+                        if (order == 0 && exact) {
+                            order = s.compareTo(t);
+                        }
+                        break;
+                }
+            }
+            if (order != 0) {
+                return descending[i] ? -order : order;
+            }
+        }
+        return 0;
+    }
+    
+    /**
+     * Whether the first column has an order-preserving prefix, which is the case for all but text columns
+     */
+    boolean hasPrefix() {
+        return types.length > 0 && types[0] != null && types[0] != ColumnVector.Type.STRING;
+    }
+    
+    /**
+     * Prefix of a left row whose order is that of the first column: rows with different prefixes
+     * compare like their prefixes, and rows with equal prefixes need a full comparison
+     */
+    long prefix(Batch batch, int row) {
+        ColumnVector vector = batch.getColumn(leftColumns[0]);
+        if (vector.isNull(row)) {
+            return Long.MIN_VALUE;
+        }
+        switch (types[0]) {
+            case LONG:
+                return ((ColumnVector.LongVector) vector).getValues()[row];
+            case DOUBLE:
+                double value = ((ColumnVector.DoubleVector) vector).getValues()[row];
+                long bits = Double.doubleToLongBits(value == 0 ? 0.0 : value);
+                // Flip the magnitude of negative numbers so that the bits order like the values
+                return bits ^ (bits >> 63 & Long.MAX_VALUE);
+            default:
+                return ((ColumnVector.BooleanVector) vector).getValues()[row] ? 1 : 0;
+        }
+    }
+    
+    int comparePrefixes(long a, long b) {
+        return descending[0] ? Long.compare(b, a) : Long.compare(a, b);
+    }
+    
+    /**
+     * Text order of the record operators, parsing numbers only for text that may be one
+     */
+    private static int compareText(String a, String b) {
+        if (!mayBeNumber(a) && !mayBeNumber(b)) {
+            return a.compareTo(b);
+        }
+        return Values.compare(a, b);
+    }
+    
+    /**
+     * Order of values that tie in the record order: text by its characters, text after a typed value it
+     * does not spell exactly, and typed values of equal value as equal
+     */
+    private static int compareExactly(Object a, Object b) {
+        boolean aText = a instanceof String;
+        boolean bText = b instanceof String;
+        if (aText && bText) {
+            return ((String) a).compareTo((String) b);
+        }
+        if (!aText && !bText) {
+            return 0;
+        }
+        String text = (String) (aText ? a : b);
+        Object typed = aText ? b : a;
+        boolean spelled = typed instanceof Boolean ? text.equals(typed.toString()) : Values.isNumberText(text);
+        return spelled ? 0 : aText ? 1 : -1;
+    }
+    
+    private static boolean mayBeNumber(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                return c >= '0' && c <= '9' || c == '-' || c == '+' || c == '.';
+            }
+        }
+        return false;
+    }
+}
\ No newline at end of file
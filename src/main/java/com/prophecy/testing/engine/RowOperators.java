@@ -0,0 +1,490 @@
+package com.prophecy.testing.engine;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Row-at-a-time implementations of the relational stage types over lists of records. Input records
+ * are never modified: operators that add or combine columns return new records, and the others
+ * return the input records themselves.
+ */
+final class RowOperators {
+    
+    private RowOperators() {}
+    
+    enum JoinType { INNER, LEFT, RIGHT, FULL }
+    
+    static List<Map<String, Object>> filter(List<Map<String, Object>> rows, Predicate<Map<String, Object>> condition) {
+        List<Map<String, Object>> kept = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            if (condition.test(row)) {
+                kept.add(row);
+            }
+        }
+        return kept;
+    }
+    
+    /**
+     * Records with the listed columns, each given as "column" or "column AS alias"
+     */
+    static List<Map<String, Object>> project(List<Map<String, Object>> rows, List<String> columns) {
+        List<String[]> projection = new ArrayList<>();
+        columns.forEach(column -> projection.add(ProjectOperator.parse(column)));
+        Set<String> available = columns(rows);
+        for (String[] column : projection) {
+            if (!rows.isEmpty() && !available.contains(column[0])) {
+                throw new IllegalArgumentException("Unknown column '" + column[0] + "' in projection; columns are " + available);
+            }
+        }
+        
+        List<Map<String, Object>> projected = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            Map<String, Object> record = new LinkedHashMap<>();
+            for (String[] column : projection) {
+                record.put(column[1], row.get(column[0]));
+            }
+            projected.add(record);
+        }
+        return projected;
+    }
+    
+    /**
+     * Equi-join on the key columns, building a hash table on the right side. Rows with a null key
+     * match nothing; on a column name present on both sides the left value is kept.
+     */
+    static List<Map<String, Object>> join(List<Map<String, Object>> left, List<Map<String, Object>> right,
+                                          List<String> leftKeys, List<String> rightKeys, JoinType type) {
+        if (leftKeys.size() != rightKeys.size()) {
+            throw new IllegalArgumentException("Join needs as many right keys as left keys: " + leftKeys + " and " + rightKeys);
+        }
+        Set<String> leftColumns = columns(left);
+        Set<String> rightColumns = columns(right);
+        
+        Map<List<Object>, List<Integer>> table = new HashMap<>();
+        for (int i = 0; i < right.size(); i++) {
+            List<Object> key = key(right.get(i), rightKeys);
+            if (key != null) {
+                table.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+            }
+        }
+        
+        List<Map<String, Object>> joined = new ArrayList<>();
+        boolean[] matched = new boolean[right.size()];
+        for (Map<String, Object> row : left) {
+            List<Object> key = key(row, leftKeys);
+            List<Integer> matches = key != null ? table.get(key) : null;
+            if (matches != null) {
+                for (int i : matches) {
+                    matched[i] = true;
+                    joined.add(combine(row, right.get(i), leftColumns, rightColumns));
+                }
+            } else if (type == JoinType.LEFT || type == JoinType.FULL) {
+                joined.add(combine(row, null, leftColumns, rightColumns));
+            }
+        }
+        if (type == JoinType.RIGHT || type == JoinType.FULL) {
+            for (int i = 0; i < right.size(); i++) {
+                if (!matched[i]) {
+                    joined.add(combine(null, right.get(i), leftColumns, rightColumns));
+                }
+            }
+        }
+        return joined;
+    }
+    
+    /**
+     * Add columns of the first lookup row with the same key to each row, or nulls when there is
+     * none; lookup values replace input columns of the same name
+     */
+    static List<Map<String, Object>> lookup(List<Map<String, Object>> rows, List<Map<String, Object>> lookupRows,
+                                            List<String> keys, List<String> lookupKeys, List<String> columns) {
+        if (keys.size() != lookupKeys.size()) {
+            throw new IllegalArgumentException("Lookup needs as many lookup keys as keys: " + keys + " and " + lookupKeys);
+        }
+        List<String> added = columns;
+        if (added.isEmpty()) {
+            added = new ArrayList<>(columns(lookupRows));
+            added.removeAll(lookupKeys);
+        }
+        
+        Map<List<Object>, Map<String, Object>> table = new HashMap<>();
+        for (Map<String, Object> lookupRow : lookupRows) {
+            List<Object> key = key(lookupRow, lookupKeys);
+            if (key != null) {
+                table.putIfAbsent(key, lookupRow);
+            }
+        }
+        
+        List<Map<String, Object>> enriched = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            List<Object> key = key(row, keys);
+            Map<String, Object> match = key != null ? table.get(key) : null;
+            Map<String, Object> out = new LinkedHashMap<>(row);
+            for (String column : added) {
+                out.put(column, match != null ? match.get(column) : null);
+            }
+            enriched.add(out);
+        }
+        return enriched;
+    }
+    
+    /**
+     * One row per distinct combination of the grouping columns, in order of first occurrence, with
+     * the grouping columns followed by the aggregates. Without grouping columns there is exactly one row.
+     */
+    static List<Map<String, Object>> aggregate(List<Map<String, Object>> rows, List<String> groupBy,
+                                               List<Aggregation> aggregations) {
+        Map<List<Object>, Map<String, Object>> firstRows = new LinkedHashMap<>();
+        Map<List<Object>, Aggregator[]> groups = new HashMap<>();
+        if (groupBy.isEmpty()) {
+            firstRows.put(Collections.emptyList(), Collections.emptyMap());
+            groups.put(Collections.emptyList(), aggregators(aggregations));
+        }
+        
+        for (Map<String, Object> row : rows) {
+            List<Object> key = new ArrayList<>(groupBy.size());
+            for (String column : groupBy) {
+                key.add(Values.key(row.get(column)));
+            }
+            Aggregator[] aggregators = groups.get(key);
+            if (aggregators == null) {
+                aggregators = aggregators(aggregations);
+                groups.put(key, aggregators);
+                firstRows.put(key, row);
+            }
+            for (Aggregator aggregator : aggregators) {
+                aggregator.add(row);
+            }
+        }
+        
+        List<Map<String, Object>> result = new ArrayList<>(groups.size());
+        firstRows.forEach((key, first) -> {
+            Map<String, Object> out = new LinkedHashMap<>();
+            for (String column : groupBy) {
+                out.put(column, first.get(column));
+            }
+            Aggregator[] aggregators = groups.get(key);
+            for (int i = 0; i < aggregations.size(); i++) {
+                out.put(aggregations.get(i).alias, aggregators[i].result());
+            }
+            result.add(out);
+        });
+        return result;
+    }
+    
+    /**
+     * Stable sort on the given keys; nulls sort first ascending and last descending
+     */
+    static List<Map<String, Object>> sort(List<Map<String, Object>> rows, List<SortKey> keys) {
+        List<Map<String, Object>> sorted = new ArrayList<>(rows);
+        sorted.sort(comparator(keys));
+        return sorted;
+    }
+    
+    /**
+     * Rows of all inputs in input order, or only the first of rows with equal values when distinct
+     */
+    static List<Map<String, Object>> union(List<List<Map<String, Object>>> inputs, boolean distinct) {
+        List<Map<String, Object>> combined = new ArrayList<>();
+        inputs.forEach(combined::addAll);
+        if (!distinct) {
+            return combined;
+        }
+        
+        List<String> columns = new ArrayList<>(columns(combined));
+        Set<List<Object>> seen = new HashSet<>();
+        List<Map<String, Object>> unique = new ArrayList<>();
+        for (Map<String, Object> row : combined) {
+            List<Object> key = new ArrayList<>(columns.size());
+            for (String column : columns) {
+                key.add(Values.key(row.get(column)));
+            }
+            if (seen.add(key)) {
+                unique.add(row);
+            }
+        }
+        return unique;
+    }
+    
+    /**
+     * Add window function columns to each row, keeping the input row order. Rows are numbered and
+     * ranked within their partition in the sort order; aggregates are running totals over the rows
+     * up to and including all rows that sort equal, or over the whole partition without a sort order.
+     */
+    static List<Map<String, Object>> window(List<Map<String, Object>> rows, List<String> partitionBy,
+                                            List<SortKey> orderBy, List<WindowFunction> functions) {
+        Map<List<Object>, List<Integer>> partitions = new LinkedHashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            List<Object> key = new ArrayList<>(partitionBy.size());
+            for (String column : partitionBy) {
+                key.add(Values.key(rows.get(i).get(column)));
+            }
+            partitions.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+        }
+        
+        List<Map<String, Object>> result = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            result.add(new LinkedHashMap<>(row));
+        }
+        
+        Comparator<Map<String, Object>> order = comparator(orderBy);
+        for (List<Integer> partition : partitions.values()) {
+            partition.sort((a, b) -> order.compare(rows.get(a), rows.get(b)));
+            for (WindowFunction function : functions) {
+                function.apply(rows, partition, order, result);
+            }
+        }
+        return result;
+    }
+    
+    private static Comparator<Map<String, Object>> comparator(List<SortKey> keys) {
+        return (a, b) -> {
+            for (SortKey key : keys) {
+                int order = Values.compare(a.get(key.column), b.get(key.column));
+                if (order != 0) {
+                    return key.descending ? -order : order;
+                }
+            }
+            return 0;
+        };
+    }
+    
+    private static Set<String> columns(List<Map<String, Object>> rows) {
+        Set<String> columns = new LinkedHashSet<>();
+        for (Map<String, Object> row : rows) {
+            columns.addAll(row.keySet());
+        }
+        return columns;
+    }
+    
+    /**
+     * Normalized key values of a row, or null when any is null
+     */
+    private static List<Object> key(Map<String, Object> row, List<String> columns) {
+        List<Object> key = new ArrayList<>(columns.size());
+        for (String column : columns) {
+            Object value = Values.key(row.get(column));
+            if (value == null) {
+                return null;
+            }
+            key.add(value);
+        }
+        return key;
+    }
+    
+    private static Map<String, Object> combine(Map<String, Object> left, Map<String, Object> right,
+                                               Set<String> leftColumns, Set<String> rightColumns) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (String column : leftColumns) {
+            out.put(column, left != null ? left.get(column) : null);
+        }
+        for (String column : rightColumns) {
+            if (left == null || !out.containsKey(column)) {
+                out.put(column, right != null ? right.get(column) : null);
+            }
+        }
+        return out;
+    }
+    
+    private static Aggregator[] aggregators(List<Aggregation> aggregations) {
+        Aggregator[] aggregators = new Aggregator[aggregations.size()];
+        for (int i = 0; i < aggregators.length; i++) {
+            aggregators[i] = new Aggregator(aggregations.get(i).function, aggregations.get(i).column);
+        }
+        return aggregators;
+    }
+    
+    /**
+     * Sort column and direction
+     */
+    static class SortKey {
+        final String column;
+        final boolean descending;
+        
+        SortKey(String column, boolean descending) {
+            this.column = column;
+            this.descending = descending;
+        }
+        
+        /**
+         * Parse "column", "column ASC" or "column DESC"
+         */
+        static SortKey parse(String text) {
+            String[] parts = text.trim().split("\\s+");
+            if (parts.length > 2 || parts.length == 2 && !parts[1].equalsIgnoreCase("ASC") && !parts[1].equalsIgnoreCase("DESC")) {
+                throw new IllegalArgumentException("Invalid sort key: " + text);
+            }
+            return new SortKey(parts[0], parts.length == 2 && parts[1].equalsIgnoreCase("DESC"));
+        }
+    }
+    
+    /**
+     * Aggregate function over a column; a count without a column counts rows
+     */
+    static class Aggregation {
+        final String function;
+        final String column;
+        final String alias;
+        
+        Aggregation(String function, String column, String alias) {
+            this.function = function.toLowerCase(Locale.ROOT);
+            this.column = column == null || column.equals("*") ? null : column;
+            this.alias = alias != null ? alias : column == null ? this.function : this.function + "_" + column;
+            Aggregator.validate(this.function, this.column);
+        }
+    }
+    
+    private static class Aggregator {
+        private final String function;
+        private final String column;
+        private long count;
+        private BigDecimal sum;
+        private Object extreme;
+        private Set<Object> distinct;
+        
+        Aggregator(String function, String column) {
+            this.function = function;
+            this.column = column;
+        }
+        
+        static void validate(String function, String column) {
+            switch (function) {
+                case "count":
+                    return;
+                case "count_distinct": case "sum": case "avg": case "min": case "max": case "first":
+                    if (column == null) {
+                        throw new IllegalArgumentException("Aggregate " + function + " needs a column");
+                    }
+                    return;
+                default:
+                    throw new IllegalArgumentException("Unsupported aggregate function: " + function);
+            }
+        }
+        
+        void add(Map<String, Object> row) {
+            if (column == null) {
+                count++;
+                return;
+            }
+            Object value = row.get(column);
+            if (value == null) {
+                return;
+            }
+            count++;
+            switch (function) {
+                case "count_distinct":
+                    if (distinct == null) {
+                        distinct = new HashSet<>();
+                    }
+                    distinct.add(Values.key(value));
+                    break;
+                case "sum": case "avg":
+                    BigDecimal number = Values.toDecimal(value);
+                    if (number == null) {
+                        throw new IllegalArgumentException("Cannot " + function + " non-numeric value '" + value + "' of " + column);
+                    }
+                    sum = sum == null ? number : sum.add(number);
+                    break;
+                case "min":
+                    extreme = extreme == null || Values.compare(value, extreme) < 0 ? value : extreme;
+                    break;
+                case "max":
+                    extreme = extreme == null || Values.compare(value, extreme) > 0 ? value : extreme;
+                    break;
+                case "first":
+                    extreme = extreme == null ? value : extreme;
+                    break;
+                default:
+                    break;
+            }
+        }
+        
+        Object result() {
+            switch (function) {
+                case "count": return count;
+                case "count_distinct": return distinct == null ? 0L : (long) distinct.size();
+                case "sum": return Values.toNumber(sum);
+                case "avg": return sum == null ? null : sum.doubleValue() / count;
+                default: return extreme;
+            }
+        }
+    }
+    
+    /**
+     * Window function writing its value for each row of a partition to a column
+     */
+    static class WindowFunction {
+        final String function;
+        final String column;
+        final String alias;
+        final int offset;
+        final Object defaultValue;
+        
+        WindowFunction(String function, String column, String alias, int offset, Object defaultValue) {
+            this.function = function.toLowerCase(Locale.ROOT);
+            this.column = column;
+            this.alias = alias != null ? alias : column == null ? this.function : this.function + "_" + column;
+            this.offset = offset;
+            this.defaultValue = defaultValue;
+            switch (this.function) {
+                case "row_number": case "rank": case "dense_rank":
+                    break;
+                case "lag": case "lead":
+                    if (column == null) {
+                        throw new IllegalArgumentException("Window function " + this.function + " needs a column");
+                    }
+                    break;
+                default:
+                    Aggregator.validate(this.function, column);
+            }
+        }
+        
+        void apply(List<Map<String, Object>> rows, List<Integer> partition, Comparator<Map<String, Object>> order,
+                   List<Map<String, Object>> result) {
+            switch (function) {
+                case "row_number":
+                    for (int i = 0; i < partition.size(); i++) {
+                        result.get(partition.get(i)).put(alias, (long) i + 1);
+                    }
+                    return;
+                case "lag": case "lead":
+                    int shift = function.equals("lag") ? -offset : offset;
+                    for (int i = 0; i < partition.size(); i++) {
+                        int source = i + shift;
+                        Object value = source >= 0 && source < partition.size()
+                                ? rows.get(partition.get(source)).get(column) : defaultValue;
+                        result.get(partition.get(i)).put(alias, value);
+                    }
+                    return;
+                default:
+                    break;
+            }
+            
+            // Ranks and running aggregates are the same for rows that sort equal
+            Aggregator aggregator = function.equals("rank") || function.equals("dense_rank")
+                    ? null : new Aggregator(function, column);
+            long denseRank = 0;
+            int start = 0;
+            while (start < partition.size()) {
+                int end = start + 1;
+                while (end < partition.size()
+                        && order.compare(rows.get(partition.get(start)), rows.get(partition.get(end))) == 0) {
+                    end++;
+                }
+                denseRank++;
+                if (aggregator != null) {
+                    for (int i = start; i < end; i++) {
+                        aggregator.add(rows.get(partition.get(i)));
+                    }
+                }
+                Object value = function.equals("rank") ? (Object) (long) (start + 1)
+                        : function.equals("dense_rank") ? (Object) denseRank : aggregator.result();
+                for (int i = start; i < end; i++) {
+                    result.get(partition.get(i)).put(alias, value);
+                }
+                start = end;
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,155 @@
+package com.prophecy.testing.engine;
+
+import java.util.Arrays;
+
+/**
+ * Growable column-wise copy of rows, such as the build side of a hash join or the keys of the groups
+ * of an aggregate, with an estimate of the memory it holds.
+ */
+final class RowStore {
+    // Object header, reference and character data of an average short string
+    private static final int STRING_OVERHEAD = 56;
+    
+    private final BatchSchema schema;
+    private final Object[] values;
+    private final boolean[][] nulls;
+    private int size;
+    private long stringBytes;
+    
+    RowStore(BatchSchema schema) {
+        this.schema = schema;
+        this.values = new Object[schema.size()];
+        this.nulls = new boolean[schema.size()][];
+        allocate(16);
+    }
+    
+    BatchSchema getSchema() {
+        return schema;
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    /**
+     * Estimated bytes held by the stored rows
+     */
+    long bytes() {
+        long bytesPerRow = 0;
+        for (int column = 0; column < schema.size(); column++) {
+            bytesPerRow += 1 + (schema.getType(column) == ColumnVector.Type.BOOLEAN ? 1 : 8);
+        }
+        return capacity() * bytesPerRow + stringBytes;
+    }
+    
+    /**
+     * Append a row of a batch whose columns match the store columns, returning its position
+     */
+    int append(Batch batch, int row) {
+        return append(batch, row, null);
+    }
+    
+    /**
+     * Append the given columns of a batch row as the store columns, returning its position
+     */
+    int append(Batch batch, int row, int[] columns) {
+        if (size == capacity()) {
+            allocate(size * 2);
+        }
+        for (int column = 0; column < values.length; column++) {
+            ColumnVector vector = batch.getColumn(columns != null ? columns[column] : column);
+            if (vector.isNull(row)) {
+                nulls[column][size] = true;
+                continue;
+            }
+            switch (schema.getType(column)) {
+                case LONG:
+                    ((long[]) values[column])[size] = ((ColumnVector.LongVector) vector).getValues()[row];
+                    break;
+                case DOUBLE:
+                    ((double[]) values[column])[size] = vector instanceof ColumnVector.DoubleVector
+                            ? ((ColumnVector.DoubleVector) vector).getValues()[row] : ((Number) vector.getObject(row)).doubleValue();
+                    break;
+                case BOOLEAN:
+                    ((boolean[]) values[column])[size] = ((ColumnVector.BooleanVector) vector).getValues()[row];
+                    break;
+                default:
+                    String value = vector.getObject(row).toString();
+                    ((String[]) values[column])[size] = value;
+                    stringBytes += STRING_OVERHEAD + 2L * value.length();
+                    break;
+            }
+        }
+        return size++;
+    }
+    
+    boolean isNull(int row, int column) {
+        return nulls[column][row];
+    }
+    
+    Object getObject(int row, int column) {
+        if (nulls[column][row]) {
+            return null;
+        }
+        switch (schema.getType(column)) {
+            case LONG: return ((long[]) values[column])[row];
+            case DOUBLE: return ((double[]) values[column])[row];
+            case BOOLEAN: return ((boolean[]) values[column])[row];
+            default: return ((String[]) values[column])[row];
+        }
+    }
+    
+    /**
+     * Copy a stored value to a vector, converting it when the vector has another type
+     */
+    void copyTo(int row, int column, ColumnVector target, int targetRow) {
+        if (nulls[column][row]) {
+            target.setNull(targetRow);
+            return;
+        }
+        ColumnVector.Type type = schema.getType(column);
+        if (target.getType() != type) {
+            target.setObject(targetRow, getObject(row, column));
+            return;
+        }
+        switch (type) {
+            case LONG:
+                ((ColumnVector.LongVector) target).getValues()[targetRow] = ((long[]) values[column])[row];
+                break;
+            case DOUBLE:
+                ((ColumnVector.DoubleVector) target).getValues()[targetRow] = ((double[]) values[column])[row];
+                break;
+            case BOOLEAN:
+                ((ColumnVector.BooleanVector) target).getValues()[targetRow] = ((boolean[]) values[column])[row];
+                break;
+            default:
+                ((ColumnVector.StringVector) target).getValues()[targetRow] = ((String[]) values[column])[row];
+                break;
+        }
+    }
+    
+    private int capacity() {
+        return nulls.length > 0 ? nulls[0].length : Integer.MAX_VALUE;
+    }
+    
+    private void allocate(int capacity) {
+        for (int column = 0; column < values.length; column++) {
+            Object current = values[column];
+            switch (schema.getType(column)) {
+                case LONG:
+                    values[column] = current == null ? new long[capacity] : Arrays.copyOf((long[]) current, capacity);
+                    break;
+                case DOUBLE:
+                    values[column] = current == null ? new double[capacity] : Arrays.copyOf((double[]) current, capacity);
+                    break;
+                case BOOLEAN:
+                    values[column] = current == null ? new boolean[capacity] : Arrays.copyOf((boolean[]) current, capacity);
+                    break;
+                default:
+                    values[column] = current == null ? new String[capacity] : Arrays.copyOf((String[]) current, capacity);
+                    break;
+            }
+            nulls[column] = nulls[column] == null ? new boolean[capacity] : Arrays.copyOf(nulls[column], capacity);
+        }
+    }
+}
\ No newline at end of file
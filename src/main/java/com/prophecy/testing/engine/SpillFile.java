@@ -0,0 +1,194 @@
+package com.prophecy.testing.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+/**
+ * Temporary file of rows that did not fit in the memory budget of an operator, written row by row
+ * and read back once as batches. The file is deleted when it is read to the end or closed.
+ */
+final class SpillFile {
+    private static final int BUFFER_BYTES = 1 << 16;
+    
+    private final BatchSchema schema;
+    private final Path path;
+    private final DataOutputStream output;
+    private long rows;
+    
+    SpillFile(BatchSchema schema, String directory, String prefix) throws IOException {
+        this.schema = schema;
+        Path parent = Paths.get(directory);
+        Files.createDirectories(parent);
+        this.path = Files.createTempFile(parent, prefix, ".spill");
+        this.output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), BUFFER_BYTES));
+    }
+    
+    long rows() {
+        return rows;
+    }
+    
+    void write(Batch batch, int row) throws IOException {
+        for (int column = 0; column < schema.size(); column++) {
+            ColumnVector vector = batch.getColumn(column);
+            if (vector.isNull(row)) {
+                output.writeBoolean(true);
+                continue;
+            }
+            output.writeBoolean(false);
+            switch (schema.getType(column)) {
+                case LONG:
+                    output.writeLong(((ColumnVector.LongVector) vector).getValues()[row]);
+                    break;
+                case DOUBLE:
+                    output.writeDouble(((ColumnVector.DoubleVector) vector).getValues()[row]);
+                    break;
+                case BOOLEAN:
+                    output.writeBoolean(((ColumnVector.BooleanVector) vector).getValues()[row]);
+                    break;
+                default:
+                    byte[] bytes = ((ColumnVector.StringVector) vector).getValues()[row].getBytes(StandardCharsets.UTF_8);
+                    output.writeInt(bytes.length);
+                    output.write(bytes);
+                    break;
+            }
+        }
+        rows++;
+    }
+    
+    /**
+     * Finish writing and read the rows back in order of writing
+     */
+    BatchOperator read(int batchSize) throws IOException {
+        output.close();
+        return new Reader(batchSize);
+    }
+    
+    /**
+     * Delete the file without reading it
+     */
+    void discard() throws IOException {
+        output.close();
+        Files.deleteIfExists(path);
+    }
+    
+    /**
+     * Spill files of the partitions of rows by key hash at one level of grace hashing, created on first use
+     */
+    static final class Partitions {
+        private final BatchSchema schema;
+        private final String directory;
+        private final String prefix;
+        private final int depth;
+        private final SpillFile[] files = new SpillFile[KeyTable.PARTITIONS];
+        
+        Partitions(BatchSchema schema, String directory, String prefix, int depth) {
+            this.schema = schema;
+            this.directory = directory;
+            this.prefix = prefix;
+            this.depth = depth;
+        }
+        
+        void write(long hash, Batch batch, int row) throws IOException {
+            int partition = KeyTable.partition(hash, depth);
+            if (files[partition] == null) {
+                files[partition] = new SpillFile(schema, directory, prefix);
+            }
+            files[partition].write(batch, row);
+        }
+        
+        long rows(int partition) {
+            return files[partition] != null ? files[partition].rows() : 0;
+        }
+        
+        /**
+         * Rows of a partition, read once
+         */
+        BatchOperator read(int partition, int batchSize) throws IOException {
+            SpillFile file = files[partition];
+            files[partition] = null;
+            return file != null ? file.read(batchSize) : new RecordBatchSource(Collections.emptyList(), schema, 1);
+        }
+        
+        void discard() throws IOException {
+            for (int partition = 0; partition < files.length; partition++) {
+                if (files[partition] != null) {
+                    files[partition].discard();
+                    files[partition] = null;
+                }
+            }
+        }
+    }
+    
+    private final class Reader implements BatchOperator {
+        private final DataInputStream input;
+        private final Batch batch;
+        private long remaining = rows;
+        private byte[] scratch = new byte[64];
+        
+        Reader(int batchSize) throws IOException {
+            this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_BYTES));
+            this.batch = new Batch(schema, batchSize);
+        }
+        
+        @Override
+        public BatchSchema getSchema() {
+            return schema;
+        }
+        
+        @Override
+        public Batch next() throws IOException {
+            if (remaining == 0) {
+                close();
+                return null;
+            }
+            batch.reset();
+            int count = (int) Math.min(batch.capacity(), remaining);
+            for (int row = 0; row < count; row++) {
+                for (int column = 0; column < schema.size(); column++) {
+                    ColumnVector vector = batch.getColumn(column);
+                    if (input.readBoolean()) {
+                        vector.setNull(row);
+                        continue;
+                    }
+                    switch (schema.getType(column)) {
+                        case LONG:
+                            ((ColumnVector.LongVector) vector).getValues()[row] = input.readLong();
+                            break;
+                        case DOUBLE:
+                            ((ColumnVector.DoubleVector) vector).getValues()[row] = input.readDouble();
+                            break;
+                        case BOOLEAN:
+                            ((ColumnVector.BooleanVector) vector).getValues()[row] = input.readBoolean();
+                            break;
+                        default:
+                            int length = input.readInt();
+                            if (length > scratch.length) {
+                                scratch = new byte[Math.max(length, scratch.length * 2)];
+                            }
+                            input.readFully(scratch, 0, length);
+                            ((ColumnVector.StringVector) vector).getValues()[row] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+                            break;
+                    }
+                }
+            }
+            remaining -= count;
+            batch.setSize(count);
+            return batch;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            remaining = 0;
+            input.close();
+            Files.deleteIfExists(path);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,127 @@
+package com.prophecy.testing.engine;
+
+import com.prophecy.testing.models.PipelineStage;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Typed access to the configuration map of a pipeline stage. Lists may be given as JSON arrays or
+ * as comma-separated strings.
+ */
+class StageConfig {
+    private final PipelineStage stage;
+    private final Map<String, Object> values;
+    
+    StageConfig(PipelineStage stage) {
+        this.stage = stage;
+        this.values = stage.getConfiguration() != null ? stage.getConfiguration() : Collections.emptyMap();
+    }
+    
+    boolean has(String key) {
+        return values.get(key) != null;
+    }
+    
+    String getString(String key) {
+        Object value = values.get(key);
+        if (value == null) {
+            throw missing(key);
+        }
+        return value.toString();
+    }
+    
+    String getString(String key, String defaultValue) {
+        Object value = values.get(key);
+        return value != null ? value.toString() : defaultValue;
+    }
+    
+    boolean getBoolean(String key, boolean defaultValue) {
+        Object value = values.get(key);
+        return value != null ? Values.isTrue(value) : defaultValue;
+    }
+    
+    long getLong(String key, long defaultValue) {
+        Object value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        BigDecimal number = Values.toDecimal(value);
+        if (number == null) {
+            throw invalid(key, "an integer");
+        }
+        return number.longValue();
+    }
+    
+    /**
+     * Object under the key, such as a schema definition; empty when absent
+     */
+    @SuppressWarnings("unchecked")
+    Map<String, Object> getMap(String key) {
+        Object value = values.get(key);
+        if (value == null) {
+            return Collections.emptyMap();
+        }
+        if (!(value instanceof Map)) {
+            throw invalid(key, "an object");
+        }
+        return (Map<String, Object>) value;
+    }
+    
+    /**
+     * List of strings under the key; empty when absent
+     */
+    List<String> getStrings(String key) {
+        Object value = values.get(key);
+        List<String> strings = new ArrayList<>();
+        if (value instanceof Collection) {
+            for (Object item : (Collection<?>) value) {
+                strings.add(item.toString().trim());
+            }
+        } else if (value != null) {
+            for (String item : value.toString().split(",")) {
+                if (!item.trim().isEmpty()) {
+                    strings.add(item.trim());
+                }
+            }
+        }
+        return strings;
+    }
+    
+    List<String> getRequiredStrings(String key) {
+        List<String> strings = getStrings(key);
+        if (strings.isEmpty()) {
+            throw missing(key);
+        }
+        return strings;
+    }
+    
+    /**
+     * List of objects under the key, such as aggregation definitions; empty when absent
+     */
+    @SuppressWarnings("unchecked")
+    List<Map<String, Object>> getMaps(String key) {
+        Object value = values.get(key);
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        if (!(value instanceof Collection)) {
+            throw invalid(key, "a list of objects");
+        }
+        List<Map<String, Object>> maps = new ArrayList<>();
+        for (Object item : (Collection<?>) value) {
+            if (!(item instanceof Map)) {
+                throw invalid(key, "a list of objects");
+            }
+            maps.add((Map<String, Object>) item);
+        }
+        return maps;
+    }
+    
+    IllegalArgumentException missing(String key) {
+        return new IllegalArgumentException("Stage '" + stage.getName() + "' is missing configuration '" + key + "'");
+    }
+    
+    IllegalArgumentException invalid(String key, String expected) {
+        return new IllegalArgumentException("Configuration '" + key + "' of stage '" + stage.getName() + "' must be " + expected);
+    }
+}
\ No newline at end of file
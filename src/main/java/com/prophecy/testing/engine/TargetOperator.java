@@ -0,0 +1,140 @@
+package com.prophecy.testing.engine;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.prophecy.testing.data.JsonLinesReader;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Target writing the selected rows of each batch to a .csv, .json or .jsonl file as they pass
+ * through, so the output is never held in memory. Null values are written as empty CSV fields and
+ * JSON nulls.
+ */
+public class TargetOperator implements BatchOperator {
+    private final BatchOperator input;
+    private final BufferedWriter csv;
+    private final OutputStream json;
+    private final JsonGenerator generator;
+    private final boolean jsonLines;
+    
+    public TargetOperator(BatchOperator input, String filePath) throws IOException {
+        this.input = input;
+        Path path = Paths.get(filePath);
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        
+        this.jsonLines = JsonLinesReader.isJsonLines(filePath);
+        if (filePath.endsWith(".csv")) {
+            this.csv = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+            this.json = null;
+            this.generator = null;
+            csv.write(String.join(",", input.getSchema().getNames()));
+            csv.write('\n');
+        } else if (jsonLines || filePath.endsWith(".json")) {
+            this.csv = null;
+            this.json = new BufferedOutputStream(Files.newOutputStream(path), 1 << 16);
+            this.generator = new JsonFactory().createGenerator(json, JsonEncoding.UTF8);
+            if (jsonLines) {
+                generator.setRootValueSeparator(null);
+            } else {
+                generator.writeStartArray();
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported target file format: " + filePath);
+        }
+    }
+    
+    @Override
+    public BatchSchema getSchema() {
+        return input.getSchema();
+    }
+    
+    @Override
+    public Batch next() throws IOException {
+        Batch batch = input.next();
+        if (batch == null) {
+            return null;
+        }
+        for (int i = 0; i < batch.getSelectedCount(); i++) {
+            int row = batch.selectedRow(i);
+            if (csv != null) {
+                writeCsv(batch, row);
+            } else {
+                writeJson(batch, row);
+            }
+        }
+        return batch;
+    }
+    
+    private void writeCsv(Batch batch, int row) throws IOException {
+        for (int column = 0; column < batch.getSchema().size(); column++) {
+            if (column > 0) {
+                csv.write(',');
+            }
+            Object value = batch.getColumn(column).getObject(row);
+            if (value != null) {
+                csv.write(value.toString());
+            }
+        }
+        csv.write('\n');
+    }
+    
+    private void writeJson(Batch batch, int row) throws IOException {
+        BatchSchema schema = batch.getSchema();
+        generator.writeStartObject();
+        for (int column = 0; column < schema.size(); column++) {
+            ColumnVector vector = batch.getColumn(column);
+            generator.writeFieldName(schema.getName(column));
+            if (vector.isNull(row)) {
+                generator.writeNull();
+                continue;
+            }
+            switch (vector.getType()) {
+                case LONG:
+                    generator.writeNumber(((ColumnVector.LongVector) vector).getValues()[row]);
+                    break;
+                case DOUBLE:
+                    generator.writeNumber(((ColumnVector.DoubleVector) vector).getValues()[row]);
+                    break;
+                case BOOLEAN:
+                    generator.writeBoolean(((ColumnVector.BooleanVector) vector).getValues()[row]);
+                    break;
+                default:
+                    generator.writeString(((ColumnVector.StringVector) vector).getValues()[row]);
+                    break;
+            }
+        }
+        generator.writeEndObject();
+        if (jsonLines) {
+            generator.writeRaw('\n');
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        try {
+            if (csv != null) {
+                csv.close();
+            } else {
+                if (!jsonLines) {
+                    generator.writeEndArray();
+                }
+                generator.close();
+                json.close();
+            }
+        } finally {
+            input.close();
+        }
+    }
+}
\ No newline at end of file
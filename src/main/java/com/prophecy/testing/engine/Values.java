@@ -0,0 +1,96 @@
+package com.prophecy.testing.engine;
+
+import java.math.BigDecimal;
+import java.util.regex.Pattern;
+
+/**
+ * Comparison and grouping of the loosely typed values of test records. Values read from CSV files are
+ * strings, so numbers and booleans are matched with their text forms: "42", "42.0" and 42 are equal.
+ */
+final class Values {
+    private static final Pattern NUMBER = Pattern.compile("[-+]?(\\d+\\.?\\d*|\\.\\d+)([eE][-+]?\\d+)?");
+    
+    private Values() {}
+    
+    /**
+     * Order with nulls first, then numbers in numeric order, then all other values by text
+     */
+    static int compare(Object a, Object b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        BigDecimal x = toDecimal(a);
+        BigDecimal y = toDecimal(b);
+        if (x != null && y != null) {
+            return x.compareTo(y);
+        }
+        if (x != null || y != null) {
+            return x != null ? -1 : 1;
+        }
+        return a.toString().compareTo(b.toString());
+    }
+    
+    static boolean equal(Object a, Object b) {
+        return compare(a, b) == 0;
+    }
+    
+    /**
+     * Value with one representation per equal class of values, for use in hash keys
+     */
+    static Object key(Object value) {
+        if (value == null) {
+            return null;
+        }
+        BigDecimal number = toDecimal(value);
+        if (number != null) {
+            return number.signum() == 0 ? BigDecimal.ZERO : number.stripTrailingZeros();
+        }
+        return value.toString();
+    }
+    
+    /**
+     * Numeric value of a number or numeric text, or null
+     */
+    static BigDecimal toDecimal(Object value) {
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return BigDecimal.valueOf(((Number) value).longValue());
+        }
+        if (value instanceof Number) {
+            double d = ((Number) value).doubleValue();
+            return Double.isFinite(d) ? BigDecimal.valueOf(d) : null;
+        }
+        if (value instanceof String) {
+            String text = ((String) value).trim();
+            return NUMBER.matcher(text).matches() ? new BigDecimal(text) : null;
+        }
+        return null;
+    }
+    
+    /**
+     * Whether text is a number as written, without the surrounding blanks that toDecimal ignores
+     */
+    static boolean isNumberText(String text) {
+        return NUMBER.matcher(text).matches();
+    }
+    
+    static boolean isTrue(Object value) {
+        return value instanceof Boolean ? (Boolean) value : value != null && Boolean.parseBoolean(value.toString().trim());
+    }
+    
+    /**
+     * Narrowest of long and double holding a numeric result
+     */
+    static Number toNumber(BigDecimal value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return value.longValueExact();
+        } catch (ArithmeticException e) {
+            return value.doubleValue();
+        }
+    }
+}
\ No newline at end of file
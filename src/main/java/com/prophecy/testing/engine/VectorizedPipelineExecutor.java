@@ -0,0 +1,439 @@
+package com.prophecy.testing.engine;
+
+import com.prophecy.testing.api.ProphecyApiClient.PipelineTestResult;
+import com.prophecy.testing.api.ProphecyApiClient.StageExecutionResult;
+import com.prophecy.testing.api.ProphecyApiClient.StageTestResult;
+import com.prophecy.testing.config.ConfigManager;
+import com.prophecy.testing.data.TestDataManager;
+import com.prophecy.testing.models.*;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Executor of pipelines as a tree of batch operators, for data volumes the record-based
+ * LocalPipelineEngine cannot hold in memory. Batches are pulled through all stages at once, so only
+ * one batch per stage is alive at a time. The stages report the same results as a stage-by-stage run,
+ * with the record count of each stage; records are only kept for the last stage, up to a configured
+ * number.
+ *
+ * Each stage reads the stage named by its "input" setting, or else the stage before it, and joins and
+ * lookups read a further stage or data file, like in the LocalPipelineEngine. As outputs are streamed
+ * rather than kept, the output of each stage but the last must be read by exactly one stage. Joins,
+ * aggregations and sorts hold at most memory_mb of the stage, or the configured default, and spill
+ * partitions or sorted runs to disk beyond it; lookups are broadcast and must fit in it.
+ *
+ * Supported stage types and their settings:
+ * <ul>
+ *   <li>SOURCE: source_type GENERATED with row_count, seed and schema fields of name,
+ *   type, min, max, cardinality and null_rate; a .csv file_path, parsed straight into vectors; any
+ *   other file_path; or the test data when absent. A schema with fields of name and type sets the
+ *   column types, which are otherwise inferred.</li>
+ *   <li>FILTER, and TRANSFORMATION with transformation_type FILTER: condition</li>
+ *   <li>TRANSFORMATION with transformation_type PROJECT or SELECT: columns, as "column [AS alias]"</li>
+ *   <li>JOIN: right or right_file_path, join_type (inner, left, right, full), keys or left_keys and right_keys, memory_mb</li>
+ *   <li>LOOKUP: lookup or lookup_file_path, keys, lookup_keys, columns, memory_mb</li>
+ *   <li>AGGREGATE: group_by, aggregations of function (count, count_distinct, sum, avg, min, max, first), column and alias, memory_mb</li>
+ *   <li>SORT: order_by, as "column [ASC|DESC]", memory_mb</li>
+ *   <li>TARGET: file_path (.csv, .json or .jsonl), or no output file when absent</li>
+ * </ul>
+ */
+public class VectorizedPipelineExecutor {
+    private static final Logger logger = LogManager.getLogger(VectorizedPipelineExecutor.class);
+    
+    private final TestDataManager dataManager;
+    private final int batchSize;
+    private final int outputRecords;
+    private final long memoryMb;
+    private final String spillPath;
+    
+    public VectorizedPipelineExecutor() {
+        this(new TestDataManager());
+    }
+    
+    public VectorizedPipelineExecutor(TestDataManager dataManager) {
+        ConfigManager config = ConfigManager.getInstance();
+        this.dataManager = dataManager;
+        this.batchSize = config.getLocalBatchSize();
+        this.outputRecords = config.getLocalOutputRecords();
+        this.memoryMb = config.getLocalMemoryMb();
+        this.spillPath = config.getLocalSpillPath();
+    }
+    
+    /**
+     * Whether all stages of a pipeline have batch operators, in a tree of stages with sources for leaves
+     */
+    public static boolean supports(Pipeline pipeline) {
+        return unsupported(stages(pipeline)) == null;
+    }
+    
+    /**
+     * Execute all stages, stopping at the first stage that fails
+     */
+    public PipelineTestResult execute(Pipeline pipeline, Map<String, Object> inputData) {
+        logger.info("Starting vectorized execution of pipeline: {}", pipeline.getName());
+        List<PipelineStage> stages = stages(pipeline);
+        
+        PipelineTestResult result = new PipelineTestResult(pipeline.getId() != null ? pipeline.getId() : pipeline.getName());
+        List<StageMonitor> monitors = new ArrayList<>();
+        StageMonitor failed = null;
+        Exception error = null;
+        StageMonitor root = null;
+        List<Map<String, Object>> records = new ArrayList<>();
+        
+        try {
+            Map<PipelineStage, List<PipelineStage>> plan = plan(stages);
+            root = build(stages.get(stages.size() - 1), plan, inputData, monitors);
+            Batch batch;
+            while ((batch = root.next()) != null) {
+                for (int i = 0; i < batch.getSelectedCount() && records.size() < outputRecords; i++) {
+                    records.add(batch.toRecord(batch.selectedRow(i)));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            error = e;
+            // The stage that threw the exception saw it first, so none of its inputs failed; without
+            // monitors the stages could not be planned and no stage ran
+            failed = monitors.stream().filter(monitor -> monitor.failed && monitor.inputs.stream().noneMatch(input -> input.failed))
+                    .findFirst().orElse(monitors.isEmpty() ? null : monitors.get(monitors.size() - 1));
+        } finally {
+            if (root != null) {
+                try {
+                    root.close();
+                } catch (IOException e) {
+                    if (error == null) {
+                        error = e;
+                        failed = root;
+                    }
+                }
+            }
+        }
+        
+        monitors.sort(Comparator.comparingInt(monitor -> stages.indexOf(monitor.stage)));
+        for (StageMonitor monitor : monitors) {
+            PipelineStage stage = monitor.stage;
+            StageTestResult stageResult = new StageTestResult(stage.getId(), stage.getName());
+            result.addStageResult(stageResult);
+            stage.setExecutionTime(monitor.exclusiveNanos() / 1_000_000);
+            if (monitor == failed) {
+                stage.setStatus(StageStatus.FAILED);
+                stage.setErrorMessage(error.getMessage());
+                stageResult.setExecutionResult(new StageExecutionResult(false, null, error.getMessage()));
+                stageResult.setError("Stage execution failed: " + error.getMessage());
+                logger.error("Error executing stage {} with vectorized operators: {}", stage.getName(), error.getMessage());
+                break;
+            }
+            
+            stage.setStatus(StageStatus.COMPLETED);
+            stage.setErrorMessage(null);
+            Map<String, Object> outputData = new LinkedHashMap<>();
+            outputData.put("record_count", monitor.rows);
+            if (monitor == root && error == null) {
+                outputData.put("records", records);
+            }
+            StageExecutionResult execution = new StageExecutionResult(true, outputData, null);
+            stageResult.setExecutionResult(execution);
+            stageResult.setOutputData(outputData);
+            logger.info("Stage {} ({}): {} records in {} ms", stage.getName(), stage.getType(), monitor.rows, stage.getExecutionTime());
+        }
+        
+        if (error != null && failed == null) {
+            result.setError("Pipeline cannot run with vectorized operators: " + error.getMessage());
+            logger.error("Error planning pipeline {} for vectorized operators: {}", pipeline.getName(), error.getMessage());
+        }
+        result.setOverallSuccess(error == null);
+        logger.info("Vectorized execution completed for pipeline: {}. Success: {}", pipeline.getName(), result.isOverallSuccess());
+        return result;
+    }
+    
+    private static List<PipelineStage> stages(Pipeline pipeline) {
+        List<PipelineStage> stages = pipeline.getStages() != null ? new ArrayList<>(pipeline.getStages()) : new ArrayList<>();
+        stages.sort(Comparator.comparingInt(PipelineStage::getOrder));
+        return stages;
+    }
+    
+    /**
+     * Reason the stages cannot run as a tree of batch operators, or null when they can
+     */
+    private static String unsupported(List<PipelineStage> stages) {
+        try {
+            plan(stages);
+            return null;
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+    
+    /**
+     * Stages each stage reads, its main input first, checking that they form a tree rooted at the last stage
+     */
+    private static Map<PipelineStage, List<PipelineStage>> plan(List<PipelineStage> stages) {
+        if (stages.isEmpty()) {
+            throw new IllegalArgumentException("Pipeline has no stages");
+        }
+        Map<PipelineStage, List<PipelineStage>> plan = new IdentityHashMap<>();
+        Map<PipelineStage, PipelineStage> readers = new IdentityHashMap<>();
+        for (int i = 0; i < stages.size(); i++) {
+            PipelineStage stage = stages.get(i);
+            StageConfig config = new StageConfig(stage);
+            StageType type = LocalPipelineEngine.typeOf(stage, config);
+            boolean supported = EnumSet.of(StageType.SOURCE, StageType.FILTER, StageType.JOIN, StageType.LOOKUP,
+                    StageType.AGGREGATE, StageType.SORT, StageType.TARGET).contains(type)
+                    || type == StageType.TRANSFORMATION && LocalPipelineEngine.isProjection(config);
+            if (!supported) {
+                throw new IllegalArgumentException("Stage '" + stage.getName() + "' of type " + type.name()
+                        + " is not supported by the vectorized executor");
+            }
+            
+            List<PipelineStage> inputs = new ArrayList<>();
+            if (type != StageType.SOURCE) {
+                if (config.has("input")) {
+                    inputs.add(find(stages, config.getString("input")));
+                } else if (i > 0) {
+                    inputs.add(stages.get(i - 1));
+                } else {
+                    throw new IllegalArgumentException("Vectorized pipelines read their data from source stages, "
+                            + "so stage '" + stage.getName() + "' needs an input stage");
+                }
+                String side = type == StageType.JOIN ? "right" : type == StageType.LOOKUP ? "lookup" : null;
+                if (side != null && config.has(side)) {
+                    inputs.add(find(stages, config.getString(side)));
+                }
+            }
+            for (PipelineStage input : inputs) {
+                PipelineStage reader = readers.put(input, stage);
+                if (reader != null) {
+                    throw new IllegalArgumentException("Output of stage '" + input.getName() + "' is read by both stage '"
+                            + reader.getName() + "' and stage '" + stage.getName() + "', which the vectorized executor does not support");
+                }
+            }
+            plan.put(stage, inputs);
+        }
+        
+        for (PipelineStage stage : stages.subList(0, stages.size() - 1)) {
+            if (!readers.containsKey(stage)) {
+                throw new IllegalArgumentException("Output of stage '" + stage.getName() + "' is not read by any stage");
+            }
+        }
+        // With one reader per stage, stages not reached from the last stage read each other in a cycle
+        Set<PipelineStage> reached = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<PipelineStage> pending = new ArrayDeque<>();
+        pending.add(stages.get(stages.size() - 1));
+        while (!pending.isEmpty()) {
+            PipelineStage stage = pending.remove();
+            if (reached.add(stage)) {
+                pending.addAll(plan.get(stage));
+            }
+        }
+        for (PipelineStage stage : stages) {
+            if (!reached.contains(stage)) {
+                throw new IllegalArgumentException("Stage '" + stage.getName() + "' depends on its own output");
+            }
+        }
+        return plan;
+    }
+    
+    private static PipelineStage find(List<PipelineStage> stages, String reference) {
+        for (PipelineStage stage : stages) {
+            if (reference.equals(stage.getId()) || reference.equals(stage.getName())) {
+                return stage;
+            }
+        }
+        throw new IllegalArgumentException("No stage with id or name '" + reference + "' in pipeline");
+    }
+    
+    /**
+     * Operators of a stage and the stages it reads, adding their monitors in order of creation
+     */
+    private StageMonitor build(PipelineStage stage, Map<PipelineStage, List<PipelineStage>> plan,
+                               Map<String, Object> inputData, List<StageMonitor> monitors) throws IOException {
+        List<StageMonitor> inputs = new ArrayList<>();
+        try {
+            for (PipelineStage input : plan.get(stage)) {
+                inputs.add(build(input, plan, inputData, monitors));
+            }
+            stage.setStatus(StageStatus.RUNNING);
+            StageMonitor monitor = new StageMonitor(stage, inputs);
+            monitors.add(monitor);
+            try {
+                monitor.operator = operator(stage, inputs, inputData);
+            } catch (IOException | RuntimeException e) {
+                monitor.failed = true;
+                throw e;
+            }
+            return monitor;
+        } catch (IOException | RuntimeException e) {
+            // Stages already built are not reachable from the last stage, so close them here
+            for (StageMonitor input : inputs) {
+                try {
+                    input.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        }
+    }
+    
+    private BatchOperator operator(PipelineStage stage, List<StageMonitor> inputs, Map<String, Object> inputData) throws IOException {
+        StageConfig config = new StageConfig(stage);
+        BatchOperator input = inputs.isEmpty() ? null : inputs.get(0);
+        switch (LocalPipelineEngine.typeOf(stage, config)) {
+            case SOURCE:
+                return source(config, inputData);
+            case JOIN:
+                List<String> keys = config.getStrings("keys");
+                List<String> leftKeys = keys.isEmpty() ? config.getRequiredStrings("left_keys") : keys;
+                List<String> rightKeys = keys.isEmpty() ? config.getRequiredStrings("right_keys") : keys;
+                BatchOperator right = inputs.size() > 1 ? inputs.get(1) : file(config, "right", "right_file_path");
+                return new HashJoinOperator(input, right, leftKeys, rightKeys, LocalPipelineEngine.joinType(config),
+                        memoryBudget(config), spillPath, batchSize);
+            case LOOKUP:
+                List<String> lookupKeys = config.getRequiredStrings("keys");
+                BatchOperator lookup = inputs.size() > 1 ? inputs.get(1) : file(config, "lookup", "lookup_file_path");
+                return new LookupOperator(input, lookup, lookupKeys, config.has("lookup_keys") ? config.getStrings("lookup_keys") : lookupKeys,
+                        config.getStrings("columns"), memoryBudget(config));
+            case AGGREGATE:
+                return new HashAggregateOperator(input, config.getStrings("group_by"), LocalPipelineEngine.aggregations(config),
+                        memoryBudget(config), spillPath, batchSize);
+            case SORT:
+                return new ExternalSortOperator(input, config.getRequiredStrings("order_by"), memoryBudget(config), spillPath, batchSize);
+            case FILTER:
+                return new FilterOperator(input, Condition.parse(config.getString("condition")), batchSize);
+            case TARGET:
+                return config.has("file_path") ? new TargetOperator(input, config.getString("file_path")) : input;
+            default:
+                return new ProjectOperator(input, config.getRequiredStrings("columns"));
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private BatchOperator source(StageConfig config, Map<String, Object> inputData) throws IOException {
+        Object schemaFields = config.getMap("schema").get("fields");
+        if (schemaFields != null && !(schemaFields instanceof List)) {
+            throw config.invalid("schema", "an object with a list of fields");
+        }
+        List<Map<String, Object>> fields = schemaFields != null ? (List<Map<String, Object>>) schemaFields : Collections.emptyList();
+        BatchSchema schema = fields.isEmpty() ? null : schema(fields, config);
+        
+        if (config.getString("source_type", "").equalsIgnoreCase("GENERATED")) {
+            if (schema == null) {
+                throw config.missing("schema");
+            }
+            List<GeneratedBatchSource.ColumnSpec> specs = new ArrayList<>();
+            for (Map<String, Object> field : fields) {
+                specs.add(new GeneratedBatchSource.ColumnSpec(number(field, "min", 0), number(field, "max", 1_000_000),
+                        (long) number(field, "cardinality", 100), number(field, "null_rate", 0)));
+            }
+            return new GeneratedBatchSource(schema, specs, config.getLong("row_count", 0), config.getLong("seed", 42), batchSize);
+        }
+        if (config.has("file_path")) {
+            return file(config.getString("file_path"), schema);
+        }
+        Object testRecords = inputData != null ? inputData.get("records") : null;
+        List<Map<String, Object>> records = testRecords instanceof List ? (List<Map<String, Object>>) testRecords : Collections.emptyList();
+        return new RecordBatchSource(records, schema != null ? schema : RecordBatchSource.inferSchema(records), batchSize);
+    }
+    
+    /**
+     * Data file named by a stage setting, for a further input that is not a stage
+     */
+    private BatchOperator file(StageConfig config, String referenceKey, String fileKey) throws IOException {
+        if (!config.has(fileKey)) {
+            throw config.missing(referenceKey);
+        }
+        return file(config.getString(fileKey), null);
+    }
+    
+    private BatchOperator file(String filePath, BatchSchema schema) throws IOException {
+        if (filePath.endsWith(".csv")) {
+            return new CsvBatchSource(filePath, schema, batchSize);
+        }
+        List<Map<String, Object>> records = dataManager.loadTestDataFromFile(filePath);
+        return new RecordBatchSource(records, schema != null ? schema : RecordBatchSource.inferSchema(records), batchSize);
+    }
+    
+    private long memoryBudget(StageConfig config) {
+        return config.getLong("memory_mb", memoryMb) * 1024 * 1024;
+    }
+    
+    private static BatchSchema schema(List<Map<String, Object>> fields, StageConfig config) {
+        List<String> names = new ArrayList<>();
+        List<ColumnVector.Type> types = new ArrayList<>();
+        for (Map<String, Object> field : fields) {
+            Object name = field.get("name");
+            if (name == null) {
+                throw config.invalid("schema", "an object with fields of name and type");
+            }
+            names.add(name.toString());
+            try {
+                Object type = field.get("type");
+                types.add(ColumnVector.typeOf(type != null ? DataType.valueOf(type.toString().toUpperCase(Locale.ROOT)) : DataType.STRING));
+            } catch (IllegalArgumentException e) {
+                throw config.invalid("schema", "an object with fields of a known data type, not " + field.get("type"));
+            }
+        }
+        return new BatchSchema(names, types);
+    }
+    
+    private static double number(Map<String, Object> field, String key, double defaultValue) {
+        BigDecimal value = Values.toDecimal(field.get(key));
+        return value != null ? value.doubleValue() : defaultValue;
+    }
+    
+    /**
+     * Operator of one stage, counting the rows it produces and the time spent in it
+     */
+    private static final class StageMonitor implements BatchOperator {
+        private final PipelineStage stage;
+        private final List<StageMonitor> inputs;
+        private BatchOperator operator;
+        private long rows;
+        private long nanos;
+        private boolean failed;
+        
+        StageMonitor(PipelineStage stage, List<StageMonitor> inputs) {
+            this.stage = stage;
+            this.inputs = inputs;
+        }
+        
+        @Override
+        public BatchSchema getSchema() {
+            return operator.getSchema();
+        }
+        
+        @Override
+        public Batch next() throws IOException {
+            long start = System.nanoTime();
+            try {
+                Batch batch = operator.next();
+                if (batch != null) {
+                    rows += batch.getSelectedCount();
+                }
+                return batch;
+            } catch (IOException | RuntimeException e) {
+                failed = true;
+                throw e;
+            } finally {
+                nanos += System.nanoTime() - start;
+            }
+        }
+        
+        /**
+         * Time spent in this stage, without the time its input stages took to produce the batches
+         */
+        long exclusiveNanos() {
+            return nanos - inputs.stream().mapToLong(input -> input.nanos).sum();
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (operator != null) {
+                operator.close();
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -3,10 +3,13 @@ package com.prophecy.testing.pages;
 import com.prophecy.testing.config.ConfigManager;
 import com.prophecy.testing.config.WebDriverManager;
 import com.prophecy.testing.utils.ScreenshotUtils;
+import com.prophecy.testing.utils.WaitEngine;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.openqa.selenium.By;
 import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.PageFactory;
@@ -15,6 +18,7 @@ import org.openqa.selenium.support.ui.WebDriverWait;
 
 import java.time.Duration;
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * Base page class containing common functionality for all page objects
@@ -117,12 +121,12 @@ public abstract class BasePage {
     }
     
     /**
-     * Check if element is displayed
+     * Check if element is displayed, allowing a short time for it to render
      */
     protected boolean isElementDisplayed(By locator) {
         try {
-            WebElement element = driver.findElement(locator);
-            return element.isDisplayed();
+            return WaitEngine.poll(() -> driver.findElement(locator).isDisplayed(),
+                    Duration.ofMillis(config.getDisplayCheckMillis()));
         } catch (Exception e) {
             return false;
         }
@@ -199,15 +203,44 @@ public abstract class BasePage {
     }
     
     /**
-     * Wait for specific time
+     * Wait for an action to take effect and the page to settle: first for a condition showing that the
+     * action has reached the page, then, in the time left, for the DOM to stop changing. A quiet DOM
+     * alone may be seen before an asynchronous action has started.
      */
-    protected void waitFor(int seconds) {
+    protected void waitFor(int seconds, Function<WebDriver, ?> actionTookEffect) {
+        Duration timeout = Duration.ofSeconds(seconds);
+        long start = System.nanoTime();
         try {
-            Thread.sleep(seconds * 1000L);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            logger.warn("Wait interrupted: {}", e.getMessage());
+            WaitEngine.until(driver, actionTookEffect, timeout);
+        } catch (TimeoutException e) {
+            logger.debug("Action did not take effect within {} seconds", seconds);
+            return;
         }
+        Duration remaining = timeout.minusNanos(System.nanoTime() - start);
+        if (remaining.isNegative() || remaining.isZero() || !WaitEngine.waitForDomToSettle(driver, remaining)) {
+            logger.debug("Page did not settle within {} seconds", seconds);
+        }
+    }
+    
+    /**
+     * Condition that holds once the elements of a locator differ from the ones present now, in number
+     * or by being rendered again; taken before an action that changes a list, e.g. a search
+     */
+    protected Function<WebDriver, Boolean> changeOf(By locator) {
+        List<WebElement> before = driver.findElements(locator);
+        return currentDriver -> {
+            if (currentDriver.findElements(locator).size() != before.size()) {
+                return true;
+            }
+            for (WebElement element : before) {
+                try {
+                    element.isEnabled();
+                } catch (StaleElementReferenceException e) {
+                    return true;
+                }
+            }
+            return false;
+        };
     }
     
     /**
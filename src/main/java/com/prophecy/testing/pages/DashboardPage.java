@@ -1,6 +1,7 @@
 package com.prophecy.testing.pages;
 
 import org.openqa.selenium.By;
+import org.openqa.selenium.support.ui.ExpectedConditions;
 
 /**
  * Page Object Model for Prophecy Dashboard Page
@@ -83,7 +84,7 @@ public class DashboardPage extends BasePage {
             // Click user menu first if it exists
             if (isElementDisplayed(USER_MENU)) {
                 clickElement(USER_MENU);
-                waitFor(1); // Wait for menu to expand
+                waitFor(1, ExpectedConditions.visibilityOfElementLocated(LOGOUT_BUTTON)); // Wait for menu to expand
             }
             
             clickElement(LOGOUT_BUTTON);
@@ -134,7 +135,9 @@ public class DashboardPage extends BasePage {
             waitForElementToBeVisible(NAVIGATION_MENU);
         } catch (Exception e) {
             // Try alternative approach
-            waitFor(3);
+            waitFor(3, ExpectedConditions.or(
+                    ExpectedConditions.presenceOfElementLocated(PIPELINES_LINK),
+                    ExpectedConditions.presenceOfElementLocated(PROJECTS_LINK)));
         }
         
         logger.info("Dashboard fully loaded");
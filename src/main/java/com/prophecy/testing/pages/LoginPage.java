@@ -1,9 +1,17 @@
 package com.prophecy.testing.pages;
 
 import org.openqa.selenium.By;
+import org.openqa.selenium.Cookie;
 import org.openqa.selenium.support.FindBy;
+import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.WebElement;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * Page Object Model for Prophecy Login Page
  */
@@ -86,6 +94,80 @@ public class LoginPage extends BasePage {
         return new DashboardPage();
     }
     
+    /**
+     * Restore the saved login of a user into the current browser session. Returns the dashboard when
+     * the application accepts the saved state, or null when a real login is needed.
+     */
+    public DashboardPage restoreSession(String email) {
+        if (!config.isLoginSessionCacheEnabled()) {
+            return null;
+        }
+        LoginSessionCache.LoginState state = LoginSessionCache.get(email);
+        if (state == null) {
+            return null;
+        }
+        
+        try {
+            // Cookies and storage can only be set on a page of the application's origin
+            String baseUrl = config.getProphecyBaseUrl();
+            navigateToUrl(baseUrl);
+            driver.manage().deleteAllCookies();
+            for (Cookie cookie : state.getCookies()) {
+                driver.manage().addCookie(cookie);
+            }
+            for (Map.Entry<String, String> item : state.getLocalStorage().entrySet()) {
+                executeJavaScript("window.localStorage.setItem(arguments[0], arguments[1]);", item.getKey(), item.getValue());
+            }
+            navigateToUrl(baseUrl);
+            
+            DashboardPage dashboardPage = new DashboardPage();
+            if (!getCurrentUrl().startsWith(config.getProphecyLoginUrl()) && dashboardPage.isDashboardLoaded()) {
+                logger.info("Restored saved login session for user: {}", email);
+                return dashboardPage;
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to restore saved login session: {}", e.getMessage());
+        }
+        
+        LoginSessionCache.invalidate(email);
+        logger.info("Saved login session for user {} was not accepted, logging in again", email);
+        return null;
+    }
+    
+    /**
+     * Save the cookies and local storage of the current authenticated session for later scenarios
+     */
+    @SuppressWarnings("unchecked")
+    public void saveSession(String email) {
+        if (!config.isLoginSessionCacheEnabled()) {
+            return;
+        }
+        
+        Set<Cookie> cookies = driver.manage().getCookies();
+        Map<String, String> localStorage = new HashMap<>();
+        Object items = executeJavaScript(
+                "var items = {};" +
+                "for (var i = 0; i < window.localStorage.length; i++) {" +
+                "  var key = window.localStorage.key(i);" +
+                "  items[key] = window.localStorage.getItem(key);" +
+                "}" +
+                "return items;");
+        if (items instanceof Map) {
+            ((Map<String, Object>) items).forEach((key, value) -> localStorage.put(key, String.valueOf(value)));
+        }
+        
+        // The state is only reused while every cookie it carries is still valid
+        Instant expiresAt = Instant.now().plus(Duration.ofMinutes(config.getLoginSessionTtlMinutes()));
+        for (Cookie cookie : cookies) {
+            if (cookie.getExpiry() != null && cookie.getExpiry().toInstant().isBefore(expiresAt)) {
+                expiresAt = cookie.getExpiry().toInstant();
+            }
+        }
+        
+        LoginSessionCache.put(email, new LoginSessionCache.LoginState(cookies, localStorage, expiresAt));
+        logger.info("Saved login session for user {} with {} cookies until {}", email, cookies.size(), expiresAt);
+    }
+    
     /**
      * Wait for login process to complete
      */
@@ -98,8 +180,10 @@ public class LoginPage extends BasePage {
         // Wait for page to load
         waitForPageToLoad();
         
-        // Additional wait for any redirects
-        waitFor(2);
+        // Additional wait for any redirects away from the login page, or for a login error
+        waitFor(2, ExpectedConditions.or(
+                ExpectedConditions.not(ExpectedConditions.urlContains("login")),
+                ExpectedConditions.visibilityOfElementLocated(ERROR_MESSAGE)));
     }
     
     /**
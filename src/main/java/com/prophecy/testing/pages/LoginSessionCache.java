@@ -0,0 +1,78 @@
+package com.prophecy.testing.pages;
+
+import org.openqa.selenium.Cookie;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide store of authenticated browser state per user. After one real login the cookies and
+ * local storage of the session are kept here and injected into later sessions, until the earliest
+ * cookie expiry or the configured time to live passes.
+ */
+public final class LoginSessionCache {
+    private static final Map<String, LoginState> states = new ConcurrentHashMap<>();
+    
+    private LoginSessionCache() {}
+    
+    /**
+     * Get the saved login state of a user, or null when there is none or it has expired
+     */
+    public static LoginState get(String user) {
+        LoginState state = states.get(user);
+        if (state != null && state.isExpired()) {
+            states.remove(user, state);
+            return null;
+        }
+        return state;
+    }
+    
+    public static void put(String user, LoginState state) {
+        states.put(user, state);
+    }
+    
+    /**
+     * Drop the saved state of a user, e.g. when the server no longer accepts it
+     */
+    public static void invalidate(String user) {
+        states.remove(user);
+    }
+    
+    public static void clear() {
+        states.clear();
+    }
+    
+    /**
+     * Cookies and local storage of an authenticated session
+     */
+    public static final class LoginState {
+        private final Set<Cookie> cookies;
+        private final Map<String, String> localStorage;
+        private final Instant expiresAt;
+        
+        public LoginState(Set<Cookie> cookies, Map<String, String> localStorage, Instant expiresAt) {
+            this.cookies = Collections.unmodifiableSet(cookies);
+            this.localStorage = Collections.unmodifiableMap(localStorage);
+            this.expiresAt = expiresAt;
+        }
+        
+        public Set<Cookie> getCookies() {
+            return cookies;
+        }
+        
+        public Map<String, String> getLocalStorage() {
+            return localStorage;
+        }
+        
+        public Instant getExpiresAt() {
+            return expiresAt;
+        }
+        
+        boolean isExpired() {
+            return !Instant.now().isBefore(expiresAt);
+        }
+    }
+}
\ No newline at end of file
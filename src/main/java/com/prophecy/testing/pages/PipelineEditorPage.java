@@ -1,11 +1,21 @@
 package com.prophecy.testing.pages;
 
+import com.prophecy.testing.api.PipelineRunMonitor;
 import com.prophecy.testing.models.PipelineStage;
 import com.prophecy.testing.models.StageType;
+import com.prophecy.testing.utils.WaitEngine;
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedConditions;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Page Object Model for Prophecy Pipeline Editor Page
@@ -41,10 +51,17 @@ public class PipelineEditorPage extends BasePage {
     private static final By EXECUTION_STATUS = By.xpath("//div[contains(@class, 'execution-status') or contains(@class, 'status')]");
     private static final By EXECUTION_LOGS = By.xpath("//div[contains(@class, 'execution-logs') or contains(@class, 'logs')]");
     
+    // Save and validation feedback
+    private static final By NOTIFICATION = By.xpath("//div[contains(@class, 'toast') or contains(@class, 'notification') or contains(@class, 'snackbar')]");
+    private static final By VALIDATION_RESULTS = By.xpath("//div[contains(@class, 'validation-result') or contains(@class, 'validation')]");
+    
     // Data preview
     private static final By DATA_PREVIEW_PANEL = By.xpath("//div[contains(@class, 'data-preview') or contains(@class, 'preview')]");
     private static final By PREVIEW_DATA_BUTTON = By.xpath("//button[contains(text(), 'Preview') or contains(@title, 'Preview')]");
     
+    // Pipeline ID in the editor URL
+    private static final Pattern PIPELINE_ID_IN_URL = Pattern.compile("/pipelines?/([^/?#]+)");
+    
     /**
      * Check if pipeline editor is loaded
      */
@@ -147,7 +164,7 @@ public class PipelineEditorPage extends BasePage {
      */
     public void savePipeline() {
         clickElement(SAVE_BUTTON);
-        waitFor(2); // Wait for save to complete
+        waitFor(2, ExpectedConditions.visibilityOfElementLocated(NOTIFICATION)); // Wait for save to complete
         logger.info("Pipeline saved");
     }
     
@@ -164,7 +181,9 @@ public class PipelineEditorPage extends BasePage {
      */
     public void validatePipeline() {
         clickElement(VALIDATE_BUTTON);
-        waitFor(2); // Wait for validation to complete
+        waitFor(2, ExpectedConditions.or( // Wait for validation to complete
+                ExpectedConditions.visibilityOfElementLocated(VALIDATION_RESULTS),
+                ExpectedConditions.visibilityOfElementLocated(NOTIFICATION)));
         logger.info("Pipeline validation completed");
     }
     
@@ -254,27 +273,75 @@ public class PipelineEditorPage extends BasePage {
     }
     
     /**
-     * Wait for pipeline execution to complete
+     * Wait for pipeline execution to complete by watching the status in the editor
      */
     public void waitForExecutionToComplete() {
-        int maxWaitTime = 300; // 5 minutes
-        int waitTime = 0;
+        waitForEditorStatus(Duration.ofSeconds(config.getRunTimeoutSeconds()));
+    }
+    
+    private void waitForEditorStatus(Duration timeout) {
+        if (!WaitEngine.poll(() -> isTerminalStatus(getExecutionStatus()), timeout)) {
+            logger.warn("Pipeline execution did not finish within {}s", timeout.getSeconds());
+        }
         
-        while (waitTime < maxWaitTime) {
-            String status = getExecutionStatus();
-            if (status.toLowerCase().contains("completed") || 
-                status.toLowerCase().contains("failed") || 
-                status.toLowerCase().contains("success")) {
-                break;
-            }
-            
-            waitFor(5);
-            waitTime += 5;
+        logger.info("Pipeline execution completed with status: {}", getExecutionStatus());
+    }
+    
+    /**
+     * Wait for pipeline execution to complete as reported by a run tracked over the API, then for the
+     * editor to show it. If the run cannot be tracked, the editor is watched for the rest of the run
+     * timeout; a run that is still going at the timeout is not waited for any longer.
+     */
+    public void waitForExecutionToComplete(CompletableFuture<PipelineRunMonitor.RunStatus> run) {
+        Duration timeout = Duration.ofSeconds(config.getRunTimeoutSeconds());
+        long start = System.nanoTime();
+        try {
+            PipelineRunMonitor.RunStatus status = run.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            logger.info("Run {} finished with status {}", status.getRunId(), status.getStatus());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (TimeoutException e) {
+            // Cancelling stops the monitor from following the run
+            run.cancel(true);
+            logger.warn("Pipeline run did not finish within {}s", timeout.getSeconds());
+            return;
+        } catch (ExecutionException e) {
+            Duration remaining = timeout.minusNanos(System.nanoTime() - start);
+            logger.warn("Could not follow run over the API, watching the editor for {}s instead: {}",
+                    Math.max(0, remaining.getSeconds()), e.getCause() != null ? e.getCause().toString() : e.toString());
+            waitForEditorStatus(remaining.isNegative() ? Duration.ZERO : remaining);
+            return;
         }
         
+        WaitEngine.poll(() -> isTerminalStatus(getExecutionStatus()), Duration.ofSeconds(config.getExplicitTimeout()));
         logger.info("Pipeline execution completed with status: {}", getExecutionStatus());
     }
     
+    /**
+     * Get the ID of the pipeline open in the editor from the URL, or null if it is not in the URL
+     */
+    public String getPipelineId() {
+        Matcher matcher = PIPELINE_ID_IN_URL.matcher(driver.getCurrentUrl());
+        return matcher.find() ? matcher.group(1) : null;
+    }
+    
+    /**
+     * Get the ID of the latest run from the execution panel, or null if the panel does not show one
+     */
+    public String getRunId() {
+        if (!isElementDisplayed(EXECUTION_STATUS)) {
+            return null;
+        }
+        String runId = driver.findElement(EXECUTION_STATUS).getAttribute("data-run-id");
+        return runId == null || runId.isEmpty() ? null : runId;
+    }
+    
+    private static boolean isTerminalStatus(String status) {
+        String lower = status.toLowerCase();
+        return lower.contains("completed") || lower.contains("failed") || lower.contains("success");
+    }
+    
     /**
      * Helper method to drag stage from palette
      */
@@ -1,9 +1,12 @@
 package com.prophecy.testing.pages;
 
 import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedConditions;
 
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * Page Object Model for Prophecy Pipelines Page
@@ -53,9 +56,10 @@ public class PipelinesPage extends BasePage {
      */
     public void searchPipeline(String pipelineName) {
         if (isElementDisplayed(SEARCH_PIPELINE)) {
+            Function<WebDriver, Boolean> resultsChanged = changeOf(PIPELINE_ITEMS);
             enterText(SEARCH_PIPELINE, pipelineName);
             logger.info("Searched for pipeline: {}", pipelineName);
-            waitFor(2); // Wait for search results
+            waitFor(2, resultsChanged); // Wait for search results
         } else {
             logger.warn("Search box not found on pipelines page");
         }
@@ -127,11 +131,13 @@ public class PipelinesPage extends BasePage {
     public void deletePipeline(String pipelineName) {
         WebElement pipelineElement = findPipelineByName(pipelineName);
         WebElement deleteButton = pipelineElement.findElement(DELETE_PIPELINE_BUTTON);
+        Function<WebDriver, Boolean> itemsChanged = changeOf(PIPELINE_ITEMS);
         deleteButton.click();
         
         // Handle confirmation dialog if present
         try {
-            waitFor(1);
+            waitFor(1, ExpectedConditions.or(itemsChanged::apply, ExpectedConditions.visibilityOfElementLocated(
+                    By.xpath("//button[contains(text(), 'Confirm') or contains(text(), 'Yes')]"))));
             if (isElementDisplayed(By.xpath("//button[contains(text(), 'Confirm') or contains(text(), 'Yes')]"))) {
                 clickElement(By.xpath("//button[contains(text(), 'Confirm') or contains(text(), 'Yes')]"));
             }
@@ -205,10 +211,11 @@ public class PipelinesPage extends BasePage {
             filterDropdown.click();
             
             By filterOption = By.xpath("//option[contains(text(), '" + filterValue + "')]");
+            Function<WebDriver, Boolean> itemsChanged = changeOf(PIPELINE_ITEMS);
             clickElement(filterOption);
             
             logger.info("Applied filter: {}", filterValue);
-            waitFor(2); // Wait for filter to apply
+            waitFor(2, itemsChanged); // Wait for filter to apply
         } else {
             logger.warn("Filter dropdown not found");
         }
@@ -223,10 +230,11 @@ public class PipelinesPage extends BasePage {
             sortDropdown.click();
             
             By sortOptionLocator = By.xpath("//option[contains(text(), '" + sortOption + "')]");
+            Function<WebDriver, Boolean> itemsChanged = changeOf(PIPELINE_ITEMS);
             clickElement(sortOptionLocator);
             
             logger.info("Applied sort: {}", sortOption);
-            waitFor(2); // Wait for sort to apply
+            waitFor(2, itemsChanged); // Wait for sort to apply
         } else {
             logger.warn("Sort dropdown not found");
         }
@@ -1,9 +1,12 @@
 package com.prophecy.testing.pages;
 
 import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedConditions;
 
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * Page Object Model for Prophecy Projects Page
@@ -49,9 +52,10 @@ public class ProjectsPage extends BasePage {
      */
     public void searchProject(String projectName) {
         if (isElementDisplayed(SEARCH_PROJECT)) {
+            Function<WebDriver, Boolean> resultsChanged = changeOf(PROJECT_ITEMS);
             enterText(SEARCH_PROJECT, projectName);
             logger.info("Searched for project: {}", projectName);
-            waitFor(2); // Wait for search results
+            waitFor(2, resultsChanged); // Wait for search results
         } else {
             logger.warn("Search box not found on projects page");
         }
@@ -106,11 +110,13 @@ public class ProjectsPage extends BasePage {
     public void deleteProject(String projectName) {
         WebElement projectElement = findProjectByName(projectName);
         WebElement deleteButton = projectElement.findElement(DELETE_PROJECT_BUTTON);
+        Function<WebDriver, Boolean> itemsChanged = changeOf(PROJECT_ITEMS);
         deleteButton.click();
         
         // Handle confirmation dialog if present
         try {
-            waitFor(1);
+            waitFor(1, ExpectedConditions.or(itemsChanged::apply, ExpectedConditions.visibilityOfElementLocated(
+                    By.xpath("//button[contains(text(), 'Confirm') or contains(text(), 'Yes')]"))));
             if (isElementDisplayed(By.xpath("//button[contains(text(), 'Confirm') or contains(text(), 'Yes')]"))) {
                 clickElement(By.xpath("//button[contains(text(), 'Confirm') or contains(text(), 'Yes')]"));
             }
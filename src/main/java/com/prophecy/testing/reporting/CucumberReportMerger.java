@@ -0,0 +1,105 @@
+package com.prophecy.testing.reporting;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Merges the Cucumber JSON reports of test shards into one report. Features split across shards are
+ * combined and their scenarios put back in file order, each still preceded by its background.
+ *
+ * Usage: CucumberReportMerger &lt;output.json&gt; &lt;shard-report.json&gt;...
+ */
+public class CucumberReportMerger {
+    private static final Logger logger = LogManager.getLogger(CucumberReportMerger.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CucumberReportMerger <output.json> <shard-report.json>...");
+            System.exit(1);
+        }
+        List<Path> reports = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            reports.add(Paths.get(args[i]));
+        }
+        new CucumberReportMerger().merge(reports, Paths.get(args[0]));
+    }
+    
+    /**
+     * Merge shard reports into the output report; missing shard reports are skipped with a warning
+     */
+    public void merge(List<Path> reports, Path output) throws IOException {
+        Map<String, ObjectNode> features = new LinkedHashMap<>();
+        int scenarioCount = 0;
+        
+        for (Path report : reports) {
+            if (!Files.exists(report)) {
+                logger.warn("Shard report not found: {}", report);
+                continue;
+            }
+            for (JsonNode feature : objectMapper.readTree(report.toFile())) {
+                String uri = feature.path("uri").asText();
+                ObjectNode merged = features.get(uri);
+                if (merged == null) {
+                    features.put(uri, ((ObjectNode) feature).deepCopy());
+                } else {
+                    merged.withArray("elements").addAll(((ObjectNode) feature).withArray("elements"));
+                }
+            }
+        }
+        
+        ArrayNode result = objectMapper.createArrayNode();
+        for (ObjectNode feature : features.values()) {
+            ArrayNode elements = sortByLine(feature.withArray("elements"));
+            feature.set("elements", elements);
+            for (JsonNode element : elements) {
+                if (!"background".equals(element.path("type").asText())) {
+                    scenarioCount++;
+                }
+            }
+            result.add(feature);
+        }
+        
+        File outputFile = output.toFile();
+        if (outputFile.getParentFile() != null) {
+            outputFile.getParentFile().mkdirs();
+        }
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(outputFile, result);
+        logger.info("Merged {} reports into {}: {} features, {} scenarios", reports.size(), output,
+                features.size(), scenarioCount);
+    }
+    
+    /**
+     * Order scenarios by line, keeping each background element directly in front of its scenario
+     */
+    private ArrayNode sortByLine(ArrayNode elements) {
+        List<List<JsonNode>> groups = new ArrayList<>();
+        List<JsonNode> group = new ArrayList<>();
+        for (JsonNode element : elements) {
+            group.add(element);
+            if (!"background".equals(element.path("type").asText())) {
+                groups.add(group);
+                group = new ArrayList<>();
+            }
+        }
+        if (!group.isEmpty()) {
+            groups.add(group);
+        }
+        groups.sort(Comparator.comparingInt(g -> g.get(g.size() - 1).path("line").asInt()));
+        
+        ArrayNode sorted = objectMapper.createArrayNode();
+        groups.forEach(sorted::addAll);
+        return sorted;
+    }
+}
\ No newline at end of file
@@ -2,58 +2,71 @@ package com.prophecy.testing.reporting;
 
 import com.aventstack.extentreports.ExtentReports;
 import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.Status;
 import com.aventstack.extentreports.reporter.ExtentSparkReporter;
 import com.aventstack.extentreports.reporter.configuration.Theme;
 import com.prophecy.testing.config.ConfigManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import java.io.File;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 /**
- * Manager class for ExtentReports configuration and operations
+ * Manager class for ExtentReports configuration and operations.
+ *
+ * Scenarios do not touch the report directly: test handles put their events on a queue, and one
+ * writer thread applies the events to the report in order. The writer rewrites the HTML report at
+ * most once per flush interval and only when events arrived since the last write, so reporting costs
+ * scenarios an enqueue however many run in parallel. The test hooks report each scenario as a test.
  */
 public class ExtentReportManager {
-    private static ExtentReports extent;
-    private static final ThreadLocal<ExtentTest> test = new ThreadLocal<>();
+    private static final Logger logger = LogManager.getLogger(ExtentReportManager.class);
+    private static final ThreadLocal<ReportTest> test = new ThreadLocal<>();
+    
+    /**
+     * Report and writer thread, created on first use; class initialization makes this thread-safe without locking
+     */
+    private static class Holder {
+        static final ReportWriter writer = new ReportWriter(createExtentReports(),
+                ConfigManager.getInstance().getExtentFlushIntervalMillis());
+    }
     
     public static void initializeExtentReports() {
-        if (extent == null) {
-            String reportPath = getReportPath();
-            ExtentSparkReporter sparkReporter = new ExtentSparkReporter(reportPath);
-            
-            // Configure the reporter
-            sparkReporter.config().setTheme(Theme.STANDARD);
-            sparkReporter.config().setDocumentTitle("Prophecy Data Pipeline Test Report");
-            sparkReporter.config().setReportName("Automation Test Results");
-            sparkReporter.config().setTimeStampFormat("EEEE, MMMM dd, yyyy, hh:mm a '('zzz')'");
-            
-            extent = new ExtentReports();
-            extent.attachReporter(sparkReporter);
-            
-            // Set system information
-            extent.setSystemInfo("Application", "Prophecy Data Platform");
-            extent.setSystemInfo("Environment", ConfigManager.getInstance().getEnvironment());
-            extent.setSystemInfo("Browser", ConfigManager.getInstance().getBrowserName());
-            extent.setSystemInfo("OS", System.getProperty("os.name"));
-            extent.setSystemInfo("Java Version", System.getProperty("java.version"));
-            extent.setSystemInfo("User", System.getProperty("user.name"));
-        }
+        logger.debug("Extent report writer running: {}", Holder.writer.thread.isAlive());
     }
     
-    public static ExtentTest createTest(String testName, String description) {
-        ExtentTest extentTest = extent.createTest(testName, description);
-        test.set(extentTest);
-        return extentTest;
+    public static ReportTest createTest(String testName, String description) {
+        ReportTest reportTest = new ReportTest(Holder.writer);
+        Holder.writer.submit(report -> reportTest.extentTest = report.createTest(testName, description));
+        test.set(reportTest);
+        return reportTest;
     }
     
-    public static ExtentTest getTest() {
+    public static ReportTest getTest() {
         return test.get();
     }
     
+    /**
+     * Write all events queued so far to the report and wait until it is written
+     */
     public static void flushReports() {
-        if (extent != null) {
-            extent.flush();
+        CompletableFuture<Void> flushed = Holder.writer.requestFlush();
+        try {
+            flushed.get(60, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            logger.warn("Extent report was not written within 60s");
+        } catch (Exception e) {
+            logger.error("Error writing Extent report: {}", e.getMessage());
         }
     }
     
@@ -61,6 +74,29 @@ public class ExtentReportManager {
         test.remove();
     }
     
+    private static ExtentReports createExtentReports() {
+        String reportPath = getReportPath();
+        ExtentSparkReporter sparkReporter = new ExtentSparkReporter(reportPath);
+        
+        // Configure the reporter
+        sparkReporter.config().setTheme(Theme.STANDARD);
+        sparkReporter.config().setDocumentTitle("Prophecy Data Pipeline Test Report");
+        sparkReporter.config().setReportName("Automation Test Results");
+        sparkReporter.config().setTimeStampFormat("EEEE, MMMM dd, yyyy, hh:mm a '('zzz')'");
+        
+        ExtentReports extent = new ExtentReports();
+        extent.attachReporter(sparkReporter);
+        
+        // Set system information
+        extent.setSystemInfo("Application", "Prophecy Data Platform");
+        extent.setSystemInfo("Environment", ConfigManager.getInstance().getEnvironment());
+        extent.setSystemInfo("Browser", ConfigManager.getInstance().getBrowserName());
+        extent.setSystemInfo("OS", System.getProperty("os.name"));
+        extent.setSystemInfo("Java Version", System.getProperty("java.version"));
+        extent.setSystemInfo("User", System.getProperty("user.name"));
+        return extent;
+    }
+    
     private static String getReportPath() {
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
         String reportDir = "target/extent-reports";
@@ -73,4 +109,155 @@ public class ExtentReportManager {
         
         return reportDir + "/ExtentReport_" + timestamp + ".html";
     }
+    
+    /**
+     * Handle to a test in the report; safe to use from any thread, events are applied in the order they are logged
+     */
+    public static class ReportTest {
+        private final ReportWriter writer;
+        // Only read and written by the writer thread
+        private ExtentTest extentTest;
+        
+        private ReportTest(ReportWriter writer) {
+            this.writer = writer;
+        }
+        
+        public ReportTest log(Status status, String details) {
+            writer.submit(report -> extentTest.log(status, details));
+            return this;
+        }
+        
+        public ReportTest info(String details) {
+            return log(Status.INFO, details);
+        }
+        
+        public ReportTest pass(String details) {
+            return log(Status.PASS, details);
+        }
+        
+        public ReportTest warning(String details) {
+            return log(Status.WARNING, details);
+        }
+        
+        public ReportTest skip(String details) {
+            return log(Status.SKIP, details);
+        }
+        
+        public ReportTest fail(String details) {
+            return log(Status.FAIL, details);
+        }
+        
+        public ReportTest fail(Throwable throwable) {
+            writer.submit(report -> extentTest.fail(throwable));
+            return this;
+        }
+        
+        public ReportTest assignCategory(String... categories) {
+            writer.submit(report -> extentTest.assignCategory(categories));
+            return this;
+        }
+        
+        public ReportTest addScreenCaptureFromPath(String path) {
+            writer.submit(report -> extentTest.addScreenCaptureFromPath(path));
+            return this;
+        }
+    }
+    
+    /**
+     * Applies queued report events on its own thread and writes the report when it is due. The thread
+     * blocks on the queue while there is nothing to write, and waits at most until the next write is
+     * due while events are unwritten.
+     */
+    private static class ReportWriter implements Runnable {
+        private final ExtentReports report;
+        private final long flushIntervalNanos;
+        private final BlockingQueue<Consumer<ExtentReports>> events = new LinkedBlockingQueue<>();
+        private final Thread thread;
+        private boolean dirty;
+        private long lastFlush = System.nanoTime();
+        
+        ReportWriter(ExtentReports report, long flushIntervalMillis) {
+            this.report = report;
+            this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+            this.thread = new Thread(this, "extent-report-writer");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        
+        void submit(Consumer<ExtentReports> event) {
+            events.offer(event);
+        }
+        
+        /**
+         * Request a write of the report; queued behind the events so far, so the write covers all of them
+         */
+        CompletableFuture<Void> requestFlush() {
+            FlushRequest request = new FlushRequest();
+            events.offer(request);
+            return request.flushed;
+        }
+        
+        @Override
+        public void run() {
+            while (true) {
+                Consumer<ExtentReports> event;
+                try {
+                    if (dirty) {
+                        long untilDue = flushIntervalNanos - (System.nanoTime() - lastFlush);
+                        event = untilDue > 0 ? events.poll(untilDue, TimeUnit.NANOSECONDS) : null;
+                    } else {
+                        event = events.take();
+                    }
+                } catch (InterruptedException e) {
+                    logger.warn("Extent report writer interrupted");
+                    return;
+                }
+                
+                if (event == null) {
+                    flush();
+                } else if (event instanceof FlushRequest) {
+                    RuntimeException error = flush();
+                    if (error == null) {
+                        ((FlushRequest) event).flushed.complete(null);
+                    } else {
+                        ((FlushRequest) event).flushed.completeExceptionally(error);
+                    }
+                } else {
+                    try {
+                        event.accept(report);
+                        dirty = true;
+                    } catch (RuntimeException e) {
+                        logger.warn("Dropping Extent report event: {}", e.getMessage());
+                    }
+                }
+            }
+        }
+        
+        private RuntimeException flush() {
+            try {
+                if (dirty) {
+                    report.flush();
+                }
+                return null;
+            } catch (RuntimeException e) {
+                logger.error("Error writing Extent report: {}", e.getMessage());
+                return e;
+            } finally {
+                dirty = false;
+                lastFlush = System.nanoTime();
+            }
+        }
+    }
+    
+    /**
+     * Queued request to write the report, completed once it is written
+     */
+    private static class FlushRequest implements Consumer<ExtentReports> {
+        private final CompletableFuture<Void> flushed = new CompletableFuture<>();
+        
+        @Override
+        public void accept(ExtentReports report) {
+            // Handled by the writer itself
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,213 @@
+package com.prophecy.testing.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Enforces the age and size limits of the screenshot directory. Screenshots are stored in one
+ * directory per day, so expired days are removed as a whole: each is first renamed out of the way,
+ * which is a single operation, and then deleted. Sizes of finished days are cached in the day
+ * directory, so later runs only measure the current day. Directories that a previous run renamed
+ * but did not finish deleting are removed first.
+ */
+public class ScreenshotRetention implements Runnable {
+    private static final Logger logger = LogManager.getLogger(ScreenshotRetention.class);
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE;
+    private static final String TRASH_PREFIX = ".trash-";
+    private static final String SIZE_FILE = ".bytes";
+    
+    private final Path root;
+    private final int daysToKeep;
+    private final long maxBytes;
+    
+    public ScreenshotRetention(Path root, int daysToKeep, long maxBytes) {
+        this.root = root;
+        this.daysToKeep = daysToKeep;
+        this.maxBytes = maxBytes;
+    }
+    
+    /**
+     * Directory holding the screenshots taken on a day
+     */
+    public static Path dayDirectory(Path root, LocalDate day) {
+        return root.resolve(day.format(DAY_FORMAT));
+    }
+    
+    /**
+     * Run the cleanup on a low priority daemon thread
+     */
+    public CompletableFuture<Void> runInBackground() {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                run();
+                done.complete(null);
+            } catch (RuntimeException e) {
+                done.completeExceptionally(e);
+            }
+        }, "screenshot-retention");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+        return done;
+    }
+    
+    @Override
+    public void run() {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        LocalDate today = LocalDate.now();
+        LocalDate oldestKept = today.minusDays(daysToKeep);
+        
+        TreeMap<LocalDate, Path> days = new TreeMap<>();
+        List<Path> looseFiles = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(root)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (name.startsWith(TRASH_PREFIX)) {
+                    deleteTree(entry);
+                } else if (Files.isDirectory(entry)) {
+                    parseDay(name).ifPresent(day -> days.put(day, entry));
+                } else {
+                    looseFiles.add(entry);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Error listing screenshots in {}: {}", root, e.getMessage());
+            return;
+        }
+        
+        int removedDays = 0;
+        Iterator<Map.Entry<LocalDate, Path>> expired = days.headMap(oldestKept).entrySet().iterator();
+        while (expired.hasNext()) {
+            discard(expired.next().getValue());
+            expired.remove();
+            removedDays++;
+        }
+        
+        // Screenshots from before the switch to day directories are removed by age
+        long looseBytes = 0;
+        long cutoffMillis = start - daysToKeep * 24L * 60 * 60 * 1000;
+        for (Path file : looseFiles) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (attributes.lastModifiedTime().toMillis() < cutoffMillis) {
+                    Files.deleteIfExists(file);
+                } else {
+                    looseBytes += attributes.size();
+                }
+            } catch (IOException e) {
+                logger.debug("Could not clean up {}: {}", file, e.getMessage());
+            }
+        }
+        
+        Map<LocalDate, Long> sizes = new HashMap<>();
+        long totalBytes = looseBytes;
+        for (Map.Entry<LocalDate, Path> day : days.entrySet()) {
+            long size = size(day.getValue(), day.getKey().isBefore(today));
+            sizes.put(day.getKey(), size);
+            totalBytes += size;
+        }
+        // The quota is met by removing the oldest days; the current day is still being written
+        while (totalBytes > maxBytes && !days.isEmpty() && days.firstKey().isBefore(today)) {
+            Map.Entry<LocalDate, Path> oldest = days.pollFirstEntry();
+            discard(oldest.getValue());
+            totalBytes -= sizes.get(oldest.getKey());
+            removedDays++;
+        }
+        
+        logger.info("Screenshot cleanup removed {} day(s), {} MB kept, in {} ms",
+                removedDays, totalBytes / (1024 * 1024), System.currentTimeMillis() - start);
+    }
+    
+    private static Optional<LocalDate> parseDay(String name) {
+        try {
+            return Optional.of(LocalDate.parse(name, DAY_FORMAT));
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+    
+    /**
+     * Total size of the screenshots of a day; sizes of finished days are cached in the directory
+     */
+    private static long size(Path dayDirectory, boolean finished) {
+        Path sizeFile = dayDirectory.resolve(SIZE_FILE);
+        if (finished && Files.exists(sizeFile)) {
+            try {
+                return Long.parseLong(new String(Files.readAllBytes(sizeFile), StandardCharsets.UTF_8).trim());
+            } catch (IOException | NumberFormatException e) {
+                logger.debug("Ignoring unreadable size of {}: {}", dayDirectory, e.getMessage());
+            }
+        }
+        
+        long size = 0;
+        try (Stream<Path> files = Files.walk(dayDirectory)) {
+            size = files.filter(Files::isRegularFile)
+                    .filter(file -> !file.getFileName().toString().equals(SIZE_FILE))
+                    .mapToLong(file -> file.toFile().length())
+                    .sum();
+        } catch (IOException | UncheckedIOException e) {
+            logger.debug("Could not measure {}: {}", dayDirectory, e.getMessage());
+        }
+        if (finished) {
+            try {
+                Files.write(sizeFile, Long.toString(size).getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                logger.debug("Could not cache size of {}: {}", dayDirectory, e.getMessage());
+            }
+        }
+        return size;
+    }
+    
+    /**
+     * Move a directory out of the way in one rename, then delete it
+     */
+    private void discard(Path directory) {
+        Path trash = root.resolve(TRASH_PREFIX + directory.getFileName() + "-" + System.nanoTime());
+        try {
+            Files.move(directory, trash, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            // Another run removed it already
+            return;
+        } catch (IOException e) {
+            logger.warn("Could not move {} for deletion: {}", directory, e.getMessage());
+            trash = directory;
+        }
+        deleteTree(trash);
+    }
+    
+    private static void deleteTree(Path directory) {
+        try {
+            Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                    Files.deleteIfExists(file);
+                    return FileVisitResult.CONTINUE;
+                }
+                
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                    Files.deleteIfExists(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Could not delete {}: {}", directory, e.getMessage());
+        }
+    }
+}
\ No newline at end of file
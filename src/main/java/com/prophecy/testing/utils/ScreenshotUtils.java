@@ -2,17 +2,18 @@ package com.prophecy.testing.utils;
 
 import com.prophecy.testing.config.ConfigManager;
 import com.prophecy.testing.config.WebDriverManager;
-import org.apache.commons.io.FileUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.openqa.selenium.OutputType;
 import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.WebDriver;
 
-import java.io.File;
-import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Utility class for taking and managing screenshots
@@ -22,107 +23,72 @@ public class ScreenshotUtils {
     private static final ConfigManager config = ConfigManager.getInstance();
     
     /**
-     * Take screenshot and save to file
+     * Take screenshot and save to file in the background; returns the path it is written to
      */
     public static String takeScreenshot(String testName) {
-        try {
-            WebDriver driver = WebDriverManager.getDriver();
-            TakesScreenshot takesScreenshot = (TakesScreenshot) driver;
-            
-            File sourceFile = takesScreenshot.getScreenshotAs(OutputType.FILE);
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
-            String fileName = testName + "_" + timestamp + ".png";
-            String screenshotPath = config.getScreenshotsPath() + "/" + fileName;
-            
-            // Ensure directory exists
-            File screenshotDir = new File(config.getScreenshotsPath());
-            if (!screenshotDir.exists()) {
-                screenshotDir.mkdirs();
-            }
-            
-            File destFile = new File(screenshotPath);
-            FileUtils.copyFile(sourceFile, destFile);
-            
-            logger.info("Screenshot saved: {}", screenshotPath);
-            return screenshotPath;
-        } catch (IOException e) {
-            logger.error("Error taking screenshot: {}", e.getMessage());
-            return null;
-        }
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
+        return takeScreenshot(testName, testName + "_" + timestamp);
     }
     
     /**
-     * Take screenshot with custom file name
+     * Take screenshot with custom file name, saved in the background; returns the path it is written to
      */
     public static String takeScreenshot(String testName, String customFileName) {
-        try {
-            WebDriver driver = WebDriverManager.getDriver();
-            TakesScreenshot takesScreenshot = (TakesScreenshot) driver;
-            
-            File sourceFile = takesScreenshot.getScreenshotAs(OutputType.FILE);
-            String screenshotPath = config.getScreenshotsPath() + "/" + customFileName + ".png";
-            
-            // Ensure directory exists
-            File screenshotDir = new File(config.getScreenshotsPath());
-            if (!screenshotDir.exists()) {
-                screenshotDir.mkdirs();
-            }
-            
-            File destFile = new File(screenshotPath);
-            FileUtils.copyFile(sourceFile, destFile);
-            
-            logger.info("Screenshot saved: {}", screenshotPath);
-            return screenshotPath;
-        } catch (IOException e) {
-            logger.error("Error taking screenshot: {}", e.getMessage());
+        byte[] screenshot = getScreenshotAsBytes();
+        if (screenshot.length == 0) {
             return null;
         }
+        return saveInBackground(screenshot, customFileName);
     }
     
     /**
      * Take screenshot on test failure
      */
     public static String takeFailureScreenshot(String testName, String errorMessage) {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
-        String fileName = "FAILED_" + testName + "_" + timestamp;
-        String screenshotPath = takeScreenshot(testName, fileName);
-        
-        if (screenshotPath != null) {
-            logger.error("Test failed: {} - Screenshot saved: {}", errorMessage, screenshotPath);
+        return captureFailureScreenshot(testName, errorMessage).getPath();
+    }
+    
+    /**
+     * Capture a failure screenshot once, saving it in the background and returning the captured bytes
+     * so that they can also be attached to reports without asking the browser again
+     */
+    public static CapturedScreenshot captureFailureScreenshot(String testName, String errorMessage) {
+        byte[] screenshot = getScreenshotAsBytes();
+        if (screenshot.length == 0) {
+            return new CapturedScreenshot(screenshot, null);
         }
         
-        return screenshotPath;
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
+        String screenshotPath = saveInBackground(screenshot, "FAILED_" + testName + "_" + timestamp);
+        logger.error("Test failed: {} - Screenshot saved: {}", errorMessage, screenshotPath);
+        return new CapturedScreenshot(screenshot, screenshotPath);
+    }
+    
+    private static String saveInBackground(byte[] screenshot, String fileName) {
+        Path dayDirectory = ScreenshotRetention.dayDirectory(Paths.get(config.getScreenshotsPath()), LocalDate.now());
+        Path screenshotPath = dayDirectory.resolve(fileName + ScreenshotWriter.extension());
+        ScreenshotWriter.write(screenshot, screenshotPath);
+        logger.info("Screenshot saved: {}", screenshotPath);
+        return screenshotPath.toString();
     }
     
     /**
      * Clean up old screenshots
      */
     public static void cleanupOldScreenshots(int daysToKeep) {
-        try {
-            File screenshotDir = new File(config.getScreenshotsPath());
-            if (!screenshotDir.exists()) {
-                return;
-            }
-            
-            File[] files = screenshotDir.listFiles();
-            if (files == null) {
-                return;
-            }
-            
-            long cutoffTime = System.currentTimeMillis() - (daysToKeep * 24L * 60 * 60 * 1000);
-            
-            for (File file : files) {
-                if (file.isFile() && file.lastModified() < cutoffTime) {
-                    if (file.delete()) {
-                        logger.debug("Deleted old screenshot: {}", file.getName());
-                    }
-                }
-            }
-            
-            logger.info("Cleaned up screenshots older than {} days", daysToKeep);
-        } catch (Exception e) {
-            logger.error("Error cleaning up screenshots: {}", e.getMessage());
-        }
+        retention(daysToKeep).run();
+    }
+    
+    /**
+     * Clean up old screenshots, and the oldest days over the size quota, on a background thread
+     */
+    public static CompletableFuture<Void> cleanupOldScreenshotsInBackground(int daysToKeep) {
+        return retention(daysToKeep).runInBackground();
+    }
+    
+    private static ScreenshotRetention retention(int daysToKeep) {
+        return new ScreenshotRetention(Paths.get(config.getScreenshotsPath()), daysToKeep,
+                config.getScreenshotsMaxMegabytes() * 1024 * 1024);
     }
     
     /**
@@ -138,4 +104,25 @@ public class ScreenshotUtils {
             return new byte[0];
         }
     }
+    
+    /**
+     * PNG bytes of a captured screenshot and the path it is saved to, or null when capturing failed
+     */
+    public static class CapturedScreenshot {
+        private final byte[] bytes;
+        private final String path;
+        
+        public CapturedScreenshot(byte[] bytes, String path) {
+            this.bytes = bytes;
+            this.path = path;
+        }
+        
+        public byte[] getBytes() {
+            return bytes;
+        }
+        
+        public String getPath() {
+            return path;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,129 @@
+package com.prophecy.testing.utils;
+
+import com.prophecy.testing.config.ConfigManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Writes screenshots to disk on a background thread so that scenarios do not wait for encoding and
+ * file IO. Screenshots are written as the PNG captured by the browser, or re-encoded as JPEG when
+ * configured, which is smaller for pages with images and gradients but not for flat UI.
+ */
+public class ScreenshotWriter {
+    private static final Logger logger = LogManager.getLogger(ScreenshotWriter.class);
+    private static final ConfigManager config = ConfigManager.getInstance();
+    private static final Set<CompletableFuture<Path>> pending = ConcurrentHashMap.newKeySet();
+    
+    // Writes beyond the queue capacity run on the capturing thread, which bounds the memory held by queued screenshots
+    private static final ExecutorService executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(64),
+            runnable -> {
+                Thread thread = new Thread(runnable, "screenshot-writer");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    
+    private ScreenshotWriter() {}
+    
+    /**
+     * File extension of written screenshots for the configured format
+     */
+    public static String extension() {
+        return isJpeg() ? ".jpg" : ".png";
+    }
+    
+    /**
+     * Queue a PNG screenshot to be written to the given file; the future completes with the file once written
+     */
+    public static CompletableFuture<Path> write(byte[] png, Path target) {
+        boolean jpeg = isJpeg();
+        float quality = config.getScreenshotJpegQuality() / 100f;
+        CompletableFuture<Path> written = CompletableFuture.supplyAsync(() -> {
+            try {
+                Files.createDirectories(target.getParent());
+                if (jpeg) {
+                    writeJpeg(png, target, quality);
+                } else {
+                    Files.write(target, png);
+                }
+                logger.debug("Screenshot written: {}", target);
+                return target;
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+        
+        pending.add(written);
+        written.whenComplete((path, error) -> {
+            pending.remove(written);
+            if (error != null) {
+                logger.error("Error writing screenshot {}: {}", target, error.getMessage());
+            }
+        });
+        return written;
+    }
+    
+    /**
+     * Wait for queued screenshots to be written; returns false if writes were still pending at the timeout
+     */
+    public static boolean awaitPendingWrites(Duration timeout) {
+        CompletableFuture<?>[] writes = pending.toArray(new CompletableFuture<?>[0]);
+        try {
+            CompletableFuture.allOf(writes).get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (ExecutionException e) {
+            // Failed writes are logged when they fail
+            return true;
+        } catch (TimeoutException e) {
+            logger.warn("{} screenshot(s) still being written after {} ms", pending.size(), timeout.toMillis());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    private static boolean isJpeg() {
+        String format = config.getScreenshotFormat().toLowerCase();
+        return format.equals("jpg") || format.equals("jpeg");
+    }
+    
+    private static void writeJpeg(byte[] png, Path target, float quality) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        if (image == null) {
+            throw new IOException("Screenshot is not a readable image");
+        }
+        // JPEG has no alpha channel, so the image is drawn onto an opaque one first
+        BufferedImage opaque = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        opaque.createGraphics().drawImage(image, 0, 0, Color.WHITE, null);
+        
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+        try (OutputStream out = Files.newOutputStream(target);
+             ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(imageOut);
+            writer.write(null, new IIOImage(opaque, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,184 @@
+package com.prophecy.testing.utils;
+
+import com.prophecy.testing.config.ConfigManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NotFoundException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Waits that return as soon as their condition holds. Conditions are polled with an interval that
+ * starts short and doubles up to a cap, so fast conditions return within milliseconds while long
+ * waits do not flood the browser with commands. Page settling is detected in the browser with a
+ * MutationObserver instead of sleeping for a fixed time.
+ *
+ * Time spent in fixed sleeps and in condition waits is recorded per scenario so that lint mode can
+ * report where scenarios lose time.
+ */
+public class WaitEngine {
+    private static final Logger logger = LogManager.getLogger(WaitEngine.class);
+    private static final ConfigManager config = ConfigManager.getInstance();
+    private static final long INITIAL_POLL_MILLIS = 10;
+    private static final ThreadLocal<WaitLedger> ledger = ThreadLocal.withInitial(WaitLedger::new);
+    
+    // Resolves true once the document has seen no mutation for the quiet period, false at the timeout
+    private static final String SETTLE_SCRIPT =
+            "var quiet = arguments[0], timeout = arguments[1], done = arguments[arguments.length - 1];" +
+            "var timer, limit;" +
+            "var observer = new MutationObserver(function () { clearTimeout(timer); timer = setTimeout(finish, quiet); });" +
+            "function finish() { observer.disconnect(); clearTimeout(limit); done(true); }" +
+            "limit = setTimeout(function () { observer.disconnect(); clearTimeout(timer); done(false); }, timeout);" +
+            "observer.observe(document, {childList: true, subtree: true, attributes: true, characterData: true});" +
+            "timer = setTimeout(finish, quiet);";
+    
+    private WaitEngine() {}
+    
+    /**
+     * Wait until a condition returns a value other than null or false, ignoring missing and stale
+     * elements while polling
+     */
+    public static <T> T until(WebDriver driver, Function<WebDriver, T> condition, Duration timeout) {
+        T value = pollUntil(() -> condition.apply(driver), timeout);
+        if (value == null) {
+            throw new TimeoutException("Condition not met within " + timeout.toMillis() + " ms: " + condition);
+        }
+        return value;
+    }
+    
+    /**
+     * Poll a condition until it holds, returning false if it still does not hold at the timeout
+     */
+    public static boolean poll(BooleanSupplier condition, Duration timeout) {
+        return pollUntil(() -> condition.getAsBoolean() ? Boolean.TRUE : null, timeout) != null;
+    }
+    
+    /**
+     * Wait until the page has had no DOM mutations for the configured quiet period, at most until the
+     * timeout; returns whether the page settled
+     */
+    public static boolean waitForDomToSettle(WebDriver driver, Duration timeout) {
+        long quietMillis = config.getDomQuietMillis();
+        long start = System.nanoTime();
+        Duration previousScriptTimeout = driver.manage().timeouts().getScriptTimeout();
+        try {
+            // The script ends itself at the timeout; the script timeout only guards against a hung browser
+            driver.manage().timeouts().scriptTimeout(timeout.plusSeconds(5));
+            Object settled = ((JavascriptExecutor) driver).executeAsyncScript(SETTLE_SCRIPT, quietMillis, timeout.toMillis());
+            return Boolean.TRUE.equals(settled);
+        } catch (RuntimeException e) {
+            // Navigation while observing discards the script; the new page is loading, not settled
+            logger.debug("Could not observe DOM mutations: {}", e.getMessage());
+            return false;
+        } finally {
+            driver.manage().timeouts().scriptTimeout(previousScriptTimeout);
+            ledger.get().waitNanos += System.nanoTime() - start;
+        }
+    }
+    
+    /**
+     * Sleep unconditionally, recording the time against the given reason for lint reports
+     */
+    public static void sleep(Duration duration, String reason) {
+        long start = System.nanoTime();
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Sleep interrupted: {}", e.getMessage());
+        } finally {
+            ledger.get().recordSleep(reason, System.nanoTime() - start);
+        }
+    }
+    
+    /**
+     * Start recording the waits of a new scenario on the current thread
+     */
+    public static void startScenario() {
+        ledger.remove();
+    }
+    
+    /**
+     * Stop recording the waits of the current scenario and return what was recorded
+     */
+    public static WaitLedger finishScenario() {
+        WaitLedger finished = ledger.get();
+        ledger.remove();
+        return finished;
+    }
+    
+    private static <T> T pollUntil(Supplier<T> attempt, Duration timeout) {
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        long interval = INITIAL_POLL_MILLIS;
+        long maxInterval = config.getWaitMaxPollMillis();
+        try {
+            while (true) {
+                T value = null;
+                try {
+                    value = attempt.get();
+                } catch (NotFoundException | StaleElementReferenceException e) {
+                    // The element is not there yet or is being re-rendered
+                }
+                if (value != null && !Boolean.FALSE.equals(value)) {
+                    return value;
+                }
+                
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis <= 0) {
+                    return null;
+                }
+                Thread.sleep(Math.min(interval, remainingMillis));
+                interval = Math.min(interval * 2, maxInterval);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            ledger.get().waitNanos += System.nanoTime() - start;
+        }
+    }
+    
+    /**
+     * Time a scenario spent in fixed sleeps, by reason, and in condition waits
+     */
+    public static class WaitLedger {
+        private final Map<String, Long> sleepNanosByReason = new LinkedHashMap<>();
+        private long sleepNanos;
+        private long waitNanos;
+        
+        private void recordSleep(String reason, long nanos) {
+            sleepNanosByReason.merge(reason, nanos, Long::sum);
+            sleepNanos += nanos;
+        }
+        
+        public long getSleepMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(sleepNanos);
+        }
+        
+        public long getWaitMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(waitNanos);
+        }
+        
+        public Map<String, Long> getSleepMillisByReason() {
+            Map<String, Long> millis = new LinkedHashMap<>();
+            sleepNanosByReason.forEach((reason, nanos) -> millis.put(reason, TimeUnit.NANOSECONDS.toMillis(nanos)));
+            return millis;
+        }
+        
+        public String summary() {
+            return String.format("%d ms in fixed sleeps %s, %d ms in condition waits",
+                    getSleepMillis(), getSleepMillisByReason(), getWaitMillis());
+        }
+    }
+}
\ No newline at end of file
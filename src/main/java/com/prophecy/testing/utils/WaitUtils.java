@@ -1,7 +1,10 @@
 package com.prophecy.testing.utils;
 
+import com.prophecy.testing.api.PipelineRunMonitor;
+import com.prophecy.testing.api.ProphecyApiClient;
 import com.prophecy.testing.config.ConfigManager;
 import com.prophecy.testing.config.WebDriverManager;
+import com.prophecy.testing.models.PipelineStatus;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.openqa.selenium.By;
@@ -12,6 +15,10 @@ import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 
 /**
@@ -20,6 +27,8 @@ import java.util.function.Function;
 public class WaitUtils {
     private static final Logger logger = LogManager.getLogger(WaitUtils.class);
     private static final ConfigManager config = ConfigManager.getInstance();
+    // Created on first use, as creating a client logs in
+    private static volatile ProphecyApiClient apiClient;
     
     /**
      * Wait for element to be visible
@@ -222,20 +231,55 @@ public class WaitUtils {
     }
     
     /**
-     * Hard wait (Thread.sleep) - use sparingly
+     * Hard wait (Thread.sleep) - use sparingly; the time is reported by wait lint mode
      */
     public static void hardWait(int seconds) {
+        WaitEngine.sleep(Duration.ofSeconds(seconds), "WaitUtils.hardWait");
+        logger.debug("Hard wait for {} seconds", seconds);
+    }
+    
+    /**
+     * Wait for a pipeline run to finish with a status, following the run over the API with the shared
+     * run monitor instead of polling the page; false when it finishes with another status, cannot be
+     * followed or does not finish in time
+     */
+    public static boolean waitForPipelineStatus(String pipelineId, String runId, String expectedStatus, int timeoutSeconds) {
+        // Accepts the same status names and synonyms as the API, e.g. "success" for COMPLETED
+        PipelineStatus expected = PipelineRunMonitor.parseStatus(expectedStatus);
+        if (expected == null) {
+            throw new IllegalArgumentException("Unknown pipeline status: " + expectedStatus);
+        }
+        CompletableFuture<PipelineRunMonitor.RunStatus> run = apiClient().monitorRun(pipelineId, runId);
         try {
-            Thread.sleep(seconds * 1000L);
-            logger.debug("Hard wait for {} seconds", seconds);
+            PipelineRunMonitor.RunStatus status = run.get(timeoutSeconds, TimeUnit.SECONDS);
+            logger.debug("Run {} of pipeline {} finished with status {}", runId, pipelineId, status.getStatus());
+            return status.getStatus() == expected;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            logger.warn("Hard wait interrupted: {}", e.getMessage());
+            return false;
+        } catch (TimeoutException e) {
+            run.cancel(true);
+            logger.warn("Run {} of pipeline {} did not finish within {}s", runId, pipelineId, timeoutSeconds);
+            return false;
+        } catch (ExecutionException e) {
+            logger.warn("Run {} of pipeline {} did not finish with status {}: {}", runId, pipelineId, expectedStatus, e.toString());
+            return false;
+        }
+    }
+    
+    private static ProphecyApiClient apiClient() {
+        if (apiClient == null) {
+            synchronized (WaitUtils.class) {
+                if (apiClient == null) {
+                    apiClient = new ProphecyApiClient();
+                }
+            }
         }
+        return apiClient;
     }
     
     /**
-     * Wait for pipeline execution status
+     * Wait for pipeline execution status shown on the page, for runs whose pipeline and run ID are not known
      */
     public static boolean waitForPipelineStatus(By statusLocator, String expectedStatus, int timeoutSeconds) {
         return waitForCustomCondition(driver -> {
@@ -1,9 +1,14 @@
 package com.prophecy.testing.hooks;
 
+import com.prophecy.testing.api.ProphecyApiClient;
 import com.prophecy.testing.config.ConfigManager;
 import com.prophecy.testing.config.WebDriverManager;
+import com.prophecy.testing.data.FixtureCache;
 import com.prophecy.testing.data.TestDataManager;
+import com.prophecy.testing.reporting.ExtentReportManager;
 import com.prophecy.testing.utils.ScreenshotUtils;
+import com.prophecy.testing.utils.ScreenshotWriter;
+import com.prophecy.testing.utils.WaitEngine;
 import io.cucumber.java.After;
 import io.cucumber.java.AfterAll;
 import io.cucumber.java.Before;
@@ -12,13 +17,20 @@ import io.cucumber.java.Scenario;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Cucumber hooks for test setup and teardown
  */
 public class TestHooks {
     private static final Logger logger = LogManager.getLogger(TestHooks.class);
     private static ConfigManager config;
-    private static TestDataManager testDataManager;
+    // Mock data directories of parallel workers, removed once the suite completes
+    private static final Set<String> workerPaths = ConcurrentHashMap.newKeySet();
+    // Cucumber creates hook instances per scenario, so each concurrent scenario has its own manager
+    private final TestDataManager testDataManager = new TestDataManager();
     
     @BeforeAll
     public static void globalSetup() {
@@ -26,21 +38,37 @@ public class TestHooks {
         
         // Initialize configuration
         config = ConfigManager.getInstance();
-        testDataManager = new TestDataManager();
         
-        // Clean up old screenshots
-        ScreenshotUtils.cleanupOldScreenshots(7); // Keep screenshots for 7 days
+        // Clean up old screenshots off the critical path
+        ScreenshotUtils.cleanupOldScreenshotsInBackground(config.getScreenshotsRetentionDays());
         
         logger.info("Global test setup completed");
     }
     
+    /**
+     * Give each worker thread its own mock data directory when scenarios run in parallel, so
+     * scenarios generating the same file names do not overwrite each other
+     */
+    @Before(order = 0)
+    public void isolateScenarioResources(Scenario scenario) {
+        config.clearThreadProperties();
+        WaitEngine.startScenario();
+        ExtentReportManager.createTest(scenario.getName(), scenario.getUri() + ":" + scenario.getLine())
+                .assignCategory(scenario.getSourceTagNames().toArray(new String[0]));
+        if (config.isParallelExecution()) {
+            // The process id keeps the directories of concurrent shard JVMs apart
+            String workerPath = config.getMockDataPath() + "/worker-" + ProcessHandle.current().pid()
+                    + "-" + Thread.currentThread().getId();
+            config.setThreadProperty("mock.data.path", workerPath);
+            workerPaths.add(workerPath);
+            logger.debug("Scenario {} uses mock data path {}", scenario.getName(), workerPath);
+        }
+    }
+    
     @Before
     public void setUp(Scenario scenario) {
         logger.info("=== Starting Test Scenario: {} ===", scenario.getName());
         
-        // Initialize WebDriver
-        WebDriverManager.initializeDriver();
-        
         // Log scenario tags
         if (!scenario.getSourceTagNames().isEmpty()) {
             logger.info("Scenario tags: {}", scenario.getSourceTagNames());
@@ -49,42 +77,51 @@ public class TestHooks {
         logger.info("Test scenario setup completed for: {}", scenario.getName());
     }
     
+    @Before("not @local")
+    public void setUpBrowser(Scenario scenario) {
+        // Local scenarios run without the Prophecy UI, so they never start a browser
+        WebDriverManager.initializeDriver();
+    }
+    
     @After
     public void tearDown(Scenario scenario) {
         logger.info("=== Finishing Test Scenario: {} ===", scenario.getName());
         
+        if (scenario.isFailed()) {
+            logger.error("Scenario failed: {}", scenario.getName());
+        } else {
+            logger.info("Scenario passed: {}", scenario.getName());
+        }
+        logger.info("Scenario status: {}", scenario.getStatus());
+        
+        logger.info("Test scenario teardown completed for: {}", scenario.getName());
+    }
+    
+    @After("not @local")
+    public void tearDownBrowser(Scenario scenario) {
         try {
             // Take screenshot if scenario failed
             if (scenario.isFailed()) {
-                logger.error("Scenario failed: {}", scenario.getName());
-                
-                String screenshotPath = ScreenshotUtils.takeFailureScreenshot(
+                // Captured once; the file is written in the background and the same bytes are attached to the report
+                ScreenshotUtils.CapturedScreenshot screenshot = ScreenshotUtils.captureFailureScreenshot(
                         scenario.getName().replaceAll(" ", "_"),
                         "Scenario failed"
                 );
                 
-                if (screenshotPath != null) {
-                    // Attach screenshot to Cucumber report
-                    byte[] screenshot = ScreenshotUtils.getScreenshotAsBytes();
-                    if (screenshot.length > 0) {
-                        scenario.attach(screenshot, "image/png", "Screenshot");
+                if (screenshot.getBytes().length > 0) {
+                    scenario.attach(screenshot.getBytes(), "image/png", "Screenshot");
+                    ExtentReportManager.ReportTest reportTest = ExtentReportManager.getTest();
+                    if (reportTest != null && screenshot.getPath() != null) {
+                        reportTest.addScreenCaptureFromPath(screenshot.getPath());
                     }
                 }
-            } else {
-                logger.info("Scenario passed: {}", scenario.getName());
             }
-            
-            // Log scenario status
-            logger.info("Scenario status: {}", scenario.getStatus());
-            
         } catch (Exception e) {
             logger.error("Error during scenario teardown: {}", e.getMessage());
         } finally {
-            // Always quit the driver
-            WebDriverManager.quitDriver();
+            // Always return the driver; the session of a failed scenario is not reused
+            WebDriverManager.releaseDriver(scenario.isFailed());
         }
-        
-        logger.info("Test scenario teardown completed for: {}", scenario.getName());
     }
     
     @AfterAll
@@ -92,13 +129,18 @@ public class TestHooks {
         logger.info("=== Test Suite Execution Completed ===");
         
         try {
-            // Clean up test data
-            if (testDataManager != null) {
-                testDataManager.cleanupTestData();
-            }
+            // Clean up test data and the directories of parallel workers
+            TestDataManager dataManager = new TestDataManager();
+            dataManager.cleanupTestData();
+            workerPaths.forEach(dataManager::cleanupDirectory);
+            workerPaths.clear();
+            logger.info("Fixture cache statistics: {}", FixtureCache.getInstance().getStatistics());
             
             // Final cleanup
             WebDriverManager.quitAllDrivers();
+            ProphecyApiClient.shutdownRunMonitor();
+            ScreenshotWriter.awaitPendingWrites(Duration.ofSeconds(30));
+            ExtentReportManager.flushReports();
             
             logger.info("Global test teardown completed successfully");
         } catch (Exception e) {
@@ -106,6 +148,30 @@ public class TestHooks {
         }
     }
     
+    @After(order = 0)
+    public void releaseScenarioResources(Scenario scenario) {
+        config.clearThreadProperties();
+        
+        ExtentReportManager.ReportTest reportTest = ExtentReportManager.getTest();
+        if (reportTest != null) {
+            if (scenario.isFailed()) {
+                reportTest.fail("Scenario " + scenario.getStatus());
+            } else {
+                reportTest.pass("Scenario " + scenario.getStatus());
+            }
+            ExtentReportManager.removeTest();
+        }
+        
+        // Lint mode reports the time each scenario loses to fixed sleeps
+        WaitEngine.WaitLedger waits = WaitEngine.finishScenario();
+        if (config.isWaitLintEnabled() && waits.getSleepMillis() > 0) {
+            logger.warn("Scenario '{}' spent {}", scenario.getName(), waits.summary());
+            scenario.log("Wait lint: " + waits.summary());
+        } else {
+            logger.debug("Scenario '{}' spent {}", scenario.getName(), waits.summary());
+        }
+    }
+    
     /**
      * Hook for scenarios tagged with @data-setup
      */
@@ -1,6 +1,5 @@
 package com.prophecy.testing.runners;
 
-import io.cucumber.testng.AbstractTestNGCucumberTests;
 import io.cucumber.testng.CucumberOptions;
 
 /**
@@ -19,6 +18,6 @@ import io.cucumber.testng.CucumberOptions;
         publish = true,
         tags = "@smoke"
 )
-public class ExampleTestRunner extends AbstractTestNGCucumberTests {
+public class ExampleTestRunner extends ParallelCucumberTests {
     // This class demonstrates how to run specific feature files
 }
\ No newline at end of file
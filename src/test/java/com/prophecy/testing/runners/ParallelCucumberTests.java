@@ -0,0 +1,61 @@
+package com.prophecy.testing.runners;
+
+import com.prophecy.testing.config.ConfigManager;
+import io.cucumber.testng.AbstractTestNGCucumberTests;
+import io.cucumber.testng.Pickle;
+import io.cucumber.testng.PickleWrapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.annotations.DataProvider;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Base class for runners whose scenarios may run concurrently. The data provider is always parallel;
+ * ParallelExecutionListener sizes its thread pool from parallel.execution and thread.count, so a single
+ * thread runs the scenarios in order when parallel execution is off.
+ *
+ * With shard.total above one only the scenarios of shard shard.index are run, so a suite can be split
+ * across JVMs or machines that each run the same runner with a different index. Every shard plans the
+ * split on its own, so all of them must read the same history: shard.durations.file names a report
+ * shared by all shards, such as the merged reports of the previous sharded run. Until that report
+ * exists, shards are balanced by scenario count.
+ */
+public abstract class ParallelCucumberTests extends AbstractTestNGCucumberTests {
+    private static final Logger logger = LogManager.getLogger(ParallelCucumberTests.class);
+    
+    @Override
+    @DataProvider(parallel = true)
+    public Object[][] scenarios() {
+        Object[][] scenarios = super.scenarios();
+        ConfigManager config = ConfigManager.getInstance();
+        int shardTotal = config.getShardTotal();
+        if (shardTotal <= 1) {
+            return scenarios;
+        }
+        
+        int shardIndex = config.getShardIndex();
+        if (shardIndex < 0 || shardIndex >= shardTotal) {
+            throw new IllegalArgumentException("shard.index must be between 0 and " + (shardTotal - 1) + ": " + shardIndex);
+        }
+        
+        // A report of the runner's own would differ between shards, each holding only its last shard
+        String durationsReport = config.getShardDurationsFile();
+        if (durationsReport == null || durationsReport.trim().isEmpty()) {
+            throw new IllegalArgumentException("shard.durations.file must name a durations report shared by all "
+                    + shardTotal + " shards, e.g. the merged shard reports of the previous run");
+        }
+        List<List<Object[]>> plan = ShardPlanner.fromReport(durationsReport)
+                .plan(Arrays.asList(scenarios), ParallelCucumberTests::scenarioKey, shardTotal);
+        List<Object[]> shard = plan.get(shardIndex);
+        
+        logger.info("Running shard {} of {}: {} of {} scenarios", shardIndex + 1, shardTotal, shard.size(), scenarios.length);
+        return shard.toArray(new Object[0][]);
+    }
+    
+    private static String scenarioKey(Object[] scenario) {
+        Pickle pickle = ((PickleWrapper) scenario[0]).getPickle();
+        return ShardPlanner.scenarioKey(pickle.getUri().toString(), pickle.getLine());
+    }
+}
\ No newline at end of file
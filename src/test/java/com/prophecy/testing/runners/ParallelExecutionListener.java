@@ -0,0 +1,28 @@
+package com.prophecy.testing.runners;
+
+import com.prophecy.testing.config.ConfigManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.IAlterSuiteListener;
+import org.testng.xml.XmlSuite;
+
+import java.util.List;
+
+/**
+ * Sets the data provider thread count of every suite from the parallel execution settings.
+ * Registered through META-INF/services so it applies to suites started by Maven and the IDE alike.
+ */
+public class ParallelExecutionListener implements IAlterSuiteListener {
+    private static final Logger logger = LogManager.getLogger(ParallelExecutionListener.class);
+    
+    @Override
+    public void alter(List<XmlSuite> suites) {
+        ConfigManager config = ConfigManager.getInstance();
+        int threadCount = config.isParallelExecution() ? Math.max(1, config.getThreadCount()) : 1;
+        
+        for (XmlSuite suite : suites) {
+            suite.setDataProviderThreadCount(threadCount);
+        }
+        logger.info("Running scenarios on {} thread(s)", threadCount);
+    }
+}
\ No newline at end of file
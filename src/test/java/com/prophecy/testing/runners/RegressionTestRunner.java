@@ -1,6 +1,5 @@
 package com.prophecy.testing.runners;
 
-import io.cucumber.testng.AbstractTestNGCucumberTests;
 import io.cucumber.testng.CucumberOptions;
 
 /**
@@ -20,6 +19,6 @@ import io.cucumber.testng.CucumberOptions;
         publish = true,
         tags = "@positive or @negative"
 )
-public class RegressionTestRunner extends AbstractTestNGCucumberTests {
+public class RegressionTestRunner extends ParallelCucumberTests {
     // This class runs comprehensive regression tests
 }
\ No newline at end of file
@@ -0,0 +1,152 @@
+package com.prophecy.testing.runners;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Splits scenarios into shards of similar total duration using the per-scenario durations of a
+ * previous run's Cucumber JSON report. Scenarios are assigned longest first to the least loaded
+ * shard; scenarios without history are estimated at the average known duration. The plan depends
+ * only on the report and the scenario set, so every shard computes the same plan independently.
+ */
+public class ShardPlanner {
+    private static final Logger logger = LogManager.getLogger(ShardPlanner.class);
+    
+    private final Map<String, Long> durations;
+    private final long defaultDuration;
+    
+    public ShardPlanner(Map<String, Long> durations) {
+        this.durations = durations;
+        this.defaultDuration = durations.isEmpty()
+                ? 1L
+                : Math.max(1L, durations.values().stream().mapToLong(Long::longValue).sum() / durations.size());
+    }
+    
+    /**
+     * Create a planner from a Cucumber JSON report; a missing or unreadable report gives a planner
+     * that balances scenario counts
+     */
+    public static ShardPlanner fromReport(String reportPath) {
+        if (reportPath == null || !Files.exists(Paths.get(reportPath))) {
+            logger.info("No scenario durations found at {}, balancing shards by scenario count", reportPath);
+            return new ShardPlanner(Collections.emptyMap());
+        }
+        try {
+            Map<String, Long> durations = readDurations(Paths.get(reportPath));
+            logger.info("Loaded durations of {} scenarios from {}", durations.size(), reportPath);
+            return new ShardPlanner(durations);
+        } catch (IOException e) {
+            logger.warn("Failed to read scenario durations from {}: {}", reportPath, e.getMessage());
+            return new ShardPlanner(Collections.emptyMap());
+        }
+    }
+    
+    /**
+     * Assign scenarios to shards, keeping the original order of the scenarios within each shard
+     */
+    public <T> List<List<T>> plan(List<T> scenarios, Function<T, String> keyFunction, int shardTotal) {
+        List<Integer> order = new ArrayList<>();
+        long[] estimates = new long[scenarios.size()];
+        String[] keys = new String[scenarios.size()];
+        for (int i = 0; i < scenarios.size(); i++) {
+            keys[i] = keyFunction.apply(scenarios.get(i));
+            estimates[i] = durations.getOrDefault(keys[i], defaultDuration);
+            order.add(i);
+        }
+        order.sort(Comparator.<Integer>comparingLong(i -> estimates[i]).reversed().thenComparing(i -> keys[i]));
+        
+        long[] loads = new long[shardTotal];
+        PriorityQueue<Integer> shards = new PriorityQueue<>(
+                Comparator.<Integer>comparingLong(shard -> loads[shard]).thenComparingInt(shard -> shard));
+        for (int shard = 0; shard < shardTotal; shard++) {
+            shards.add(shard);
+        }
+        
+        int[] assignment = new int[scenarios.size()];
+        for (int i : order) {
+            int shard = shards.poll();
+            assignment[i] = shard;
+            loads[shard] += estimates[i];
+            shards.add(shard);
+        }
+        
+        List<List<T>> plan = new ArrayList<>();
+        for (int shard = 0; shard < shardTotal; shard++) {
+            plan.add(new ArrayList<>());
+        }
+        for (int i = 0; i < scenarios.size(); i++) {
+            plan.get(assignment[i]).add(scenarios.get(i));
+        }
+        logger.debug("Planned shard loads (ns): {}", Arrays.toString(loads));
+        return plan;
+    }
+    
+    /**
+     * Key identifying a scenario, or an example row of a scenario outline, by feature file and line
+     */
+    public static String scenarioKey(String featureUri, int line) {
+        return featurePath(featureUri) + ":" + line;
+    }
+    
+    /**
+     * Sum the hook, background and step durations of every scenario in a Cucumber JSON report
+     */
+    static Map<String, Long> readDurations(Path report) throws IOException {
+        Map<String, Long> durations = new HashMap<>();
+        JsonNode features = new ObjectMapper().readTree(report.toFile());
+        
+        for (JsonNode feature : features) {
+            String uri = feature.path("uri").asText();
+            long background = 0;
+            for (JsonNode element : feature.path("elements")) {
+                long duration = sumDurations(element.path("before"))
+                        + sumDurations(element.path("steps"))
+                        + sumDurations(element.path("after"));
+                // The background of a feature is reported as its own element before every scenario
+                if ("background".equals(element.path("type").asText())) {
+                    background = duration;
+                    continue;
+                }
+                durations.merge(scenarioKey(uri, element.path("line").asInt()), background + duration, Long::sum);
+                background = 0;
+            }
+        }
+        return durations;
+    }
+    
+    private static long sumDurations(JsonNode results) {
+        long total = 0;
+        for (JsonNode result : results) {
+            total += result.path("result").path("duration").asLong(0);
+        }
+        return total;
+    }
+    
+    /**
+     * Resolve file URIs, which the JSON report writes relative to the working directory and
+     * Cucumber passes to runners as absolute, to the same absolute path
+     */
+    private static String featurePath(String featureUri) {
+        if (!featureUri.startsWith("file:")) {
+            return featureUri;
+        }
+        String path;
+        try {
+            URI uri = URI.create(featureUri);
+            path = uri.isOpaque() ? uri.getSchemeSpecificPart() : uri.getPath();
+        } catch (IllegalArgumentException e) {
+            path = featureUri.substring("file:".length());
+        }
+        return Paths.get(path).toAbsolutePath().normalize().toString();
+    }
+}
\ No newline at end of file
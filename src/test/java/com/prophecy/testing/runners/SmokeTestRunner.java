@@ -1,6 +1,5 @@
 package com.prophecy.testing.runners;
 
-import io.cucumber.testng.AbstractTestNGCucumberTests;
 import io.cucumber.testng.CucumberOptions;
 
 /**
@@ -20,6 +19,6 @@ import io.cucumber.testng.CucumberOptions;
         publish = true,
         tags = "@smoke"
 )
-public class SmokeTestRunner extends AbstractTestNGCucumberTests {
+public class SmokeTestRunner extends ParallelCucumberTests {
     // This class runs only smoke tests for quick validation
 }
\ No newline at end of file
@@ -1,13 +1,16 @@
 package com.prophecy.testing.runners;
 
-import io.cucumber.testng.AbstractTestNGCucumberTests;
 import io.cucumber.testng.CucumberOptions;
 
 /**
  * Test runner for stage-by-stage pipeline testing
  */
 @CucumberOptions(
-        features = "src/test/resources/features/stage_by_stage_testing.feature",
+        features = {
+                "src/test/resources/features/stage_by_stage_testing.feature",
+                "src/test/resources/features/local_stage_testing.feature",
+                "src/test/resources/features/vectorized_stage_testing.feature"
+        },
         glue = {"com.prophecy.testing.stepdefinitions", "com.prophecy.testing.hooks"},
         plugin = {
                 "pretty",
@@ -19,6 +22,6 @@ import io.cucumber.testng.CucumberOptions;
         publish = true,
         tags = "@stage-testing"
 )
-public class StageByStageTestRunner extends AbstractTestNGCucumberTests {
+public class StageByStageTestRunner extends ParallelCucumberTests {
     // This runner executes stage-by-stage testing scenarios
 }
\ No newline at end of file
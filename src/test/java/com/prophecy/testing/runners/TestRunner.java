@@ -1,6 +1,5 @@
 package com.prophecy.testing.runners;
 
-import io.cucumber.testng.AbstractTestNGCucumberTests;
 import io.cucumber.testng.CucumberOptions;
 
 /**
@@ -20,6 +19,6 @@ import io.cucumber.testng.CucumberOptions;
         publish = true,
         tags = "not @ignore"
 )
-public class TestRunner extends AbstractTestNGCucumberTests {
+public class TestRunner extends ParallelCucumberTests {
     // This class serves as the main entry point for running Cucumber tests
 }
\ No newline at end of file
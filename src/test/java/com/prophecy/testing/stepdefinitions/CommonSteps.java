@@ -6,12 +6,15 @@ import com.prophecy.testing.data.TestDataManager;
 import com.prophecy.testing.pages.DashboardPage;
 import com.prophecy.testing.pages.LoginPage;
 import com.prophecy.testing.pages.PipelinesPage;
+import com.prophecy.testing.utils.WaitEngine;
 import io.cucumber.java.en.Given;
 import io.cucumber.java.en.Then;
 import io.cucumber.java.en.When;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.time.Duration;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 /**
@@ -35,8 +38,18 @@ public class CommonSteps {
     public void i_am_logged_into_prophecy_application() {
         logger.info("Logging into Prophecy application");
         
-        // Initialize login page
+        // Get credentials from test data or config
+        String email = config.getProperty("test.user.email", "test@example.com");
+        String password = config.getProperty("test.user.password", "password123");
+        
+        // Reuse the login of an earlier scenario when it is still valid
         loginPage = new LoginPage();
+        dashboardPage = loginPage.restoreSession(email);
+        if (dashboardPage != null) {
+            logger.info("Reused saved login session");
+            return;
+        }
+        
         loginPage.navigateToLoginPage();
         
         // Verify login page is displayed
@@ -44,10 +57,6 @@ public class CommonSteps {
                 .as("Login page should be displayed")
                 .isTrue();
         
-        // Get credentials from test data or config
-        String email = config.getProperty("test.user.email", "test@example.com");
-        String password = config.getProperty("test.user.password", "password123");
-        
         // Perform login
         dashboardPage = loginPage.login(email, password);
         
@@ -56,6 +65,8 @@ public class CommonSteps {
                 .as("Dashboard should be loaded after login")
                 .isTrue();
         
+        loginPage.saveSession(email);
+        
         logger.info("Successfully logged into Prophecy application");
     }
     
@@ -142,13 +153,13 @@ public class CommonSteps {
     
     @Given("I wait for {int} seconds")
     public void i_wait_for_seconds(int seconds) {
-        logger.info("Waiting for {} seconds", seconds);
+        logger.info("Waiting up to {} seconds for the page to settle", seconds);
         
-        try {
-            Thread.sleep(seconds * 1000L);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            logger.warn("Wait interrupted: {}", e.getMessage());
+        // Without a browser there is nothing to observe, so the step falls back to sleeping
+        if (WebDriverManager.isDriverInitialized()) {
+            WaitEngine.waitForDomToSettle(WebDriverManager.getDriver(), Duration.ofSeconds(seconds));
+        } else {
+            WaitEngine.sleep(Duration.ofSeconds(seconds), "I wait for " + seconds + " seconds");
         }
         
         logger.info("Wait completed");
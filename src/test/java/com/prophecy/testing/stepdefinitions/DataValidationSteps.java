@@ -1,11 +1,14 @@
 package com.prophecy.testing.stepdefinitions;
 
+import com.prophecy.testing.data.DistributionComparator;
+import com.prophecy.testing.data.FieldProfile;
+import com.prophecy.testing.data.SpaceSavingTopK;
 import com.prophecy.testing.data.TestDataManager;
 import com.prophecy.testing.models.DataSchema;
+import com.prophecy.testing.models.DataType;
 import com.prophecy.testing.models.Pipeline;
 import com.prophecy.testing.models.PipelineStage;
-import com.prophecy.testing.pages.PipelineEditorPage;
-import com.prophecy.testing.pages.PipelinesPage;
+import com.prophecy.testing.models.SchemaField;
 import io.cucumber.java.en.And;
 import io.cucumber.java.en.Given;
 import io.cucumber.java.en.Then;
@@ -14,8 +17,11 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -25,8 +31,6 @@ import static org.assertj.core.api.Assertions.assertThat;
 public class DataValidationSteps {
     private static final Logger logger = LogManager.getLogger(DataValidationSteps.class);
     
-    private final PipelinesPage pipelinesPage;
-    private final PipelineEditorPage pipelineEditorPage;
     private final TestDataManager testDataManager;
     
     private Pipeline currentPipeline;
@@ -35,8 +39,6 @@ public class DataValidationSteps {
     private Map<String, Object> validationResults;
     
     public DataValidationSteps() {
-        this.pipelinesPage = new PipelinesPage();
-        this.pipelineEditorPage = new PipelineEditorPage();
         this.testDataManager = new TestDataManager();
     }
     
@@ -54,6 +56,11 @@ public class DataValidationSteps {
         for (Map<String, String> field : fields) {
             // Add fields to schema based on the data table
             logger.info("Adding field: {} of type: {}", field.get("field_name"), field.get("data_type"));
+            currentSchema.addField(new SchemaField(
+                field.get("field_name"),
+                DataType.valueOf(field.get("data_type").toUpperCase()),
+                !"false".equalsIgnoreCase(field.get("nullable"))
+            ));
         }
         
         assertThat(currentSchema).isNotNull();
@@ -258,6 +265,162 @@ public class DataValidationSteps {
         logger.info("All data formats are valid");
     }
     
+    @Then("the most frequent value of field {string} should be {string}")
+    public void theMostFrequentValueOfFieldShouldBe(String fieldName, String expectedValue) {
+        logger.info("Verifying the most frequent value of field '{}' is '{}'", fieldName, expectedValue);
+        
+        List<SpaceSavingTopK.Entry> topValues = fieldProfile(fieldName).getHeavyHitters(1);
+        
+        assertThat(topValues)
+            .as("Most frequent values of field '%s'", fieldName)
+            .isNotEmpty();
+        assertThat(topValues.get(0).getValue())
+            .as("Most frequent value of field '%s'", fieldName)
+            .isEqualTo(expectedValue);
+        
+        logger.info("Most frequent value of field '{}': {}", fieldName, topValues.get(0));
+    }
+    
+    @Then("the top {int} values of field {string} should include {string}")
+    public void theTopValuesOfFieldShouldInclude(int k, String fieldName, String expectedValue) {
+        logger.info("Verifying the top {} values of field '{}' include '{}'", k, fieldName, expectedValue);
+        
+        List<SpaceSavingTopK.Entry> topValues = fieldProfile(fieldName).getHeavyHitters(k);
+        
+        assertThat(topValues)
+            .as("Top %d values of field '%s'", k, fieldName)
+            .extracting(SpaceSavingTopK.Entry::getValue)
+            .contains(expectedValue);
+        
+        logger.info("Top {} values of field '{}': {}", k, fieldName, topValues);
+    }
+    
+    @Then("field {string} should have about {long} records with value {string}")
+    public void fieldShouldHaveAboutRecordsWithValue(String fieldName, long expectedCount, String value) {
+        logger.info("Verifying field '{}' has about {} records with value '{}'", fieldName, expectedCount, value);
+        
+        // Counts are exact for fields with few distinct values, otherwise the expected count must lie within the error bounds
+        FieldProfile profile = fieldProfile(fieldName);
+        long minimum = profile.minimumCount(value);
+        long maximum = profile.estimateCount(value);
+        
+        assertThat(expectedCount)
+            .as("Records with value '%s' in field '%s' (between %d and %d)", value, fieldName, minimum, maximum)
+            .isBetween(minimum, maximum);
+        
+        logger.info("Field '{}' has between {} and {} records with value '{}'", fieldName, minimum, maximum, value);
+    }
+    
+    @Then("no value of field {string} should occur in more than {double}% of records")
+    public void noValueOfFieldShouldOccurInMoreThanOfRecords(String fieldName, double maxShare) {
+        logger.info("Verifying no value of field '{}' occurs in more than {}% of records", fieldName, maxShare);
+        
+        FieldProfile profile = fieldProfile(fieldName);
+        List<SpaceSavingTopK.Entry> topValues = profile.getHeavyHitters(1);
+        
+        // Fails only on values certain to exceed the share; the count of an approximate entry may be too high by its error
+        if (!topValues.isEmpty() && profile.getCount() > 0) {
+            SpaceSavingTopK.Entry top = topValues.get(0);
+            double share = (double) (top.getCount() - top.getError()) / profile.getCount() * 100.0;
+            
+            assertThat(share)
+                .as("Share of value '%s' in field '%s'", top.getValue(), fieldName)
+                .isLessThanOrEqualTo(maxShare);
+            
+            logger.info("Most frequent value of field '{}' is '{}' at {}%", fieldName, top.getValue(), share);
+        }
+    }
+    
+    @Then("the mean of field {string} should be between {double} and {double}")
+    public void theMeanOfFieldShouldBeBetween(String fieldName, double lower, double upper) {
+        logger.info("Verifying the mean of field '{}' is between {} and {}", fieldName, lower, upper);
+        
+        Double mean = fieldProfile(fieldName).getMean();
+        
+        assertThat(mean)
+            .as("Mean of field '%s'", fieldName)
+            .isNotNull()
+            .isBetween(lower, upper);
+        
+        logger.info("Mean of field '{}': {}", fieldName, mean);
+    }
+    
+    @Then("the standard deviation of field {string} should be at most {double}")
+    public void theStandardDeviationOfFieldShouldBeAtMost(String fieldName, double maxStandardDeviation) {
+        logger.info("Verifying the standard deviation of field '{}' is at most {}", fieldName, maxStandardDeviation);
+        
+        Double standardDeviation = fieldProfile(fieldName).getStandardDeviation();
+        
+        assertThat(standardDeviation)
+            .as("Standard deviation of field '%s'", fieldName)
+            .isNotNull()
+            .isLessThanOrEqualTo(maxStandardDeviation);
+        
+        logger.info("Standard deviation of field '{}': {}", fieldName, standardDeviation);
+    }
+    
+    @Then("the {int}th percentile of field {string} should be between {double} and {double}")
+    public void thePercentileOfFieldShouldBeBetween(int percentile, String fieldName, double lower, double upper) {
+        logger.info("Verifying the {}th percentile of field '{}' is between {} and {}", percentile, fieldName, lower, upper);
+        
+        Double value = fieldProfile(fieldName).getQuantile(percentile / 100.0);
+        
+        assertThat(value)
+            .as("%dth percentile of field '%s'", percentile, fieldName)
+            .isNotNull()
+            .isBetween(lower, upper);
+        
+        logger.info("{}th percentile of field '{}': {}", percentile, fieldName, value);
+    }
+    
+    @Then("the numeric fields should match the data in {string} within {double}%")
+    public void theNumericFieldsShouldMatchTheDataInWithin(String expectedDataFile, double tolerance) {
+        logger.info("Comparing numeric fields with the data in {} (tolerance {}%)", expectedDataFile, tolerance);
+        
+        Map<String, Double> deviations = numericDeviationsFrom(expectedDataFile);
+        
+        assertThat(deviations)
+            .as("Numeric fields compared with %s", expectedDataFile)
+            .isNotEmpty();
+        
+        for (Map.Entry<String, Double> entry : deviations.entrySet()) {
+            assertThat(entry.getValue())
+                .as("Deviation of field '%s' from %s", entry.getKey(), expectedDataFile)
+                .isLessThanOrEqualTo(tolerance);
+            
+            logger.info("Field '{}' deviates by {}%", entry.getKey(), entry.getValue());
+        }
+    }
+    
+    @Then("the numeric field {string} should differ from the data in {string} by more than {double}%")
+    public void theNumericFieldShouldDifferFromTheDataInByMoreThan(String fieldName, String expectedDataFile, double tolerance) {
+        logger.info("Verifying field '{}' deviates from the data in {} by more than {}%", fieldName, expectedDataFile, tolerance);
+        
+        Map<String, Double> deviations = numericDeviationsFrom(expectedDataFile);
+        
+        assertThat(deviations)
+            .as("Numeric fields compared with %s", expectedDataFile)
+            .containsKey(fieldName);
+        assertThat(deviations.get(fieldName))
+            .as("Deviation of field '%s' from %s", fieldName, expectedDataFile)
+            .isGreaterThan(tolerance);
+        
+        logger.info("Field '{}' deviates by {}%", fieldName, deviations.get(fieldName));
+    }
+    
+    private Map<String, Double> numericDeviationsFrom(String expectedDataFile) {
+        assertThat(validationResults).isNotNull();
+        
+        try {
+            // Both sides are reduced to field profiles, so the expected data is never compared row by row
+            Map<String, Object> expectedResults = testDataManager.validateDataFile(expectedDataFile, currentSchema);
+            return testDataManager.compareNumericStatistics(validationResults, expectedResults);
+        } catch (IOException e) {
+            logger.error("Failed to profile expected data {}: {}", expectedDataFile, e.getMessage());
+            throw new RuntimeException("Failed to profile expected data", e);
+        }
+    }
+    
     @And("I save the validation results to {string}")
     public void iSaveTheValidationResultsTo(String filePath) {
         logger.info("Saving validation results to: {}", filePath);
@@ -279,6 +442,97 @@ public class DataValidationSteps {
         }
     }
     
+    @And("I save the data profile as baseline {string}")
+    public void iSaveTheDataProfileAsBaseline(String baselinePath) {
+        logger.info("Saving data profile as baseline: {}", baselinePath);
+        
+        assertThat(validationResults).isNotNull();
+        
+        try {
+            testDataManager.saveDataProfile(validationResults, baselinePath);
+            
+            assertThat(new File(baselinePath)).exists();
+            
+            logger.info("Baseline profile saved to: {}", baselinePath);
+        } catch (IOException e) {
+            logger.error("Failed to save baseline profile: {}", e.getMessage());
+            throw new RuntimeException("Failed to save baseline profile", e);
+        }
+    }
+    
+    @Then("the data distribution should match the baseline {string}")
+    public void theDataDistributionShouldMatchTheBaseline(String baselinePath) {
+        logger.info("Comparing data distribution with baseline: {}", baselinePath);
+        
+        DistributionComparator.DriftReport report = compareWithBaseline(baselinePath);
+        
+        assertThat(report.getDriftedColumns())
+            .as("Columns drifted from baseline %s", baselinePath)
+            .isEmpty();
+        
+        logger.info("Data distribution matches baseline: {}", baselinePath);
+    }
+    
+    @Then("the KS distance of field {string} from the baseline {string} should be at most {double}")
+    public void theKsDistanceOfFieldFromTheBaselineShouldBeAtMost(String fieldName, String baselinePath, double maxDistance) {
+        logger.info("Verifying KS distance of field '{}' from baseline {} is at most {}", fieldName, baselinePath, maxDistance);
+        
+        DistributionComparator.ColumnDrift drift = compareWithBaseline(baselinePath).getColumn(fieldName)
+            .orElseThrow(() -> new AssertionError("Field '" + fieldName + "' is not in baseline " + baselinePath));
+        
+        assertThat(drift.getKsDistance())
+            .as("KS distance of field '%s' from baseline %s", fieldName, baselinePath)
+            .isNotNull()
+            .isLessThanOrEqualTo(maxDistance);
+        
+        logger.info("KS distance of field '{}': {}", fieldName, drift.getKsDistance());
+    }
+    
+    @Then("the KS distance of field {string} from the baseline {string} should be more than {double}")
+    public void theKsDistanceOfFieldFromTheBaselineShouldBeMoreThan(String fieldName, String baselinePath, double minDistance) {
+        logger.info("Verifying KS distance of field '{}' from baseline {} is more than {}", fieldName, baselinePath, minDistance);
+        
+        DistributionComparator.ColumnDrift drift = compareWithBaseline(baselinePath).getColumn(fieldName)
+            .orElseThrow(() -> new AssertionError("Field '" + fieldName + "' is not in baseline " + baselinePath));
+        
+        assertThat(drift.getKsDistance())
+            .as("KS distance of field '%s' from baseline %s", fieldName, baselinePath)
+            .isNotNull()
+            .isGreaterThan(minDistance);
+        
+        logger.info("KS distance of field '{}': {}", fieldName, drift.getKsDistance());
+    }
+    
+    @Then("the PSI of field {string} from the baseline {string} should be more than {double}")
+    public void thePsiOfFieldFromTheBaselineShouldBeMoreThan(String fieldName, String baselinePath, double minPsi) {
+        logger.info("Verifying PSI of field '{}' from baseline {} is more than {}", fieldName, baselinePath, minPsi);
+        
+        DistributionComparator.ColumnDrift drift = compareWithBaseline(baselinePath).getColumn(fieldName)
+            .orElseThrow(() -> new AssertionError("Field '" + fieldName + "' is not in baseline " + baselinePath));
+        
+        assertThat(drift.getPsi())
+            .as("PSI of field '%s' from baseline %s", fieldName, baselinePath)
+            .isNotNull()
+            .isGreaterThan(minPsi);
+        
+        logger.info("PSI of field '{}': {}", fieldName, drift.getPsi());
+    }
+    
+    @Then("only field {string} should have drifted from the baseline {string}")
+    public void onlyFieldShouldHaveDriftedFromTheBaseline(String fieldName, String baselinePath) {
+        logger.info("Verifying only field '{}' drifted from baseline: {}", fieldName, baselinePath);
+        
+        List<String> drifted = compareWithBaseline(baselinePath).getDriftedColumns().stream()
+            .map(DistributionComparator.ColumnDrift::getColumn)
+            .collect(Collectors.toList());
+        
+        assertThat(drifted)
+            .as("Columns drifted from baseline %s", baselinePath)
+            .containsExactly(fieldName);
+        
+        logger.info("Field '{}' drifted from baseline: {}", fieldName, baselinePath);
+    }
+    
     @When("I load test data from {string}")
     public void iLoadTestDataFrom(String filePath) {
         logger.info("Loading test data from: {}", filePath);
@@ -296,6 +550,27 @@ public class DataValidationSteps {
         }
     }
     
+    @When("I validate the data file {string} in a single streaming pass")
+    public void iValidateTheDataFileInASingleStreamingPass(String filePath) {
+        logger.info("Validating data file in a streaming pass: {}", filePath);
+        
+        if (currentSchema == null) {
+            currentSchema = testDataManager.createDefaultSchema();
+        }
+        
+        try {
+            validationResults = testDataManager.validateDataFile(filePath, currentSchema);
+            
+            assertThat(validationResults).isNotNull();
+            assertThat(validationResults.get("record_count")).isNotEqualTo(0L);
+            
+            logger.info("Streaming validation completed for: {}", filePath);
+        } catch (Exception e) {
+            logger.error("Failed to validate data file {}: {}", filePath, e.getMessage());
+            throw new RuntimeException("Failed to validate data file", e);
+        }
+    }
+    
     @When("I compare the data with expected results from {string}")
     public void iCompareTheDataWithExpectedResultsFrom(String expectedResultsFile) {
         logger.info("Comparing data with expected results from: {}", expectedResultsFile);
@@ -318,6 +593,25 @@ public class DataValidationSteps {
         }
     }
     
+    @Then("the data file {string} should match the data file {string} sorted by {string}")
+    public void theDataFileShouldMatchTheDataFileSortedBy(String actualFile, String expectedFile, String keyColumns) {
+        logger.info("Comparing data file {} with {} sorted by {}", actualFile, expectedFile, keyColumns);
+        
+        try {
+            List<String> keys = Arrays.stream(keyColumns.split(","))
+                    .map(String::trim)
+                    .collect(Collectors.toList());
+            boolean isMatch = testDataManager.compareDataFiles(actualFile, expectedFile, null, keys);
+            
+            assertThat(isMatch).isTrue();
+            
+            logger.info("Data file comparison completed successfully");
+        } catch (IOException e) {
+            logger.error("Failed to compare data files: {}", e.getMessage());
+            throw new RuntimeException("Data file comparison failed", e);
+        }
+    }
+    
     @Then("the data should match the expected results")
     public void theDataShouldMatchTheExpectedResults() {
         logger.info("Verifying data matches expected results");
@@ -349,4 +643,30 @@ public class DataValidationSteps {
             throw new RuntimeException("Failed to generate data quality report", e);
         }
     }
+    
+    private DistributionComparator.DriftReport compareWithBaseline(String baselinePath) {
+        assertThat(validationResults).isNotNull();
+        
+        try {
+            return testDataManager.compareWithBaseline(validationResults, baselinePath);
+        } catch (IOException e) {
+            logger.error("Failed to load baseline profile {}: {}", baselinePath, e.getMessage());
+            throw new RuntimeException("Failed to load baseline profile", e);
+        }
+    }
+    
+    private FieldProfile fieldProfile(String fieldName) {
+        assertThat(validationResults).isNotNull();
+        
+        Object profiles = validationResults.get("field_profiles");
+        assertThat(profiles)
+            .as("Field profiles in the validation results")
+            .isInstanceOf(Map.class);
+        
+        Object profile = ((Map<?, ?>) profiles).get(fieldName);
+        assertThat(profile)
+            .as("Profile of field '%s'", fieldName)
+            .isInstanceOf(FieldProfile.class);
+        return (FieldProfile) profile;
+    }
 }
\ No newline at end of file
@@ -1,11 +1,15 @@
 package com.prophecy.testing.stepdefinitions;
 
+import com.prophecy.testing.api.PipelineRunMonitor;
+import com.prophecy.testing.api.ProphecyApiClient;
+import com.prophecy.testing.config.ConfigManager;
 import com.prophecy.testing.data.MockDataGenerator;
 import com.prophecy.testing.data.TestDataManager;
 import com.prophecy.testing.models.DataSchema;
 import com.prophecy.testing.models.Pipeline;
 import com.prophecy.testing.pages.PipelineEditorPage;
 import com.prophecy.testing.pages.PipelinesPage;
+import com.prophecy.testing.utils.WaitEngine;
 import io.cucumber.datatable.DataTable;
 import io.cucumber.java.en.Given;
 import io.cucumber.java.en.Then;
@@ -13,8 +17,10 @@ import io.cucumber.java.en.When;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -32,6 +38,7 @@ public class PipelineExecutionSteps {
     private String executionStatus;
     private boolean executionStarted = false;
     private long executionStartTime;
+    private CompletableFuture<PipelineRunMonitor.RunStatus> trackedRun;
     
     public PipelineExecutionSteps() {
         this.testDataManager = new TestDataManager();
@@ -116,6 +123,7 @@ public class PipelineExecutionSteps {
             executionStartTime = System.currentTimeMillis();
             pipelineEditorPage.runPipeline();
             executionStarted = true;
+            trackedRun = trackRun();
             
             logger.info("Pipeline execution started: {}", currentPipelineName);
         } catch (Exception e) {
@@ -140,24 +148,11 @@ public class PipelineExecutionSteps {
         logger.info("Verifying pipeline status changes to: {}", expectedStatus);
         
         if (pipelineEditorPage != null) {
-            // Wait for status change
-            int maxWaitTime = 30; // 30 seconds
-            int waitTime = 0;
-            
-            while (waitTime < maxWaitTime) {
+            // Wait up to 30 seconds for the status change
+            WaitEngine.poll(() -> {
                 executionStatus = pipelineEditorPage.getExecutionStatus();
-                if (executionStatus.toLowerCase().contains(expectedStatus.toLowerCase())) {
-                    break;
-                }
-                
-                try {
-                    Thread.sleep(1000);
-                    waitTime++;
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
-            }
+                return executionStatus.toLowerCase().contains(expectedStatus.toLowerCase());
+            }, Duration.ofSeconds(30));
         }
         
         assertThat(executionStatus)
@@ -189,7 +184,7 @@ public class PipelineExecutionSteps {
         
         if (pipelineEditorPage != null) {
             // Wait for completion
-            pipelineEditorPage.waitForExecutionToComplete();
+            waitForExecutionToComplete();
             
             String finalStatus = pipelineEditorPage.getExecutionStatus();
             
@@ -376,7 +371,7 @@ public class PipelineExecutionSteps {
         logger.info("Verifying execution time limits");
         
         if (pipelineEditorPage != null) {
-            pipelineEditorPage.waitForExecutionToComplete();
+            waitForExecutionToComplete();
             
             long executionTime = System.currentTimeMillis() - executionStartTime;
             long maxExecutionTime = 600000; // 10 minutes
@@ -416,4 +411,33 @@ public class PipelineExecutionSteps {
         
         logger.info("Record processing verification completed");
     }
+    
+    /**
+     * Start following the run over the API when enabled and the editor shows which run it is
+     */
+    private CompletableFuture<PipelineRunMonitor.RunStatus> trackRun() {
+        if (!ConfigManager.getInstance().isRunMonitorEnabled()) {
+            return null;
+        }
+        try {
+            String pipelineId = pipelineEditorPage.getPipelineId();
+            String runId = pipelineEditorPage.getRunId();
+            if (pipelineId == null || runId == null) {
+                logger.info("Run of {} cannot be identified, its status will be read from the editor", currentPipelineName);
+                return null;
+            }
+            return new ProphecyApiClient().monitorRun(pipelineId, runId);
+        } catch (Exception e) {
+            logger.warn("Failed to track run over the API: {}", e.getMessage());
+            return null;
+        }
+    }
+    
+    private void waitForExecutionToComplete() {
+        if (trackedRun != null) {
+            pipelineEditorPage.waitForExecutionToComplete(trackedRun);
+        } else {
+            pipelineEditorPage.waitForExecutionToComplete();
+        }
+    }
 }
\ No newline at end of file
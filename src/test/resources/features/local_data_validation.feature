@@ -0,0 +1,82 @@
+@data @validation @local
+Feature: Local Data Profiling and Comparison
+  As a data engineer
+  I want to profile and compare data files without the Prophecy application
+  So that I can check data quality while developing a pipeline
+
+  @profiling
+  Scenario: Find the most frequent values of each field
+    When I load test data from "src/test/resources/testdata/mockdata/sample_customers.csv"
+    And I validate the data quality
+    Then the most frequent value of field "is_active" should be "true"
+    And the top 2 values of field "is_active" should include "false"
+    And field "is_active" should have about 7 records with value "true"
+    And no value of field "id" should occur in more than 20.0% of records
+
+  @profiling @streaming
+  Scenario: Validate a data file in a single streaming pass
+    Given I have a data schema with the following fields:
+      | field_name   | data_type | nullable |
+      | id           | Integer   | false    |
+      | name         | String    | false    |
+      | age          | Integer   | true     |
+      | salary       | Double    | true     |
+      | is_active    | Boolean   | true     |
+      | created_date | Date      | false    |
+      | last_updated | Timestamp | true     |
+    When I validate the data file "src/test/resources/testdata/mockdata/sample_customers_shuffled.jsonl" in a single streaming pass
+    Then the data quality validation should pass
+    And the completeness should be at least 100% for all required fields
+    And all data formats should be valid
+    And the mean of field "age" should be between 25 and 40
+    And the numeric fields should match the data in "src/test/resources/testdata/mockdata/sample_customers.csv" within 1%
+
+  @profiling
+  Scenario: Check numeric field statistics against an expected dataset
+    Given I have a data schema with the following fields:
+      | field_name | data_type | nullable |
+      | age        | Integer   | true     |
+      | salary     | Double    | true     |
+    When I load test data from "src/test/resources/testdata/mockdata/sample_customers.csv"
+    And I validate the data quality
+    Then the mean of field "age" should be between 25 and 40
+    And the standard deviation of field "age" should be at most 10
+    And the 50th percentile of field "salary" should be between 60000 and 90000
+    And the numeric fields should match the data in "src/test/resources/testdata/mockdata/sample_customers_shuffled.jsonl" within 1%
+    And the numeric field "salary" should differ from the data in "src/test/resources/testdata/mockdata/sample_customers_salary_raise.csv" by more than 1%
+
+  @profiling
+  Scenario: Profile a numeric field spanning many orders of magnitude
+    Given I have a data schema with the following fields:
+      | field_name | data_type | nullable |
+      | reading    | Double    | true     |
+    When I load test data from "src/test/resources/testdata/mockdata/sample_sensor_readings.csv"
+    And I validate the data quality
+    Then the mean of field "reading" should be between 9900000000000000000 and 10100000000000000000
+    And the 50th percentile of field "reading" should be between -5 and 20000000000000
+    And the numeric fields should match the data in "src/test/resources/testdata/mockdata/sample_sensor_readings_recalibrated.csv" within 1%
+    And the numeric field "reading" should differ from the data in "src/test/resources/testdata/mockdata/sample_sensor_readings_replaced.csv" by more than 1%
+
+  @profiling @drift
+  Scenario: Detect a known shift from a stored distribution baseline
+    Given I have a data schema with the following fields:
+      | field_name | data_type | nullable |
+      | age        | Integer   | true     |
+      | salary     | Double    | true     |
+      | is_active  | Boolean   | true     |
+    When I load test data from "src/test/resources/testdata/mockdata/sample_customers.csv"
+    And I validate the data quality
+    And I save the data profile as baseline "target/baselines/sample_customers.json"
+    And I load test data from "src/test/resources/testdata/mockdata/sample_customers_salary_raise.csv"
+    And I validate the data quality
+    Then only field "salary" should have drifted from the baseline "target/baselines/sample_customers.json"
+    And the KS distance of field "salary" from the baseline "target/baselines/sample_customers.json" should be more than 0.2
+    And the KS distance of field "salary" from the baseline "target/baselines/sample_customers.json" should be at most 0.4
+    And the PSI of field "salary" from the baseline "target/baselines/sample_customers.json" should be more than 1.0
+
+  @comparison
+  Scenario: Compare data files regardless of row order
+    When I load test data from "src/test/resources/testdata/mockdata/sample_customers.csv"
+    And I compare the data with expected results from "src/test/resources/testdata/mockdata/sample_customers_shuffled.jsonl"
+    Then the data should match the expected results
+    And the data file "src/test/resources/testdata/mockdata/sample_customers.csv" should match the data file "src/test/resources/testdata/mockdata/sample_customers_shuffled.jsonl" sorted by "id"
\ No newline at end of file
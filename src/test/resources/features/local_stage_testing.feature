@@ -0,0 +1,27 @@
+@stage-testing @local
+Feature: Local Stage-by-Stage Pipeline Testing
+  As a data engineer
+  I want to run my pipeline definition stage by stage without the Prophecy API
+  So that I get fast feedback on each transformation while developing it
+
+  Background:
+    Given I have a local pipeline definition "local_customer_pipeline.json"
+
+  @smoke @positive
+  Scenario: Execute a pipeline definition locally stage by stage
+    When I execute the pipeline stage by stage with the test data
+    Then all pipeline stages should execute successfully
+    And the output data from stage "Customer Data Source" should contain 10 records
+    And the output data from stage "Active Customers Filter" should contain 6 records
+    And the output data from stage "Salary Rank" should have "salary_rank" equal to "1" where "name" is "Edward Miller"
+    And the output data from stage "Region Totals" should contain 3 records
+    And the output data from stage "Region Totals Target" should have "average_salary" equal to "76500" where "region" is "North"
+    And the pipeline should process data within 5 seconds
+    And I should be able to trace data flow through all stages
+
+  @individual-stage
+  Scenario: Execute a single stage locally with generated data
+    Given I have prepared test data with 1000 records matching the pipeline input schema
+    When I test stage "Active Customers Filter" individually with the test data
+    Then stage "Active Customers Filter" should execute successfully
+    And the output data from stage "Active Customers Filter" should match the expected schema
\ No newline at end of file
@@ -0,0 +1,59 @@
+@stage-testing @local @vectorized
+Feature: Vectorized Local Pipeline Execution
+  As a data engineer
+  I want to run pipeline definitions on batches of column vectors
+  So that I can test them locally on data volumes close to production
+
+  @smoke @positive
+  Scenario: Execute a file-based pipeline with batch operators
+    Given I have a local pipeline definition "vectorized_customer_pipeline.json"
+    When I execute the local pipeline with vectorized operators
+    Then all pipeline stages should execute successfully
+    And the output data from stage "Customer Data Source" should contain 10 records
+    And the output data from stage "Active Customers Filter" should contain 6 records
+    And the output data from stage "Active Customers Target" should contain 6 records
+    And the output data from stage "Active Customers Target" should have "salary" equal to "78000" where "customer_name" is "Edward Miller"
+    And I should be able to trace data flow through all stages
+
+  @performance
+  Scenario: Execute a pipeline over a million generated rows with batch operators
+    Given I have a local pipeline definition "generated_order_pipeline.json"
+    When I execute the local pipeline with vectorized operators
+    Then all pipeline stages should execute successfully
+    And the output data from stage "Generated Orders" should contain 1000000 records
+    And the output data from stage "Large Priority Orders Filter" should contain 48643 records
+    And the output data from stage "Large Orders Target" should contain 48643 records
+    And the pipeline should process data within 10 seconds
+
+  @positive
+  Scenario: Execute a pipeline with lookups, joins and aggregations with batch operators
+    Given I have a local pipeline definition "vectorized_region_pipeline.json"
+    When I execute the local pipeline with vectorized operators
+    Then all pipeline stages should execute successfully
+    And the output data from stage "Region Lookup" should contain 6 records
+    And the output data from stage "Region Managers Join" should contain 6 records
+    And the output data from stage "Region Totals" should contain 3 records
+    And the output data from stage "Region Totals Target" should have "average_salary" equal to "76500" where "region" is "North"
+    And the output data from stage "Region Totals Target" should have "manager" equal to "Tom Hill" where "region" is "East"
+    And I should be able to trace data flow through all stages
+
+  @performance
+  Scenario: Execute joins and aggregations beyond their memory budget with batch operators
+    Given I have a local pipeline definition "generated_customer_order_pipeline.json"
+    When I execute the local pipeline with vectorized operators
+    Then all pipeline stages should execute successfully
+    And the output data from stage "Generated Orders" should contain 500000 records
+    And the output data from stage "Generated Customers" should contain 200000 records
+    And the output data from stage "Order Customers Join" should contain 684139 records
+    And the output data from stage "Customer Totals Target" should contain 183472 records
+    And the pipeline should process data within 30 seconds
+
+  @performance
+  Scenario: Execute a sort beyond its memory budget with batch operators
+    Given I have a local pipeline definition "generated_sorted_order_pipeline.json"
+    When I execute the local pipeline with vectorized operators
+    Then all pipeline stages should execute successfully
+    And the output data from stage "Orders By Category" should contain 500000 records
+    And the output data from stage "Sorted Orders Target" should contain 500000 records
+    And the data file "target/output/generated_sorted_orders.csv" should be sorted by "category, amount DESC"
+    And the pipeline should process data within 30 seconds
\ No newline at end of file